@@ -0,0 +1,78 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.ResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * Publishes the size of the data and the response cache as Micrometer meters. Gauges read the
+ * current snapshot when scraped, so they cost nothing between scrapes. Request latencies come from
+ * Spring's {@code http.server.requests} timer, tagged by route.
+ * <ul>
+ *   <li>{@code safetynet.data.records}: persons, firestations and medical records, tagged by {@code type}</li>
+ *   <li>{@code safetynet.data.index.keys}: distinct keys of each lookup index, tagged by {@code index}</li>
+ *   <li>{@code safetynet.data.version}: version of the published snapshot</li>
+ *   <li>{@code safetynet.cache.requests} (tagged {@code result=hit|miss}), {@code safetynet.cache.evictions},
+ *       {@code safetynet.cache.invalidations} and {@code safetynet.cache.entries}</li>
+ * </ul>
+ */
+@Component
+public class DataMetrics implements MeterBinder {
+
+    private final DataStore dataStore;
+    private final ResponseCache responseCache;
+
+    public DataMetrics(DataStore dataStore, ResponseCache responseCache) {
+        this.dataStore = dataStore;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        records(registry, "persons", data -> data.getPersons().size());
+        records(registry, "firestations", data -> data.getFirestations().size());
+        records(registry, "medicalRecords", data -> data.getMedicalRecords().size());
+        for (DataSnapshot.Index index : DataSnapshot.Index.values()) {
+            Gauge.builder("safetynet.data.index.keys", dataStore, store -> store.snapshot().getIndexSize(index))
+                    .description("Distinct keys of a lookup index")
+                    .tag("index", index.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        Gauge.builder("safetynet.data.version", dataStore, DataStore::getVersion)
+                .description("Version of the published snapshot")
+                .register(registry);
+
+        for (String result : List.of("hit", "miss")) {
+            FunctionCounter.builder("safetynet.cache.requests", responseCache,
+                            cache -> result.equals("hit") ? cache.getHits() : cache.getMisses())
+                    .description("Response cache lookups")
+                    .tag("result", result)
+                    .register(registry);
+        }
+        FunctionCounter.builder("safetynet.cache.evictions", responseCache, ResponseCache::getEvictions)
+                .description("Responses evicted to stay within the maximum number of entries")
+                .register(registry);
+        FunctionCounter.builder("safetynet.cache.invalidations", responseCache, ResponseCache::getInvalidations)
+                .description("Responses evicted because the data they were computed from changed")
+                .register(registry);
+        Gauge.builder("safetynet.cache.entries", responseCache, ResponseCache::size)
+                .description("Cached responses")
+                .register(registry);
+    }
+
+    private void records(MeterRegistry registry, String type, ToIntFunction<DataSnapshot> count) {
+        Gauge.builder("safetynet.data.records", dataStore, store -> count.applyAsInt(store.snapshot()))
+                .description("Records in the published snapshot")
+                .tag("type", type)
+                .register(registry);
+    }
+}
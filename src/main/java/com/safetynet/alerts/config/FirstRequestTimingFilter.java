@@ -0,0 +1,43 @@
+package com.safetynet.alerts.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs how long after JVM start the first request was served, to compare startup paths
+ * (JSON load versus binary snapshot restore). Later requests only pay a volatile read.
+ */
+@Component
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(FirstRequestTimingFilter.class);
+
+    private volatile boolean served;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, response);
+        if (!served) {
+            logFirstRequest(request);
+        }
+    }
+
+    private synchronized void logFirstRequest(HttpServletRequest request) {
+        if (served) {
+            return;
+        }
+        served = true;
+        long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        logger.info("First request {} {} served {} ms after JVM start",
+                request.getMethod(), request.getRequestURI(), sinceStart);
+    }
+}
@@ -1,73 +1,188 @@
 package com.safetynet.alerts.controller;
 
-import com.safetynet.alerts.model.Person;
-import com.safetynet.alerts.model.Firestation;
-import com.safetynet.alerts.model.MedicalRecord;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.NearbyStation;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.model.response.*;
+import com.safetynet.alerts.repository.CanonicalKeys;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.DataVersions;
+import com.safetynet.alerts.repository.NameSearchIndex;
+import com.safetynet.alerts.service.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDate;
-import java.time.Period;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
  * REST controller for SafetyNet alert endpoints.
  * Provides various emergency information endpoints for fire stations, flood alerts,
  * community emails, phone alerts, and person information queries.
+ * Responses are cached per normalised parameters until the data they were computed from changes.
+ * Each response carries a weak ETag made of the version of that data (see {@link DataVersions}), and a
+ * request whose If-None-Match still matches gets 304 Not Modified without computing the response.
+ * <p>
+ * {@code /communityEmail} and {@code /flood/stations} also answer {@code Accept: application/x-ndjson}
+ * by streaming one JSON value per line straight from a snapshot's indexes, as the results are found.
+ * Streamed responses bypass the cache, so memory stays bounded by the set of keys already written
+ * rather than by the whole response. Both representations of these URLs send {@code Vary: Accept} and
+ * ETags naming the representation, so a validator of one never revalidates the other.
+ * <p>
+ * {@code /hazmat} narrows the residents covered by stations to those taking a medication or having an
+ * allergy, through the snapshot's inverted indexes of medical terms.
+ * <p>
+ * {@code /personInfo} also searches last names by prefix or approximately ({@code match=prefix|fuzzy}),
+ * returning the persons of the best matching names first, up to {@code limit} persons.
+ * <p>
+ * {@code /nearby} answers from the positions of geocoded addresses: the stations nearest to a position
+ * and the residents within a radius of it. {@code /fire} reports the station nearest to a geocoded address
+ * that no station covers, instead of "Unknown".
+ * <p>
+ * Each request logs its parameters and a summary with counts at INFO, and its lookup steps at DEBUG;
+ * nothing is logged per resident, so the cost of logging does not grow with the size of the response.
  */
 @RestController
 public class AlertController {
 
-    private final DataLoaderService dataLoaderService;
+    /** Persons returned by a last name search without limit. */
+    static final int DEFAULT_SEARCH_LIMIT = 50;
+    /** Most persons a last name search returns. */
+    static final int MAX_SEARCH_LIMIT = 1000;
+    /** Radius of {@code /nearby} without one, in meters. */
+    static final double DEFAULT_NEARBY_RADIUS = 500;
+    /** Largest radius of {@code /nearby}, in meters. */
+    static final double MAX_NEARBY_RADIUS = 10_000;
+    /** Stations {@code /nearby} returns without a count. */
+    static final int DEFAULT_NEARBY_STATIONS = 3;
+    /** Most stations {@code /nearby} returns. */
+    static final int MAX_NEARBY_STATIONS = 20;
+    /** Farthest a covered address may be from an unmapped one for {@code /fire} to report its station, in meters. */
+    static final double FIRE_FALLBACK_DISTANCE = 10_000;
+
+    private final DataStore dataStore;
+    private final ResponseCache responseCache;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(AlertController.class);
+    // Representations of the URLs answering both JSON and NDJSON, as named in their ETags
+    private static final String JSON = "json";
+    private static final String NDJSON = "ndjson";
+
+    /**
+     * Creates a controller computing every response, without caching.
+     * @param dataStore store to answer from
+     */
+    public AlertController(DataStore dataStore) {
+        this(dataStore, new ResponseCache(dataStore, 0));
+    }
+
+    /**
+     * @param dataStore store to answer from
+     * @param responseCache cache answering repeated requests from the same store
+     */
+    public AlertController(DataStore dataStore, ResponseCache responseCache) {
+        this(dataStore, responseCache, new ObjectMapper());
+    }
 
-    public AlertController(DataLoaderService dataLoaderService) {
-        this.dataLoaderService = dataLoaderService;
+    /**
+     * @param dataStore store to answer from
+     * @param responseCache cache answering repeated requests from the same store
+     * @param objectMapper mapper writing streamed responses, configured like the one writing the others
+     */
+    @Autowired
+    public AlertController(DataStore dataStore, ResponseCache responseCache, ObjectMapper objectMapper) {
+        this.dataStore = dataStore;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
     }
 
     // ----------------- /communityEmail -----------------
     @GetMapping("/communityEmail")
-    public List<String> getEmails(@RequestParam String city) {
+    public List<String> getEmails(@RequestParam String city, WebRequest request) {
         logger.info("Request received for community emails in city: {}", city);
         try {
-            logger.debug("Filtering persons by city: {}", city);
-            List<String> emails = dataLoaderService.getPersons().stream()
-                    .filter(p -> p.getCity().equalsIgnoreCase(city))
-                    .map(Person::getEmail)
-                    .distinct()
-                    .collect(Collectors.toList());
-            logger.info("Successfully retrieved {} emails for city: {}", emails.size(), city);
-            logger.debug("Emails found: {}", emails);
-            return emails;
+            List<String> tags = List.of(DataVersions.city(city));
+            if (notModified(request, tags, JSON)) {
+                return null;
+            }
+            return responseCache.get("communityEmail", tags, data -> {
+                logger.debug("Filtering persons by city: {}", city);
+                List<String> emails = data.getResidentsByCity(city).stream()
+                        .map(resident -> resident.person().getEmail())
+                        .distinct()
+                        .collect(Collectors.toList());
+                logger.info("Successfully retrieved {} emails for city: {}", emails.size(), city);
+                return emails;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving community emails for city: {}", city, e);
             throw e;
         }
     }
 
+    @GetMapping(value = "/communityEmail", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEmails(@RequestParam String city, WebRequest request) {
+        logger.info("Request received for streamed community emails in city: {}", city);
+        if (notModified(request, List.of(DataVersions.city(city)), NDJSON)) {
+            return null;
+        }
+        DataSnapshot data = dataStore.snapshot();
+        return ndjson(out -> {
+            try (JsonGenerator generator = ndjsonGenerator(out)) {
+                Set<String> written = new HashSet<>();
+                for (Resident resident : data.getResidentsByCity(city)) {
+                    String email = resident.person().getEmail();
+                    if (written.add(email)) {
+                        generator.writeString(email);
+                        generator.writeRaw('\n');
+                    }
+                }
+                logger.info("Successfully streamed {} emails for city: {}", written.size(), city);
+            } catch (Exception e) {
+                logger.error("Error streaming community emails for city: {}", city, e);
+                throw e;
+            }
+        });
+    }
+
     // ----------------- /phoneAlert -----------------
     @GetMapping("/phoneAlert")
-    public List<String> getPhones(@RequestParam String firestation) {
+    public List<String> getPhones(@RequestParam String firestation, WebRequest request) {
         logger.info("Request received for phoneAlert for firestation: {}", firestation);
         try {
-            logger.debug("Finding addresses covered by firestation: {}", firestation);
-            List<String> addresses = dataLoaderService.getFirestations().stream()
-                    .filter(f -> f.getStation().equals(firestation))
-                    .map(Firestation::getAddress)
-                    .collect(Collectors.toList());
-            logger.debug("Found {} addresses for firestation {}", addresses.size(), firestation);
-
-            List<String> phones = dataLoaderService.getPersons().stream()
-                    .filter(p -> addresses.contains(p.getAddress()))
-                    .map(Person::getPhone)
-                    .distinct()
-                    .collect(Collectors.toList());
-            logger.info("Successfully retrieved {} phone numbers for firestation: {}", phones.size(), firestation);
-            return phones;
+            List<String> tags = List.of(DataVersions.station(firestation));
+            if (notModified(request, tags)) {
+                return null;
+            }
+            return responseCache.get("phoneAlert", tags, data -> {
+                logger.debug("Finding addresses covered by firestation: {}", firestation);
+                Collection<String> addresses = data.getAddressesForStation(firestation);
+                logger.debug("Found {} addresses for firestation {}", addresses.size(), firestation);
+
+                List<String> phones = addresses.stream()
+                        .flatMap(address -> data.getResidentsAtAddress(address).stream())
+                        .map(resident -> resident.person().getPhone())
+                        .distinct()
+                        .collect(Collectors.toList());
+                logger.info("Successfully retrieved {} phone numbers for firestation: {}", phones.size(), firestation);
+                return phones;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving phone numbers for firestation: {}", firestation, e);
             throw e;
@@ -76,45 +191,38 @@ public class AlertController {
 
     // ----------------- /childAlert -----------------
     @GetMapping("/childAlert")
-    public Map<String, Object> getChildren(@RequestParam String address) {
+    public ChildAlertResponse getChildren(@RequestParam String address, WebRequest request) {
         logger.info("Request received for childAlert at address: {}", address);
         try {
-            logger.debug("Finding residents at address: {}", address);
-            List<Person> residents = dataLoaderService.getPersons().stream()
-                    .filter(p -> p.getAddress().equalsIgnoreCase(address))
-                    .collect(Collectors.toList());
-            logger.debug("Found {} residents at address: {}", residents.size(), address);
-
-            List<Map<String, Object>> children = new ArrayList<>();
-            List<Map<String, Object>> adults = new ArrayList<>();
-
-            for (Person person : residents) {
-                dataLoaderService.getMedicalRecords().stream()
-                        .filter(m -> m.getFirstName().equalsIgnoreCase(person.getFirstName())
-                                && m.getLastName().equalsIgnoreCase(person.getLastName()))
-                        .findFirst()
-                        .ifPresent(med -> {
-                            int age = calculateAge(med.getBirthdate());
-                            logger.debug("Calculated age {} for {} {}", age, person.getFirstName(), person.getLastName());
-                            Map<String, Object> info = new HashMap<>();
-                            info.put("firstName", person.getFirstName());
-                            info.put("lastName", person.getLastName());
-                            info.put("age", age);
-
-                            if (age <= 18) {
-                                children.add(info);
-                            } else {
-                                adults.add(info);
-                            }
-                        });
+            List<String> tags = List.of(DataVersions.address(address));
+            if (notModified(request, tags)) {
+                return null;
             }
+            return responseCache.get("childAlert", tags, data -> {
+                logger.debug("Finding residents at address: {}", address);
+                List<Resident> residents = data.getResidentsAtAddress(address);
+                logger.debug("Found {} residents at address: {}", residents.size(), address);
+
+                List<HouseholdMember> children = new ArrayList<>();
+                List<HouseholdMember> adults = new ArrayList<>();
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("children", children);
-            response.put("householdMembers", adults);
-            logger.info("Successfully retrieved childAlert for address: {} - {} children, {} adults",
-                    address, children.size(), adults.size());
-            return response;
+                for (Resident resident : residents) {
+                    if (!resident.hasMedicalRecord()) {
+                        continue;
+                    }
+                    HouseholdMember member = HouseholdMember.of(resident);
+                    if (resident.isChild()) {
+                        children.add(member);
+                    } else {
+                        adults.add(member);
+                    }
+                }
+
+                ChildAlertResponse response = new ChildAlertResponse(children, adults);
+                logger.info("Successfully retrieved childAlert for address: {} - {} children, {} adults",
+                        address, children.size(), adults.size());
+                return response;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving childAlert for address: {}", address, e);
             throw e;
@@ -123,44 +231,36 @@ public class AlertController {
 
     // ----------------- /firestation -----------------
     @GetMapping("/firestation")
-    public Map<String, Object> getPeopleByStation(@RequestParam String stationNumber) {
+    public StationCoverage getPeopleByStation(@RequestParam String stationNumber, WebRequest request) {
         logger.info("Request received for firestation coverage: {}", stationNumber);
         try {
-            logger.debug("Finding addresses covered by station: {}", stationNumber);
-            List<String> addresses = dataLoaderService.getFirestations().stream()
-                    .filter(f -> f.getStation().equals(stationNumber))
-                    .map(Firestation::getAddress)
-                    .collect(Collectors.toList());
-            logger.debug("Found {} addresses for station {}", addresses.size(), stationNumber);
-
-            List<Map<String, Object>> persons = new ArrayList<>();
-            int adults = 0;
-            int children = 0;
-
-            for (Person person : dataLoaderService.getPersons()) {
-                if (addresses.contains(person.getAddress())) {
-                    Map<String, Object> info = new HashMap<>();
-                    info.put("firstName", person.getFirstName());
-                    info.put("lastName", person.getLastName());
-                    info.put("address", person.getAddress());
-                    info.put("phone", person.getPhone());
-
-                    int age = getAgeForPerson(person);
-                    logger.debug("Person: {} {} - Age: {}", person.getFirstName(), person.getLastName(), age);
-                    if (age <= 18) children++;
-                    else adults++;
-
-                    persons.add(info);
-                }
+            List<String> tags = List.of(DataVersions.station(stationNumber));
+            if (notModified(request, tags)) {
+                return null;
             }
+            return responseCache.get("firestation", tags, data -> {
+                logger.debug("Finding addresses covered by station: {}", stationNumber);
+                Collection<String> addresses = data.getAddressesForStation(stationNumber);
+                logger.debug("Found {} addresses for station {}", addresses.size(), stationNumber);
+
+                List<CoveredPerson> persons = new ArrayList<>();
+                int adults = 0;
+                int children = 0;
+
+                for (String address : addresses) {
+                    for (Resident resident : data.getResidentsAtAddress(address)) {
+                        if (resident.isChild()) children++;
+                        else adults++;
+
+                        persons.add(CoveredPerson.of(resident.person()));
+                    }
+                }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("persons", persons);
-            response.put("adultCount", adults);
-            response.put("childCount", children);
-            logger.info("Successfully retrieved firestation coverage for station {}: {} persons ({} adults, {} children)",
-                    stationNumber, persons.size(), adults, children);
-            return response;
+                StationCoverage response = new StationCoverage(persons, adults, children);
+                logger.info("Successfully retrieved firestation coverage for station {}: {} persons ({} adults, {} children)",
+                        stationNumber, persons.size(), adults, children);
+                return response;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving firestation coverage for station: {}", stationNumber, e);
             throw e;
@@ -168,47 +268,41 @@ public class AlertController {
     }
 
     // ----------------- /fire -----------------
+    /**
+     * Reports the station covering an address and its residents. An address no station covers gets the
+     * station of the closest covered address within {@value #FIRE_FALLBACK_DISTANCE} meters if it is
+     * geocoded, and "Unknown" otherwise. Only the responses of such addresses depend on the positions and
+     * mappings of other addresses, and only those are tagged with them.
+     */
     @GetMapping("/fire")
-    public Map<String, Object> getFireInfo(@RequestParam String address) {
+    public FireResponse getFireInfo(@RequestParam String address, WebRequest request) {
         logger.info("Request received for fire info at address: {}", address);
         try {
-            logger.debug("Finding fire station for address: {}", address);
-            Optional<String> station = dataLoaderService.getFirestations().stream()
-                    .filter(f -> f.getAddress().equalsIgnoreCase(address))
-                    .map(Firestation::getStation)
-                    .findFirst();
-            logger.debug("Fire station for address {}: {}", address, station.orElse("Unknown"));
-
-            List<Map<String, Object>> residents = new ArrayList<>();
-
-            for (Person person : dataLoaderService.getPersons()) {
-                if (person.getAddress().equalsIgnoreCase(address)) {
-                    Map<String, Object> info = new HashMap<>();
-                    info.put("name", person.getFirstName() + " " + person.getLastName());
-                    info.put("phone", person.getPhone());
-                    int age = getAgeForPerson(person);
-                    info.put("age", age);
-                    logger.debug("Processing resident: {} - Age: {}", person.getFirstName() + " " + person.getLastName(), age);
-
-                    dataLoaderService.getMedicalRecords().stream()
-                            .filter(m -> m.getFirstName().equalsIgnoreCase(person.getFirstName())
-                                    && m.getLastName().equalsIgnoreCase(person.getLastName()))
-                            .findFirst()
-                            .ifPresent(med -> {
-                                info.put("medications", med.getMedications());
-                                info.put("allergies", med.getAllergies());
-                            });
-
-                    residents.add(info);
-                }
+            if (notModified(request, fireTags(dataStore.snapshot(), address))) {
+                return null;
             }
+            return responseCache.get("fire", data -> fireTags(data, address), data -> {
+                logger.debug("Finding fire station for address: {}", address);
+                Optional<String> station = data.getStationForAddress(address);
+                if (station.isEmpty()) {
+                    Optional<NearbyStation> nearest = data.getNearestStation(address, FIRE_FALLBACK_DISTANCE);
+                    nearest.ifPresent(found -> logger.debug("Address {} is not mapped, nearest station {} covers {} at {} m",
+                            address, found.station(), found.address(), Math.round(found.distance())));
+                    station = nearest.map(NearbyStation::station);
+                }
+                logger.debug("Fire station for address {}: {}", address, station.orElse("Unknown"));
+
+                List<EmergencyResident> residents = new ArrayList<>();
+
+                for (Resident resident : data.getResidentsAtAddress(address)) {
+                    residents.add(EmergencyResident.of(resident));
+                }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("station", station.orElse("Unknown"));
-            response.put("residents", residents);
-            logger.info("Successfully retrieved fire info for address {}: station {}, {} residents",
-                    address, station.orElse("Unknown"), residents.size());
-            return response;
+                FireResponse response = new FireResponse(station.orElse("Unknown"), residents);
+                logger.info("Successfully retrieved fire info for address {}: station {}, {} residents",
+                        address, station.orElse("Unknown"), residents.size());
+                return response;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving fire info for address: {}", address, e);
             throw e;
@@ -217,111 +311,334 @@ public class AlertController {
 
     // ----------------- /flood/stations -----------------
     @GetMapping("/flood/stations")
-    public Map<String, List<Map<String, Object>>> getFloodInfo(@RequestParam List<String> stations) {
+    public Map<String, FloodHousehold> getFloodInfo(@RequestParam List<String> stations, WebRequest request) {
         logger.info("Request received for flood info for stations: {}", stations);
         try {
-            logger.debug("Finding addresses covered by stations: {}", stations);
-            Map<String, List<Map<String, Object>>> households = new HashMap<>();
+            List<String> tags = floodTags(stations);
+            if (notModified(request, tags, JSON)) {
+                return null;
+            }
+            return responseCache.get("flood", tags, data -> {
+                logger.debug("Finding addresses covered by stations: {}", stations);
+                Map<String, FloodHousehold> households = new HashMap<>();
 
-            List<String> addresses = dataLoaderService.getFirestations().stream()
-                    .filter(f -> stations.contains(f.getStation()))
-                    .map(Firestation::getAddress)
-                    .collect(Collectors.toList());
-            logger.debug("Found {} addresses for stations {}", addresses.size(), stations);
-
-            for (String address : addresses) {
-                List<Map<String, Object>> residents = new ArrayList<>();
-                for (Person person : dataLoaderService.getPersons()) {
-                    if (person.getAddress().equalsIgnoreCase(address)) {
-                        Map<String, Object> info = new HashMap<>();
-                        info.put("name", person.getFirstName() + " " + person.getLastName());
-                        info.put("phone", person.getPhone());
-                        int age = getAgeForPerson(person);
-                        info.put("age", age);
-                        logger.debug("Processing resident at {}: {} - Age: {}", address,
-                                person.getFirstName() + " " + person.getLastName(), age);
-
-                        dataLoaderService.getMedicalRecords().stream()
-                                .filter(m -> m.getFirstName().equalsIgnoreCase(person.getFirstName())
-                                        && m.getLastName().equalsIgnoreCase(person.getLastName()))
-                                .findFirst()
-                                .ifPresent(med -> {
-                                    info.put("medications", med.getMedications());
-                                    info.put("allergies", med.getAllergies());
-                                });
-
-                        residents.add(info);
+                Set<String> addresses = new LinkedHashSet<>();
+                for (String station : stations) {
+                    addresses.addAll(data.getAddressesForStation(station));
+                }
+                logger.debug("Found {} addresses for stations {}", addresses.size(), stations);
+
+                for (String address : addresses) {
+                    List<EmergencyResident> residents = new ArrayList<>();
+                    for (Resident resident : data.getResidentsAtAddress(address)) {
+                        residents.add(EmergencyResident.of(resident));
                     }
+                    households.put(address, new FloodHousehold(residents));
                 }
-                households.put(address, residents);
-                logger.debug("Address {}: {} residents", address, residents.size());
-            }
 
-            logger.info("Successfully retrieved flood info for stations {}: {} households",
-                    stations, households.size());
-            return households;
+                logger.info("Successfully retrieved flood info for stations {}: {} households",
+                        stations, households.size());
+                return households;
+            });
         } catch (Exception e) {
             logger.error("Error retrieving flood info for stations: {}", stations, e);
             throw e;
         }
     }
 
+    /**
+     * Streams one line per household, each a one-entry object mapping the address to its residents as in
+     * the JSON response. Addresses are written in station order; one covered by several of the stations
+     * is written once.
+     */
+    @GetMapping(value = "/flood/stations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFloodInfo(@RequestParam List<String> stations, WebRequest request) {
+        logger.info("Request received for streamed flood info for stations: {}", stations);
+        if (notModified(request, floodTags(stations), NDJSON)) {
+            return null;
+        }
+        DataSnapshot data = dataStore.snapshot();
+        return ndjson(out -> {
+            try (JsonGenerator generator = ndjsonGenerator(out)) {
+                Set<String> written = new HashSet<>();
+                for (String station : stations) {
+                    for (String address : data.getAddressesForStation(station)) {
+                        if (!written.add(address)) {
+                            continue;
+                        }
+                        generator.writeStartObject();
+                        generator.writeArrayFieldStart(address);
+                        for (Resident resident : data.getResidentsAtAddress(address)) {
+                            generator.writeObject(EmergencyResident.of(resident));
+                        }
+                        generator.writeEndArray();
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    }
+                }
+                logger.info("Successfully streamed flood info for stations {}: {} households", stations, written.size());
+            } catch (Exception e) {
+                logger.error("Error streaming flood info for stations: {}", stations, e);
+                throw e;
+            }
+        });
+    }
+
+    // ----------------- /hazmat -----------------
+    /**
+     * Lists the residents covered by some stations who take one of the medications or have one of the
+     * allergies, by address as in {@code /flood/stations}. Medications match on their name whatever the
+     * dose; at least one medication or allergy is required.
+     */
+    @GetMapping("/hazmat")
+    public Map<String, FloodHousehold> getHazmatInfo(@RequestParam List<String> stations,
+                                                     @RequestParam(required = false) List<String> medications,
+                                                     @RequestParam(required = false) List<String> allergies,
+                                                     WebRequest request) {
+        logger.info("Request received for hazmat info for stations: {}, medications: {}, allergies: {}",
+                stations, medications, allergies);
+        try {
+            List<String> medicationKeys = termKeys(medications, CanonicalKeys::medication);
+            List<String> allergyKeys = termKeys(allergies, CanonicalKeys::of);
+            if (medicationKeys.isEmpty() && allergyKeys.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "hazmat needs a medication or an allergy");
+            }
+            List<String> tags = floodTags(stations);
+            if (notModified(request, tags)) {
+                return null;
+            }
+            String endpoint = "hazmat/" + termsKey(medicationKeys) + "/" + termsKey(allergyKeys);
+            return responseCache.get(endpoint, tags, data -> {
+                Map<String, List<Resident>> found = data.getCoveredResidentsWithMedicalTerms(stations, medicationKeys, allergyKeys);
+                Map<String, FloodHousehold> households = new HashMap<>();
+                int residents = 0;
+                for (Map.Entry<String, List<Resident>> household : found.entrySet()) {
+                    households.put(household.getKey(),
+                            new FloodHousehold(household.getValue().stream().map(EmergencyResident::of).toList()));
+                    residents += household.getValue().size();
+                }
+                logger.info("Successfully retrieved hazmat info for stations {}: {} households, {} residents",
+                        stations, households.size(), residents);
+                return households;
+            });
+        } catch (Exception e) {
+            logger.error("Error retrieving hazmat info for stations: {}", stations, e);
+            throw e;
+        }
+    }
+
+    // ----------------- /nearby -----------------
+    /**
+     * Lists the stations nearest to a position and the residents of the addresses within a radius of it.
+     * The position is a geocoded address, or coordinates; an address without position gets an empty response.
+     * Computed on each request, without cache or ETag: the lookups take microseconds, and the residents
+     * within a radius change with those of any address in it, which no tag narrows down.
+     * @param address geocoded address, instead of coordinates
+     * @param latitude latitude in degrees, with the longitude
+     * @param longitude longitude in degrees, with the latitude
+     * @param radius radius in meters, {@value #DEFAULT_NEARBY_RADIUS} by default, at most {@value #MAX_NEARBY_RADIUS}
+     * @param stations number of stations, {@value #DEFAULT_NEARBY_STATIONS} by default, at most {@value #MAX_NEARBY_STATIONS}
+     */
+    @GetMapping("/nearby")
+    public NearbyResponse getNearbyInfo(@RequestParam(required = false) String address,
+                                        @RequestParam(required = false) Double latitude,
+                                        @RequestParam(required = false) Double longitude,
+                                        @RequestParam(required = false) Double radius,
+                                        @RequestParam(required = false) Integer stations) {
+        logger.info("Request received for nearby info at address: {}, latitude: {}, longitude: {}, radius: {}, stations: {}",
+                address, latitude, longitude, radius, stations);
+        try {
+            boolean coordinates = latitude != null || longitude != null;
+            if ((address != null) == coordinates || (latitude == null) != (longitude == null)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "nearby needs an address or a latitude and a longitude");
+            }
+            if (latitude != null && longitude != null && !(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "latitude must be within 90 and longitude within 180 degrees");
+            }
+            double distance = radius != null ? radius : DEFAULT_NEARBY_RADIUS;
+            if (!(distance > 0 && distance <= MAX_NEARBY_RADIUS)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radius must be over 0 and at most " + MAX_NEARBY_RADIUS);
+            }
+            int stationCount = stations != null ? stations : DEFAULT_NEARBY_STATIONS;
+            if (stationCount < 1 || stationCount > MAX_NEARBY_STATIONS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stations must be between 1 and " + MAX_NEARBY_STATIONS);
+            }
+            DataSnapshot data = dataStore.snapshot();
+            if (address != null) {
+                Optional<Geocode> position = data.getGeocode(address).filter(Geocode::hasPosition);
+                if (position.isEmpty()) {
+                    logger.info("No position for address {}", address);
+                    return new NearbyResponse(List.of(), Map.of());
+                }
+                latitude = position.get().getLatitude();
+                longitude = position.get().getLongitude();
+            }
+            List<NearbyStation> nearest = data.getNearestStations(latitude, longitude, stationCount, Double.POSITIVE_INFINITY);
+            Map<String, FloodHousehold> households = new LinkedHashMap<>();
+            int residents = 0;
+            for (Map.Entry<String, List<Resident>> household : data.getResidentsWithin(latitude, longitude, distance).entrySet()) {
+                households.put(household.getKey(),
+                        new FloodHousehold(household.getValue().stream().map(EmergencyResident::of).toList()));
+                residents += household.getValue().size();
+            }
+            logger.info("Successfully retrieved nearby info at {}, {}: {} stations, {} households, {} residents within {} m",
+                    latitude, longitude, nearest.size(), households.size(), residents, distance);
+            return new NearbyResponse(nearest, households);
+        } catch (Exception e) {
+            logger.error("Error retrieving nearby info at address: {}, latitude: {}, longitude: {}", address, latitude, longitude, e);
+            throw e;
+        }
+    }
+
     // ----------------- /personInfo -----------------
+    public List<PersonInfo> getPersonInfo(String lastName, WebRequest request) {
+        return getPersonInfo(lastName, "exact", null, request);
+    }
+
+    /**
+     * @param lastName last name, or its beginning for a prefix search
+     * @param match {@code exact}, {@code prefix} or {@code fuzzy}, see {@link NameSearchIndex.Match}
+     * @param limit maximum number of persons; all of them by default for an exact match,
+     *              {@value #DEFAULT_SEARCH_LIMIT} for a search, at most {@value #MAX_SEARCH_LIMIT}
+     */
     @GetMapping("/personInfo")
-    public List<Map<String, Object>> getPersonInfo(@RequestParam String lastName) {
-        logger.info("Request received for personInfo with lastName: {}", lastName);
+    public List<PersonInfo> getPersonInfo(@RequestParam String lastName,
+                                          @RequestParam(defaultValue = "exact") String match,
+                                          @RequestParam(required = false) Integer limit,
+                                          WebRequest request) {
+        logger.info("Request received for personInfo with lastName: {}, match: {}, limit: {}", lastName, match, limit);
         try {
+            NameSearchIndex.Match mode = matchOf(match);
+            if (limit != null && (limit < 1 || limit > MAX_SEARCH_LIMIT)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+            }
+            if (mode == NameSearchIndex.Match.EXACT) {
+                return getPersonInfoByLastName(lastName, limit, request);
+            }
+            int maxPersons = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+            List<String> tags = List.of(DataVersions.lastName(lastName), DataVersions.lastNames());
+            if (notModified(request, tags)) {
+                return null;
+            }
+            return responseCache.get("personInfo/" + mode + "/" + maxPersons, tags, data -> {
+                List<String> names = data.searchLastNames(lastName, mode, maxPersons);
+                logger.debug("Last names matching {} by {}: {}", lastName, mode, names);
+                List<PersonInfo> results = new ArrayList<>();
+                for (String name : names) {
+                    for (Resident resident : data.getResidentsByLastName(name)) {
+                        if (results.size() == maxPersons) {
+                            break;
+                        }
+                        results.add(PersonInfo.of(resident));
+                    }
+                }
+                logger.info("Successfully searched personInfo for lastName {}: {} names, {} persons found",
+                        lastName, names.size(), results.size());
+                return results;
+            });
+        } catch (Exception e) {
+            logger.error("Error retrieving personInfo for lastName: {}", lastName, e);
+            throw e;
+        }
+    }
+
+    private List<PersonInfo> getPersonInfoByLastName(String lastName, Integer limit, WebRequest request) {
+        List<String> tags = List.of(DataVersions.lastName(lastName));
+        if (notModified(request, tags)) {
+            return null;
+        }
+        List<PersonInfo> persons = responseCache.get("personInfo", tags, data -> {
             logger.debug("Searching for persons with lastName: {}", lastName);
-            List<Map<String, Object>> results = dataLoaderService.getPersons().stream()
-                    .filter(p -> p.getLastName().equalsIgnoreCase(lastName))
-                    .map(person -> {
-                        Map<String, Object> info = new HashMap<>();
-                        info.put("firstName", person.getFirstName());
-                        info.put("lastName", person.getLastName());
-                        info.put("address", person.getAddress());
-                        info.put("email", person.getEmail());
-                        int age = getAgeForPerson(person);
-                        info.put("age", age);
-                        logger.debug("Found person: {} {} - Age: {}", person.getFirstName(), person.getLastName(), age);
-
-                        dataLoaderService.getMedicalRecords().stream()
-                                .filter(m -> m.getFirstName().equalsIgnoreCase(person.getFirstName())
-                                        && m.getLastName().equalsIgnoreCase(person.getLastName()))
-                                .findFirst()
-                                .ifPresent(med -> {
-                                    info.put("medications", med.getMedications());
-                                    info.put("allergies", med.getAllergies());
-                                });
-
-                        return info;
-                    })
+            List<PersonInfo> results = data.getResidentsByLastName(lastName).stream()
+                    .map(PersonInfo::of)
                     .collect(Collectors.toList());
             logger.info("Successfully retrieved personInfo for lastName {}: {} persons found", lastName, results.size());
             return results;
-        } catch (Exception e) {
-            logger.error("Error retrieving personInfo for lastName: {}", lastName, e);
-            throw e;
+        });
+        return limit == null || persons.size() <= limit ? persons : persons.subList(0, limit);
+    }
+
+    private static NameSearchIndex.Match matchOf(String match) {
+        try {
+            return NameSearchIndex.Match.valueOf(match.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "match must be exact, prefix or fuzzy");
         }
     }
 
     // ----------------- Helpers -----------------
-    private int calculateAge(String birthdate) {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-            LocalDate dob = LocalDate.parse(birthdate, formatter);
-            return Period.between(dob, LocalDate.now()).getYears();
-        } catch (Exception e) {
-            logger.error("Error parsing birthdate: {}", birthdate, e);
-            return -1;
+
+    /** @return tags of /fire, with the positions and mappings of other addresses only when the address is not mapped */
+    private static List<String> fireTags(DataSnapshot data, String address) {
+        return data.getStationForAddress(address).isPresent()
+                ? List.of(DataVersions.address(address))
+                : List.of(DataVersions.address(address), DataVersions.locations());
+    }
+
+    private static List<String> floodTags(List<String> stations) {
+        return stations.stream().map(DataVersions::station).distinct().sorted().toList();
+    }
+
+    /** @return the terms as part of a cache key, each prefixed with its length so that no other terms share it */
+    private static String termsKey(List<String> terms) {
+        StringBuilder key = new StringBuilder();
+        for (String term : terms) {
+            key.append(term.length()).append(':').append(term);
         }
+        return key.toString();
+    }
+
+    /** @return distinct keys of the terms, sorted so that the same terms in any order share a cache entry */
+    private static List<String> termKeys(List<String> terms, UnaryOperator<String> key) {
+        return terms == null ? List.of() : terms.stream().map(key).filter(k -> k != null && !k.isEmpty())
+                .distinct().sorted().toList();
     }
 
-    private int getAgeForPerson(Person person) {
-        return dataLoaderService.getMedicalRecords().stream()
-                .filter(m -> m.getFirstName().equalsIgnoreCase(person.getFirstName())
-                        && m.getLastName().equalsIgnoreCase(person.getLastName()))
-                .findFirst()
-                .map(m -> calculateAge(m.getBirthdate()))
-                .orElse(-1);
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Opens a generator writing one root value per line: values are separated by the newline each
+     * caller writes after a value, not by Jackson's default space. The response stream is left open.
+     */
+    private JsonGenerator ndjsonGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(out);
+        generator.setRootValueSeparator(null);
+        generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        return generator;
+    }
+
+    /**
+     * Checks the request's If-None-Match against the ETag of the data behind the response; on a match the
+     * response is marked 304 Not Modified, otherwise the ETag is set on the response about to be computed.
+     * @param request current request, or null when called outside Spring MVC
+     * @return true if the handler should return without a body
+     */
+    private boolean notModified(WebRequest request, List<String> tags) {
+        return notModified(request, tags, null);
+    }
+
+    /**
+     * Like {@link #notModified(WebRequest, List)} for a URL with several representations chosen by the
+     * Accept header: the ETag ends with the representation and the response varies on Accept.
+     * @param representation suffix naming the representation, or null if the URL has only one
+     */
+    private boolean notModified(WebRequest request, List<String> tags, String representation) {
+        if (request == null) {
+            return false;
+        }
+        DataVersions versions = dataStore.versions();
+        String eTag = "W/\"" + versions.getEpoch() + "-" + versions.versionOf(tags)
+                + (representation == null ? "" : "-" + representation) + "\"";
+        if (representation != null && request instanceof ServletWebRequest servletRequest
+                && servletRequest.getResponse() != null) {
+            servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        if (request.checkNotModified(eTag)) {
+            logger.debug("Not modified since {}: {}", eTag, tags);
+            return true;
+        }
+        return false;
     }
 }
@@ -1,11 +1,16 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Firestation;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.model.request.BatchOperation;
+import com.safetynet.alerts.model.response.BatchResult;
+import com.safetynet.alerts.repository.DataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -16,18 +21,18 @@ import java.util.List;
 @RequestMapping("/firestation")
 public class FirestationController {
 
-    private final DataLoaderService dataLoaderService;
+    private final DataStore dataStore;
     private static final Logger logger = LoggerFactory.getLogger(FirestationController.class);
 
-    public FirestationController(DataLoaderService dataLoaderService) {
-        this.dataLoaderService = dataLoaderService;
+    public FirestationController(DataStore dataStore) {
+        this.dataStore = dataStore;
     }
 
     @PostMapping
     public String addFirestation(@RequestBody Firestation firestation) {
         logger.info("Request received to add firestation mapping: {} -> {}", firestation.getAddress(), firestation.getStation());
         try {
-            dataLoaderService.getFirestations().add(firestation);
+            dataStore.addFirestation(firestation);
             logger.info("Successfully added firestation mapping: {} -> {}", firestation.getAddress(), firestation.getStation());
             return "Firestation mapping added.";
         } catch (Exception e) {
@@ -40,15 +45,10 @@ public class FirestationController {
     public String updateFirestation(@RequestBody Firestation updatedFirestation) {
         logger.info("Request received to update firestation mapping for address: {}", updatedFirestation.getAddress());
         try {
-            List<Firestation> firestations = dataLoaderService.getFirestations();
-            for (Firestation f : firestations) {
-                if (f.getAddress().equalsIgnoreCase(updatedFirestation.getAddress())) {
-                    logger.debug("Firestation mapping found, updating to station: {}", updatedFirestation.getStation());
-                    f.setStation(updatedFirestation.getStation());
-                    logger.info("Successfully updated firestation mapping for address {} to station {}",
-                            f.getAddress(), f.getStation());
-                    return "Firestation mapping updated.";
-                }
+            if (dataStore.updateFirestation(updatedFirestation)) {
+                logger.info("Successfully updated firestation mapping for address {} to station {}",
+                        updatedFirestation.getAddress(), updatedFirestation.getStation());
+                return "Firestation mapping updated.";
             }
             logger.info("Firestation mapping not found for address: {}", updatedFirestation.getAddress());
             return "Firestation mapping not found.";
@@ -62,9 +62,7 @@ public class FirestationController {
     public String deleteFirestation(@RequestParam String address) {
         logger.info("Request received to delete firestation mapping for address: {}", address);
         try {
-            boolean removed = dataLoaderService.getFirestations().removeIf(
-                    f -> f.getAddress().equalsIgnoreCase(address)
-            );
+            boolean removed = dataStore.deleteFirestation(address);
             if (removed) {
                 logger.info("Successfully deleted firestation mapping for address: {}", address);
                 return "Firestation mapping deleted.";
@@ -77,4 +75,45 @@ public class FirestationController {
             throw e;
         }
     }
+
+    /**
+     * Applies a batch of add, update and delete operations in order, atomically: they are published
+     * together as one new version, and if one fails none is. Each result is what the single-item
+     * endpoint would have returned.
+     */
+    @PostMapping("/batch")
+    public List<BatchResult> applyBatch(@RequestBody List<BatchOperation<Firestation>> operations) {
+        logger.info("Request received to apply {} firestation mapping operations", operations.size());
+        if (!operations.stream().allMatch(BatchOperation::isComplete)) {
+            logger.info("Rejected firestation mapping batch with an operation missing its action or item");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every operation needs an action and an item");
+        }
+        try {
+            List<BatchResult> results = dataStore.update(builder -> {
+                List<BatchResult> applied = new ArrayList<>(operations.size());
+                for (BatchOperation<Firestation> operation : operations) {
+                    Firestation item = operation.item();
+                    applied.add(switch (operation.action()) {
+                        case ADD -> {
+                            builder.addFirestation(item);
+                            yield new BatchResult(operation.action(), true, "Firestation mapping added.");
+                        }
+                        case UPDATE -> builder.updateFirestation(item)
+                                ? new BatchResult(operation.action(), true, "Firestation mapping updated.")
+                                : new BatchResult(operation.action(), false, "Firestation mapping not found.");
+                        case DELETE -> builder.deleteFirestation(item.getAddress())
+                                ? new BatchResult(operation.action(), true, "Firestation mapping deleted.")
+                                : new BatchResult(operation.action(), false, "Firestation mapping not found.");
+                    });
+                }
+                return applied;
+            });
+            logger.info("Successfully applied {} firestation mapping operations, {} not found", results.size(),
+                    results.stream().filter(result -> !result.applied()).count());
+            return results;
+        } catch (Exception e) {
+            logger.error("Error applying batch of {} firestation mapping operations", operations.size(), e);
+            throw e;
+        }
+    }
 }
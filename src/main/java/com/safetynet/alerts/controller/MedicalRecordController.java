@@ -1,11 +1,16 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.MedicalRecord;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.model.request.BatchOperation;
+import com.safetynet.alerts.model.response.BatchResult;
+import com.safetynet.alerts.repository.DataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -16,18 +21,18 @@ import java.util.List;
 @RequestMapping("/medicalRecord")
 public class MedicalRecordController {
 
-    private final DataLoaderService dataLoaderService;
+    private final DataStore dataStore;
     private static final Logger logger = LoggerFactory.getLogger(MedicalRecordController.class);
 
-    public MedicalRecordController(DataLoaderService dataLoaderService) {
-        this.dataLoaderService = dataLoaderService;
+    public MedicalRecordController(DataStore dataStore) {
+        this.dataStore = dataStore;
     }
 
     @PostMapping
     public String addMedicalRecord(@RequestBody MedicalRecord record) {
         logger.info("Request received to add medical record for {} {}", record.getFirstName(), record.getLastName());
         try {
-            dataLoaderService.getMedicalRecords().add(record);
+            dataStore.addMedicalRecord(record);
             logger.info("Successfully added medical record for {} {}", record.getFirstName(), record.getLastName());
             return "Medical record added.";
         } catch (Exception e) {
@@ -40,17 +45,9 @@ public class MedicalRecordController {
     public String updateMedicalRecord(@RequestBody MedicalRecord updatedRecord) {
         logger.info("Request received to update medical record for {} {}", updatedRecord.getFirstName(), updatedRecord.getLastName());
         try {
-            List<MedicalRecord> records = dataLoaderService.getMedicalRecords();
-            for (MedicalRecord m : records) {
-                if (m.getFirstName().equalsIgnoreCase(updatedRecord.getFirstName())
-                        && m.getLastName().equalsIgnoreCase(updatedRecord.getLastName())) {
-                    logger.debug("Medical record found, updating fields");
-                    m.setBirthdate(updatedRecord.getBirthdate());
-                    m.setMedications(updatedRecord.getMedications());
-                    m.setAllergies(updatedRecord.getAllergies());
-                    logger.info("Successfully updated medical record for {} {}", m.getFirstName(), m.getLastName());
-                    return "Medical record updated.";
-                }
+            if (dataStore.updateMedicalRecord(updatedRecord)) {
+                logger.info("Successfully updated medical record for {} {}", updatedRecord.getFirstName(), updatedRecord.getLastName());
+                return "Medical record updated.";
             }
             logger.info("Medical record not found for {} {}", updatedRecord.getFirstName(), updatedRecord.getLastName());
             return "Medical record not found.";
@@ -64,9 +61,7 @@ public class MedicalRecordController {
     public String deleteMedicalRecord(@RequestParam String firstName, @RequestParam String lastName) {
         logger.info("Request received to delete medical record for {} {}", firstName, lastName);
         try {
-            boolean removed = dataLoaderService.getMedicalRecords().removeIf(
-                    m -> m.getFirstName().equalsIgnoreCase(firstName) && m.getLastName().equalsIgnoreCase(lastName)
-            );
+            boolean removed = dataStore.deleteMedicalRecord(firstName, lastName);
             if (removed) {
                 logger.info("Successfully deleted medical record for {} {}", firstName, lastName);
                 return "Medical record deleted.";
@@ -79,4 +74,45 @@ public class MedicalRecordController {
             throw e;
         }
     }
+
+    /**
+     * Applies a batch of add, update and delete operations in order, atomically: they are published
+     * together as one new version, and if one fails none is. Each result is what the single-item
+     * endpoint would have returned.
+     */
+    @PostMapping("/batch")
+    public List<BatchResult> applyBatch(@RequestBody List<BatchOperation<MedicalRecord>> operations) {
+        logger.info("Request received to apply {} medical record operations", operations.size());
+        if (!operations.stream().allMatch(BatchOperation::isComplete)) {
+            logger.info("Rejected medical record batch with an operation missing its action or item");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every operation needs an action and an item");
+        }
+        try {
+            List<BatchResult> results = dataStore.update(builder -> {
+                List<BatchResult> applied = new ArrayList<>(operations.size());
+                for (BatchOperation<MedicalRecord> operation : operations) {
+                    MedicalRecord item = operation.item();
+                    applied.add(switch (operation.action()) {
+                        case ADD -> {
+                            builder.addMedicalRecord(item);
+                            yield new BatchResult(operation.action(), true, "Medical record added.");
+                        }
+                        case UPDATE -> builder.updateMedicalRecord(item)
+                                ? new BatchResult(operation.action(), true, "Medical record updated.")
+                                : new BatchResult(operation.action(), false, "Medical record not found.");
+                        case DELETE -> builder.deleteMedicalRecord(item.getFirstName(), item.getLastName())
+                                ? new BatchResult(operation.action(), true, "Medical record deleted.")
+                                : new BatchResult(operation.action(), false, "Medical record not found.");
+                    });
+                }
+                return applied;
+            });
+            logger.info("Successfully applied {} medical record operations, {} not found", results.size(),
+                    results.stream().filter(result -> !result.applied()).count());
+            return results;
+        } catch (Exception e) {
+            logger.error("Error applying batch of {} medical record operations", operations.size(), e);
+            throw e;
+        }
+    }
 }
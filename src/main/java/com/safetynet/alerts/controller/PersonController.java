@@ -1,11 +1,16 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Person;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.model.request.BatchOperation;
+import com.safetynet.alerts.model.response.BatchResult;
+import com.safetynet.alerts.repository.DataStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -16,18 +21,18 @@ import java.util.List;
 @RequestMapping("/person")
 public class PersonController {
 
-    private final DataLoaderService dataLoaderService;
+    private final DataStore dataStore;
     private static final Logger logger = LoggerFactory.getLogger(PersonController.class);
 
-    public PersonController(DataLoaderService dataLoaderService) {
-        this.dataLoaderService = dataLoaderService;
+    public PersonController(DataStore dataStore) {
+        this.dataStore = dataStore;
     }
 
     @PostMapping
     public String addPerson(@RequestBody Person newPerson) {
         logger.info("Request received to add person: {} {}", newPerson.getFirstName(), newPerson.getLastName());
         try {
-            dataLoaderService.getPersons().add(newPerson);
+            dataStore.addPerson(newPerson);
             logger.info("Successfully added person: {} {}", newPerson.getFirstName(), newPerson.getLastName());
             return "Person added successfully.";
         } catch (Exception e) {
@@ -40,19 +45,9 @@ public class PersonController {
     public String updatePerson(@RequestBody Person updatedPerson) {
         logger.info("Request received to update person: {} {}", updatedPerson.getFirstName(), updatedPerson.getLastName());
         try {
-            List<Person> persons = dataLoaderService.getPersons();
-            for (Person p : persons) {
-                if (p.getFirstName().equalsIgnoreCase(updatedPerson.getFirstName())
-                        && p.getLastName().equalsIgnoreCase(updatedPerson.getLastName())) {
-                    logger.debug("Person found, updating fields");
-                    p.setAddress(updatedPerson.getAddress());
-                    p.setCity(updatedPerson.getCity());
-                    p.setZip(updatedPerson.getZip());
-                    p.setPhone(updatedPerson.getPhone());
-                    p.setEmail(updatedPerson.getEmail());
-                    logger.info("Successfully updated person: {} {}", p.getFirstName(), p.getLastName());
-                    return "Person updated successfully.";
-                }
+            if (dataStore.updatePerson(updatedPerson)) {
+                logger.info("Successfully updated person: {} {}", updatedPerson.getFirstName(), updatedPerson.getLastName());
+                return "Person updated successfully.";
             }
             logger.info("Person not found: {} {}", updatedPerson.getFirstName(), updatedPerson.getLastName());
             return "Person not found.";
@@ -66,9 +61,7 @@ public class PersonController {
     public String deletePerson(@RequestParam String firstName, @RequestParam String lastName) {
         logger.info("Request received to delete person: {} {}", firstName, lastName);
         try {
-            boolean removed = dataLoaderService.getPersons().removeIf(
-                    p -> p.getFirstName().equalsIgnoreCase(firstName) && p.getLastName().equalsIgnoreCase(lastName)
-            );
+            boolean removed = dataStore.deletePerson(firstName, lastName);
             if (removed) {
                 logger.info("Successfully deleted person: {} {}", firstName, lastName);
                 return "Person deleted successfully.";
@@ -81,4 +74,45 @@ public class PersonController {
             throw e;
         }
     }
+
+    /**
+     * Applies a batch of add, update and delete operations in order, atomically: they are published
+     * together as one new version, and if one fails none is. Each result is what the single-item
+     * endpoint would have returned.
+     */
+    @PostMapping("/batch")
+    public List<BatchResult> applyBatch(@RequestBody List<BatchOperation<Person>> operations) {
+        logger.info("Request received to apply {} person operations", operations.size());
+        if (!operations.stream().allMatch(BatchOperation::isComplete)) {
+            logger.info("Rejected person batch with an operation missing its action or item");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every operation needs an action and an item");
+        }
+        try {
+            List<BatchResult> results = dataStore.update(builder -> {
+                List<BatchResult> applied = new ArrayList<>(operations.size());
+                for (BatchOperation<Person> operation : operations) {
+                    Person item = operation.item();
+                    applied.add(switch (operation.action()) {
+                        case ADD -> {
+                            builder.addPerson(item);
+                            yield new BatchResult(operation.action(), true, "Person added successfully.");
+                        }
+                        case UPDATE -> builder.updatePerson(item)
+                                ? new BatchResult(operation.action(), true, "Person updated successfully.")
+                                : new BatchResult(operation.action(), false, "Person not found.");
+                        case DELETE -> builder.deletePerson(item.getFirstName(), item.getLastName())
+                                ? new BatchResult(operation.action(), true, "Person deleted successfully.")
+                                : new BatchResult(operation.action(), false, "Person not found.");
+                    });
+                }
+                return applied;
+            });
+            logger.info("Successfully applied {} person operations, {} not found", results.size(),
+                    results.stream().filter(result -> !result.applied()).count());
+            return results;
+        } catch (Exception e) {
+            logger.error("Error applying batch of {} person operations", operations.size(), e);
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.safetynet.alerts.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Represents the position of an address in the SafetyNet system, from the optional
+ * {@code geocodes} section of the dataset. Coordinates are WGS84 degrees.
+ */
+public class Geocode {
+    private String address;
+    private Double latitude;
+    private Double longitude;
+
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    /** @return true if both coordinates are set and within their range */
+    @JsonIgnore
+    public boolean hasPosition() {
+        return latitude != null && longitude != null
+                && latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+}
@@ -1,15 +1,29 @@
 package com.safetynet.alerts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a medical record in the SafetyNet system.
  * Contains medical information including birthdate, medications, and allergies for a person.
+ * The birthdate is parsed once when it is set and kept as an epoch day for age computations; setting
+ * an equal birthdate again, such as a shared instance of the same value, does not parse it again.
  */
 public class MedicalRecord {
+    /** Epoch day value used when the birthdate is missing or not in MM/dd/yyyy format. */
+    public static final long UNKNOWN_BIRTHDATE = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter BIRTHDATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
     private String firstName;
     private String lastName;
     private String birthdate;
+    private long birthEpochDay = UNKNOWN_BIRTHDATE;
     private List<String> medications;
     private List<String> allergies;
 
@@ -20,11 +34,31 @@ public class MedicalRecord {
     public void setLastName(String lastName) { this.lastName = lastName; }
 
     public String getBirthdate() { return birthdate; }
-    public void setBirthdate(String birthdate) { this.birthdate = birthdate; }
+    public void setBirthdate(String birthdate) {
+        if (!Objects.equals(birthdate, this.birthdate)) {
+            this.birthEpochDay = parseBirthdate(birthdate);
+        }
+        this.birthdate = birthdate;
+    }
+
+    /** @return the birthdate as an epoch day, or {@link #UNKNOWN_BIRTHDATE} */
+    @JsonIgnore
+    public long getBirthEpochDay() { return birthEpochDay; }
 
     public List<String> getMedications() { return medications; }
     public void setMedications(List<String> medications) { this.medications = medications; }
 
     public List<String> getAllergies() { return allergies; }
     public void setAllergies(List<String> allergies) { this.allergies = allergies; }
+
+    private static long parseBirthdate(String birthdate) {
+        if (birthdate == null) {
+            return UNKNOWN_BIRTHDATE;
+        }
+        try {
+            return LocalDate.parse(birthdate, BIRTHDATE_FORMAT).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return UNKNOWN_BIRTHDATE;
+        }
+    }
 }
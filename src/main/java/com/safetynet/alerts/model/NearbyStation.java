@@ -0,0 +1,10 @@
+package com.safetynet.alerts.model;
+
+/**
+ * A fire station near a position, found through the geocoded addresses it covers.
+ *
+ * @param station station number
+ * @param address the station's covered address closest to the position
+ * @param distance distance from the position to that address, in meters
+ */
+public record NearbyStation(String station, String address, double distance) { }
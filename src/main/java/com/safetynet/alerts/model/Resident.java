@@ -0,0 +1,23 @@
+package com.safetynet.alerts.model;
+
+/**
+ * Resolved view of a person joined with their medical record and current age.
+ * Built by the data store when a person or medical record is loaded or changed, and
+ * rebuilt on birthdays, so that queries get age, medications and allergies without
+ * searching the medical records or parsing dates.
+ *
+ * @param person the person
+ * @param medicalRecord the person's medical record, or null if none exists
+ * @param age age in years, or -1 when there is no medical record or birthdate
+ */
+public record Resident(Person person, MedicalRecord medicalRecord, int age) {
+
+    /** Residents up to this age, inclusive, are reported as children. */
+    public static final int CHILD_MAX_AGE = 18;
+
+    /** @return true if a medical record is linked to this resident */
+    public boolean hasMedicalRecord() { return medicalRecord != null; }
+
+    /** @return true if this resident counts as a child in alerts */
+    public boolean isChild() { return age <= CHILD_MAX_AGE; }
+}
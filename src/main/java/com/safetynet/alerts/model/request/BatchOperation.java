@@ -0,0 +1,27 @@
+package com.safetynet.alerts.model.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One operation of a batch request, such as {@code {"action": "update", "item": {...}}}.
+ * Deletes only read the item's key fields: first and last name, or the firestation address.
+ * @param action what to do with the item
+ * @param item person, firestation mapping or medical record the action applies to
+ * @param <T> item type
+ */
+public record BatchOperation<T>(Action action, T item) {
+
+    /** Action of a batch operation, with the same effect as the matching single-item endpoint. */
+    public enum Action {
+        @JsonProperty("add") ADD,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("delete") DELETE
+    }
+
+    /** @return true if the operation has both an action and an item */
+    @JsonIgnore
+    public boolean isComplete() {
+        return action != null && item != null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.safetynet.alerts.model.response;
+
+import com.safetynet.alerts.model.request.BatchOperation;
+
+/**
+ * Outcome of one operation of a batch request, at the same position as the operation.
+ * @param action action of the operation
+ * @param applied false if the item to update or delete was not found
+ * @param message the message the single-item endpoint would have returned
+ */
+public record BatchResult(BatchOperation.Action action, boolean applied, String message) { }
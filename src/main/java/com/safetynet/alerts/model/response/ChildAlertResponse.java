@@ -0,0 +1,10 @@
+package com.safetynet.alerts.model.response;
+
+import java.util.List;
+
+/**
+ * Response of {@code /childAlert}: the children living at an address and the other members of their household.
+ * @param children residents aged 18 or less
+ * @param householdMembers the other residents with a medical record
+ */
+public record ChildAlertResponse(List<HouseholdMember> children, List<HouseholdMember> householdMembers) { }
@@ -0,0 +1,17 @@
+package com.safetynet.alerts.model.response;
+
+import com.safetynet.alerts.model.Person;
+
+/**
+ * A person living at an address covered by a station, in a {@link StationCoverage}.
+ * @param firstName first name
+ * @param lastName last name
+ * @param address address
+ * @param phone phone number
+ */
+public record CoveredPerson(String firstName, String lastName, String address, String phone) {
+
+    public static CoveredPerson of(Person person) {
+        return new CoveredPerson(person.getFirstName(), person.getLastName(), person.getAddress(), person.getPhone());
+    }
+}
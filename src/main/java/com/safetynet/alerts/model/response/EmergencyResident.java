@@ -0,0 +1,32 @@
+package com.safetynet.alerts.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+
+import java.util.List;
+
+/**
+ * A resident with the details responders need, in a {@link FireResponse} or {@link FloodHousehold}.
+ * Properties keep the order the endpoints have always used.
+ * @param name first and last name
+ * @param phone phone number
+ * @param age age in years, -1 if unknown
+ * @param medications medications, left out without a medical record
+ * @param allergies allergies, left out without a medical record
+ */
+@JsonPropertyOrder({"allergies", "phone", "medications", "name", "age"})
+public record EmergencyResident(
+        String name,
+        String phone,
+        int age,
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = MedicalFields.Filter.class) List<String> medications,
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = MedicalFields.Filter.class) List<String> allergies) {
+
+    public static EmergencyResident of(Resident resident) {
+        Person person = resident.person();
+        return new EmergencyResident(person.getFirstName() + " " + person.getLastName(), person.getPhone(),
+                resident.age(), MedicalFields.medications(resident), MedicalFields.allergies(resident));
+    }
+}
@@ -0,0 +1,10 @@
+package com.safetynet.alerts.model.response;
+
+import java.util.List;
+
+/**
+ * Response of {@code /fire}: the station covering an address and its residents.
+ * @param station station number, or "Unknown"
+ * @param residents residents of the address
+ */
+public record FireResponse(String station, List<EmergencyResident> residents) { }
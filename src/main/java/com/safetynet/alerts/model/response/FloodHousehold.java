@@ -0,0 +1,12 @@
+package com.safetynet.alerts.model.response;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.List;
+
+/**
+ * The residents of one address in the {@code /flood/stations} and {@code /hazmat} responses, which map
+ * each address to its household and serialise a household as the array of its residents.
+ * @param residents residents of the address
+ */
+public record FloodHousehold(@JsonValue List<EmergencyResident> residents) { }
@@ -0,0 +1,16 @@
+package com.safetynet.alerts.model.response;
+
+import com.safetynet.alerts.model.Resident;
+
+/**
+ * A child or adult of a household in a {@link ChildAlertResponse}.
+ * @param firstName first name
+ * @param lastName last name
+ * @param age age in years, -1 if unknown
+ */
+public record HouseholdMember(String firstName, String lastName, int age) {
+
+    public static HouseholdMember of(Resident resident) {
+        return new HouseholdMember(resident.person().getFirstName(), resident.person().getLastName(), resident.age());
+    }
+}
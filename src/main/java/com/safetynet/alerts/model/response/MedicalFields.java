@@ -0,0 +1,45 @@
+package com.safetynet.alerts.model.response;
+
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Resident;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Medications and allergies of a resident in a response. Residents without a medical record
+ * have neither field in the JSON, while a record without the lists shows them as null; the
+ * fields hold {@link #NO_RECORD} in the first case, which {@link Filter} leaves out.
+ */
+final class MedicalFields {
+
+    /** Placeholder for the medical fields of a resident without a medical record, compared by identity. */
+    static final List<String> NO_RECORD = Collections.unmodifiableList(new ArrayList<>(0));
+
+    private MedicalFields() {
+    }
+
+    static List<String> medications(Resident resident) {
+        MedicalRecord record = resident.medicalRecord();
+        return record == null ? NO_RECORD : record.getMedications();
+    }
+
+    static List<String> allergies(Resident resident) {
+        MedicalRecord record = resident.medicalRecord();
+        return record == null ? NO_RECORD : record.getAllergies();
+    }
+
+    /** Jackson value filter excluding {@link #NO_RECORD}: a value is left out when the filter equals it. */
+    static final class Filter {
+        @Override
+        public boolean equals(Object value) {
+            return value == NO_RECORD;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.safetynet.alerts.model.response;
+
+import com.safetynet.alerts.model.NearbyStation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response of {@code /nearby}: the stations nearest to a position and the residents around it.
+ * @param stations nearest stations, closest first
+ * @param households residents of the addresses within the radius by address, closest address first
+ */
+public record NearbyResponse(List<NearbyStation> stations, Map<String, FloodHousehold> households) { }
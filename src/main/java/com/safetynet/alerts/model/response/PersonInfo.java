@@ -0,0 +1,35 @@
+package com.safetynet.alerts.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+
+import java.util.List;
+
+/**
+ * An entry of the {@code /personInfo} response. Properties keep the order the endpoint has always used.
+ * @param firstName first name
+ * @param lastName last name
+ * @param address address
+ * @param email email address
+ * @param age age in years, -1 if unknown
+ * @param medications medications, left out without a medical record
+ * @param allergies allergies, left out without a medical record
+ */
+@JsonPropertyOrder({"allergies", "firstName", "lastName", "address", "medications", "email", "age"})
+public record PersonInfo(
+        String firstName,
+        String lastName,
+        String address,
+        String email,
+        int age,
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = MedicalFields.Filter.class) List<String> medications,
+        @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = MedicalFields.Filter.class) List<String> allergies) {
+
+    public static PersonInfo of(Resident resident) {
+        Person person = resident.person();
+        return new PersonInfo(person.getFirstName(), person.getLastName(), person.getAddress(), person.getEmail(),
+                resident.age(), MedicalFields.medications(resident), MedicalFields.allergies(resident));
+    }
+}
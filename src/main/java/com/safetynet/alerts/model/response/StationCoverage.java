@@ -0,0 +1,11 @@
+package com.safetynet.alerts.model.response;
+
+import java.util.List;
+
+/**
+ * Response of {@code /firestation}: the persons covered by a station.
+ * @param persons persons living at the addresses the station covers
+ * @param adultCount number of adults among them
+ * @param childCount number of children among them, including residents of unknown age
+ */
+public record StationCoverage(List<CoveredPerson> persons, int adultCount, int childCount) { }
@@ -0,0 +1,81 @@
+package com.safetynet.alerts.repository;
+
+/**
+ * Layout of the binary snapshot file written by {@link BinarySnapshotWriter} and mapped by
+ * {@link BinarySnapshotReader}. All numbers are big-endian.
+ *
+ * <pre>
+ * header      int magic, int format version, long data version, long age reference epoch day,
+ *             int section count, int reserved,
+ *             then per section: int id, int CRC32C, long offset, long length
+ * STRINGS     int count, int[count + 1] offsets into the UTF-8 blob, blob
+ * PERSONS     int count, then per person 8 ints: first name, last name, address, city, zip,
+ *             phone, email (string ids, -1 for null) and linked medical record row (-1 for none)
+ * FIRESTATIONS int count, then per mapping 2 ints: address, station
+ * MEDICAL_RECORDS int count, then per record 7 ints: first name, last name, birthdate,
+ *             medications start and count, allergies start and count (into STRING_LISTS, -1 for null)
+ * STRING_LISTS int count, int[count] string ids
+ * GEOCODES    int count, then per geocode: int address string id, double latitude, double longitude
+ *             (NaN for a missing coordinate)
+ * index sections  int group count, then per group: int key, int value count, int[] values
+ * </pre>
+ *
+ * Index sections hold the snapshot's hash indexes as groups so that restoring them does not
+ * hash or normalise any record: residents are referenced by person row, firestations and medical
+ * records and geocodes by their row, station addresses as (address key, address) string id pairs, and
+ * birthdays are keyed by {@code month * 100 + day} with name key string ids as values.
+ * Each section is mapped on its own, so a section must stay under 2 GB.
+ * <p>
+ * Files of older format versions are still read, so that upgrading keeps the data they hold: version 1
+ * files hold the same records, but their index keys predate {@link CanonicalKeys}, so only their records
+ * are read and indexed again; version 1 and 2 files have no geocode sections, and restore without geocodes.
+ */
+final class BinarySnapshotFormat {
+
+    static final int MAGIC = 0x534E4153; // "SNAS"
+    /**
+     * Version 2: index keys are {@link CanonicalKeys}, which version 1 files were not written with.
+     * Version 3: geocodes, which version 2 files cannot hold.
+     */
+    static final int FORMAT_VERSION = 3;
+    /** Oldest format version read. */
+    static final int MIN_FORMAT_VERSION = 1;
+    /** First format version whose index sections hold {@link CanonicalKeys}. */
+    static final int CANONICAL_KEYS_VERSION = 2;
+    /** First format version with the {@link #GEOCODES} and {@link #GEOCODES_BY_ADDRESS} sections. */
+    static final int GEOCODES_VERSION = 3;
+    static final int HEADER_FIXED_SIZE = 32;
+    static final int SECTION_ENTRY_SIZE = 24;
+    static final int NONE = -1;
+
+    static final int STRINGS = 1;
+    static final int PERSONS = 2;
+    static final int FIRESTATIONS = 3;
+    static final int MEDICAL_RECORDS = 4;
+    static final int STRING_LISTS = 5;
+    static final int RESIDENTS_BY_ADDRESS = 6;
+    static final int RESIDENTS_BY_LAST_NAME = 7;
+    static final int RESIDENTS_BY_CITY = 8;
+    static final int RESIDENTS_BY_NAME = 9;
+    static final int FIRESTATIONS_BY_ADDRESS = 10;
+    static final int ADDRESSES_BY_STATION = 11;
+    static final int MEDICAL_RECORDS_BY_NAME = 12;
+    static final int NAMES_BY_BIRTHDAY = 13;
+    static final int GEOCODES = 14;
+    static final int GEOCODES_BY_ADDRESS = 15;
+    static final int SECTION_COUNT = 15;
+    /** Number of sections of version 1 and 2 files, which stop at {@link #NAMES_BY_BIRTHDAY}. */
+    static final int LEGACY_SECTION_COUNT = 13;
+
+    static final int PERSON_COLUMNS = 8;
+    static final int FIRESTATION_COLUMNS = 2;
+    static final int MEDICAL_RECORD_COLUMNS = 7;
+
+    private BinarySnapshotFormat() {
+    }
+
+    /** @return number of sections of a file of the given format version */
+    static int sectionCount(int formatVersion) {
+        return formatVersion < GEOCODES_VERSION ? LEGACY_SECTION_COUNT : SECTION_COUNT;
+    }
+}
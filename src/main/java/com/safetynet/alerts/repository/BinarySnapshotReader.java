@@ -0,0 +1,324 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+
+import static com.safetynet.alerts.repository.BinarySnapshotFormat.*;
+
+/**
+ * Restores a {@link DataSnapshot} from a binary snapshot file (see {@link BinarySnapshotFormat}).
+ * Sections are memory-mapped and checked against their CRC32C before use. The stored indexes
+ * are rebuilt group by group from row references, so no record is normalised, hashed into an
+ * index or parsed from JSON again; only ages are recomputed for the day the snapshot is restored on.
+ * Records go through new {@link FieldDictionaries}, which the strings of the file's string table
+ * fill without copying. Files of a format version whose index keys are not current have their records
+ * indexed again through a {@link DataSnapshot.Builder} instead.
+ */
+public final class BinarySnapshotReader {
+
+    private final ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT + 1];
+    private int formatVersion;
+    private String[] strings;
+    private int[] stringLists;
+    private Person[] persons;
+    private Firestation[] firestations;
+    private MedicalRecord[] medicalRecords;
+    private Geocode[] geocodes;
+    private Resident[] residents;
+    private final FieldDictionaries dictionaries = new FieldDictionaries();
+
+    private BinarySnapshotReader() {
+    }
+
+    /**
+     * Reads a snapshot file.
+     * @param file snapshot file
+     * @param today day ages are computed for
+     * @return the restored snapshot, carrying the version it was written with
+     * @throws IOException if the file cannot be read, has an unknown format version or is corrupt
+     */
+    public static DataSnapshot read(Path file, LocalDate today) throws IOException {
+        BinarySnapshotReader reader = new BinarySnapshotReader();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long dataVersion = reader.map(channel);
+            try {
+                return reader.restore(dataVersion, today);
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt snapshot " + file + ": " + e, e);
+            }
+        }
+    }
+
+    private long map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_FIXED_SIZE) {
+            throw new IOException("Snapshot too short: " + size + " bytes");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_FIXED_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        formatVersion = header.getInt(4);
+        if (formatVersion < MIN_FORMAT_VERSION || formatVersion > FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + formatVersion);
+        }
+        long dataVersion = header.getLong(8);
+        int sectionCount = header.getInt(24);
+        long tableEnd = HEADER_FIXED_SIZE + (long) sectionCount * SECTION_ENTRY_SIZE;
+        if (sectionCount != sectionCount(formatVersion) || tableEnd > size) {
+            throw new IOException("Invalid section table");
+        }
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_FIXED_SIZE,
+                tableEnd - HEADER_FIXED_SIZE);
+        for (int i = 0; i < sectionCount; i++) {
+            int entry = i * SECTION_ENTRY_SIZE;
+            int id = table.getInt(entry);
+            int checksum = table.getInt(entry + 4);
+            long offset = table.getLong(entry + 8);
+            long length = table.getLong(entry + 16);
+            if (id < 1 || id > sectionCount || sections[id] != null
+                    || offset < tableEnd || length < 4 || length > Integer.MAX_VALUE || offset + length > size) {
+                throw new IOException("Invalid section table entry " + i);
+            }
+            MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            CRC32C crc = new CRC32C();
+            crc.update(section.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in section " + id);
+            }
+            sections[id] = section;
+        }
+        return dataVersion;
+    }
+
+    private DataSnapshot restore(long dataVersion, LocalDate today) {
+        readStrings();
+        readStringLists();
+        readMedicalRecords();
+        readPersons(today);
+        readFirestations();
+        if (formatVersion < CANONICAL_KEYS_VERSION) {
+            return reindex(dataVersion, today);
+        }
+        boolean geocoded = formatVersion >= GEOCODES_VERSION;
+        if (geocoded) {
+            readGeocodes();
+        } else {
+            geocodes = new Geocode[0];
+        }
+
+        Map<String, Map<String, String>> addressesByStation = readGroups(ADDRESSES_BY_STATION,
+                id -> strings[id], (cursor, count) -> {
+                    Map<String, String> addresses = new LinkedHashMap<>();
+                    for (int i = 0; i < count / 2; i++) {
+                        addresses.put(strings[cursor.next()], strings[cursor.next()]);
+                    }
+                    return addresses;
+                });
+        Map<MonthDay, Set<String>> namesByBirthday = readGroups(NAMES_BY_BIRTHDAY,
+                code -> MonthDay.of(code / 100, code % 100), (cursor, count) -> {
+                    Set<String> names = new HashSet<>();
+                    for (int i = 0; i < count; i++) {
+                        names.add(strings[cursor.next()]);
+                    }
+                    return names;
+                });
+
+        return new DataSnapshot(dataVersion, today,
+                Collections.unmodifiableList(Arrays.asList(persons)),
+                Collections.unmodifiableList(Arrays.asList(firestations)),
+                Collections.unmodifiableList(Arrays.asList(medicalRecords)),
+                Collections.unmodifiableList(Arrays.asList(geocodes)),
+                readRowGroups(RESIDENTS_BY_ADDRESS, residents),
+                readRowGroups(RESIDENTS_BY_LAST_NAME, residents),
+                readRowGroups(RESIDENTS_BY_CITY, residents),
+                readRowGroups(RESIDENTS_BY_NAME, residents),
+                readRowGroups(FIRESTATIONS_BY_ADDRESS, firestations),
+                addressesByStation,
+                readRowGroups(MEDICAL_RECORDS_BY_NAME, medicalRecords),
+                namesByBirthday, geocoded ? readRowGroups(GEOCODES_BY_ADDRESS, geocodes) : new HashMap<>(), dictionaries);
+    }
+
+    /** Indexes the records read again, for files whose index sections are keyed differently. */
+    private DataSnapshot reindex(long dataVersion, LocalDate today) {
+        DataSnapshot.Builder builder = DataSnapshot.empty(today).toBuilder();
+        for (MedicalRecord record : medicalRecords) {
+            builder.addMedicalRecord(record);
+        }
+        for (Person person : persons) {
+            builder.addPerson(person);
+        }
+        for (Firestation firestation : firestations) {
+            builder.addFirestation(firestation);
+        }
+        return builder.build(dataVersion);
+    }
+
+    private void readStrings() {
+        ByteBuffer section = sections[STRINGS];
+        int count = section.getInt(0);
+        int blobStart = 4 + (count + 1) * 4;
+        strings = new String[count];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int start = section.getInt(4 + i * 4);
+            int length = section.getInt(8 + i * 4) - start;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            section.get(blobStart + start, bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void readStringLists() {
+        Cursor cursor = new Cursor(sections[STRING_LISTS]);
+        stringLists = new int[cursor.next()];
+        for (int i = 0; i < stringLists.length; i++) {
+            stringLists[i] = cursor.next();
+        }
+    }
+
+    private void readMedicalRecords() {
+        Cursor cursor = new Cursor(sections[MEDICAL_RECORDS]);
+        medicalRecords = new MedicalRecord[cursor.next()];
+        for (int row = 0; row < medicalRecords.length; row++) {
+            MedicalRecord record = new MedicalRecord();
+            record.setFirstName(string(cursor.next()));
+            record.setLastName(string(cursor.next()));
+            record.setBirthdate(string(cursor.next()));
+            record.setMedications(stringList(cursor.next(), cursor.next()));
+            record.setAllergies(stringList(cursor.next(), cursor.next()));
+            dictionaries.intern(record);
+            medicalRecords[row] = record;
+        }
+    }
+
+    private void readPersons(LocalDate today) {
+        Cursor cursor = new Cursor(sections[PERSONS]);
+        persons = new Person[cursor.next()];
+        residents = new Resident[persons.length];
+        for (int row = 0; row < persons.length; row++) {
+            Person person = new Person();
+            person.setFirstName(string(cursor.next()));
+            person.setLastName(string(cursor.next()));
+            person.setAddress(string(cursor.next()));
+            person.setCity(string(cursor.next()));
+            person.setZip(string(cursor.next()));
+            person.setPhone(string(cursor.next()));
+            person.setEmail(string(cursor.next()));
+            dictionaries.intern(person);
+            int recordRow = cursor.next();
+            MedicalRecord record = recordRow == NONE ? null : medicalRecords[recordRow];
+            persons[row] = person;
+            residents[row] = new Resident(person, record, DataSnapshot.ageOn(record, today));
+        }
+    }
+
+    private void readFirestations() {
+        Cursor cursor = new Cursor(sections[FIRESTATIONS]);
+        firestations = new Firestation[cursor.next()];
+        for (int row = 0; row < firestations.length; row++) {
+            Firestation firestation = new Firestation();
+            firestation.setAddress(string(cursor.next()));
+            firestation.setStation(string(cursor.next()));
+            dictionaries.intern(firestation);
+            firestations[row] = firestation;
+        }
+    }
+
+    private void readGeocodes() {
+        Cursor cursor = new Cursor(sections[GEOCODES]);
+        geocodes = new Geocode[cursor.next()];
+        for (int row = 0; row < geocodes.length; row++) {
+            Geocode geocode = new Geocode();
+            geocode.setAddress(string(cursor.next()));
+            geocode.setLatitude(coordinate(cursor.nextDouble()));
+            geocode.setLongitude(coordinate(cursor.nextDouble()));
+            dictionaries.intern(geocode);
+            geocodes[row] = geocode;
+        }
+    }
+
+    private static Double coordinate(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private <T> Map<String, List<T>> readRowGroups(int sectionId, T[] rows) {
+        return readGroups(sectionId, id -> strings[id], (cursor, count) -> {
+            List<T> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(rows[cursor.next()]);
+            }
+            return values;
+        });
+    }
+
+    private interface GroupReader<V> {
+        V read(Cursor cursor, int count);
+    }
+
+    private <K, V> Map<K, V> readGroups(int sectionId, IntFunction<K> keys, GroupReader<V> values) {
+        Cursor cursor = new Cursor(sections[sectionId]);
+        int groups = cursor.next();
+        Map<K, V> index = HashMap.newHashMap(groups);
+        for (int i = 0; i < groups; i++) {
+            K key = keys.apply(cursor.next());
+            index.put(key, values.read(cursor, cursor.next()));
+        }
+        return index;
+    }
+
+    private String string(int id) {
+        return id == NONE ? null : strings[id];
+    }
+
+    private List<String> stringList(int start, int count) {
+        if (start == NONE) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            values.add(string(stringLists[i]));
+        }
+        return values;
+    }
+
+    /** Sequential reader of ints and doubles over a mapped section; bounds are checked by the buffer. */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Cursor(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int next() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        double nextDouble() {
+            double value = buffer.getDouble(position);
+            position += 8;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.MonthDay;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import static com.safetynet.alerts.repository.BinarySnapshotFormat.*;
+
+/**
+ * Writes a {@link DataSnapshot} to a binary snapshot file (see {@link BinarySnapshotFormat}).
+ * The file is written next to the target and atomically moved into place once synced,
+ * so readers only ever see a complete snapshot.
+ */
+public final class BinarySnapshotWriter {
+
+    private final DataSnapshot snapshot;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<Integer> stringLists = new ArrayList<>();
+    private final Map<Person, Integer> personRows = new IdentityHashMap<>();
+    private final Map<Firestation, Integer> firestationRows = new IdentityHashMap<>();
+    private final Map<MedicalRecord, Integer> medicalRecordRows = new IdentityHashMap<>();
+    private final Map<Geocode, Integer> geocodeRows = new IdentityHashMap<>();
+
+    private BinarySnapshotWriter(DataSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Writes a snapshot file.
+     * @param snapshot snapshot to write
+     * @param target file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DataSnapshot snapshot, Path target) throws IOException {
+        new BinarySnapshotWriter(snapshot).writeTo(target);
+    }
+
+    private void writeTo(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        int headerSize = HEADER_FIXED_SIZE + SECTION_COUNT * SECTION_ENTRY_SIZE;
+        ByteBuffer sectionTable = ByteBuffer.allocate(SECTION_COUNT * SECTION_ENTRY_SIZE);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(headerSize);
+            // Strings are collected while writing the other sections, so they come last.
+            writeSection(channel, sectionTable, PERSONS, this::writePersons);
+            writeSection(channel, sectionTable, FIRESTATIONS, this::writeFirestations);
+            writeSection(channel, sectionTable, MEDICAL_RECORDS, this::writeMedicalRecords);
+            writeSection(channel, sectionTable, GEOCODES, this::writeGeocodes);
+            writeSection(channel, sectionTable, STRING_LISTS, this::writeStringLists);
+            writeSection(channel, sectionTable, RESIDENTS_BY_ADDRESS,
+                    out -> writeGroups(out, snapshot.residentsByAddress(), this::residentRow));
+            writeSection(channel, sectionTable, RESIDENTS_BY_LAST_NAME,
+                    out -> writeGroups(out, snapshot.residentsByLastName(), this::residentRow));
+            writeSection(channel, sectionTable, RESIDENTS_BY_CITY,
+                    out -> writeGroups(out, snapshot.residentsByCity(), this::residentRow));
+            writeSection(channel, sectionTable, RESIDENTS_BY_NAME,
+                    out -> writeGroups(out, snapshot.residentsByName(), this::residentRow));
+            writeSection(channel, sectionTable, FIRESTATIONS_BY_ADDRESS,
+                    out -> writeGroups(out, snapshot.firestationsByAddress(), firestationRows::get));
+            writeSection(channel, sectionTable, MEDICAL_RECORDS_BY_NAME,
+                    out -> writeGroups(out, snapshot.medicalRecordsByName(), medicalRecordRows::get));
+            writeSection(channel, sectionTable, GEOCODES_BY_ADDRESS,
+                    out -> writeGroups(out, snapshot.geocodesByAddress(), geocodeRows::get));
+            writeSection(channel, sectionTable, ADDRESSES_BY_STATION, this::writeAddressesByStation);
+            writeSection(channel, sectionTable, NAMES_BY_BIRTHDAY, this::writeNamesByBirthday);
+            writeSection(channel, sectionTable, STRINGS, this::writeStrings);
+
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putLong(snapshot.getVersion())
+                    .putLong(snapshot.getAgeReferenceDay().toEpochDay())
+                    .putInt(SECTION_COUNT).putInt(0)
+                    .put(sectionTable.flip())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private interface SectionBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeSection(FileChannel channel, ByteBuffer sectionTable, int id, SectionBody body)
+            throws IOException {
+        long offset = channel.position();
+        CRC32C crc = new CRC32C();
+        // Not closed: closing would close the channel, flushing is enough.
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+        body.write(out);
+        out.flush();
+        sectionTable.putInt(id).putInt((int) crc.getValue()).putLong(offset).putLong(channel.position() - offset);
+    }
+
+    private void writePersons(DataOutputStream out) throws IOException {
+        List<Person> persons = snapshot.getPersons();
+        for (int row = 0; row < persons.size(); row++) {
+            personRows.put(persons.get(row), row);
+        }
+        List<MedicalRecord> records = snapshot.getMedicalRecords();
+        for (int row = 0; row < records.size(); row++) {
+            medicalRecordRows.put(records.get(row), row);
+        }
+        Map<Person, MedicalRecord> links = new IdentityHashMap<>();
+        for (List<Resident> residents : snapshot.residentsByName().values()) {
+            for (Resident resident : residents) {
+                links.put(resident.person(), resident.medicalRecord());
+            }
+        }
+        out.writeInt(persons.size());
+        for (Person person : persons) {
+            out.writeInt(stringId(person.getFirstName()));
+            out.writeInt(stringId(person.getLastName()));
+            out.writeInt(stringId(person.getAddress()));
+            out.writeInt(stringId(person.getCity()));
+            out.writeInt(stringId(person.getZip()));
+            out.writeInt(stringId(person.getPhone()));
+            out.writeInt(stringId(person.getEmail()));
+            MedicalRecord record = links.get(person);
+            out.writeInt(record == null ? NONE : medicalRecordRows.get(record));
+        }
+    }
+
+    private void writeFirestations(DataOutputStream out) throws IOException {
+        List<Firestation> firestations = snapshot.getFirestations();
+        out.writeInt(firestations.size());
+        for (int row = 0; row < firestations.size(); row++) {
+            Firestation firestation = firestations.get(row);
+            firestationRows.put(firestation, row);
+            out.writeInt(stringId(firestation.getAddress()));
+            out.writeInt(stringId(firestation.getStation()));
+        }
+    }
+
+    private void writeMedicalRecords(DataOutputStream out) throws IOException {
+        List<MedicalRecord> records = snapshot.getMedicalRecords();
+        out.writeInt(records.size());
+        for (MedicalRecord record : records) {
+            out.writeInt(stringId(record.getFirstName()));
+            out.writeInt(stringId(record.getLastName()));
+            out.writeInt(stringId(record.getBirthdate()));
+            writeStringList(out, record.getMedications());
+            writeStringList(out, record.getAllergies());
+        }
+    }
+
+    private void writeGeocodes(DataOutputStream out) throws IOException {
+        List<Geocode> geocodes = snapshot.getGeocodes();
+        out.writeInt(geocodes.size());
+        for (int row = 0; row < geocodes.size(); row++) {
+            Geocode geocode = geocodes.get(row);
+            geocodeRows.put(geocode, row);
+            out.writeInt(stringId(geocode.getAddress()));
+            out.writeDouble(geocode.getLatitude() == null ? Double.NaN : geocode.getLatitude());
+            out.writeDouble(geocode.getLongitude() == null ? Double.NaN : geocode.getLongitude());
+        }
+    }
+
+    private void writeStringList(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(NONE);
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(stringLists.size());
+        out.writeInt(values.size());
+        for (String value : values) {
+            stringLists.add(stringId(value));
+        }
+    }
+
+    private void writeStringLists(DataOutputStream out) throws IOException {
+        out.writeInt(stringLists.size());
+        for (int id : stringLists) {
+            out.writeInt(id);
+        }
+    }
+
+    private int residentRow(Resident resident) {
+        return personRows.get(resident.person());
+    }
+
+    private <T> void writeGroups(DataOutputStream out, Map<String, List<T>> index, ToIntFunction<T> row)
+            throws IOException {
+        out.writeInt(index.size());
+        for (Map.Entry<String, List<T>> group : index.entrySet()) {
+            out.writeInt(stringId(group.getKey()));
+            out.writeInt(group.getValue().size());
+            for (T value : group.getValue()) {
+                out.writeInt(row.applyAsInt(value));
+            }
+        }
+    }
+
+    private void writeAddressesByStation(DataOutputStream out) throws IOException {
+        Map<String, Map<String, String>> index = snapshot.addressesByStation();
+        out.writeInt(index.size());
+        for (Map.Entry<String, Map<String, String>> group : index.entrySet()) {
+            out.writeInt(stringId(group.getKey()));
+            out.writeInt(group.getValue().size() * 2);
+            for (Map.Entry<String, String> address : group.getValue().entrySet()) {
+                out.writeInt(stringId(address.getKey()));
+                out.writeInt(stringId(address.getValue()));
+            }
+        }
+    }
+
+    private void writeNamesByBirthday(DataOutputStream out) throws IOException {
+        Map<MonthDay, Set<String>> index = snapshot.namesByBirthday();
+        out.writeInt(index.size());
+        for (Map.Entry<MonthDay, Set<String>> group : index.entrySet()) {
+            out.writeInt(group.getKey().getMonthValue() * 100 + group.getKey().getDayOfMonth());
+            out.writeInt(group.getValue().size());
+            for (String nameKey : group.getValue()) {
+                out.writeInt(stringId(nameKey));
+            }
+        }
+    }
+
+    private void writeStrings(DataOutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        out.writeInt(strings.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset = Math.addExact(offset, bytes.length);
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private int stringId(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,145 @@
+package com.safetynet.alerts.repository;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Canonical forms that names, cities, addresses and medical terms are indexed and matched under, so that every
+ * lookup is a hash lookup on the same key whatever the endpoint. A key is the value case-folded,
+ * trimmed, with every run of whitespace collapsed to one space. Address keys also unify street
+ * suffixes to their usual abbreviation, so that "1509 Culver Street" and "1509 culver st." match.
+ * Medication keys leave out the dose, so that every dose of a medication matches its name.
+ * <p>
+ * Snapshot builders compute the keys of stored records once per distinct value, through their
+ * {@link FieldDictionaries}; lookups compute the key of the requested value.
+ */
+public final class CanonicalKeys {
+
+    private static final Map<String, String> STREET_SUFFIXES = Map.ofEntries(
+            Map.entry("street", "st"), Map.entry("str", "st"), Map.entry("st", "st"),
+            Map.entry("avenue", "ave"), Map.entry("av", "ave"), Map.entry("ave", "ave"),
+            Map.entry("road", "rd"), Map.entry("rd", "rd"),
+            Map.entry("drive", "dr"), Map.entry("dr", "dr"),
+            Map.entry("boulevard", "blvd"), Map.entry("blvd", "blvd"),
+            Map.entry("lane", "ln"), Map.entry("ln", "ln"),
+            Map.entry("court", "ct"), Map.entry("ct", "ct"),
+            Map.entry("place", "pl"), Map.entry("pl", "pl"),
+            Map.entry("circle", "cir"), Map.entry("cir", "cir"),
+            Map.entry("parkway", "pkwy"), Map.entry("pkwy", "pkwy"),
+            Map.entry("highway", "hwy"), Map.entry("hwy", "hwy"),
+            Map.entry("terrace", "ter"), Map.entry("ter", "ter"),
+            Map.entry("square", "sq"), Map.entry("sq", "sq"),
+            Map.entry("trail", "trl"), Map.entry("trl", "trl"));
+
+    /** Suffix spellings by length, as {spelling, abbreviation} pairs, matched in place without allocating. */
+    private static final String[][][] SUFFIXES_BY_LENGTH = new String[10][][];
+
+    static {
+        for (int length = 0; length < SUFFIXES_BY_LENGTH.length; length++) {
+            int size = length;
+            SUFFIXES_BY_LENGTH[length] = STREET_SUFFIXES.entrySet().stream()
+                    .filter(entry -> entry.getKey().length() == size)
+                    .map(entry -> new String[] {entry.getKey(), entry.getValue()})
+                    .toArray(String[][]::new);
+        }
+    }
+
+    private CanonicalKeys() {
+    }
+
+    /**
+     * @param value name or city
+     * @return its key, or null for null
+     */
+    public static String of(String value) {
+        if (value == null) {
+            return null;
+        }
+        char previous = ' ';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean canonical = c > ' ' ? c < 128 && (c < 'A' || c > 'Z') : c == ' ' && previous != ' ';
+            if (!canonical) {
+                return normalise(value);
+            }
+            previous = c;
+        }
+        return previous == ' ' ? normalise(value) : value;
+    }
+
+    private static String normalise(String value) {
+        StringBuilder key = new StringBuilder(value.length());
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = !key.isEmpty();
+            } else {
+                if (space) {
+                    key.append(' ');
+                    space = false;
+                }
+                key.append(c);
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param medication medication, with or without its dose after a colon, as in {@code "aznol:350mg"}
+     * @return the key of the medication's name, or null for null
+     */
+    public static String medication(String medication) {
+        if (medication == null) {
+            return null;
+        }
+        int colon = medication.indexOf(':');
+        return of(colon < 0 ? medication : medication.substring(0, colon));
+    }
+
+    /**
+     * @param address street address
+     * @return its key, with street suffixes abbreviated, or null for null
+     */
+    public static String address(String address) {
+        String key = of(address);
+        if (key == null) {
+            return null;
+        }
+        StringBuilder unified = null;
+        int copied = 0;
+        int space = key.indexOf(' ');
+        while (space >= 0) {
+            int start = space + 1;
+            int end = key.indexOf(' ', start);
+            if (end < 0) {
+                end = key.length();
+            }
+            int wordEnd = end > start && key.charAt(end - 1) == '.' ? end - 1 : end;
+            String suffix = suffix(key, start, wordEnd);
+            if (suffix != null && !(suffix.length() == end - start && key.startsWith(suffix, start))) {
+                if (unified == null) {
+                    unified = new StringBuilder(key.length());
+                }
+                unified.append(key, copied, start).append(suffix);
+                copied = end;
+            }
+            space = end < key.length() ? end : -1;
+        }
+        return unified == null ? key : unified.append(key, copied, key.length()).toString();
+    }
+
+    /** @return the abbreviation of the word of a key between two indexes, or null if it is no street suffix */
+    private static String suffix(String key, int start, int end) {
+        int length = end - start;
+        if (length >= SUFFIXES_BY_LENGTH.length) {
+            return null;
+        }
+        for (String[] suffix : SUFFIXES_BY_LENGTH[length]) {
+            if (key.startsWith(suffix[0], start)) {
+                return suffix[1];
+            }
+        }
+        return null;
+    }
+}
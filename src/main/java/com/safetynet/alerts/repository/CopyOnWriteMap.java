@@ -0,0 +1,107 @@
+package com.safetynet.alerts.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Map used while building a new snapshot from a published one.
+ * Reads go to the published {@link ShardedMap} until the first write, which copies its array of
+ * shards; each shard is copied the first time a key of it is written, and each value (an index
+ * bucket) the first time it is edited. A write costs about the square root of the size of the map
+ * plus the buckets it touches, and the published map is never modified.
+ *
+ * @param <K> key type
+ * @param <V> bucket type
+ */
+final class CopyOnWriteMap<K, V> {
+
+    private final ShardedMap<K, V> published;
+    private final UnaryOperator<V> copier;
+    private Map<K, V>[] shards;
+    private boolean[] ownedShards;
+    private Set<K> owned;
+    private int size;
+
+    /**
+     * @param published map to start from, copied into a {@link ShardedMap} first if it is not one
+     * @param copier copies a bucket of the published map
+     */
+    CopyOnWriteMap(Map<K, V> published, UnaryOperator<V> copier) {
+        this.published = ShardedMap.copyOf(published);
+        this.copier = copier;
+    }
+
+    V get(K key) {
+        if (shards == null) {
+            return published.get(key);
+        }
+        return key == null ? null : shards[ShardedMap.shardOf(key, shards.length)].get(key);
+    }
+
+    /**
+     * Returns a bucket private to this builder, copying the published one or creating
+     * a new one if the key is absent.
+     */
+    V edit(K key, Supplier<V> factory) {
+        Map<K, V> shard = editShard(key);
+        V value = shard.get(key);
+        if (!owned.contains(key)) {
+            if (value == null) {
+                value = factory.get();
+                size++;
+            } else {
+                value = copier.apply(value);
+            }
+            shard.put(key, value);
+            owned.add(key);
+        }
+        return value;
+    }
+
+    /** Like {@link #edit} but returns null instead of creating a missing bucket. */
+    V editIfPresent(K key) {
+        return get(key) == null ? null : edit(key, () -> null);
+    }
+
+    V remove(K key) {
+        if (get(key) == null) {
+            return null;
+        }
+        Map<K, V> shard = editShard(key);
+        owned.remove(key);
+        size--;
+        return shard.remove(key);
+    }
+
+    Set<K> keySet() {
+        return current().keySet();
+    }
+
+    /** @return the resulting map; must not be modified once handed to a snapshot */
+    Map<K, V> build() {
+        return shards == null ? published : ShardedMap.of(shards, size);
+    }
+
+    private ShardedMap<K, V> current() {
+        return shards == null ? published : new ShardedMap<>(shards, size);
+    }
+
+    private Map<K, V> editShard(K key) {
+        if (shards == null) {
+            shards = published.shards();
+            ownedShards = new boolean[shards.length];
+            owned = new HashSet<>();
+            size = published.size();
+        }
+        int shard = ShardedMap.shardOf(key, shards.length);
+        if (!ownedShards[shard]) {
+            shards[shard] = new HashMap<>(shards[shard]);
+            ownedShards[shard] = true;
+        }
+        return shards[shard];
+    }
+}
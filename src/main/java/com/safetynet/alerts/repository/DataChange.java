@@ -0,0 +1,29 @@
+package com.safetynet.alerts.repository;
+
+import java.util.Set;
+
+/**
+ * What a published version changed, for listeners that keep data derived from the store.
+ * Addresses, cities and last names are index keys (see {@link CanonicalKeys}); stations are
+ * station numbers as mapped. A change lists every address, city and last name whose residents changed,
+ * every station whose coverage or residents changed, and every address whose station mapping or position changed.
+ * @param version version the change was published with
+ * @param everything true if the whole content was replaced, in which case the sets are empty
+ * @param addresses addresses whose residents or station changed
+ * @param stations stations whose addresses or residents changed
+ * @param cities cities whose residents changed
+ * @param lastNames last names whose residents changed
+ * @param locations true if a position or the station mapping of a geocoded address changed, which may
+ *                  change the station nearest to any position
+ */
+public record DataChange(long version, boolean everything, Set<String> addresses, Set<String> stations,
+                         Set<String> cities, Set<String> lastNames, boolean locations) {
+
+    /**
+     * @param version version the content was published with
+     * @return a change replacing the whole content
+     */
+    public static DataChange everything(long version) {
+        return new DataChange(version, true, Set.of(), Set.of(), Set.of(), Set.of(), false);
+    }
+}
@@ -0,0 +1,1286 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.NearbyStation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.FieldDictionaries.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable, versioned view of the SafetyNet persons, firestations and medical records
+ * together with their hash indexes. A snapshot never changes once published, so it can be
+ * read from any number of threads without locking. Changes are made on a {@link Builder}
+ * derived from the current snapshot, which copies only the shards, chunks and buckets it touches,
+ * and become visible all at once when the data store publishes the built snapshot.
+ * Persons are indexed as {@link Resident}s already linked to their medical record and age.
+ * Addresses, cities and names are indexed and looked up by their {@link CanonicalKeys}, so they match
+ * whatever their case, spacing or, for addresses, street suffix spelling; station numbers match exactly.
+ * The model objects held by a snapshot must not be modified. Their repeated values are shared
+ * through the {@link FieldDictionaries} of the line of snapshots they were added to.
+ * Last names can also be searched by prefix or approximately, through a {@link NameSearchIndex} of
+ * the distinct last names maintained with the residents by last name.
+ * Medications and allergies are indexed by term, inverted to the names of the medical records listing
+ * them, for the residents covered by stations who take a medication or have an allergy.
+ * Addresses may carry a position ({@link Geocode}); the first position of each address is placed in a
+ * {@link GeoIndex}, for the stations nearest to a position and the residents within a radius of it.
+ */
+public final class DataSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSnapshot.class);
+    private static final MonthDay LEAP_DAY = MonthDay.of(2, 29);
+
+    private final long version;
+    private final LocalDate ageReferenceDay;
+    private final RecordList<Person> persons;
+    private final RecordList<Firestation> firestations;
+    private final RecordList<MedicalRecord> medicalRecords;
+    private final RecordList<Geocode> geocodes;
+    private final Map<String, List<Resident>> residentsByAddress;
+    private final Map<String, List<Resident>> residentsByLastName;
+    private final Map<String, List<Resident>> residentsByCity;
+    private final Map<String, List<Resident>> residentsByName;
+    private final Map<String, List<Firestation>> firestationsByAddress;
+    private final Map<String, Map<String, String>> addressesByStation;
+    private final Map<String, List<MedicalRecord>> medicalRecordsByName;
+    private final Map<MonthDay, Set<String>> namesByBirthday;
+    private final Map<String, Set<String>> namesByMedication;
+    private final Map<String, Set<String>> namesByAllergy;
+    private final Map<String, List<Geocode>> geocodesByAddress;
+    private final FieldDictionaries dictionaries;
+    private final NameSearchIndex lastNameSearch;
+    private final GeoIndex geoIndex;
+
+    private DataSnapshot(long version, LocalDate ageReferenceDay, Builder builder) {
+        this(version, ageReferenceDay, builder.persons.build(), builder.firestations.build(),
+                builder.medicalRecords.build(), builder.geocodes.build(),
+                builder.residentsByAddress.build(), builder.residentsByLastName.build(),
+                builder.residentsByCity.build(), builder.residentsByName.build(),
+                builder.firestationsByAddress.build(), builder.addressesByStation.build(),
+                builder.medicalRecordsByName.build(), builder.namesByBirthday.build(),
+                builder.namesByMedication.build(), builder.namesByAllergy.build(), builder.geocodesByAddress.build(),
+                builder.dictionaries, builder.lastNameSearch.build(), builder.geoIndex.build());
+    }
+
+    /**
+     * Assembles a snapshot from prebuilt collections and indexes, as restored from a binary
+     * snapshot file. The caller hands over ownership: nothing passed in may be modified afterwards.
+     * The last name search index is rebuilt from the last names, the medical term indexes from the
+     * medical records, and the spatial index from the geocodes.
+     */
+    DataSnapshot(long version, LocalDate ageReferenceDay,
+                 List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords,
+                 List<Geocode> geocodes,
+                 Map<String, List<Resident>> residentsByAddress, Map<String, List<Resident>> residentsByLastName,
+                 Map<String, List<Resident>> residentsByCity, Map<String, List<Resident>> residentsByName,
+                 Map<String, List<Firestation>> firestationsByAddress, Map<String, Map<String, String>> addressesByStation,
+                 Map<String, List<MedicalRecord>> medicalRecordsByName, Map<MonthDay, Set<String>> namesByBirthday,
+                 Map<String, List<Geocode>> geocodesByAddress, FieldDictionaries dictionaries) {
+        this(version, ageReferenceDay, RecordList.of(persons), RecordList.of(firestations),
+                RecordList.of(medicalRecords), RecordList.of(geocodes),
+                residentsByAddress, residentsByLastName, residentsByCity, residentsByName,
+                firestationsByAddress, addressesByStation, medicalRecordsByName, namesByBirthday,
+                namesByTerm(medicalRecordsByName, MedicalRecord::getMedications, Field.MEDICATION, dictionaries),
+                namesByTerm(medicalRecordsByName, MedicalRecord::getAllergies, Field.ALLERGY, dictionaries),
+                geocodesByAddress, dictionaries, NameSearchIndex.of(residentsByLastName.keySet()),
+                geoIndexOf(geocodesByAddress));
+    }
+
+    private DataSnapshot(long version, LocalDate ageReferenceDay,
+                         RecordList<Person> persons, RecordList<Firestation> firestations,
+                         RecordList<MedicalRecord> medicalRecords, RecordList<Geocode> geocodes,
+                         Map<String, List<Resident>> residentsByAddress, Map<String, List<Resident>> residentsByLastName,
+                         Map<String, List<Resident>> residentsByCity, Map<String, List<Resident>> residentsByName,
+                         Map<String, List<Firestation>> firestationsByAddress, Map<String, Map<String, String>> addressesByStation,
+                         Map<String, List<MedicalRecord>> medicalRecordsByName, Map<MonthDay, Set<String>> namesByBirthday,
+                         Map<String, Set<String>> namesByMedication, Map<String, Set<String>> namesByAllergy,
+                         Map<String, List<Geocode>> geocodesByAddress, FieldDictionaries dictionaries,
+                         NameSearchIndex lastNameSearch, GeoIndex geoIndex) {
+        this.version = version;
+        this.ageReferenceDay = ageReferenceDay;
+        this.persons = persons;
+        this.firestations = firestations;
+        this.medicalRecords = medicalRecords;
+        this.geocodes = geocodes;
+        this.residentsByAddress = ShardedMap.copyOf(residentsByAddress);
+        this.residentsByLastName = ShardedMap.copyOf(residentsByLastName);
+        this.residentsByCity = ShardedMap.copyOf(residentsByCity);
+        this.residentsByName = ShardedMap.copyOf(residentsByName);
+        this.firestationsByAddress = ShardedMap.copyOf(firestationsByAddress);
+        this.addressesByStation = ShardedMap.copyOf(addressesByStation);
+        this.medicalRecordsByName = ShardedMap.copyOf(medicalRecordsByName);
+        this.namesByBirthday = ShardedMap.copyOf(namesByBirthday);
+        this.namesByMedication = ShardedMap.copyOf(namesByMedication);
+        this.namesByAllergy = ShardedMap.copyOf(namesByAllergy);
+        this.geocodesByAddress = ShardedMap.copyOf(geocodesByAddress);
+        this.dictionaries = dictionaries;
+        this.lastNameSearch = lastNameSearch;
+        this.geoIndex = geoIndex;
+    }
+
+    /**
+     * Returns the same content under another version number.
+     * @param newVersion version of the copy
+     * @return snapshot sharing all data with this one
+     */
+    DataSnapshot withVersion(long newVersion) {
+        return new DataSnapshot(newVersion, ageReferenceDay, persons, firestations, medicalRecords, geocodes,
+                residentsByAddress, residentsByLastName, residentsByCity, residentsByName,
+                firestationsByAddress, addressesByStation, medicalRecordsByName, namesByBirthday,
+                namesByMedication, namesByAllergy, geocodesByAddress, dictionaries, lastNameSearch, geoIndex);
+    }
+
+    /**
+     * Creates an empty snapshot.
+     * @param ageReferenceDay day ages are computed for
+     * @return snapshot with version 0 and no data
+     */
+    public static DataSnapshot empty(LocalDate ageReferenceDay) {
+        return new Builder(null, ageReferenceDay).build(0);
+    }
+
+    /** @return version of this snapshot, increased by every published change */
+    public long getVersion() { return version; }
+
+    /** @return the day ages are computed for */
+    public LocalDate getAgeReferenceDay() { return ageReferenceDay; }
+
+    /**
+     * Starts a set of changes on top of this snapshot.
+     * @return builder initialised with the content of this snapshot
+     */
+    public Builder toBuilder() { return new Builder(this, ageReferenceDay); }
+
+    // ----------------- Collections -----------------
+
+    /** @return read-only list of all persons, in insertion order */
+    public List<Person> getPersons() { return persons; }
+
+    /** @return read-only list of all firestation mappings, in insertion order */
+    public List<Firestation> getFirestations() { return firestations; }
+
+    /** @return read-only list of all medical records, in insertion order */
+    public List<MedicalRecord> getMedicalRecords() { return medicalRecords; }
+
+    /** @return read-only list of all geocodes, in insertion order */
+    public List<Geocode> getGeocodes() { return geocodes; }
+
+    // ----------------- Index lookups -----------------
+
+    /**
+     * Returns the residents living at an address.
+     * @param address address to look up
+     * @return read-only list of residents, empty if none
+     */
+    public List<Resident> getResidentsAtAddress(String address) {
+        return lookup(residentsByAddress, addressKey(address));
+    }
+
+    /**
+     * Returns the residents with a given last name.
+     * @param lastName last name to look up
+     * @return read-only list of residents, empty if none
+     */
+    public List<Resident> getResidentsByLastName(String lastName) {
+        return lookup(residentsByLastName, key(lastName));
+    }
+
+    /**
+     * Returns the residents living in a city.
+     * @param city city to look up
+     * @return read-only list of residents, empty if none
+     */
+    public List<Resident> getResidentsByCity(String city) {
+        return lookup(residentsByCity, key(city));
+    }
+
+    /**
+     * Returns the residents with a given first and last name.
+     * @param firstName first name
+     * @param lastName last name
+     * @return read-only list of residents, empty if none
+     */
+    public List<Resident> getResidentsByName(String firstName, String lastName) {
+        return lookup(residentsByName, nameKey(firstName, lastName));
+    }
+
+    /**
+     * Returns the distinct addresses covered by a fire station.
+     * @param station station number
+     * @return read-only collection of addresses, empty if the station covers none
+     */
+    public Collection<String> getAddressesForStation(String station) {
+        Map<String, String> addresses = station == null ? null : addressesByStation.get(station);
+        return addresses == null ? Collections.emptyList() : Collections.unmodifiableCollection(addresses.values());
+    }
+
+    /**
+     * Returns the station covering an address. When an address is mapped several times
+     * the first mapping wins.
+     * @param address address to look up
+     * @return the station number, or empty if the address is not mapped
+     */
+    public Optional<String> getStationForAddress(String address) {
+        List<Firestation> mappings = lookup(firestationsByAddress, addressKey(address));
+        return mappings.isEmpty() ? Optional.empty() : Optional.ofNullable(mappings.get(0).getStation());
+    }
+
+    /**
+     * Returns the medical record of a person.
+     * @param firstName first name
+     * @param lastName last name
+     * @return the first matching medical record, or empty if none exists
+     */
+    public Optional<MedicalRecord> getMedicalRecord(String firstName, String lastName) {
+        List<MedicalRecord> records = lookup(medicalRecordsByName, nameKey(firstName, lastName));
+        return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+    }
+
+    /**
+     * Returns the position of an address. When an address is geocoded several times the first
+     * geocode wins.
+     * @param address address to look up
+     * @return the geocode, or empty if the address is not geocoded
+     */
+    public Optional<Geocode> getGeocode(String address) {
+        List<Geocode> positions = lookup(geocodesByAddress, addressKey(address));
+        return positions.isEmpty() ? Optional.empty() : Optional.of(positions.get(0));
+    }
+
+    // ----------------- Spatial lookups -----------------
+
+    /**
+     * Returns the stations covering the geocoded addresses closest to a position, nearest first.
+     * A station is reported once, with the covered address closest to the position; an address
+     * counts for the station of its first mapping, as in {@link #getStationForAddress}.
+     * @param latitude latitude of the position, in degrees
+     * @param longitude longitude of the position, in degrees
+     * @param limit maximum number of stations
+     * @param maxDistance distance beyond which addresses are not considered, in meters
+     * @return stations by increasing distance
+     */
+    public List<NearbyStation> getNearestStations(double latitude, double longitude, int limit, double maxDistance) {
+        List<NearbyStation> stations = new ArrayList<>();
+        if (limit <= 0) {
+            return stations;
+        }
+        Set<String> seen = new HashSet<>();
+        geoIndex.nearest(latitude, longitude, maxDistance, neighbour -> {
+            List<Firestation> mappings = firestationsByAddress.get(neighbour.addressKey());
+            if (mappings != null && !mappings.isEmpty()) {
+                Firestation mapping = mappings.get(0);
+                if (mapping.getStation() != null && seen.add(mapping.getStation())) {
+                    stations.add(new NearbyStation(mapping.getStation(), mapping.getAddress(), neighbour.distance()));
+                }
+            }
+            return stations.size() < limit;
+        });
+        return stations;
+    }
+
+    /**
+     * Resolves the station of an address that is not mapped from its position: the station of the
+     * closest geocoded address that is mapped.
+     * @param address geocoded address
+     * @param maxDistance distance beyond which mapped addresses are not considered, in meters
+     * @return the nearest station, or empty if the address has no position or no mapped address is close enough
+     */
+    public Optional<NearbyStation> getNearestStation(String address, double maxDistance) {
+        return getGeocode(address).filter(Geocode::hasPosition)
+                .flatMap(position -> getNearestStations(position.getLatitude(), position.getLongitude(), 1, maxDistance)
+                        .stream().findFirst());
+    }
+
+    /**
+     * Returns the residents of the geocoded addresses within a distance of a position.
+     * @param latitude latitude of the position, in degrees
+     * @param longitude longitude of the position, in degrees
+     * @param radius distance, in meters
+     * @return read-only lists of residents by address, closest address first; addresses without residents are left out
+     */
+    public Map<String, List<Resident>> getResidentsWithin(double latitude, double longitude, double radius) {
+        Map<String, List<Resident>> households = new LinkedHashMap<>();
+        for (GeoIndex.Neighbour neighbour : geoIndex.within(latitude, longitude, radius)) {
+            List<Resident> residents = residentsByAddress.get(neighbour.addressKey());
+            if (residents != null && !residents.isEmpty()) {
+                households.put(residents.get(0).person().getAddress(), Collections.unmodifiableList(residents));
+            }
+        }
+        return households;
+    }
+
+    /**
+     * Returns the residents covered by some stations who take one of some medications or have one of
+     * some allergies. The names listed under the terms are intersected with the stations' coverage by
+     * walking the smaller side: either each resident with a listed name, checking whether a station
+     * covers its address, or each resident of a covered address, checking the terms of its medical record.
+     * @param stations station numbers
+     * @param medications medications, matched on their name whatever the dose
+     * @param allergies allergies
+     * @return matching residents by covered address, households in no particular order
+     */
+    public Map<String, List<Resident>> getCoveredResidentsWithMedicalTerms(Collection<String> stations,
+                                                                          Collection<String> medications,
+                                                                          Collection<String> allergies) {
+        List<Map<String, String>> coverage = new ArrayList<>();
+        int coveredAddresses = 0;
+        for (String station : new LinkedHashSet<>(stations)) {
+            Map<String, String> addresses = station == null ? null : addressesByStation.get(station);
+            if (addresses != null) {
+                coverage.add(addresses);
+                coveredAddresses += addresses.size();
+            }
+        }
+        Set<String> medicationKeys = termKeys(medications, CanonicalKeys::medication);
+        Set<String> allergyKeys = termKeys(allergies, CanonicalKeys::of);
+        List<Set<String>> listedNames = new ArrayList<>();
+        int names = addPostings(listedNames, namesByMedication, medicationKeys) + addPostings(listedNames, namesByAllergy, allergyKeys);
+
+        Map<String, List<Resident>> households = new LinkedHashMap<>();
+        if (coverage.isEmpty() || listedNames.isEmpty()) {
+            return households;
+        }
+        if (names <= coveredAddresses) {
+            Set<String> seen = new HashSet<>();
+            for (Set<String> nameKeys : listedNames) {
+                for (String nameKey : nameKeys) {
+                    List<Resident> residents = seen.add(nameKey) ? residentsByName.get(nameKey) : null;
+                    if (residents == null) {
+                        continue;
+                    }
+                    for (Resident resident : residents) {
+                        String address = coveredAddress(coverage, dictionaries.key(Field.ADDRESS, resident.person().getAddress()));
+                        if (address != null) {
+                            households.computeIfAbsent(address, a -> new ArrayList<>()).add(resident);
+                        }
+                    }
+                }
+            }
+        } else {
+            Set<String> seen = new HashSet<>();
+            for (Map<String, String> addresses : coverage) {
+                for (Map.Entry<String, String> address : addresses.entrySet()) {
+                    List<Resident> residents = seen.add(address.getKey()) ? residentsByAddress.get(address.getKey()) : null;
+                    if (residents == null) {
+                        continue;
+                    }
+                    for (Resident resident : residents) {
+                        if (hasTerm(resident.medicalRecord(), medicationKeys, allergyKeys)) {
+                            households.computeIfAbsent(address.getValue(), a -> new ArrayList<>()).add(resident);
+                        }
+                    }
+                }
+            }
+        }
+        return households;
+    }
+
+    private static Set<String> termKeys(Collection<String> terms, UnaryOperator<String> key) {
+        Set<String> keys = new HashSet<>();
+        if (terms != null) {
+            for (String term : terms) {
+                String termKey = key.apply(term);
+                if (termKey != null && !termKey.isEmpty()) {
+                    keys.add(termKey);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static int addPostings(List<Set<String>> postings, Map<String, Set<String>> index, Set<String> keys) {
+        int size = 0;
+        for (String key : keys) {
+            Set<String> names = index.get(key);
+            if (names != null) {
+                postings.add(names);
+                size += names.size();
+            }
+        }
+        return size;
+    }
+
+    private static String coveredAddress(List<Map<String, String>> coverage, String addressKey) {
+        if (addressKey != null) {
+            for (Map<String, String> addresses : coverage) {
+                String address = addresses.get(addressKey);
+                if (address != null) {
+                    return address;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasTerm(MedicalRecord record, Set<String> medicationKeys, Set<String> allergyKeys) {
+        return record != null && (hasTerm(record.getMedications(), Field.MEDICATION, medicationKeys)
+                || hasTerm(record.getAllergies(), Field.ALLERGY, allergyKeys));
+    }
+
+    private boolean hasTerm(List<String> terms, Field field, Set<String> keys) {
+        if (terms != null && !keys.isEmpty()) {
+            for (String term : terms) {
+                if (keys.contains(dictionaries.key(field, term))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches the distinct last names of this snapshot.
+     * @param lastName searched last name, or its beginning for a prefix search
+     * @param match how the name is matched
+     * @param limit maximum number of names
+     * @return keys of the matching last names, best match first, each one usable with {@link #getResidentsByLastName}
+     * @see NameSearchIndex
+     */
+    public List<String> searchLastNames(String lastName, NameSearchIndex.Match match, int limit) {
+        return switch (match) {
+            case EXACT -> {
+                String key = key(lastName);
+                yield limit > 0 && key != null && residentsByLastName.containsKey(key) ? List.of(key) : List.of();
+            }
+            case PREFIX -> lastNameSearch.startingWith(lastName, limit);
+            case FUZZY -> lastNameSearch.closeTo(lastName, limit);
+        };
+    }
+
+    // ----------------- Statistics -----------------
+
+    /** Lookup index of a snapshot, for reporting its size. */
+    public enum Index {
+        ADDRESSES, LAST_NAMES, CITIES, NAMES, STATIONS, MEDICAL_RECORD_NAMES, MEDICATIONS, ALLERGIES, GEOCODED_ADDRESSES
+    }
+
+    /**
+     * Returns the number of keys of an index, such as the number of distinct addresses.
+     * @param index index to measure
+     * @return number of distinct keys
+     */
+    public int getIndexSize(Index index) {
+        return switch (index) {
+            case ADDRESSES -> residentsByAddress.size();
+            case LAST_NAMES -> residentsByLastName.size();
+            case CITIES -> residentsByCity.size();
+            case NAMES -> residentsByName.size();
+            case STATIONS -> addressesByStation.size();
+            case MEDICAL_RECORD_NAMES -> medicalRecordsByName.size();
+            case MEDICATIONS -> namesByMedication.size();
+            case ALLERGIES -> namesByAllergy.size();
+            case GEOCODED_ADDRESSES -> geocodesByAddress.size();
+        };
+    }
+
+    /** @return the dictionaries the values of the records are shared through */
+    FieldDictionaries dictionaries() {
+        return dictionaries;
+    }
+
+    // ----------------- Raw indexes, for the binary snapshot writer -----------------
+
+    Map<String, List<Resident>> residentsByAddress() { return residentsByAddress; }
+    Map<String, List<Resident>> residentsByLastName() { return residentsByLastName; }
+    Map<String, List<Resident>> residentsByCity() { return residentsByCity; }
+    Map<String, List<Resident>> residentsByName() { return residentsByName; }
+    Map<String, List<Firestation>> firestationsByAddress() { return firestationsByAddress; }
+    Map<String, Map<String, String>> addressesByStation() { return addressesByStation; }
+    Map<String, List<MedicalRecord>> medicalRecordsByName() { return medicalRecordsByName; }
+    Map<MonthDay, Set<String>> namesByBirthday() { return namesByBirthday; }
+    Map<String, List<Geocode>> geocodesByAddress() { return geocodesByAddress; }
+
+    // ----------------- Helpers -----------------
+
+    /**
+     * Computes an age from an already parsed birthdate.
+     * @param record medical record, may be null
+     * @param day day the age is computed for
+     * @return age in years, or -1 without record or birthdate
+     */
+    static int ageOn(MedicalRecord record, LocalDate day) {
+        if (record == null || record.getBirthEpochDay() == MedicalRecord.UNKNOWN_BIRTHDATE) {
+            return -1;
+        }
+        return Period.between(LocalDate.ofEpochDay(record.getBirthEpochDay()), day).getYears();
+    }
+
+    /**
+     * @param value name or city
+     * @return the key it is indexed under, or null for null
+     * @see CanonicalKeys#of(String)
+     */
+    public static String key(String value) {
+        return CanonicalKeys.of(value);
+    }
+
+    /**
+     * @param address street address
+     * @return the key it is indexed under, or null for null
+     * @see CanonicalKeys#address(String)
+     */
+    public static String addressKey(String address) {
+        return CanonicalKeys.address(address);
+    }
+
+    static String nameKey(String firstName, String lastName) {
+        return firstName == null || lastName == null ? null : key(firstName) + '\u0000' + key(lastName);
+    }
+
+    /** Indexes the names of restored medical records by the terms of their first record. */
+    private static Map<String, Set<String>> namesByTerm(Map<String, List<MedicalRecord>> medicalRecordsByName,
+                                                        Function<MedicalRecord, List<String>> terms,
+                                                        Field field, FieldDictionaries dictionaries) {
+        Map<String, Set<String>> names = new HashMap<>();
+        medicalRecordsByName.forEach((nameKey, records) -> {
+            List<String> values = records.isEmpty() ? null : terms.apply(records.get(0));
+            if (values != null) {
+                for (String value : values) {
+                    String key = dictionaries.key(field, value);
+                    if (key != null && !key.isEmpty()) {
+                        names.computeIfAbsent(key, k -> new HashSet<>()).add(nameKey);
+                    }
+                }
+            }
+        });
+        return names;
+    }
+
+    /** Places the first valid position of each restored address. */
+    private static GeoIndex geoIndexOf(Map<String, List<Geocode>> geocodesByAddress) {
+        List<GeoIndex.Point> points = new ArrayList<>();
+        geocodesByAddress.forEach((addressKey, geocodes) -> {
+            Geocode geocode = geocodes.isEmpty() ? null : geocodes.get(0);
+            if (geocode != null && geocode.hasPosition()) {
+                points.add(new GeoIndex.Point(addressKey, geocode.getLatitude(), geocode.getLongitude()));
+            }
+        });
+        return GeoIndex.of(points);
+    }
+
+    private static <T> List<T> lookup(Map<String, List<T>> index, String key) {
+        List<T> values = key == null ? null : index.get(key);
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Accumulates changes on top of a published snapshot. Every mutation keeps the indexes
+     * consistent; nothing is visible to readers until the data store publishes the result
+     * of {@link #build(long)}. A builder is single-threaded and must not be reused once built.
+     */
+    public static final class Builder {
+
+        private final DataSnapshot base;
+        private LocalDate ageReferenceDay;
+        private final RecordList.Editor<Person> persons;
+        private final RecordList.Editor<Firestation> firestations;
+        private final RecordList.Editor<MedicalRecord> medicalRecords;
+        private final RecordList.Editor<Geocode> geocodes;
+        private final CopyOnWriteMap<String, List<Resident>> residentsByAddress;
+        private final CopyOnWriteMap<String, List<Resident>> residentsByLastName;
+        private final CopyOnWriteMap<String, List<Resident>> residentsByCity;
+        private final CopyOnWriteMap<String, List<Resident>> residentsByName;
+        private final CopyOnWriteMap<String, List<Firestation>> firestationsByAddress;
+        private final CopyOnWriteMap<String, Map<String, String>> addressesByStation;
+        private final CopyOnWriteMap<String, List<MedicalRecord>> medicalRecordsByName;
+        private final CopyOnWriteMap<MonthDay, Set<String>> namesByBirthday;
+        private final CopyOnWriteMap<String, Set<String>> namesByMedication;
+        private final CopyOnWriteMap<String, Set<String>> namesByAllergy;
+        private final CopyOnWriteMap<String, List<Geocode>> geocodesByAddress;
+        private FieldDictionaries dictionaries;
+        private final NameSearchIndex.Editor lastNameSearch;
+        private final GeoIndex.Editor geoIndex;
+        private boolean modified;
+        private List<Mutation> journal;
+        private Touched touched;
+        private boolean locationsTouched;
+
+        /** Keys whose derived data changed, see {@link DataChange}. */
+        private record Touched(Set<String> addresses, Set<String> stations, Set<String> cities, Set<String> lastNames) { }
+
+        private Builder(DataSnapshot base, LocalDate ageReferenceDay) {
+            this.base = base;
+            this.ageReferenceDay = ageReferenceDay;
+            boolean empty = base == null;
+            residentsByAddress = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.residentsByAddress, ArrayList::new);
+            residentsByLastName = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.residentsByLastName, ArrayList::new);
+            residentsByCity = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.residentsByCity, ArrayList::new);
+            residentsByName = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.residentsByName, ArrayList::new);
+            firestationsByAddress = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.firestationsByAddress, ArrayList::new);
+            addressesByStation = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.addressesByStation, LinkedHashMap::new);
+            medicalRecordsByName = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.medicalRecordsByName, ArrayList::new);
+            namesByBirthday = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.namesByBirthday, HashSet::new);
+            namesByMedication = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.namesByMedication, HashSet::new);
+            namesByAllergy = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.namesByAllergy, HashSet::new);
+            geocodesByAddress = new CopyOnWriteMap<>(empty ? ShardedMap.empty() : base.geocodesByAddress, ArrayList::new);
+            dictionaries = empty ? new FieldDictionaries()
+                    : base.dictionaries.outgrown() ? FieldDictionaries.of(base.persons, base.firestations,
+                            base.medicalRecords, base.geocodes)
+                    : base.dictionaries;
+            persons = (empty ? RecordList.<Person>empty() : base.persons).edit();
+            firestations = (empty ? RecordList.<Firestation>empty() : base.firestations).edit();
+            medicalRecords = (empty ? RecordList.<MedicalRecord>empty() : base.medicalRecords).edit();
+            geocodes = (empty ? RecordList.<Geocode>empty() : base.geocodes).edit();
+            lastNameSearch = (empty ? NameSearchIndex.empty() : base.lastNameSearch).edit();
+            geoIndex = (empty ? GeoIndex.empty() : base.geoIndex).edit();
+        }
+
+        /**
+         * Drops the dictionary values no record holds any more, after changes that replace most of
+         * the content; the built snapshot and the ones derived from it use the new dictionaries.
+         */
+        void rebuildDictionaries() {
+            dictionaries = FieldDictionaries.of(persons.build(), firestations.build(), medicalRecords.build(),
+                    geocodes.build());
+        }
+
+        /** @return true if any mutation changed the content since the builder was created */
+        public boolean isModified() { return modified; }
+
+        /** Starts recording the data changes applied from now on, for the write-ahead log. */
+        void recordChanges() {
+            journal = new ArrayList<>();
+        }
+
+        /** @return data changes applied since {@link #recordChanges()}, in order; age rollovers are not recorded */
+        List<Mutation> recordedChanges() {
+            return journal == null ? List.of() : journal;
+        }
+
+        private void logChange(Mutation mutation) {
+            if (journal != null) {
+                journal.add(mutation);
+            }
+        }
+
+        /** Starts tracking which addresses, stations, cities and last names the changes from now on touch. */
+        void trackTouchedKeys() {
+            touched = new Touched(new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>());
+        }
+
+        /**
+         * Describes the changes tracked since {@link #trackTouchedKeys()}. Stations currently mapped to a
+         * touched address are included, since their coverage lists its residents.
+         * @param version version the changes are published with
+         * @return the change, or a change of everything if nothing was tracked
+         */
+        DataChange touchedKeys(long version) {
+            if (touched == null) {
+                return DataChange.everything(version);
+            }
+            for (String addressKey : touched.addresses()) {
+                List<Firestation> mappings = firestationsByAddress.get(addressKey);
+                if (mappings != null) {
+                    mappings.forEach(firestation -> touchStation(firestation.getStation()));
+                }
+            }
+            return new DataChange(version, false, touched.addresses(), touched.stations(), touched.cities(),
+                    touched.lastNames(), locationsTouched);
+        }
+
+        private void touch(Resident resident) {
+            if (touched != null) {
+                Person person = resident.person();
+                addKey(touched.addresses(), keyOf(Field.ADDRESS, person.getAddress()));
+                addKey(touched.cities(), keyOf(Field.CITY, person.getCity()));
+                addKey(touched.lastNames(), keyOf(Field.LAST_NAME, person.getLastName()));
+            }
+        }
+
+        private void touchMapping(String addressKey, String station) {
+            if (touched != null) {
+                addKey(touched.addresses(), addressKey);
+                touchStation(station);
+                // Only the mappings of geocoded addresses take part in nearest-station lookups
+                if (geocodesByAddress.get(addressKey) != null) {
+                    locationsTouched = true;
+                }
+            }
+        }
+
+        private void touchPosition(String addressKey) {
+            if (touched != null) {
+                addKey(touched.addresses(), addressKey);
+                locationsTouched = true;
+            }
+        }
+
+        private void touchStation(String station) {
+            addKey(touched.stations(), station);
+        }
+
+        private static void addKey(Set<String> keys, String key) {
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        /**
+         * Freezes the accumulated changes into a snapshot.
+         * @param version version of the new snapshot
+         * @return the new snapshot
+         */
+        public DataSnapshot build(long version) {
+            return new DataSnapshot(version, ageReferenceDay, this);
+        }
+
+        // ----------------- Persons -----------------
+
+        /**
+         * Adds a person, links it to its medical record and indexes it.
+         * @param person person to add
+         */
+        public void addPerson(Person person) {
+            dictionaries.intern(person);
+            editPersons().add(person);
+            String nameKey = nameKeyOf(person.getFirstName(), person.getLastName());
+            Resident resident = resident(person, firstRecord(nameKey));
+            index(residentsByName, nameKey, resident);
+            String lastNameKey = keyOf(Field.LAST_NAME, person.getLastName());
+            if (lastNameKey != null && residentsByLastName.get(lastNameKey) == null) {
+                lastNameSearch.add(lastNameKey);
+            }
+            index(residentsByLastName, lastNameKey, resident);
+            indexLocation(resident);
+            touch(resident);
+            logChange(new Mutation.AddPerson(person));
+        }
+
+        /**
+         * Updates the contact details of the first person matching the given first and last name.
+         * @param updatedPerson person carrying the name to match and the new details
+         * @return true if a person was found and updated
+         */
+        public boolean updatePerson(Person updatedPerson) {
+            String nameKey = nameKey(updatedPerson.getFirstName(), updatedPerson.getLastName());
+            List<Resident> matches = nameKey == null ? null : residentsByName.get(nameKey);
+            if (matches == null || matches.isEmpty()) {
+                return false;
+            }
+            Resident previous = matches.get(0);
+            Person person = copyOf(previous.person());
+            person.setAddress(updatedPerson.getAddress());
+            person.setCity(updatedPerson.getCity());
+            person.setZip(updatedPerson.getZip());
+            person.setPhone(updatedPerson.getPhone());
+            person.setEmail(updatedPerson.getEmail());
+            dictionaries.intern(person);
+            Resident resident = new Resident(person, previous.medicalRecord(), previous.age());
+
+            editPersons().replace(previous.person(), person);
+            replace(residentsByName, nameKey, previous, resident);
+            replace(residentsByLastName, keyOf(Field.LAST_NAME, person.getLastName()), previous, resident);
+            unindexLocation(previous);
+            indexLocation(resident);
+            touch(previous);
+            touch(resident);
+            logChange(new Mutation.UpdatePerson(updatedPerson));
+            return true;
+        }
+
+        /**
+         * Deletes every person matching the given first and last name.
+         * @param firstName first name
+         * @param lastName last name
+         * @return true if at least one person was deleted
+         */
+        public boolean deletePerson(String firstName, String lastName) {
+            List<Resident> removed = remove(residentsByName, nameKey(firstName, lastName));
+            if (removed.isEmpty()) {
+                return false;
+            }
+            for (Resident resident : removed) {
+                String lastNameKey = keyOf(Field.LAST_NAME, resident.person().getLastName());
+                unindex(residentsByLastName, lastNameKey, resident);
+                if (lastNameKey != null && residentsByLastName.get(lastNameKey) == null) {
+                    lastNameSearch.remove(lastNameKey);
+                }
+                unindexLocation(resident);
+                touch(resident);
+                editPersons().remove(resident.person());
+            }
+            logChange(new Mutation.DeletePerson(firstName, lastName));
+            return true;
+        }
+
+        private void indexLocation(Resident resident) {
+            index(residentsByAddress, keyOf(Field.ADDRESS, resident.person().getAddress()), resident);
+            index(residentsByCity, keyOf(Field.CITY, resident.person().getCity()), resident);
+        }
+
+        private void unindexLocation(Resident resident) {
+            unindex(residentsByAddress, keyOf(Field.ADDRESS, resident.person().getAddress()), resident);
+            unindex(residentsByCity, keyOf(Field.CITY, resident.person().getCity()), resident);
+        }
+
+        // ----------------- Firestations -----------------
+
+        /**
+         * Adds a firestation mapping and indexes it.
+         * @param firestation mapping to add
+         */
+        public void addFirestation(Firestation firestation) {
+            dictionaries.intern(firestation);
+            editFirestations().add(firestation);
+            String addressKey = keyOf(Field.ADDRESS, firestation.getAddress());
+            index(firestationsByAddress, addressKey, firestation);
+            indexStation(firestation.getStation(), addressKey, firestation.getAddress());
+            touchMapping(addressKey, firestation.getStation());
+            logChange(new Mutation.AddFirestation(firestation));
+        }
+
+        /**
+         * Changes the station of the first mapping for the given address.
+         * @param updatedFirestation mapping carrying the address to match and the new station
+         * @return true if a mapping was found and updated
+         */
+        public boolean updateFirestation(Firestation updatedFirestation) {
+            String addressKey = addressKey(updatedFirestation.getAddress());
+            List<Firestation> current = addressKey == null ? null : firestationsByAddress.get(addressKey);
+            if (current == null || current.isEmpty()) {
+                return false;
+            }
+            Firestation previous = current.get(0);
+            Firestation firestation = new Firestation();
+            firestation.setAddress(previous.getAddress());
+            firestation.setStation(updatedFirestation.getStation());
+            dictionaries.intern(firestation);
+
+            editFirestations().replace(previous, firestation);
+            List<Firestation> mappings = firestationsByAddress.edit(addressKey, ArrayList::new);
+            mappings.set(0, firestation);
+            if (mappings.stream().noneMatch(f -> Objects.equals(f.getStation(), previous.getStation()))) {
+                unindexStation(previous.getStation(), addressKey);
+            }
+            indexStation(firestation.getStation(), addressKey, firestation.getAddress());
+            touchMapping(addressKey, previous.getStation());
+            touchMapping(addressKey, firestation.getStation());
+            logChange(new Mutation.UpdateFirestation(updatedFirestation));
+            return true;
+        }
+
+        /**
+         * Deletes every mapping for the given address.
+         * @param address address to unmap
+         * @return true if at least one mapping was deleted
+         */
+        public boolean deleteFirestation(String address) {
+            String addressKey = addressKey(address);
+            List<Firestation> removed = remove(firestationsByAddress, addressKey);
+            if (removed.isEmpty()) {
+                return false;
+            }
+            for (Firestation firestation : removed) {
+                unindexStation(firestation.getStation(), addressKey);
+                touchMapping(addressKey, firestation.getStation());
+            }
+            removed.forEach(editFirestations()::remove);
+            logChange(new Mutation.DeleteFirestation(address));
+            return true;
+        }
+
+        private void indexStation(String station, String addressKey, String address) {
+            if (station != null && addressKey != null) {
+                Map<String, String> addresses = addressesByStation.get(station);
+                if (addresses == null || !addresses.containsKey(addressKey)) {
+                    addressesByStation.edit(station, LinkedHashMap::new).put(addressKey, address);
+                    modified = true;
+                }
+            }
+        }
+
+        private void unindexStation(String station, String addressKey) {
+            Map<String, String> addresses = station == null ? null : addressesByStation.get(station);
+            if (addresses != null && addresses.containsKey(addressKey)) {
+                addresses = addressesByStation.edit(station, LinkedHashMap::new);
+                addresses.remove(addressKey);
+                if (addresses.isEmpty()) {
+                    addressesByStation.remove(station);
+                }
+                modified = true;
+            }
+        }
+
+        // ----------------- Geocodes -----------------
+
+        /**
+         * Adds the position of an address and indexes it. The first position of an address is placed
+         * in the spatial index, unless its coordinates are missing or out of range.
+         * @param geocode geocode to add
+         */
+        public void addGeocode(Geocode geocode) {
+            dictionaries.intern(geocode);
+            editGeocodes().add(geocode);
+            String addressKey = keyOf(Field.ADDRESS, geocode.getAddress());
+            if (addressKey != null && geocodesByAddress.get(addressKey) == null) {
+                place(addressKey, geocode);
+            }
+            index(geocodesByAddress, addressKey, geocode);
+            touchPosition(addressKey);
+            logChange(new Mutation.AddGeocode(geocode));
+        }
+
+        /**
+         * Moves the first geocode of the given address.
+         * @param updatedGeocode geocode carrying the address to match and the new coordinates
+         * @return true if a geocode was found and updated
+         */
+        public boolean updateGeocode(Geocode updatedGeocode) {
+            String addressKey = addressKey(updatedGeocode.getAddress());
+            List<Geocode> current = addressKey == null ? null : geocodesByAddress.get(addressKey);
+            if (current == null || current.isEmpty()) {
+                return false;
+            }
+            Geocode previous = current.get(0);
+            Geocode geocode = new Geocode();
+            geocode.setAddress(previous.getAddress());
+            geocode.setLatitude(updatedGeocode.getLatitude());
+            geocode.setLongitude(updatedGeocode.getLongitude());
+
+            editGeocodes().replace(previous, geocode);
+            geocodesByAddress.edit(addressKey, ArrayList::new).set(0, geocode);
+            unplace(addressKey, previous);
+            place(addressKey, geocode);
+            touchPosition(addressKey);
+            logChange(new Mutation.UpdateGeocode(updatedGeocode));
+            return true;
+        }
+
+        /**
+         * Deletes every geocode of the given address.
+         * @param address address to forget the position of
+         * @return true if at least one geocode was deleted
+         */
+        public boolean deleteGeocode(String address) {
+            String addressKey = addressKey(address);
+            List<Geocode> removed = remove(geocodesByAddress, addressKey);
+            if (removed.isEmpty()) {
+                return false;
+            }
+            unplace(addressKey, removed.get(0));
+            removed.forEach(editGeocodes()::remove);
+            touchPosition(addressKey);
+            logChange(new Mutation.DeleteGeocode(address));
+            return true;
+        }
+
+        private void place(String addressKey, Geocode geocode) {
+            if (geocode.hasPosition()) {
+                geoIndex.add(addressKey, geocode.getLatitude(), geocode.getLongitude());
+            } else {
+                logger.warn("Invalid position {}, {} for {}", geocode.getLatitude(), geocode.getLongitude(), geocode.getAddress());
+            }
+        }
+
+        private void unplace(String addressKey, Geocode geocode) {
+            if (geocode.hasPosition()) {
+                geoIndex.remove(addressKey, geocode.getLatitude(), geocode.getLongitude());
+            }
+        }
+
+        // ----------------- Medical records -----------------
+
+        /**
+         * Adds a medical record, indexes it and links it to the matching residents
+         * unless they already have one.
+         * @param record medical record to add
+         */
+        public void addMedicalRecord(MedicalRecord record) {
+            dictionaries.intern(record);
+            editMedicalRecords().add(record);
+            String nameKey = nameKeyOf(record.getFirstName(), record.getLastName());
+            index(medicalRecordsByName, nameKey, record);
+            indexBirthday(record, nameKey);
+            if (firstRecord(nameKey) == record) {
+                indexTerms(record, nameKey);
+                refreshResidents(nameKey);
+            }
+            logChange(new Mutation.AddMedicalRecord(record));
+        }
+
+        /**
+         * Updates the first medical record matching the given first and last name.
+         * @param updatedRecord record carrying the name to match and the new medical data
+         * @return true if a record was found and updated
+         */
+        public boolean updateMedicalRecord(MedicalRecord updatedRecord) {
+            String nameKey = nameKey(updatedRecord.getFirstName(), updatedRecord.getLastName());
+            MedicalRecord previous = firstRecord(nameKey);
+            if (previous == null) {
+                return false;
+            }
+            MedicalRecord record = new MedicalRecord();
+            record.setFirstName(previous.getFirstName());
+            record.setLastName(previous.getLastName());
+            record.setBirthdate(updatedRecord.getBirthdate());
+            record.setMedications(updatedRecord.getMedications());
+            record.setAllergies(updatedRecord.getAllergies());
+            dictionaries.intern(record);
+
+            editMedicalRecords().replace(previous, record);
+            medicalRecordsByName.edit(nameKey, ArrayList::new).set(0, record);
+            unindexBirthday(previous, nameKey);
+            indexBirthday(record, nameKey);
+            unindexTerms(previous, nameKey);
+            indexTerms(record, nameKey);
+            refreshResidents(nameKey);
+            logChange(new Mutation.UpdateMedicalRecord(updatedRecord));
+            return true;
+        }
+
+        /**
+         * Deletes every medical record matching the given first and last name.
+         * @param firstName first name
+         * @param lastName last name
+         * @return true if at least one record was deleted
+         */
+        public boolean deleteMedicalRecord(String firstName, String lastName) {
+            String nameKey = nameKey(firstName, lastName);
+            List<MedicalRecord> removed = remove(medicalRecordsByName, nameKey);
+            if (removed.isEmpty()) {
+                return false;
+            }
+            removed.forEach(editMedicalRecords()::remove);
+            removed.forEach(record -> unindexBirthday(record, nameKey));
+            unindexTerms(removed.get(0), nameKey);
+            refreshResidents(nameKey);
+            logChange(new Mutation.DeleteMedicalRecord(firstName, lastName));
+            return true;
+        }
+
+        private MedicalRecord firstRecord(String nameKey) {
+            List<MedicalRecord> records = nameKey == null ? null : medicalRecordsByName.get(nameKey);
+            return records == null || records.isEmpty() ? null : records.get(0);
+        }
+
+        // ----------------- Ages -----------------
+
+        /**
+         * Advances the reference day used for ages and recomputes only the residents whose
+         * birthday falls after the previous reference day and on or before the new one.
+         * Residents born on February 29 age on March 1 in non-leap years. Moving the day
+         * backwards, or by more than a year, recomputes every resident.
+         * @param day the new reference day, normally today
+         * @return number of names whose residents were recomputed
+         */
+        public int rollAgesTo(LocalDate day) {
+            LocalDate previous = ageReferenceDay;
+            if (day.isEqual(previous)) {
+                return 0;
+            }
+            ageReferenceDay = day;
+            modified = true;
+            Set<String> due = new HashSet<>();
+            if (day.isBefore(previous) || ChronoUnit.DAYS.between(previous, day) > 366) {
+                due.addAll(medicalRecordsByName.keySet());
+            } else {
+                for (LocalDate d = previous.plusDays(1); !d.isAfter(day); d = d.plusDays(1)) {
+                    addAll(due, namesByBirthday.get(MonthDay.from(d)));
+                    if (d.getMonthValue() == 3 && d.getDayOfMonth() == 1 && !d.isLeapYear()) {
+                        addAll(due, namesByBirthday.get(LEAP_DAY));
+                    }
+                }
+            }
+            due.forEach(this::refreshResidents);
+            return due.size();
+        }
+
+        private static void addAll(Set<String> target, Set<String> names) {
+            if (names != null) {
+                target.addAll(names);
+            }
+        }
+
+        private Resident resident(Person person, MedicalRecord record) {
+            return new Resident(person, record, ageOn(record, ageReferenceDay));
+        }
+
+        private void indexBirthday(MedicalRecord record, String nameKey) {
+            if (record.getBirthEpochDay() == MedicalRecord.UNKNOWN_BIRTHDATE) {
+                if (record.getBirthdate() != null) {
+                    logger.warn("Unparseable birthdate {} for {} {}", record.getBirthdate(), record.getFirstName(), record.getLastName());
+                }
+                return;
+            }
+            if (nameKey != null) {
+                MonthDay birthday = MonthDay.from(LocalDate.ofEpochDay(record.getBirthEpochDay()));
+                namesByBirthday.edit(birthday, HashSet::new).add(nameKey);
+            }
+        }
+
+        private void unindexBirthday(MedicalRecord record, String nameKey) {
+            if (record.getBirthEpochDay() != MedicalRecord.UNKNOWN_BIRTHDATE && nameKey != null) {
+                MonthDay birthday = MonthDay.from(LocalDate.ofEpochDay(record.getBirthEpochDay()));
+                Set<String> names = namesByBirthday.editIfPresent(birthday);
+                if (names != null) {
+                    names.remove(nameKey);
+                    if (names.isEmpty()) {
+                        namesByBirthday.remove(birthday);
+                    }
+                }
+            }
+        }
+
+        /** Lists a name under the medications and allergies of its first medical record. */
+        private void indexTerms(MedicalRecord record, String nameKey) {
+            if (nameKey != null) {
+                editTerms(namesByMedication, record.getMedications(), Field.MEDICATION, nameKey, true);
+                editTerms(namesByAllergy, record.getAllergies(), Field.ALLERGY, nameKey, true);
+            }
+        }
+
+        private void unindexTerms(MedicalRecord record, String nameKey) {
+            if (nameKey != null) {
+                editTerms(namesByMedication, record.getMedications(), Field.MEDICATION, nameKey, false);
+                editTerms(namesByAllergy, record.getAllergies(), Field.ALLERGY, nameKey, false);
+            }
+        }
+
+        private void editTerms(CopyOnWriteMap<String, Set<String>> index, List<String> terms, Field field,
+                               String nameKey, boolean listed) {
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                String key = keyOf(field, term);
+                if (key == null || key.isEmpty()) {
+                    continue;
+                }
+                if (listed) {
+                    index.edit(key, HashSet::new).add(nameKey);
+                } else {
+                    Set<String> names = index.editIfPresent(key);
+                    if (names != null && names.remove(nameKey) && names.isEmpty()) {
+                        index.remove(key);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Rebuilds the residents with the given name from their current medical record and age,
+         * replacing them in every index they appear in.
+         */
+        private void refreshResidents(String nameKey) {
+            List<Resident> current = nameKey == null ? null : residentsByName.get(nameKey);
+            if (current == null) {
+                return;
+            }
+            MedicalRecord record = firstRecord(nameKey);
+            List<Resident> residents = null;
+            for (int i = 0; i < current.size(); i++) {
+                Resident previous = current.get(i);
+                Resident refreshed = resident(previous.person(), record);
+                if (refreshed.equals(previous)) {
+                    continue;
+                }
+                if (residents == null) {
+                    residents = residentsByName.edit(nameKey, ArrayList::new);
+                }
+                residents.set(i, refreshed);
+                touch(refreshed);
+                Person person = previous.person();
+                replace(residentsByLastName, keyOf(Field.LAST_NAME, person.getLastName()), previous, refreshed);
+                replace(residentsByAddress, keyOf(Field.ADDRESS, person.getAddress()), previous, refreshed);
+                replace(residentsByCity, keyOf(Field.CITY, person.getCity()), previous, refreshed);
+            }
+        }
+
+        // ----------------- Keys -----------------
+
+        /** Key of a value held by a stored record, computed once per distinct value. */
+        private String keyOf(Field field, String value) {
+            return dictionaries.key(field, value);
+        }
+
+        private String nameKeyOf(String firstName, String lastName) {
+            return firstName == null || lastName == null ? null
+                    : keyOf(Field.FIRST_NAME, firstName) + '\u0000' + keyOf(Field.LAST_NAME, lastName);
+        }
+
+        // ----------------- Copy on write -----------------
+
+        private RecordList.Editor<Person> editPersons() {
+            modified = true;
+            return persons;
+        }
+
+        private RecordList.Editor<Firestation> editFirestations() {
+            modified = true;
+            return firestations;
+        }
+
+        private RecordList.Editor<MedicalRecord> editMedicalRecords() {
+            modified = true;
+            return medicalRecords;
+        }
+
+        private RecordList.Editor<Geocode> editGeocodes() {
+            modified = true;
+            return geocodes;
+        }
+
+        private <T> void index(CopyOnWriteMap<String, List<T>> index, String key, T value) {
+            if (key != null) {
+                index.edit(key, ArrayList::new).add(value);
+                modified = true;
+            }
+        }
+
+        private <T> void unindex(CopyOnWriteMap<String, List<T>> index, String key, T value) {
+            List<T> values = key == null ? null : index.get(key);
+            if (values != null && values.contains(value)) {
+                values = index.edit(key, ArrayList::new);
+                values.removeIf(v -> v == value);
+                if (values.isEmpty()) {
+                    index.remove(key);
+                }
+                modified = true;
+            }
+        }
+
+        private <T> void replace(CopyOnWriteMap<String, List<T>> index, String key, T previous, T replacement) {
+            List<T> values = key == null ? null : index.get(key);
+            if (values != null && values.contains(previous)) {
+                replaceIdentity(index.edit(key, ArrayList::new), previous, replacement);
+                modified = true;
+            }
+        }
+
+        private <T> List<T> remove(CopyOnWriteMap<String, List<T>> index, String key) {
+            List<T> values = key == null ? null : index.remove(key);
+            if (values == null) {
+                return Collections.emptyList();
+            }
+            modified = true;
+            return values;
+        }
+
+        private static <T> void replaceIdentity(List<T> values, T previous, T replacement) {
+            values.replaceAll(v -> v == previous ? replacement : v);
+        }
+
+        private static Person copyOf(Person person) {
+            Person copy = new Person();
+            copy.setFirstName(person.getFirstName());
+            copy.setLastName(person.getLastName());
+            copy.setAddress(person.getAddress());
+            copy.setCity(person.getCity());
+            copy.setZip(person.getZip());
+            copy.setPhone(person.getPhone());
+            copy.setEmail(person.getEmail());
+            return copy;
+        }
+    }
+}
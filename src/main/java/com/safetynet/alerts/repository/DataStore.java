@@ -0,0 +1,351 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * In-memory store owning the SafetyNet persons, firestations and medical records.
+ * The data and its indexes live in an immutable {@link DataSnapshot}; readers take the
+ * current snapshot without locking and always see a complete version of the data. Writers
+ * are serialised: each write, or batch of writes passed to {@link #update}, is applied to a
+ * copy-on-write builder and the resulting snapshot is published atomically with the next
+ * version number. Callers answering a request with several lookups should take one
+ * {@link #snapshot()} and query it, rather than calling the delegating lookups below.
+ * <p>
+ * When a {@link WriteAheadLog} is attached, the changes of every published version are appended
+ * to it while the write lock is held, even when there are none to record, as for an age rollover, and writers return only once their changes are durable.
+ * Waiting happens outside the lock, so concurrent writers share one log sync. The new version is
+ * published before the wait, though: until the sync, concurrent readers can see changes that a crash
+ * would lose, which the writer was never told had succeeded. Publishing after the sync would hold the
+ * write lock across it and end group commit. The write lock is a
+ * {@link ReentrantLock} rather than a monitor so that writers on virtual threads do not pin their carrier.
+ * <p>
+ * {@link DataVersions} tracks the last version that changed each address, station, city and last name.
+ * {@link ChangeListener}s are told what every published version changed, in version order, while the
+ * write lock is still held: a listener sees a version only after readers can see it, and never
+ * concurrently with the next one.
+ */
+@Repository
+public class DataStore {
+
+    private volatile DataSnapshot snapshot = DataSnapshot.empty(LocalDate.now());
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private WriteAheadLog log;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final DataVersions versions = new DataVersions();
+
+    /** Receives the changes of each published version. */
+    @FunctionalInterface
+    public interface ChangeListener {
+        /**
+         * Called with the write lock held, so it must be quick and must not write to the store.
+         * @param change what the published version changed
+         */
+        void dataChanged(DataChange change);
+    }
+
+    private record Applied<T>(T result, WriteAheadLog log, long sequence) { }
+
+    /** @return the current snapshot */
+    public DataSnapshot snapshot() { return snapshot; }
+
+    /** @return version of the current snapshot */
+    public long getVersion() { return snapshot.getVersion(); }
+
+    /** @return versions of the data behind each address, station, city and last name */
+    public DataVersions versions() { return versions; }
+
+    /**
+     * Replaces the whole content of the store and rebuilds every index.
+     * @param persons persons to store
+     * @param firestations firestation mappings to store
+     * @param medicalRecords medical records to store
+     */
+    public void load(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords) {
+        load(persons, firestations, medicalRecords, List.of());
+    }
+
+    /**
+     * Replaces the whole content of the store, including the positions of addresses, and rebuilds every index.
+     * @param persons persons to store
+     * @param firestations firestation mappings to store
+     * @param medicalRecords medical records to store
+     * @param geocodes positions of addresses to store
+     */
+    public void load(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords,
+                     List<Geocode> geocodes) {
+        DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+        medicalRecords.forEach(builder::addMedicalRecord);
+        persons.forEach(builder::addPerson);
+        firestations.forEach(builder::addFirestation);
+        geocodes.forEach(builder::addGeocode);
+        replace(builder);
+    }
+
+    /**
+     * Replaces the whole content of the store with a snapshot built elsewhere, typically
+     * from an empty snapshot filled by a loader.
+     * @param builder builder holding the new content
+     */
+    public void replace(DataSnapshot.Builder builder) {
+        writeLock.lock();
+        try {
+            DataSnapshot next = builder.build(snapshot.getVersion() + 1);
+            publish(next, DataChange.everything(next.getVersion()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole content of the store with a restored snapshot. The restored version
+     * is kept unless it would not move the version forward.
+     * @param restored snapshot read from a binary snapshot file
+     */
+    public void replace(DataSnapshot restored) {
+        writeLock.lock();
+        try {
+            long current = snapshot.getVersion();
+            DataSnapshot next = restored.getVersion() > current ? restored : restored.withVersion(current + 1);
+            publish(next, DataChange.everything(next.getVersion()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a batch of changes atomically. Readers see either none or all of them;
+     * if the changes throw, nothing is published.
+     * @param changes mutations to apply on a builder derived from the current snapshot
+     * @param <T> result type
+     * @return the result of the changes
+     */
+    public <T> T update(Function<DataSnapshot.Builder, T> changes) {
+        Applied<T> applied = apply(changes);
+        if (applied.log() != null) {
+            applied.log().awaitDurable(applied.sequence());
+        }
+        return applied.result();
+    }
+
+    private <T> Applied<T> apply(Function<DataSnapshot.Builder, T> changes) {
+        writeLock.lock();
+        try {
+            DataSnapshot current = snapshot;
+            DataSnapshot.Builder builder = current.toBuilder();
+            if (log != null) {
+                builder.recordChanges();
+            }
+            builder.trackTouchedKeys();
+            T result = changes.apply(builder);
+            if (!builder.isModified()) {
+                return new Applied<>(result, null, 0);
+            }
+            DataSnapshot next = builder.build(current.getVersion() + 1);
+            // Versions without recorded changes, such as age rollovers, are logged too, so logged versions have no gaps
+            long sequence = log == null ? 0 : log.append(next.getVersion(), builder.recordedChanges());
+            publish(next, builder.touchedKeys(next.getVersion()));
+            return new Applied<>(result, sequence == 0 ? null : log, sequence);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Brings the store to the content of a new dataset by applying only what differs, in one
+     * atomic publish. The diff is computed without holding the write lock and recomputed if
+     * another write was published meanwhile. The values of the previous dataset are dropped
+     * from the field dictionaries.
+     * @param persons persons of the new dataset
+     * @param firestations firestation mappings of the new dataset
+     * @param medicalRecords medical records of the new dataset
+     * @param geocodes geocodes of the new dataset
+     * @return the applied changes
+     */
+    public DatasetDiff reconcile(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords,
+                                 List<Geocode> geocodes) {
+        while (true) {
+            DataSnapshot base = snapshot;
+            DatasetDiff diff = DatasetDiff.between(base, persons, firestations, medicalRecords, geocodes);
+            if (diff.isEmpty()) {
+                return diff;
+            }
+            boolean applied = update(builder -> {
+                if (snapshot != base) {
+                    return false;
+                }
+                diff.applyTo(builder);
+                builder.rebuildDictionaries();
+                return true;
+            });
+            if (applied) {
+                return diff;
+            }
+        }
+    }
+
+    /** Publishes a new snapshot and notifies the listeners; called with the write lock held. */
+    private void publish(DataSnapshot next, DataChange change) {
+        snapshot = next;
+        versions.apply(change);
+        for (ChangeListener listener : listeners) {
+            listener.dataChanged(change);
+        }
+    }
+
+    /**
+     * Registers a listener for the versions published from now on.
+     * @param listener listener to notify
+     * @return the current version, the last one the listener is not notified of
+     */
+    public long addChangeListener(ChangeListener listener) {
+        writeLock.lock();
+        try {
+            listeners.add(listener);
+            return snapshot.getVersion();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ----------------- Write-ahead log -----------------
+
+    /**
+     * Starts logging every published change to the given log, or stops logging.
+     * @param log log to append to, or null
+     */
+    public void attachLog(WriteAheadLog log) {
+        writeLock.lock();
+        try {
+            this.log = log;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rolls the attached log at the current version, for compaction: once the returned snapshot
+     * is written, the log segments before the checkpoint can be deleted.
+     * @return the checkpoint
+     * @throws IllegalStateException if no log is attached
+     */
+    public WriteAheadLog.Checkpoint checkpoint() {
+        writeLock.lock();
+        try {
+            if (log == null) {
+                throw new IllegalStateException("No write-ahead log attached");
+            }
+            return log.roll(snapshot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Re-applies changes read from the write-ahead log, keeping their logged version.
+     * Changes at or below the current version are already contained and skipped.
+     * @return true if the changes were applied
+     */
+    boolean applyLogged(long version, List<Mutation> changes) {
+        writeLock.lock();
+        try {
+            DataSnapshot current = snapshot;
+            if (version <= current.getVersion()) {
+                return false;
+            }
+            DataSnapshot.Builder builder = current.toBuilder();
+            changes.forEach(change -> change.applyTo(builder));
+            publish(builder.build(version), DataChange.everything(version));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ----------------- Collections -----------------
+
+    /** @return read-only list of all persons, in insertion order */
+    public List<Person> getPersons() { return snapshot.getPersons(); }
+
+    /** @return read-only list of all firestation mappings, in insertion order */
+    public List<Firestation> getFirestations() { return snapshot.getFirestations(); }
+
+    /** @return read-only list of all medical records, in insertion order */
+    public List<MedicalRecord> getMedicalRecords() { return snapshot.getMedicalRecords(); }
+
+    // ----------------- Index lookups -----------------
+
+    /** @see DataSnapshot#getResidentsAtAddress(String) */
+    public List<Resident> getResidentsAtAddress(String address) { return snapshot.getResidentsAtAddress(address); }
+
+    /** @see DataSnapshot#getResidentsByLastName(String) */
+    public List<Resident> getResidentsByLastName(String lastName) { return snapshot.getResidentsByLastName(lastName); }
+
+    /** @see DataSnapshot#getResidentsByCity(String) */
+    public List<Resident> getResidentsByCity(String city) { return snapshot.getResidentsByCity(city); }
+
+    /** @see DataSnapshot#getResidentsByName(String, String) */
+    public List<Resident> getResidentsByName(String firstName, String lastName) {
+        return snapshot.getResidentsByName(firstName, lastName);
+    }
+
+    /** @see DataSnapshot#getAddressesForStation(String) */
+    public Collection<String> getAddressesForStation(String station) { return snapshot.getAddressesForStation(station); }
+
+    /** @see DataSnapshot#getStationForAddress(String) */
+    public Optional<String> getStationForAddress(String address) { return snapshot.getStationForAddress(address); }
+
+    /** @see DataSnapshot#getMedicalRecord(String, String) */
+    public Optional<MedicalRecord> getMedicalRecord(String firstName, String lastName) {
+        return snapshot.getMedicalRecord(firstName, lastName);
+    }
+
+    /** @return the day ages are currently computed for */
+    public LocalDate getAgeReferenceDay() { return snapshot.getAgeReferenceDay(); }
+
+    // ----------------- Single writes -----------------
+
+    /** @see DataSnapshot.Builder#addPerson(Person) */
+    public void addPerson(Person person) { update(b -> { b.addPerson(person); return null; }); }
+
+    /** @see DataSnapshot.Builder#updatePerson(Person) */
+    public boolean updatePerson(Person updatedPerson) { return update(b -> b.updatePerson(updatedPerson)); }
+
+    /** @see DataSnapshot.Builder#deletePerson(String, String) */
+    public boolean deletePerson(String firstName, String lastName) { return update(b -> b.deletePerson(firstName, lastName)); }
+
+    /** @see DataSnapshot.Builder#addFirestation(Firestation) */
+    public void addFirestation(Firestation firestation) { update(b -> { b.addFirestation(firestation); return null; }); }
+
+    /** @see DataSnapshot.Builder#updateFirestation(Firestation) */
+    public boolean updateFirestation(Firestation updatedFirestation) { return update(b -> b.updateFirestation(updatedFirestation)); }
+
+    /** @see DataSnapshot.Builder#deleteFirestation(String) */
+    public boolean deleteFirestation(String address) { return update(b -> b.deleteFirestation(address)); }
+
+    /** @see DataSnapshot.Builder#addMedicalRecord(MedicalRecord) */
+    public void addMedicalRecord(MedicalRecord record) { update(b -> { b.addMedicalRecord(record); return null; }); }
+
+    /** @see DataSnapshot.Builder#updateMedicalRecord(MedicalRecord) */
+    public boolean updateMedicalRecord(MedicalRecord updatedRecord) { return update(b -> b.updateMedicalRecord(updatedRecord)); }
+
+    /** @see DataSnapshot.Builder#deleteMedicalRecord(String, String) */
+    public boolean deleteMedicalRecord(String firstName, String lastName) {
+        return update(b -> b.deleteMedicalRecord(firstName, lastName));
+    }
+
+    /** @see DataSnapshot.Builder#rollAgesTo(LocalDate) */
+    public int rollAgesTo(LocalDate day) { return update(b -> b.rollAgesTo(day)); }
+}
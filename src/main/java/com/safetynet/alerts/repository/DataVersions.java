@@ -0,0 +1,85 @@
+package com.safetynet.alerts.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versions of the data behind each address, station, city and last name: the last store version
+ * that changed it, as described by {@link DataChange}. Every key starts at the version the whole
+ * content was last replaced with, and versions only grow, so a response computed from some keys
+ * has changed if and only if the highest version of those keys has. Versions are updated right
+ * after each version is published; a reader racing a write may see the previous version, which
+ * is never newer than the data it reads.
+ * <p>
+ * Keys are passed as tags made by the static methods, which normalise them like the store's indexes.
+ * The epoch distinguishes the versions of this process from those of a previous run, whose
+ * numbering may restart.
+ */
+public final class DataVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private volatile long contentVersion;
+
+    DataVersions() {
+    }
+
+    /** Records the changes of a published version; called with the write lock held. */
+    void apply(DataChange change) {
+        if (change.everything()) {
+            contentVersion = change.version();
+            versions.clear();
+            return;
+        }
+        Long version = change.version();
+        change.addresses().forEach(key -> versions.put(address(key), version));
+        change.stations().forEach(station -> versions.put(station(station), version));
+        change.cities().forEach(key -> versions.put(city(key), version));
+        change.lastNames().forEach(key -> versions.put(lastName(key), version));
+        if (!change.lastNames().isEmpty()) {
+            versions.put(lastNames(), version);
+        }
+        if (change.locations()) {
+            versions.put(locations(), version);
+        }
+    }
+
+    /**
+     * @param tags tags of the data a response is computed from
+     * @return highest version among the tags
+     */
+    public long versionOf(Collection<String> tags) {
+        long version = contentVersion;
+        for (String tag : tags) {
+            Long tagVersion = versions.get(tag);
+            if (tagVersion != null && tagVersion > version) {
+                version = tagVersion;
+            }
+        }
+        return version;
+    }
+
+    /** @return identifier of this process's version numbering */
+    public String getEpoch() { return epoch; }
+
+    // ----------------- Tags -----------------
+
+    /** @return tag of the residents and station of an address */
+    public static String address(String address) { return "address:" + DataSnapshot.addressKey(address); }
+
+    /** @return tag of the addresses and residents covered by a station */
+    public static String station(String station) { return "station:" + station; }
+
+    /** @return tag of the residents of a city */
+    public static String city(String city) { return "city:" + DataSnapshot.key(city); }
+
+    /** @return tag of the residents with a last name */
+    public static String lastName(String lastName) { return "lastName:" + DataSnapshot.key(lastName); }
+
+    /** @return tag of the residents of every last name, behind searches by partial or approximate name */
+    public static String lastNames() { return "lastNames"; }
+
+    /** @return tag of every station mapping and position, behind the station nearest to an address */
+    public static String locations() { return "locations"; }
+}
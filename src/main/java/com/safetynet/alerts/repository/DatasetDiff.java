@@ -0,0 +1,189 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Changes turning the content of a snapshot into a new dataset, used to apply a refreshed data file
+ * without rebuilding the store. Records are matched by the keys the store indexes them by: persons and
+ * medical records by first and last name, firestation mappings and geocodes by address. For each key whose records
+ * differ, a single record keeping its exact name or address becomes an update; anything else is
+ * replaced (delete, then add). Keys that are unchanged produce no change, so applying the diff only
+ * copies the index entries it touches. Records without a name or address cannot be matched and are
+ * left as they are.
+ */
+public final class DatasetDiff {
+
+    private final List<Mutation> changes = new ArrayList<>();
+    private int added;
+    private int updated;
+    private int removed;
+
+    private DatasetDiff() {
+    }
+
+    /**
+     * Computes the changes from a snapshot to a dataset.
+     * @param base current content
+     * @param persons persons of the new dataset
+     * @param firestations firestation mappings of the new dataset
+     * @param medicalRecords medical records of the new dataset
+     * @param geocodes geocodes of the new dataset
+     * @return the changes
+     */
+    public static DatasetDiff between(DataSnapshot base, List<Person> persons, List<Firestation> firestations,
+                                      List<MedicalRecord> medicalRecords, List<Geocode> geocodes) {
+        DatasetDiff diff = new DatasetDiff();
+        diff.diff(base.medicalRecordsByName(),
+                group(medicalRecords, r -> DataSnapshot.nameKey(r.getFirstName(), r.getLastName())),
+                DatasetDiff::sameMedicalRecord, DatasetDiff::sameRecordName,
+                Mutation.UpdateMedicalRecord::new,
+                r -> new Mutation.DeleteMedicalRecord(r.getFirstName(), r.getLastName()),
+                Mutation.AddMedicalRecord::new);
+        diff.diff(personsByName(base), group(persons, p -> DataSnapshot.nameKey(p.getFirstName(), p.getLastName())),
+                DatasetDiff::samePerson, DatasetDiff::samePersonName,
+                Mutation.UpdatePerson::new,
+                p -> new Mutation.DeletePerson(p.getFirstName(), p.getLastName()),
+                Mutation.AddPerson::new);
+        diff.diff(base.firestationsByAddress(),
+                group(firestations, f -> DataSnapshot.addressKey(f.getAddress())),
+                DatasetDiff::sameFirestation, (a, b) -> Objects.equals(a.getAddress(), b.getAddress()),
+                Mutation.UpdateFirestation::new,
+                f -> new Mutation.DeleteFirestation(f.getAddress()),
+                Mutation.AddFirestation::new);
+        diff.diff(base.geocodesByAddress(),
+                group(geocodes, g -> DataSnapshot.addressKey(g.getAddress())),
+                DatasetDiff::sameGeocode, (a, b) -> Objects.equals(a.getAddress(), b.getAddress()),
+                Mutation.UpdateGeocode::new,
+                g -> new Mutation.DeleteGeocode(g.getAddress()),
+                Mutation.AddGeocode::new);
+        return diff;
+    }
+
+    /** @return true if the dataset matches the snapshot */
+    public boolean isEmpty() { return changes.isEmpty(); }
+
+    /** @return number of records added, including the new side of replaced records */
+    public int getAdded() { return added; }
+
+    /** @return number of records updated in place */
+    public int getUpdated() { return updated; }
+
+    /** @return number of records removed, including the old side of replaced records */
+    public int getRemoved() { return removed; }
+
+    /**
+     * Applies the changes to a builder derived from the snapshot the diff was computed against.
+     * @param builder builder to change
+     */
+    void applyTo(DataSnapshot.Builder builder) {
+        changes.forEach(change -> change.applyTo(builder));
+    }
+
+    private <T> void diff(Map<String, List<T>> current, Map<String, List<T>> next,
+                          BiPredicate<T, T> same, BiPredicate<T, T> sameKeyExactly,
+                          Function<T, Mutation> update, Function<T, Mutation> delete, Function<T, Mutation> add) {
+        for (Map.Entry<String, List<T>> entry : next.entrySet()) {
+            List<T> before = current.getOrDefault(entry.getKey(), List.of());
+            List<T> after = entry.getValue();
+            if (sameList(before, after, same)) {
+                continue;
+            }
+            if (before.size() == 1 && after.size() == 1 && sameKeyExactly.test(before.get(0), after.get(0))) {
+                changes.add(update.apply(after.get(0)));
+                updated++;
+                continue;
+            }
+            if (!before.isEmpty()) {
+                changes.add(delete.apply(before.get(0)));
+                removed += before.size();
+            }
+            after.forEach(value -> changes.add(add.apply(value)));
+            added += after.size();
+        }
+        for (Map.Entry<String, List<T>> entry : current.entrySet()) {
+            if (!next.containsKey(entry.getKey()) && !entry.getValue().isEmpty()) {
+                changes.add(delete.apply(entry.getValue().get(0)));
+                removed += entry.getValue().size();
+            }
+        }
+    }
+
+    private static <T> boolean sameList(List<T> before, List<T> after, BiPredicate<T, T> same) {
+        if (before.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!same.test(before.get(i), after.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> Map<String, List<T>> group(List<T> values, Function<T, String> key) {
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        for (T value : values) {
+            String k = key.apply(value);
+            if (k != null) {
+                groups.computeIfAbsent(k, unused -> new ArrayList<>(1)).add(value);
+            }
+        }
+        return groups;
+    }
+
+    private static Map<String, List<Person>> personsByName(DataSnapshot base) {
+        Map<String, List<Person>> persons = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Resident>> entry : base.residentsByName().entrySet()) {
+            persons.put(entry.getKey(), entry.getValue().stream().map(Resident::person).toList());
+        }
+        return persons;
+    }
+
+    // ----------------- Field comparison -----------------
+
+    private static boolean samePersonName(Person a, Person b) {
+        return Objects.equals(a.getFirstName(), b.getFirstName()) && Objects.equals(a.getLastName(), b.getLastName());
+    }
+
+    private static boolean sameRecordName(MedicalRecord a, MedicalRecord b) {
+        return Objects.equals(a.getFirstName(), b.getFirstName()) && Objects.equals(a.getLastName(), b.getLastName());
+    }
+
+    private static boolean samePerson(Person a, Person b) {
+        return samePersonName(a, b)
+                && Objects.equals(a.getAddress(), b.getAddress())
+                && Objects.equals(a.getCity(), b.getCity())
+                && Objects.equals(a.getZip(), b.getZip())
+                && Objects.equals(a.getPhone(), b.getPhone())
+                && Objects.equals(a.getEmail(), b.getEmail());
+    }
+
+    private static boolean sameFirestation(Firestation a, Firestation b) {
+        return Objects.equals(a.getAddress(), b.getAddress()) && Objects.equals(a.getStation(), b.getStation());
+    }
+
+    private static boolean sameGeocode(Geocode a, Geocode b) {
+        return Objects.equals(a.getAddress(), b.getAddress())
+                && Objects.equals(a.getLatitude(), b.getLatitude())
+                && Objects.equals(a.getLongitude(), b.getLongitude());
+    }
+
+    private static boolean sameMedicalRecord(MedicalRecord a, MedicalRecord b) {
+        return sameRecordName(a, b)
+                && Objects.equals(a.getBirthdate(), b.getBirthdate())
+                && Objects.equals(a.getMedications(), b.getMedications())
+                && Objects.equals(a.getAllergies(), b.getAllergies());
+    }
+}
@@ -0,0 +1,214 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-field dictionaries of the values held by a line of snapshots. Records entering a builder are
+ * canonicalised through them, so each distinct city, zip, address, name, phone, station or birthdate
+ * is held by a single String instance however many records repeat it, and each distinct medication
+ * or allergy list by a single unmodifiable list of shared strings. E-mail addresses are left alone,
+ * as they rarely repeat. The {@link CanonicalKeys} of stored names, addresses, cities, medications and
+ * allergies are kept alongside, so each distinct value is normalised once.
+ * <p>
+ * A value stays after the last record using it is removed. Stale values are dropped by rebuilding
+ * the dictionaries from the records of a snapshot ({@link #of}): on full loads, which start from new
+ * dictionaries, on reloads applied as a diff, and once the dictionaries have more than doubled since
+ * they were last rebuilt ({@link #outgrown()}), so they stay within a multiple of the values in use.
+ * They are safe for concurrent use.
+ */
+final class FieldDictionaries {
+
+    enum Field { FIRST_NAME, LAST_NAME, ADDRESS, CITY, ZIP, PHONE, STATION, BIRTHDATE, MEDICATION, ALLERGY }
+
+    /** Values and lists the dictionaries may gain beyond twice their size before being outgrown. */
+    private static final int SLACK = 1024;
+
+    private final Map<Field, Map<String, String>> values = new EnumMap<>(Field.class);
+    private final Map<Field, Map<List<String>, List<String>>> lists = new EnumMap<>(Field.class);
+    private final Map<Field, Map<String, String>> keys = new EnumMap<>(Field.class);
+    // Size when rebuilt or first measured holding values, 0 before; only used by the builder of the line
+    private int baseline;
+
+    FieldDictionaries() {
+        for (Field field : Field.values()) {
+            values.put(field, new ConcurrentHashMap<>());
+        }
+        for (Field field : List.of(Field.FIRST_NAME, Field.LAST_NAME, Field.ADDRESS, Field.CITY,
+                Field.MEDICATION, Field.ALLERGY)) {
+            keys.put(field, new ConcurrentHashMap<>());
+        }
+        lists.put(Field.MEDICATION, new ConcurrentHashMap<>());
+        lists.put(Field.ALLERGY, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates dictionaries holding only the values of the given records, which must already be
+     * canonicalised: each value and list is registered as the record holds it, without modifying the
+     * records, so records canonicalised through either the old or the new dictionaries share instances.
+     * @param persons persons to register the values of
+     * @param firestations firestation mappings to register the values of
+     * @param medicalRecords medical records to register the values of
+     * @param geocodes geocodes to register the addresses of
+     * @return the new dictionaries
+     */
+    static FieldDictionaries of(List<Person> persons, List<Firestation> firestations,
+                                List<MedicalRecord> medicalRecords, List<Geocode> geocodes) {
+        FieldDictionaries dictionaries = new FieldDictionaries();
+        for (Person person : persons) {
+            dictionaries.intern(Field.FIRST_NAME, person.getFirstName());
+            dictionaries.intern(Field.LAST_NAME, person.getLastName());
+            dictionaries.intern(Field.ADDRESS, person.getAddress());
+            dictionaries.intern(Field.CITY, person.getCity());
+            dictionaries.intern(Field.ZIP, person.getZip());
+            dictionaries.intern(Field.PHONE, person.getPhone());
+        }
+        for (Firestation firestation : firestations) {
+            dictionaries.intern(Field.ADDRESS, firestation.getAddress());
+            dictionaries.intern(Field.STATION, firestation.getStation());
+        }
+        for (MedicalRecord record : medicalRecords) {
+            dictionaries.intern(Field.FIRST_NAME, record.getFirstName());
+            dictionaries.intern(Field.LAST_NAME, record.getLastName());
+            dictionaries.intern(Field.BIRTHDATE, record.getBirthdate());
+            dictionaries.register(Field.MEDICATION, record.getMedications());
+            dictionaries.register(Field.ALLERGY, record.getAllergies());
+        }
+        for (Geocode geocode : geocodes) {
+            dictionaries.intern(Field.ADDRESS, geocode.getAddress());
+        }
+        dictionaries.baseline = dictionaries.size();
+        return dictionaries;
+    }
+
+    /** Registers a canonical list and its values as they are, without copying the list. */
+    private void register(Field field, List<String> list) {
+        if (list != null) {
+            for (String value : list) {
+                intern(field, value);
+            }
+            lists.get(field).putIfAbsent(list, list);
+        }
+    }
+
+    /**
+     * Tells whether the dictionaries have more than doubled since they were rebuilt, or since first
+     * asked for dictionaries filled by a load. Only the builder deriving the next snapshot of the line
+     * may ask, as the data store creates them one at a time.
+     * @return true if the dictionaries should be rebuilt from the records in use
+     */
+    boolean outgrown() {
+        int size = size();
+        if (baseline == 0) {
+            baseline = size;
+            return false;
+        }
+        return size > 2 * baseline + SLACK;
+    }
+
+    /** @return number of values and lists held for all fields */
+    int size() {
+        int size = 0;
+        for (Map<String, String> dictionary : values.values()) {
+            size += dictionary.size();
+        }
+        for (Map<List<String>, List<String>> dictionary : lists.values()) {
+            size += dictionary.size();
+        }
+        return size;
+    }
+
+    /**
+     * @param field field the value belongs to
+     * @param value value to look up, may be null
+     * @return the instance of the field's dictionary equal to the value, which is added if absent
+     */
+    String intern(Field field, String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = values.get(field).putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    /**
+     * @param field {@link Field#MEDICATION} or {@link Field#ALLERGY}
+     * @param list list to look up, may be null
+     * @return the unmodifiable list of the field's dictionary equal to the list, which is added if absent
+     */
+    List<String> intern(Field field, List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        Map<List<String>, List<String>> dictionary = lists.get(field);
+        List<String> shared = dictionary.get(list);
+        if (shared != null) {
+            return shared;
+        }
+        List<String> copy = new ArrayList<>(list.size());
+        for (String value : list) {
+            copy.add(intern(field, value));
+        }
+        List<String> canonical = Collections.unmodifiableList(copy);
+        shared = dictionary.putIfAbsent(canonical, canonical);
+        return shared == null ? canonical : shared;
+    }
+
+    /**
+     * Returns the canonical key of a stored value. Only values held by records should be passed, as
+     * their keys are kept for as long as the dictionaries.
+     * @param field {@link Field#FIRST_NAME}, {@link Field#LAST_NAME}, {@link Field#ADDRESS}, {@link Field#CITY},
+     *              {@link Field#MEDICATION} or {@link Field#ALLERGY}
+     * @param value value of a stored record, may be null
+     * @return the key the value is indexed under, or null for null
+     */
+    String key(Field field, String value) {
+        if (value == null) {
+            return null;
+        }
+        return keys.get(field).computeIfAbsent(value, v -> switch (field) {
+            case ADDRESS -> CanonicalKeys.address(v);
+            case MEDICATION -> CanonicalKeys.medication(v);
+            default -> CanonicalKeys.of(v);
+        });
+    }
+
+    void intern(Person person) {
+        person.setFirstName(intern(Field.FIRST_NAME, person.getFirstName()));
+        person.setLastName(intern(Field.LAST_NAME, person.getLastName()));
+        person.setAddress(intern(Field.ADDRESS, person.getAddress()));
+        person.setCity(intern(Field.CITY, person.getCity()));
+        person.setZip(intern(Field.ZIP, person.getZip()));
+        person.setPhone(intern(Field.PHONE, person.getPhone()));
+    }
+
+    void intern(Firestation firestation) {
+        firestation.setAddress(intern(Field.ADDRESS, firestation.getAddress()));
+        firestation.setStation(intern(Field.STATION, firestation.getStation()));
+    }
+
+    void intern(Geocode geocode) {
+        geocode.setAddress(intern(Field.ADDRESS, geocode.getAddress()));
+    }
+
+    void intern(MedicalRecord record) {
+        record.setFirstName(intern(Field.FIRST_NAME, record.getFirstName()));
+        record.setLastName(intern(Field.LAST_NAME, record.getLastName()));
+        record.setBirthdate(intern(Field.BIRTHDATE, record.getBirthdate()));
+        record.setMedications(intern(Field.MEDICATION, record.getMedications()));
+        record.setAllergies(intern(Field.ALLERGY, record.getAllergies()));
+    }
+
+    /**
+     * @param field field to measure
+     * @return number of distinct values of the field
+     */
+    int size(Field field) {
+        return values.get(field).size();
+    }
+}
@@ -0,0 +1,259 @@
+package com.safetynet.alerts.repository;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index over the geocoded addresses of a snapshot, for lookups by distance. Positions are
+ * bucketed in a grid of square cells of {@value #CELL_DEGREES} degrees, kept in a copy-on-write map
+ * updated with the geocodes, so a lookup only reads the cells around the searched position:
+ * <ul>
+ *   <li>addresses within a radius are found in the cells overlapping the bounding box of the circle;</li>
+ *   <li>nearest addresses are found ring of cells by ring of cells around the position. Once a ring is
+ *       read, every address closer than the outer edge of the ring is known, and those are handed out by
+ *       increasing distance; the search widens until the caller has enough or the distance limit is reached.</li>
+ * </ul>
+ * When the cells to read outnumber the occupied ones, as for a radius much larger than the data or a
+ * position far away from it, the occupied cells are read instead, so a lookup never costs more than a scan.
+ * Distances are measured on an equirectangular projection centred on the searched position, which is
+ * accurate to a fraction of a percent over the few tens of kilometres a lookup spans; positions on either
+ * side of the antimeridian are not neighbours.
+ * An index never changes once built; {@link Editor} derives the next one.
+ */
+public final class GeoIndex {
+
+    /** Side of a grid cell, in degrees of latitude and of longitude: about 550 m north to south. */
+    static final double CELL_DEGREES = 0.005;
+
+    /** Mean radius of the earth, in meters. */
+    static final double EARTH_RADIUS = 6_371_008.8;
+
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+
+    private static final GeoIndex EMPTY = new GeoIndex(Map.of());
+
+    /** An indexed address at its position. */
+    record Point(String addressKey, double latitude, double longitude) { }
+
+    /**
+     * An address found near a searched position.
+     * @param addressKey key of the address
+     * @param distance distance from the searched position, in meters
+     */
+    public record Neighbour(String addressKey, double distance) { }
+
+    private final Map<Long, List<Point>> byCell;
+
+    private GeoIndex(Map<Long, List<Point>> byCell) {
+        this.byCell = byCell;
+    }
+
+    /**
+     * Builds an index at once, as when restoring a snapshot.
+     * @param points addresses to index, at most one per address
+     * @return the index
+     */
+    static GeoIndex of(Collection<Point> points) {
+        Map<Long, List<Point>> byCell = new HashMap<>();
+        for (Point point : points) {
+            byCell.computeIfAbsent(cellOf(point.latitude(), point.longitude()), cell -> new ArrayList<>()).add(point);
+        }
+        return new GeoIndex(byCell);
+    }
+
+    /** @return an index without addresses */
+    static GeoIndex empty() { return EMPTY; }
+
+    /** @return an editor starting from this index */
+    Editor edit() { return new Editor(this); }
+
+    /** @return number of indexed addresses */
+    public int size() {
+        int size = 0;
+        for (List<Point> points : byCell.values()) {
+            size += points.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the addresses within a distance of a position.
+     * @param latitude latitude of the position, in degrees
+     * @param longitude longitude of the position, in degrees
+     * @param radius distance, in meters
+     * @return addresses by increasing distance
+     */
+    public List<Neighbour> within(double latitude, double longitude, double radius) {
+        if (!(radius >= 0) || byCell.isEmpty()) {
+            return List.of();
+        }
+        Projection at = new Projection(latitude, longitude);
+        double latitudeSpan = radius / METERS_PER_DEGREE;
+        double longitudeSpan = radius / at.metersPerLongitudeDegree;
+        double south = cell(latitude - latitudeSpan);
+        double north = cell(latitude + latitudeSpan);
+        double west = cell(longitude - longitudeSpan);
+        double east = cell(longitude + longitudeSpan);
+        List<Neighbour> found = new ArrayList<>();
+        if (!((north - south + 1) * (east - west + 1) <= byCell.size())) {
+            for (List<Point> points : byCell.values()) {
+                at.collect(points, radius, found);
+            }
+        } else {
+            for (int i = (int) south; i <= (int) north; i++) {
+                for (int j = (int) west; j <= (int) east; j++) {
+                    at.collect(byCell.get(cellKey(i, j)), radius, found);
+                }
+            }
+        }
+        found.sort(Comparator.comparingDouble(Neighbour::distance));
+        return found;
+    }
+
+    /**
+     * Hands out the addresses closest to a position, nearest first, until the visitor has enough.
+     * @param latitude latitude of the position, in degrees
+     * @param longitude longitude of the position, in degrees
+     * @param maxDistance distance beyond which addresses are not handed out, in meters
+     * @param visitor receives each address in turn and returns false to stop the search
+     */
+    public void nearest(double latitude, double longitude, double maxDistance, Predicate<Neighbour> visitor) {
+        if (!(maxDistance >= 0) || byCell.isEmpty()) {
+            return;
+        }
+        Projection at = new Projection(latitude, longitude);
+        int centreRow = (int) cell(latitude);
+        int centreColumn = (int) cell(longitude);
+        PriorityQueue<Neighbour> candidates = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::distance));
+        List<Neighbour> read = new ArrayList<>();
+        for (int ring = 0; ; ring++) {
+            double reached;
+            if ((ring == 0 ? 1L : 8L * ring) > byCell.size()) {
+                for (Map.Entry<Long, List<Point>> cell : byCell.entrySet()) {
+                    if (ringOf(cell.getKey(), centreRow, centreColumn) >= ring) {
+                        at.collect(cell.getValue(), maxDistance, read);
+                    }
+                }
+                reached = Double.POSITIVE_INFINITY;
+            } else {
+                readRing(centreRow, centreColumn, ring, at, maxDistance, read);
+                reached = at.distanceOutside(centreRow, centreColumn, ring);
+            }
+            candidates.addAll(read);
+            read.clear();
+            double known = Math.min(reached, maxDistance);
+            while (!candidates.isEmpty() && candidates.peek().distance() <= known) {
+                if (!visitor.test(candidates.poll())) {
+                    return;
+                }
+            }
+            if (reached >= maxDistance) {
+                return;
+            }
+        }
+    }
+
+    private void readRing(int row, int column, int ring, Projection at, double maxDistance, List<Neighbour> read) {
+        for (int i = row - ring; i <= row + ring; i++) {
+            boolean edge = i == row - ring || i == row + ring;
+            for (int j = column - ring; j <= column + ring; j += edge || ring == 0 ? 1 : 2 * ring) {
+                at.collect(byCell.get(cellKey(i, j)), maxDistance, read);
+            }
+        }
+    }
+
+    /** @return number of rings of cells between a cell and the centre one, 0 for the centre itself */
+    private static long ringOf(long cellKey, int row, int column) {
+        return Math.max(Math.abs((long) (int) (cellKey >> 32) - row), Math.abs((long) (int) cellKey - column));
+    }
+
+    /** A searched position and the projection distances are measured on around it. */
+    private static final class Projection {
+
+        private final double latitude;
+        private final double longitude;
+        private final double metersPerLongitudeDegree;
+
+        Projection(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.metersPerLongitudeDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        }
+
+        double distance(Point point) {
+            double north = (point.latitude() - latitude) * METERS_PER_DEGREE;
+            double east = (point.longitude() - longitude) * metersPerLongitudeDegree;
+            return Math.sqrt(north * north + east * east);
+        }
+
+        void collect(List<Point> points, double maxDistance, List<Neighbour> found) {
+            if (points == null) {
+                return;
+            }
+            for (Point point : points) {
+                double distance = distance(point);
+                if (distance <= maxDistance) {
+                    found.add(new Neighbour(point.addressKey(), distance));
+                }
+            }
+        }
+
+        /** @return shortest distance from the position to a cell outside the given ring around its cell */
+        double distanceOutside(int row, int column, int ring) {
+            double south = (latitude - (row - ring) * CELL_DEGREES) * METERS_PER_DEGREE;
+            double north = ((row + ring + 1) * CELL_DEGREES - latitude) * METERS_PER_DEGREE;
+            double west = (longitude - (column - ring) * CELL_DEGREES) * metersPerLongitudeDegree;
+            double east = ((column + ring + 1) * CELL_DEGREES - longitude) * metersPerLongitudeDegree;
+            return Math.min(Math.min(south, north), Math.min(west, east));
+        }
+    }
+
+    private static double cell(double degrees) {
+        return Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(int row, int column) {
+        return (long) row << 32 | column & 0xFFFFFFFFL;
+    }
+
+    private static Long cellOf(double latitude, double longitude) {
+        return cellKey((int) cell(latitude), (int) cell(longitude));
+    }
+
+    /**
+     * Derives an index from a published one, copying only the cells it changes.
+     * Single-threaded, like the snapshot builder owning it.
+     */
+    static final class Editor {
+
+        private final CopyOnWriteMap<Long, List<Point>> byCell;
+
+        private Editor(GeoIndex base) {
+            byCell = new CopyOnWriteMap<>(base.byCell, ArrayList::new);
+        }
+
+        /** Places an address, which must not be placed already. */
+        void add(String addressKey, double latitude, double longitude) {
+            byCell.edit(cellOf(latitude, longitude), ArrayList::new).add(new Point(addressKey, latitude, longitude));
+        }
+
+        /** Removes an address from the position it was placed at. */
+        void remove(String addressKey, double latitude, double longitude) {
+            Long cell = cellOf(latitude, longitude);
+            List<Point> points = byCell.get(cell);
+            if (points == null || points.stream().noneMatch(point -> point.addressKey().equals(addressKey))) {
+                return;
+            }
+            points = byCell.edit(cell, ArrayList::new);
+            points.removeIf(point -> point.addressKey().equals(addressKey));
+            if (points.isEmpty()) {
+                byCell.remove(cell);
+            }
+        }
+
+        /** @return the edited index */
+        GeoIndex build() {
+            return new GeoIndex(byCell.build());
+        }
+    }
+}
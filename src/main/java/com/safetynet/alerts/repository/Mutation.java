@@ -0,0 +1,245 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A data change applied through a {@link DataSnapshot.Builder}, as recorded in the write-ahead log.
+ * Each change holds the arguments of the builder call, so replaying it on the same data produces
+ * the same result.
+ */
+sealed interface Mutation {
+
+    /**
+     * Applies the change to a builder.
+     * @param builder builder to change
+     */
+    void applyTo(DataSnapshot.Builder builder);
+
+    /**
+     * Writes the change in its log encoding: a type byte followed by its fields.
+     * @param out output to write to
+     * @throws IOException if the output fails
+     */
+    void writeTo(DataOutput out) throws IOException;
+
+    record AddPerson(Person person) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.addPerson(person); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(1); writePerson(out, person); }
+    }
+
+    record UpdatePerson(Person person) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.updatePerson(person); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(2); writePerson(out, person); }
+    }
+
+    record DeletePerson(String firstName, String lastName) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.deletePerson(firstName, lastName); }
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(3);
+            writeString(out, firstName);
+            writeString(out, lastName);
+        }
+    }
+
+    record AddFirestation(Firestation firestation) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.addFirestation(firestation); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(4); writeFirestation(out, firestation); }
+    }
+
+    record UpdateFirestation(Firestation firestation) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.updateFirestation(firestation); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(5); writeFirestation(out, firestation); }
+    }
+
+    record DeleteFirestation(String address) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.deleteFirestation(address); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(6); writeString(out, address); }
+    }
+
+    record AddMedicalRecord(MedicalRecord medicalRecord) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.addMedicalRecord(medicalRecord); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(7); writeMedicalRecord(out, medicalRecord); }
+    }
+
+    record UpdateMedicalRecord(MedicalRecord medicalRecord) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.updateMedicalRecord(medicalRecord); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(8); writeMedicalRecord(out, medicalRecord); }
+    }
+
+    record DeleteMedicalRecord(String firstName, String lastName) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.deleteMedicalRecord(firstName, lastName); }
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(9);
+            writeString(out, firstName);
+            writeString(out, lastName);
+        }
+    }
+
+    record AddGeocode(Geocode geocode) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.addGeocode(geocode); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(10); writeGeocode(out, geocode); }
+    }
+
+    record UpdateGeocode(Geocode geocode) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.updateGeocode(geocode); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(11); writeGeocode(out, geocode); }
+    }
+
+    record DeleteGeocode(String address) implements Mutation {
+        public void applyTo(DataSnapshot.Builder builder) { builder.deleteGeocode(address); }
+        public void writeTo(DataOutput out) throws IOException { out.writeByte(12); writeString(out, address); }
+    }
+
+    /**
+     * Reads a change written by {@link #writeTo(DataOutput)}.
+     * @param in input to read from
+     * @return the change
+     * @throws IOException if the input fails or holds an unknown change type
+     */
+    static Mutation readFrom(DataInput in) throws IOException {
+        int type = in.readByte();
+        return switch (type) {
+            case 1 -> new AddPerson(readPerson(in));
+            case 2 -> new UpdatePerson(readPerson(in));
+            case 3 -> new DeletePerson(readString(in), readString(in));
+            case 4 -> new AddFirestation(readFirestation(in));
+            case 5 -> new UpdateFirestation(readFirestation(in));
+            case 6 -> new DeleteFirestation(readString(in));
+            case 7 -> new AddMedicalRecord(readMedicalRecord(in));
+            case 8 -> new UpdateMedicalRecord(readMedicalRecord(in));
+            case 9 -> new DeleteMedicalRecord(readString(in), readString(in));
+            case 10 -> new AddGeocode(readGeocode(in));
+            case 11 -> new UpdateGeocode(readGeocode(in));
+            case 12 -> new DeleteGeocode(readString(in));
+            default -> throw new IOException("Unknown change type " + type);
+        };
+    }
+
+    // ----------------- Field encoding -----------------
+
+    private static void writePerson(DataOutput out, Person person) throws IOException {
+        writeString(out, person.getFirstName());
+        writeString(out, person.getLastName());
+        writeString(out, person.getAddress());
+        writeString(out, person.getCity());
+        writeString(out, person.getZip());
+        writeString(out, person.getPhone());
+        writeString(out, person.getEmail());
+    }
+
+    private static Person readPerson(DataInput in) throws IOException {
+        Person person = new Person();
+        person.setFirstName(readString(in));
+        person.setLastName(readString(in));
+        person.setAddress(readString(in));
+        person.setCity(readString(in));
+        person.setZip(readString(in));
+        person.setPhone(readString(in));
+        person.setEmail(readString(in));
+        return person;
+    }
+
+    private static void writeFirestation(DataOutput out, Firestation firestation) throws IOException {
+        writeString(out, firestation.getAddress());
+        writeString(out, firestation.getStation());
+    }
+
+    private static Firestation readFirestation(DataInput in) throws IOException {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(readString(in));
+        firestation.setStation(readString(in));
+        return firestation;
+    }
+
+    private static void writeMedicalRecord(DataOutput out, MedicalRecord record) throws IOException {
+        writeString(out, record.getFirstName());
+        writeString(out, record.getLastName());
+        writeString(out, record.getBirthdate());
+        writeStrings(out, record.getMedications());
+        writeStrings(out, record.getAllergies());
+    }
+
+    private static MedicalRecord readMedicalRecord(DataInput in) throws IOException {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(readString(in));
+        record.setLastName(readString(in));
+        record.setBirthdate(readString(in));
+        record.setMedications(readStrings(in));
+        record.setAllergies(readStrings(in));
+        return record;
+    }
+
+    /** Coordinates are written as doubles, NaN standing for a missing one. */
+    private static void writeGeocode(DataOutput out, Geocode geocode) throws IOException {
+        writeString(out, geocode.getAddress());
+        out.writeDouble(geocode.getLatitude() == null ? Double.NaN : geocode.getLatitude());
+        out.writeDouble(geocode.getLongitude() == null ? Double.NaN : geocode.getLongitude());
+    }
+
+    private static Geocode readGeocode(DataInput in) throws IOException {
+        Geocode geocode = new Geocode();
+        geocode.setAddress(readString(in));
+        geocode.setLatitude(readCoordinate(in));
+        geocode.setLongitude(readCoordinate(in));
+        return geocode;
+    }
+
+    private static Double readCoordinate(DataInput in) throws IOException {
+        double value = in.readDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /** Strings are written as a byte length (-1 for null) followed by UTF-8 bytes. */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
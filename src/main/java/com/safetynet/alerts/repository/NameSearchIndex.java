@@ -0,0 +1,345 @@
+package com.safetynet.alerts.repository;
+
+import java.util.*;
+
+/**
+ * Search index over the distinct last names of a snapshot, for lookups by partial or misspelled name.
+ * Names are held as their {@link CanonicalKeys}, grouped by their first two characters in sorted
+ * groups kept in a copy-on-write map updated with the residents by last name. A sorted group is an
+ * implicit trie:
+ * <ul>
+ *   <li>a prefix is found by a binary search in one group, its names following it in order;</li>
+ *   <li>names close to a query are found by walking the groups in order while computing the edit
+ *       distance of each name to the query, one row per character, sharing the rows of the prefix a name
+ *       has in common with the previous one. Once every entry of a row exceeds the allowed distance, no
+ *       name with that prefix can be close enough, and the walk jumps past them with a binary search.</li>
+ * </ul>
+ * An index never changes once built; {@link Editor} derives the next one.
+ */
+public final class NameSearchIndex {
+
+    /** How a searched name is matched. */
+    public enum Match {
+        /** The whole name, whatever its case and spacing. */
+        EXACT,
+        /** Names starting with the searched text, alphabetically. */
+        PREFIX,
+        /** Names within a small edit distance of the searched text, closest first. */
+        FUZZY
+    }
+
+    /** Largest number of edits, insertions, deletions, substitutions or swaps of adjacent letters, a fuzzy match allows. */
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int PREFIX_LENGTH = 2;
+
+    private static final NameSearchIndex EMPTY = new NameSearchIndex(Map.of());
+
+    private final Map<String, List<String>> byPrefix;
+
+    private NameSearchIndex(Map<String, List<String>> byPrefix) {
+        this.byPrefix = byPrefix;
+    }
+
+    /**
+     * Builds an index at once, as when restoring a snapshot.
+     * @param names name keys to index
+     * @return the index
+     */
+    static NameSearchIndex of(Collection<String> names) {
+        Map<String, List<String>> byPrefix = new HashMap<>();
+        for (String name : names) {
+            byPrefix.computeIfAbsent(prefixGroup(name), group -> new ArrayList<>()).add(name);
+        }
+        byPrefix.values().forEach(Collections::sort);
+        return new NameSearchIndex(byPrefix);
+    }
+
+    /** @return an index without names */
+    static NameSearchIndex empty() { return EMPTY; }
+
+    /** @return an editor starting from this index */
+    Editor edit() { return new Editor(this); }
+
+    /** @return number of indexed names */
+    public int size() {
+        int size = 0;
+        for (List<String> names : byPrefix.values()) {
+            size += names.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the names starting with a prefix.
+     * @param prefix prefix, matched on its key
+     * @param limit maximum number of names
+     * @return name keys in alphabetical order, so an exact match comes first
+     */
+    public List<String> startingWith(String prefix, int limit) {
+        String key = CanonicalKeys.of(prefix);
+        if (key == null || key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<String> found = new ArrayList<>();
+        if (key.length() >= PREFIX_LENGTH) {
+            collect(byPrefix.get(key.substring(0, PREFIX_LENGTH)), key, limit, found);
+        } else {
+            for (String group : sortedGroups()) {
+                if (group.startsWith(key)) {
+                    collect(byPrefix.get(group), key, limit, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void collect(List<String> group, String prefix, int limit, List<String> found) {
+        if (group == null) {
+            return;
+        }
+        for (int i = ceiling(group, 0, prefix); i < group.size() && found.size() < limit; i++) {
+            String name = group.get(i);
+            if (!name.startsWith(prefix)) {
+                break;
+            }
+            found.add(name);
+        }
+    }
+
+    /**
+     * Returns the names within {@link #maxDistance(int)} edits of a text.
+     * @param text searched text, matched on its key
+     * @param limit maximum number of names
+     * @return name keys by increasing edit distance, then decreasing length of the prefix they share
+     *         with the text, then alphabetically
+     */
+    public List<String> closeTo(String text, int limit) {
+        String key = CanonicalKeys.of(text);
+        if (key == null || key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        record Candidate(String name, int distance, int sharedPrefix) { }
+        List<Candidate> matches = new ArrayList<>();
+        DistanceRows rows = new DistanceRows(key, maxDistance(key.length()));
+        for (String group : sortedGroups()) {
+            List<String> names = byPrefix.get(group);
+            rows.reset();
+            int i = 0;
+            while (i < names.size()) {
+                String name = names.get(i);
+                int pruned = rows.advance(name);
+                if (pruned > 0) {
+                    i = skip(names, i + 1, name, pruned);
+                    continue;
+                }
+                int distance = rows.distance();
+                if (distance <= rows.bound) {
+                    matches.add(new Candidate(name, distance, commonPrefix(name, key, name.length())));
+                }
+                i++;
+            }
+        }
+        matches.sort(Comparator.comparingInt(Candidate::distance)
+                .thenComparing(Comparator.comparingInt(Candidate::sharedPrefix).reversed())
+                .thenComparing(Candidate::name));
+        return matches.stream().limit(limit).map(Candidate::name).toList();
+    }
+
+    /**
+     * @param length length of a searched key
+     * @return edits allowed for it: none up to two letters, one up to five, then {@link #MAX_DISTANCE}
+     */
+    public static int maxDistance(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : MAX_DISTANCE;
+    }
+
+    /**
+     * Optimal string alignment distance: insertions, deletions, substitutions and swaps of adjacent
+     * characters, giving up once every alignment exceeds the bound.
+     * @return the distance, or {@code bound + 1} if it is larger than the bound
+     */
+    static int distance(String a, String b, int bound) {
+        DistanceRows rows = new DistanceRows(b, bound);
+        return rows.advance(a) > 0 ? bound + 1 : Math.min(rows.distance(), bound + 1);
+    }
+
+    /**
+     * Rows of the edit distance between the prefixes of the last name walked and a query: row {@code d}
+     * holds the distances between the first {@code d} characters of the name and each prefix of the query.
+     * Rows are kept while the next name shares their prefix. Prefixes whose lengths differ by more than
+     * the bound are that far apart, so only the band of entries within the bound of the diagonal is
+     * computed; entries outside it stay at {@code bound + 1}.
+     */
+    private static final class DistanceRows {
+
+        private final String query;
+        private final int bound;
+        private int[][] rows;
+        private String name = "";
+        private int depth;
+
+        DistanceRows(String query, int bound) {
+            this.query = query;
+            this.bound = bound;
+            rows = new int[query.length() + bound + 2][];
+            rows[0] = new int[query.length() + 1];
+            for (int j = 0; j <= query.length(); j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        void reset() {
+            name = "";
+            depth = 0;
+        }
+
+        /**
+         * Moves to another name, computing the rows past the prefix it shares with the previous one.
+         * @return 0 if every row was computed, otherwise the length of the prefix found too far from
+         *         the query, shared by every name that cannot match
+         */
+        int advance(String next) {
+            int from = commonPrefix(name, next, depth);
+            name = next;
+            for (int d = from + 1; d <= next.length(); d++) {
+                if (d >= rows.length) {
+                    depth = d - 1;
+                    return d;
+                }
+                if (!computeRow(next, d)) {
+                    depth = d - 1;
+                    return d;
+                }
+            }
+            depth = next.length();
+            return 0;
+        }
+
+        /** @return distance between the whole name and the query */
+        int distance() {
+            return rows[depth][query.length()];
+        }
+
+        /** @return true if some entry of the row is within the bound */
+        private boolean computeRow(String name, int d) {
+            int[] previous = rows[d - 1];
+            int[] previous2 = d > 1 ? rows[d - 2] : null;
+            int[] row = rows[d];
+            if (row == null) {
+                row = rows[d] = new int[query.length() + 1];
+                Arrays.fill(row, bound + 1);
+            }
+            char c = name.charAt(d - 1);
+            row[0] = d;
+            int min = d;
+            for (int j = Math.max(1, d - bound), last = Math.min(query.length(), d + bound); j <= last; j++) {
+                char q = query.charAt(j - 1);
+                int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + (c == q ? 0 : 1));
+                if (previous2 != null && j > 1 && c == query.charAt(j - 2) && name.charAt(d - 2) == q) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                row[j] = value;
+                min = Math.min(min, value);
+            }
+            return min <= bound;
+        }
+    }
+
+    private List<String> sortedGroups() {
+        List<String> groups = new ArrayList<>(byPrefix.keySet());
+        Collections.sort(groups);
+        return groups;
+    }
+
+    /** @return index of the first name from {@code from} not smaller than the key */
+    private static int ceiling(List<String> names, int from, String key) {
+        int at = Collections.binarySearch(names.subList(from, names.size()), key);
+        return from + (at < 0 ? -at - 1 : at);
+    }
+
+    /**
+     * Skips the names sharing a prefix, galloping then bisecting, as most prefixes cut off are
+     * shared by few names.
+     * @return index of the first name from {@code from} not starting with the first {@code length}
+     *         characters of {@code name}
+     */
+    private static int skip(List<String> names, int from, String name, int length) {
+        int low = from;
+        int high = from;
+        for (int step = 1; high < names.size() && startsWith(names.get(high), name, length); step <<= 1) {
+            low = high + 1;
+            high = low + step;
+        }
+        high = Math.min(high, names.size());
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (startsWith(names.get(middle), name, length)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean startsWith(String value, String name, int length) {
+        return value.length() >= length && value.regionMatches(0, name, 0, length);
+    }
+
+    private static int commonPrefix(String a, String b, int max) {
+        int length = Math.min(max, Math.min(a.length(), b.length()));
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String prefixGroup(String name) {
+        return name.length() <= PREFIX_LENGTH ? name : name.substring(0, PREFIX_LENGTH);
+    }
+
+    /**
+     * Derives an index from a published one, copying only the groups it changes.
+     * Single-threaded, like the snapshot builder owning it.
+     */
+    static final class Editor {
+
+        private final CopyOnWriteMap<String, List<String>> byPrefix;
+
+        private Editor(NameSearchIndex base) {
+            byPrefix = new CopyOnWriteMap<>(base.byPrefix, ArrayList::new);
+        }
+
+        /** @param name key of a name now held by some resident */
+        void add(String name) {
+            String prefix = prefixGroup(name);
+            List<String> group = byPrefix.get(prefix);
+            if (group != null && Collections.binarySearch(group, name) >= 0) {
+                return;
+            }
+            group = byPrefix.edit(prefix, ArrayList::new);
+            group.add(-Collections.binarySearch(group, name) - 1, name);
+        }
+
+        /** @param name key of a name no resident holds any more */
+        void remove(String name) {
+            String prefix = prefixGroup(name);
+            List<String> group = byPrefix.get(prefix);
+            if (group == null || Collections.binarySearch(group, name) < 0) {
+                return;
+            }
+            group = byPrefix.edit(prefix, ArrayList::new);
+            group.remove(Collections.binarySearch(group, name));
+            if (group.isEmpty()) {
+                byPrefix.remove(prefix);
+            }
+        }
+
+        /** @return the edited index */
+        NameSearchIndex build() {
+            return new NameSearchIndex(byPrefix.build());
+        }
+    }
+}
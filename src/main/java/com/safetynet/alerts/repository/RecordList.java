@@ -0,0 +1,265 @@
+package com.safetynet.alerts.repository;
+
+import java.util.*;
+
+/**
+ * Immutable list of the records of a snapshot, in insertion order, held in chunks of at most
+ * {@value #CHUNK_SIZE} records so that {@link Editor} derives the next list by copying the array of
+ * chunks and the chunks it touches instead of every record. Each chunk keeps the sorted identity hash
+ * codes of its records: a record is found by a binary search in each chunk, then by identity in the
+ * one chunk holding its hash, instead of comparing it with every record.
+ *
+ * @param <T> record type
+ */
+final class RecordList<T> extends AbstractList<T> implements RandomAccess {
+
+    static final int CHUNK_SIZE = 512;
+
+    private static final RecordList<?> EMPTY = new RecordList<>(new Object[0][], new int[0][]);
+
+    private final Object[][] chunks;
+    private final int[][] hashes;
+    // Number of records in the chunks up to each one, included
+    private final int[] ends;
+
+    private RecordList(Object[][] chunks, int[][] hashes) {
+        this.chunks = chunks;
+        this.hashes = hashes;
+        ends = new int[chunks.length];
+        int end = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            end += chunks[i].length;
+            ends[i] = end;
+        }
+    }
+
+    /** @return a list without records */
+    @SuppressWarnings("unchecked")
+    static <T> RecordList<T> empty() {
+        return (RecordList<T>) EMPTY;
+    }
+
+    /**
+     * Builds a list at once, as when restoring a snapshot.
+     * @param records records to hold, in order
+     * @return the list
+     */
+    static <T> RecordList<T> of(List<T> records) {
+        if (records instanceof RecordList<T> list) {
+            return list;
+        }
+        int count = (records.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Object[][] chunks = new Object[count][];
+        int[][] hashes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = records.subList(i * CHUNK_SIZE, Math.min(records.size(), (i + 1) * CHUNK_SIZE)).toArray();
+            hashes[i] = hashesOf(chunks[i]);
+        }
+        return new RecordList<>(chunks, hashes);
+    }
+
+    /** @return an editor starting from this list */
+    Editor<T> edit() {
+        return new Editor<>(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        // Chunks are never empty, so the first chunk ending past the index holds it
+        int chunk = Arrays.binarySearch(ends, index + 1);
+        chunk = chunk >= 0 ? chunk : -chunk - 1;
+        return (T) chunks[chunk][index - (chunk == 0 ? 0 : ends[chunk - 1])];
+    }
+
+    @Override
+    public int size() {
+        return ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < chunks.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (chunk >= chunks.length) {
+                    throw new NoSuchElementException();
+                }
+                T record = (T) chunks[chunk][index++];
+                if (index == chunks[chunk].length) {
+                    chunk++;
+                    index = 0;
+                }
+                return record;
+            }
+        };
+    }
+
+    private static int[] hashesOf(Object[] records) {
+        int[] hashes = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            hashes[i] = System.identityHashCode(records[i]);
+        }
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    /**
+     * Derives the next list from a published one. Every change copies the chunk it touches;
+     * the published list is never modified. An editor is single-threaded.
+     */
+    static final class Editor<T> {
+
+        private final RecordList<T> base;
+        private List<Object[]> chunks;
+        private List<int[]> hashes;
+        // Last chunk while records are added, kept out of the chunks until full, found or built
+        private Object[] tail;
+        private int tailSize;
+
+        private Editor(RecordList<T> base) {
+            this.base = base;
+        }
+
+        /** Adds a record at the end of the list. */
+        void add(T record) {
+            copyChunkArrays();
+            if (tail == null) {
+                tail = new Object[CHUNK_SIZE];
+                int last = chunks.size() - 1;
+                if (last >= 0 && chunks.get(last).length < CHUNK_SIZE) {
+                    Object[] records = chunks.remove(last);
+                    hashes.remove(last);
+                    System.arraycopy(records, 0, tail, 0, records.length);
+                    tailSize = records.length;
+                }
+            }
+            tail[tailSize++] = record;
+            if (tailSize == CHUNK_SIZE) {
+                flushTail();
+            }
+        }
+
+        /**
+         * Replaces a record by another at the same position.
+         * @return false if the list does not hold the record
+         */
+        boolean replace(T previous, T replacement) {
+            long position = find(previous);
+            if (position < 0) {
+                return false;
+            }
+            int chunk = (int) (position >>> 32);
+            Object[] records = chunks.get(chunk).clone();
+            records[(int) position] = replacement;
+            chunks.set(chunk, records);
+            hashes.set(chunk, withHash(withoutHash(hashes.get(chunk), System.identityHashCode(previous)),
+                    System.identityHashCode(replacement)));
+            return true;
+        }
+
+        /**
+         * Removes a record.
+         * @return false if the list does not hold the record
+         */
+        boolean remove(T record) {
+            long position = find(record);
+            if (position < 0) {
+                return false;
+            }
+            int chunk = (int) (position >>> 32);
+            int at = (int) position;
+            Object[] records = chunks.get(chunk);
+            Object[] shrunk = new Object[records.length - 1];
+            System.arraycopy(records, 0, shrunk, 0, at);
+            System.arraycopy(records, at + 1, shrunk, at, shrunk.length - at);
+            if (shrunk.length == 0) {
+                chunks.remove(chunk);
+                hashes.remove(chunk);
+            } else if (shrunk.length < CHUNK_SIZE / 4 && chunk + 1 < chunks.size()
+                    && shrunk.length + chunks.get(chunk + 1).length <= CHUNK_SIZE / 2) {
+                // Merges chunks left small by removals, so their number stays proportional to the size
+                Object[] next = chunks.remove(chunk + 1);
+                hashes.remove(chunk + 1);
+                Object[] merged = Arrays.copyOf(shrunk, shrunk.length + next.length);
+                System.arraycopy(next, 0, merged, shrunk.length, next.length);
+                chunks.set(chunk, merged);
+                hashes.set(chunk, hashesOf(merged));
+            } else {
+                chunks.set(chunk, shrunk);
+                hashes.set(chunk, withoutHash(hashes.get(chunk), System.identityHashCode(record)));
+            }
+            return true;
+        }
+
+        /** @return the edited list */
+        RecordList<T> build() {
+            flushTail();
+            return chunks == null ? base
+                    : new RecordList<>(chunks.toArray(new Object[0][]), hashes.toArray(new int[0][]));
+        }
+
+        /** @return the chunk in the upper 32 bits and the index in the lower ones, or -1 if absent */
+        private long find(T record) {
+            copyChunkArrays();
+            flushTail();
+            int hash = System.identityHashCode(record);
+            for (int chunk = 0; chunk < chunks.size(); chunk++) {
+                if (Arrays.binarySearch(hashes.get(chunk), hash) >= 0) {
+                    Object[] records = chunks.get(chunk);
+                    for (int i = 0; i < records.length; i++) {
+                        if (records[i] == record) {
+                            return (long) chunk << 32 | i;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void flushTail() {
+            if (tail != null) {
+                Object[] records = Arrays.copyOf(tail, tailSize);
+                chunks.add(records);
+                hashes.add(hashesOf(records));
+                tail = null;
+                tailSize = 0;
+            }
+        }
+
+        private void copyChunkArrays() {
+            if (chunks == null) {
+                chunks = new ArrayList<>(Arrays.asList(base.chunks));
+                hashes = new ArrayList<>(Arrays.asList(base.hashes));
+            }
+        }
+
+        private static int[] withHash(int[] hashes, int hash) {
+            int at = Arrays.binarySearch(hashes, hash);
+            at = at >= 0 ? at : -at - 1;
+            int[] grown = new int[hashes.length + 1];
+            System.arraycopy(hashes, 0, grown, 0, at);
+            grown[at] = hash;
+            System.arraycopy(hashes, at, grown, at + 1, hashes.length - at);
+            return grown;
+        }
+
+        private static int[] withoutHash(int[] hashes, int hash) {
+            int at = Arrays.binarySearch(hashes, hash);
+            int[] shrunk = new int[hashes.length - 1];
+            System.arraycopy(hashes, 0, shrunk, 0, at);
+            System.arraycopy(hashes, at + 1, shrunk, at, shrunk.length - at);
+            return shrunk;
+        }
+    }
+}
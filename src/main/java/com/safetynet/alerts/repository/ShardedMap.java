@@ -0,0 +1,132 @@
+package com.safetynet.alerts.repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map split into shards by the hash of the keys, so that deriving the next map
+ * ({@link CopyOnWriteMap}) copies the array of shards and the shards it touches instead of every entry.
+ * The number of shards is about the square root of the size, which keeps both copies around the
+ * square root of the size; a built map that has grown or shrunk well past it is split again.
+ * Entries are iterated shard by shard, in no particular order. Null keys are not held.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class ShardedMap<K, V> extends AbstractMap<K, V> {
+
+    private static final ShardedMap<?, ?> EMPTY = new ShardedMap<>(shards(1), 0);
+
+    private final Map<K, V>[] shards;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    ShardedMap(Map<K, V>[] shards, int size) {
+        this.shards = shards;
+        this.size = size;
+    }
+
+    /** @return a map without entries */
+    @SuppressWarnings("unchecked")
+    static <K, V> ShardedMap<K, V> empty() {
+        return (ShardedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param map map to copy, which must not hold a null key; returned as is if already sharded
+     * @return an immutable sharded map with the entries of the map
+     */
+    static <K, V> ShardedMap<K, V> copyOf(Map<K, V> map) {
+        return map instanceof ShardedMap<K, V> sharded ? sharded : split(map);
+    }
+
+    /**
+     * @param shards shards holding the entries, each key in the shard {@link #shardOf} gives
+     * @param size number of entries
+     * @return the map, split again if its size is far from the one its number of shards suits
+     */
+    static <K, V> ShardedMap<K, V> of(Map<K, V>[] shards, int size) {
+        ShardedMap<K, V> map = new ShardedMap<>(shards, size);
+        int wanted = shardCountFor(size);
+        return wanted >= 4 * shards.length || 4 * wanted <= shards.length ? split(map) : map;
+    }
+
+    private static <K, V> ShardedMap<K, V> split(Map<K, V> map) {
+        Map<K, V>[] shards = shards(shardCountFor(map.size()));
+        map.forEach((key, value) -> shards[shardOf(key, shards.length)].put(key, value));
+        return new ShardedMap<>(shards, map.size());
+    }
+
+    /** @return a copy of the array of shards, whose shards are still those of this map */
+    Map<K, V>[] shards() {
+        return shards.clone();
+    }
+
+    /**
+     * @param key key, not null
+     * @param shardCount number of shards, a power of two
+     * @return the shard holding the key
+     */
+    static int shardOf(Object key, int shardCount) {
+        // The upper bits of a multiplicative hash, as the shards' tables use the lower bits
+        return shardCount == 1 ? 0 : (key.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(shardCount));
+    }
+
+    private static int shardCountFor(int size) {
+        return Integer.highestOneBit(Math.max(1, (int) Math.sqrt(size)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] shards(int count) {
+        Map<K, V>[] shards = new Map[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new HashMap<>();
+        }
+        return shards;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key == null ? null : shards[shardOf(key, shards.length)].get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && shards[shardOf(key, shards.length)].containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map<K, V> shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return Arrays.stream(shards)
+                            .flatMap(shard -> shard.entrySet().stream())
+                            .map(entry -> (Entry<K, V>) new SimpleImmutableEntry<>(entry))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,520 @@
+package com.safetynet.alerts.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the changes published by the {@link DataStore}, so that they survive a restart.
+ * <p>
+ * The log is a sequence of segment files {@code wal-<index>.log} in one directory. A segment starts
+ * with a header (int magic, int format version, long base version: the store version the segment
+ * continues from) followed by frames: int payload length, int CRC32C of the payload, then the
+ * payload (long store version, int change count, the encoded {@link Mutation}s). One frame holds
+ * everything one published version changed, so a batch is replayed all or nothing. Every version
+ * is logged, so frame versions follow each other by one across all segments, starting from the base
+ * version of the first segment; replay rejects any gap, such as a lost segment.
+ * <p>
+ * Writers append frames in publication order and then wait for durability. The store publishes a
+ * version before its frame is durable (see {@link DataStore}), so readers may see a version that a
+ * crash before the next sync loses; the writer itself is only answered once it is durable. A single writer thread
+ * performs group commit: it waits up to the batch window for more frames to arrive, writes
+ * everything pending with one gathering write and makes it durable with one {@code fsync}.
+ * Waiting uses a {@link ReentrantLock} rather than monitors, so waiting virtual threads unmount
+ * from their carrier instead of pinning it.
+ * <p>
+ * Compaction rolls the log to a new segment at a {@link Checkpoint}; once the checkpoint's
+ * snapshot is safely written, the older segments are deleted.
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final int SEGMENT_MAGIC = 0x534E574C; // "SNWL"
+    static final int SEGMENT_FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Point at which the log was rolled to a new segment.
+     * @param snapshot store content covering every change logged before the new segment
+     * @param segment index of the new segment
+     */
+    public record Checkpoint(DataSnapshot snapshot, long segment) { }
+
+    private record Roll(long segment, long baseVersion) { }
+
+    private final Path directory;
+    private final long batchWindowNanos;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+
+    // Guarded by lock
+    private List<Object> pending = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private long nextSegment;
+    private long currentSegment;
+    private long framesInCurrentSegment;
+    private volatile IOException failure;
+    private boolean closed;
+
+    // Writer thread only
+    private FileChannel channel;
+
+    private volatile long syncCount;
+    private volatile long frameCount;
+
+    private WriteAheadLog(Path directory, Duration batchWindow, long firstSegment, long baseVersion) throws IOException {
+        this.directory = directory;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.nextSegment = firstSegment + 1;
+        this.currentSegment = firstSegment;
+        this.channel = createSegment(firstSegment, baseVersion);
+        // A platform thread in every execution mode: it spends its time in fsync, which holds its carrier anyway
+        this.writer = Thread.ofPlatform().name("wal-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Opens a log for appending, starting a new segment after any existing ones.
+     * Existing segments are kept until the next compaction; replay them first with {@link #replay}.
+     * @param directory directory holding the segments, created if missing
+     * @param baseVersion current store version, which the first new frame follows
+     * @param batchWindow how long the writer waits for more frames before syncing a batch
+     * @return the open log
+     * @throws IOException if the segment cannot be created
+     */
+    public static WriteAheadLog open(Path directory, long baseVersion, Duration batchWindow) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        long firstSegment = segments.isEmpty() ? 1 : segmentIndex(segments.get(segments.size() - 1)) + 1;
+        return new WriteAheadLog(directory, batchWindow, firstSegment, baseVersion);
+    }
+
+    /**
+     * Replays the logged changes newer than the store's current version into the store.
+     * A torn frame at the end of the last segment, left by a crash during a write, is truncated;
+     * corruption anywhere else stops the replay with an exception, as does a log that does not
+     * continue from the store's version or that misses a version: a segment not starting where the
+     * previous one ended, or a frame not following the previous frame.
+     * @param directory directory holding the segments
+     * @param store store to replay into, normally just restored from a snapshot
+     * @return number of versions replayed
+     * @throws IOException if the log cannot be read, is corrupt or does not match the store
+     */
+    public static int replay(Path directory, DataStore store) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> segments = segments(directory);
+        long startVersion = store.getVersion();
+        long reached = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+                if (readFully(in, header, 0) < SEGMENT_HEADER_SIZE
+                        || header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) != SEGMENT_FORMAT_VERSION) {
+                    if (last && in.size() < SEGMENT_HEADER_SIZE) {
+                        continue; // created just before a crash, nothing logged yet
+                    }
+                    throw new IOException("Invalid log segment header in " + segment);
+                }
+                long baseVersion = header.getLong(8);
+                if (reached < 0 && baseVersion > store.getVersion()) {
+                    throw new IOException("Log starts at version " + baseVersion
+                            + " but the store is at version " + store.getVersion() + "; changes are missing");
+                }
+                if (reached >= 0 && baseVersion != reached) {
+                    throw new IOException("Log segment " + segment + " starts at version " + baseVersion
+                            + " but the previous segment ends at version " + reached + "; changes are missing");
+                }
+                reached = replaySegment(segment, in, last, store, baseVersion);
+            }
+        }
+        // Versions are replayed one after the other from the store's version on
+        return (int) (store.getVersion() - startVersion);
+    }
+
+    /** @return the version the segment ends at, its base version if it holds no frame */
+    private static long replaySegment(Path segment, FileChannel in, boolean last, DataStore store, long reached)
+            throws IOException {
+        long position = SEGMENT_HEADER_SIZE;
+        long size = in.size();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position < size) {
+            frameHeader.clear();
+            int length = -1;
+            byte[] payload = null;
+            if (readFully(in, frameHeader, position) == FRAME_HEADER_SIZE) {
+                length = frameHeader.getInt(0);
+                if (length > 0 && position + FRAME_HEADER_SIZE + length <= size) {
+                    ByteBuffer body = ByteBuffer.allocate(length);
+                    readFully(in, body, position + FRAME_HEADER_SIZE);
+                    CRC32C crc = new CRC32C();
+                    crc.update(body.array());
+                    if ((int) crc.getValue() == frameHeader.getInt(4)) {
+                        payload = body.array();
+                    }
+                }
+            }
+            if (payload == null) {
+                if (!last) {
+                    throw new IOException("Corrupt frame at offset " + position + " in " + segment);
+                }
+                logger.warn("Truncating torn write at offset {} of {} ({} bytes)", position, segment, size - position);
+                in.truncate(position);
+                in.force(true);
+                break;
+            }
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+            long version = data.readLong();
+            if (version != reached + 1) {
+                throw new IOException("Frame at offset " + position + " in " + segment + " is for version " + version
+                        + " but follows version " + reached + "; changes are missing");
+            }
+            reached = version;
+            int count = data.readInt();
+            List<Mutation> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.add(Mutation.readFrom(data));
+            }
+            store.applyLogged(version, changes);
+            position += FRAME_HEADER_SIZE + length;
+        }
+        return reached;
+    }
+
+    /**
+     * Queues the changes of one published version. Must be called in publication order,
+     * which the data store guarantees by appending while it holds its write lock.
+     * @param version version the changes produced
+     * @param changes changes in the order they were applied
+     * @return sequence number to pass to {@link #awaitDurable(long)}
+     * @throws UncheckedIOException if the log has failed
+     * @throws IllegalStateException if the log is closed
+     */
+    long append(long version, List<Mutation> changes) {
+        ByteBuffer frame = encode(version, changes);
+        lock.lock();
+        try {
+            checkWritable();
+            pending.add(frame);
+            framesInCurrentSegment++;
+            work.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything appended up to the given sequence number is durable.
+     * @param sequence sequence number returned by {@link #append}
+     * @throws UncheckedIOException if the log failed or the wait was interrupted
+     */
+    void awaitDurable(long sequence) {
+        await(() -> durableSequence >= sequence);
+    }
+
+    /** Waits, with the lock, until the writer thread has reached a state or failed. */
+    private void await(BooleanSupplier reached) {
+        lock.lock();
+        try {
+            while (!reached.getAsBoolean()) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                durable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for the write-ahead log"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rolls the log to a new segment. Must be called with the store's write lock held, so that
+     * every frame in older segments is covered by the given snapshot.
+     * @param snapshot current store content
+     * @return the checkpoint to pass to {@link #deleteSegmentsBefore(Checkpoint)}
+     */
+    Checkpoint roll(DataSnapshot snapshot) {
+        lock.lock();
+        try {
+            checkWritable();
+            long segment = nextSegment++;
+            pending.add(new Roll(segment, snapshot.getVersion()));
+            framesInCurrentSegment = 0;
+            work.signal();
+            return new Checkpoint(snapshot, segment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments older than a checkpoint, once its snapshot has been written. Waits first
+     * until the writer has synced the frames before the checkpoint and switched to the new segment.
+     * @param checkpoint checkpoint returned when the log was rolled
+     * @return number of segments deleted
+     * @throws IOException if a segment cannot be deleted
+     * @throws UncheckedIOException if the log failed before switching segments
+     */
+    public int deleteSegmentsBefore(Checkpoint checkpoint) throws IOException {
+        await(() -> currentSegment >= checkpoint.segment());
+        int deleted = 0;
+        for (Path segment : segments(directory)) {
+            if (segmentIndex(segment) < checkpoint.segment()) {
+                Files.delete(segment);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /** @return true if frames were appended since the log was opened or last rolled */
+    public boolean hasChangesSinceCheckpoint() {
+        lock.lock();
+        try {
+            return framesInCurrentSegment > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of fsyncs performed, each covering one group of frames */
+    public long getSyncCount() { return syncCount; }
+
+    /** @return number of frames written */
+    public long getFrameCount() { return frameCount; }
+
+    /**
+     * Makes everything appended so far durable and stops the writer thread.
+     * Appends after closing fail with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted closing the write-ahead log");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // ----------------- Writer thread -----------------
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (true) {
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        work.await();
+                    }
+                    if (pending.isEmpty()) {
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (batchWindowNanos > 0) {
+                    LockSupport.parkNanos(batchWindowNanos); // let concurrent writers join this batch
+                }
+                long upTo;
+                lock.lock();
+                try {
+                    List<Object> taken = pending;
+                    pending = batch;
+                    batch = taken;
+                    upTo = appendedSequence;
+                } finally {
+                    lock.unlock();
+                }
+                writeBatch(batch);
+                batch.clear();
+                signalDurable(upTo, null);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Write-ahead log failed in {}", directory, e);
+            signalDurable(-1, e);
+        } catch (InterruptedException e) {
+            signalDurable(-1, new InterruptedIOException("Write-ahead log writer interrupted"));
+        }
+    }
+
+    private void signalDurable(long upTo, IOException error) {
+        lock.lock();
+        try {
+            if (error != null) {
+                failure = error;
+            } else {
+                durableSequence = upTo;
+            }
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalSegment(long segment) {
+        lock.lock();
+        try {
+            currentSegment = segment;
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(List<Object> batch) throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>(batch.size());
+        for (Object item : batch) {
+            if (item instanceof Roll roll) {
+                sync(frames);
+                channel.close();
+                channel = createSegment(roll.segment(), roll.baseVersion());
+                signalSegment(roll.segment());
+            } else {
+                frames.add((ByteBuffer) item);
+            }
+        }
+        sync(frames);
+    }
+
+    private void sync(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = frames.toArray(ByteBuffer[]::new);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+        syncCount++;
+        frameCount += frames.size();
+        frames.clear();
+    }
+
+    private FileChannel createSegment(long index, long baseVersion) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        FileChannel segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_FORMAT_VERSION).putLong(baseVersion).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segment.force(true);
+        return segment;
+    }
+
+    // ----------------- Helpers -----------------
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private static ByteBuffer encode(long version, List<Mutation> changes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length and checksum, filled in below
+            out.writeInt(0);
+            out.writeLong(version);
+            out.writeInt(changes.size());
+            for (Mutation change : changes) {
+                change.writeTo(out);
+            }
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            int length = frame.capacity() - FRAME_HEADER_SIZE;
+            CRC32C crc = new CRC32C();
+            crc.update(frame.array(), FRAME_HEADER_SIZE, length);
+            frame.putInt(0, length).putInt(4, (int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, cannot happen
+        }
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegment).sorted().toList();
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
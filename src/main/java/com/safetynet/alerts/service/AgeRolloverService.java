@@ -0,0 +1,36 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.DataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Service keeping cached resident ages current.
+ * At midnight it advances the data store's reference day, which recomputes the age
+ * of the residents whose birthday it is, so that requests never compute ages themselves.
+ */
+@Service
+public class AgeRolloverService {
+
+    private final DataStore dataStore;
+    private static final Logger logger = LoggerFactory.getLogger(AgeRolloverService.class);
+
+    public AgeRolloverService(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * Rolls resident ages over to the current day.
+     * This method is automatically invoked every day at midnight.
+     */
+    @Scheduled(cron = "${safetynet.ages.rollover-cron:0 0 0 * * *}")
+    public void rollOver() {
+        LocalDate today = LocalDate.now();
+        int recomputed = dataStore.rollAgesTo(today);
+        logger.info("Rolled ages over to {}: {} birthdays recomputed", today, recomputed);
+    }
+}
@@ -0,0 +1,162 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.DatasetDiff;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service picking up a refreshed data file without a restart.
+ * When {@code safetynet.data.watch} is enabled and {@code safetynet.data.location} points to a file,
+ * a background thread watches the file's directory with a {@link WatchService}. Once the file has
+ * stopped changing for {@code safetynet.data.watch-quiet-period}, it is parsed on that thread and
+ * only the records that differ from the current data are applied, in one atomic publish, so requests
+ * keep being served from the previous snapshot until the new one is complete.
+ */
+@Service
+public class DataFileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(DataFileWatcher.class);
+
+    private final DataStore dataStore;
+    private final JsonDataReader jsonDataReader;
+    private final ResourceLoader resourceLoader;
+    private final String dataLocation;
+    private final boolean enabled;
+    private final Duration quietPeriod;
+    private final Thread.Builder threadBuilder;
+    private WatchService watchService;
+
+    public DataFileWatcher(DataStore dataStore, JsonDataReader jsonDataReader, ResourceLoader resourceLoader,
+                           @Value("${safetynet.data.location:classpath:data/safetynet.json}") String dataLocation,
+                           @Value("${safetynet.data.watch:false}") boolean enabled,
+                           @Value("${safetynet.data.watch-quiet-period:500ms}") Duration quietPeriod,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.dataStore = dataStore;
+        this.jsonDataReader = jsonDataReader;
+        this.resourceLoader = resourceLoader;
+        this.dataLocation = dataLocation;
+        this.enabled = enabled;
+        this.quietPeriod = quietPeriod;
+        this.threadBuilder = virtualThreads
+                ? Thread.ofVirtual().name("data-file-watcher")
+                : Thread.ofPlatform().name("data-file-watcher").daemon();
+    }
+
+    /**
+     * Starts watching the data file once the initial load is done.
+     * This method is automatically invoked when ApplicationReadyEvent is fired, after the data is loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public synchronized void start() {
+        if (!enabled || watchService != null) {
+            return;
+        }
+        try {
+            Resource resource = resourceLoader.getResource(dataLocation);
+            if (!resource.isFile()) {
+                logger.warn("Not watching {}: only files on the file system can be watched", dataLocation);
+                return;
+            }
+            Path file = resource.getFile().toPath().toAbsolutePath();
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            WatchService service = watchService;
+            threadBuilder.start(() -> watch(service, file));
+            logger.info("Watching {} for changes", file);
+        } catch (IOException e) {
+            logger.error("Failed to watch {}", dataLocation, e);
+        }
+    }
+
+    /**
+     * Stops watching the data file.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.error("Failed to stop watching {}", dataLocation, e);
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Parses the data file and applies what changed to the data store.
+     * @param file data file
+     * @return the applied changes
+     * @throws IOException if the file cannot be read or parsed; the current data is kept
+     * @throws InterruptedException if the calling thread is interrupted while parsing
+     */
+    public DatasetDiff reload(Path file) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        JsonDataReader.Dataset dataset = jsonDataReader.readAll(new FileSystemResource(file));
+        DatasetDiff diff = dataStore.reconcile(dataset.persons(), dataset.firestations(), dataset.medicalRecords(),
+                dataset.geocodes());
+        logger.info("Reloaded {} in {} ms: {} added, {} updated, {} removed, data at version {}",
+                file, (System.nanoTime() - start) / 1_000_000,
+                diff.getAdded(), diff.getUpdated(), diff.getRemoved(), dataStore.getVersion());
+        return diff;
+    }
+
+    private void watch(WatchService service, Path file) {
+        try {
+            while (true) {
+                if (!concerns(service.take(), file)) {
+                    continue;
+                }
+                // Wait until the file stops changing, so a file still being written is not parsed
+                WatchKey next;
+                while ((next = service.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    concerns(next, file);
+                }
+                try {
+                    reload(file);
+                } catch (IOException e) {
+                    logger.warn("Keeping current data, failed to reload {}: {}", file, e.getMessage());
+                } catch (RuntimeException e) {
+                    // Keep watching: the next version of the file may well apply
+                    logger.error("Keeping current data, failed to apply {}", file, e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}", file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean concerns(WatchKey key, Path file) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            relevant |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return relevant;
+    }
+}
@@ -1,68 +1,253 @@
 package com.safetynet.alerts.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.Person;
 import com.safetynet.alerts.model.Firestation;
 import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.repository.BinarySnapshotReader;
+import com.safetynet.alerts.repository.BinarySnapshotWriter;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.WriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Service responsible for loading and managing SafetyNet data from JSON file.
+ * Service responsible for loading SafetyNet data from JSON file.
  * This service loads persons, firestations, and medical records data on application startup
- * and provides access to these data collections through getter methods.
+ * into the {@link DataStore}, which owns the collections and their indexes.
+ * The file is read from {@code safetynet.data.location}, a Spring resource location such as
+ * {@code classpath:data/safetynet.json} or {@code file:/var/lib/safetynet/safetynet.json}.
+ * <p>
+ * When {@code safetynet.snapshot.path} is set, startup first tries the binary snapshot at that path
+ * and only falls back to the JSON file if there is none. A snapshot that exists but cannot be read,
+ * because it is damaged or was written by a newer version, stops startup: loading the JSON file instead
+ * would overwrite it with older data. A snapshot is written after a JSON load and again on shutdown,
+ * so changes made through the API survive a restart.
+ * <p>
+ * When {@code safetynet.wal.directory} is also set, every change is appended to a {@link WriteAheadLog}
+ * before the API answers, so changes also survive a crash. Logged changes are replayed on top of the
+ * loaded data at startup, and the log is compacted into the snapshot every
+ * {@code safetynet.wal.compaction-interval}. A log that cannot be replayed on top of the loaded data,
+ * such as one starting after the loaded version, also stops startup and is left untouched.
+ * <p>
+ * The startup load is timed as {@code safetynet.data.load}, tagged with the {@code source} the data came from.
  */
 @Service
 public class DataLoaderService {
-    private List<Person> persons;
-    private List<Firestation> firestations;
-    private List<MedicalRecord> medicalRecords;
+    private static final Logger logger = LoggerFactory.getLogger(DataLoaderService.class);
+
+    private final DataStore dataStore;
+    private final JsonDataReader jsonDataReader;
+    private final ResourceLoader resourceLoader;
+    private final String dataLocation;
+    private final Path snapshotPath;
+    private final Path walDirectory;
+    private final Duration walBatchWindow;
+    private final MeterRegistry meterRegistry;
+    // Not a monitor, so that a request or the scheduled compaction waiting on it does not pin its carrier
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile WriteAheadLog log;
+    private volatile boolean loaded;
+
+    public DataLoaderService(DataStore dataStore, JsonDataReader jsonDataReader, ResourceLoader resourceLoader,
+                             @Value("${safetynet.data.location:classpath:data/safetynet.json}") String dataLocation,
+                             @Value("${safetynet.snapshot.path:}") String snapshotPath,
+                             @Value("${safetynet.wal.directory:}") String walDirectory,
+                             @Value("${safetynet.wal.batch-window:0ms}") Duration walBatchWindow,
+                             MeterRegistry meterRegistry) {
+        this.dataStore = dataStore;
+        this.jsonDataReader = jsonDataReader;
+        this.resourceLoader = resourceLoader;
+        this.dataLocation = dataLocation;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.walDirectory = walDirectory.isBlank() ? null : Path.of(walDirectory);
+        this.walBatchWindow = walBatchWindow;
+        this.meterRegistry = meterRegistry;
+    }
 
     /**
-     * Loads data from the safetynet.json file when the application is ready.
-     * Parses JSON and initializes mutable ArrayLists for persons, firestations, and medical records.
+     * Loads data when the application is ready, from the binary snapshot if one is configured and valid,
+     * otherwise from the configured JSON file, then replays and opens the write-ahead log if configured.
+     * Streams persons, firestations, and medical records into a new snapshot, indexing them
+     * as they are parsed, then publishes it in the data store and reports load time and counts.
      * This method is automatically invoked when ApplicationReadyEvent is fired.
+     * @throws IllegalStateException if the snapshot exists but cannot be read, or the log cannot be replayed
      */
     @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
     public void loadData() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String source = restoreSnapshot() ? "snapshot" : loadJson() ? "json" : "none";
+        if (!source.equals("none")) {
+            openLog();
+        }
+        // From here on the data holds every persisted change, and may replace the snapshot
+        loaded = true;
+        if (source.equals("json")) {
+            saveSnapshot();
+        }
+        sample.stop(Timer.builder("safetynet.data.load")
+                .description("Startup data load, including the write-ahead log replay")
+                .tag("source", source)
+                .register(meterRegistry));
+    }
+
+    private boolean loadJson() {
+        long start = System.nanoTime();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            InputStream is = getClass().getClassLoader().getResourceAsStream("data/safetynet.json");
+            Resource resource = resourceLoader.getResource(dataLocation);
+            DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+            JsonDataReader.Counts counts = jsonDataReader.read(resource, builder);
+            dataStore.replace(builder);
+            logger.info("Data loaded from {} in {} ms: {} persons, {} firestations, {} medical records, {} geocodes",
+                    dataLocation, (System.nanoTime() - start) / 1_000_000,
+                    counts.persons(), counts.firestations(), counts.medicalRecords(), counts.geocodes());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while loading data from {}", dataLocation, e);
+        } catch (Exception e) {
+            logger.error("Failed to load data from {}", dataLocation, e);
+        }
+        return false;
+    }
+
+    private void openLog() {
+        if (walDirectory == null) {
+            return;
+        }
+        if (snapshotPath == null) {
+            logger.warn("Write-ahead log in {} disabled: it needs safetynet.snapshot.path for compaction", walDirectory);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int replayed = WriteAheadLog.replay(walDirectory, dataStore);
+            WriteAheadLog opened = WriteAheadLog.open(walDirectory, dataStore.getVersion(), walBatchWindow);
+            dataStore.attachLog(opened);
+            log = opened;
+            logger.info("Replayed {} logged changes from {} in {} ms, data at version {}",
+                    replayed, walDirectory, (System.nanoTime() - start) / 1_000_000, dataStore.getVersion());
+        } catch (IOException e) {
+            // Leave the log untouched for inspection rather than compacting away what could not be replayed
+            logger.error("Failed to replay write-ahead log in {}", walDirectory, e);
+            throw new IllegalStateException("Cannot replay the write-ahead log in " + walDirectory
+                    + " on top of the data at version " + dataStore.getVersion(), e);
+        }
+    }
+
+    /**
+     * Compacts the write-ahead log into the snapshot if changes were logged since the last compaction.
+     * Runs every {@code safetynet.wal.compaction-interval}.
+     */
+    @Scheduled(fixedDelayString = "${safetynet.wal.compaction-interval:PT5M}",
+            initialDelayString = "${safetynet.wal.compaction-interval:PT5M}")
+    public void compactLog() {
+        WriteAheadLog current = log;
+        if (current != null && current.hasChangesSinceCheckpoint()) {
+            saveSnapshot();
+        }
+    }
 
+    /**
+     * Closes the write-ahead log once its content is saved in the snapshot.
+     */
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
+        WriteAheadLog current = log;
+        if (current != null) {
+            dataStore.attachLog(null);
+            log = null;
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.error("Failed to close write-ahead log in {}", walDirectory, e);
+            }
+        }
+    }
 
-            JsonNode root = mapper.readTree(is);
+    /**
+     * Writes the current data to the configured binary snapshot, if any. With a write-ahead log,
+     * the log is rolled first and the segments covered by the snapshot are deleted afterwards.
+     * Called after a JSON load, on compaction and when the application shuts down; does nothing until
+     * startup has loaded the data and replayed the log, so a failed startup never replaces the snapshot.
+     * One snapshot is written at a time.
+     */
+    public void saveSnapshot() {
+        if (snapshotPath == null || !loaded || dataStore.getVersion() == 0) {
+            return;
+        }
+        snapshotLock.lock();
+        long start = System.nanoTime();
+        try {
+            WriteAheadLog current = log;
+            WriteAheadLog.Checkpoint checkpoint = current == null ? null : dataStore.checkpoint();
+            DataSnapshot snapshot = checkpoint == null ? dataStore.snapshot() : checkpoint.snapshot();
+            BinarySnapshotWriter.write(snapshot, snapshotPath);
+            int deleted = checkpoint == null ? 0 : current.deleteSegmentsBefore(checkpoint);
+            logger.info("Snapshot of version {} written to {} in {} ms, {} log segments compacted",
+                    snapshot.getVersion(), snapshotPath, (System.nanoTime() - start) / 1_000_000, deleted);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write snapshot to {}", snapshotPath, e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
 
-            persons = new ArrayList<>(Arrays.asList(mapper.treeToValue(root.get("persons"), Person[].class)));
-            firestations = new ArrayList<>(Arrays.asList(mapper.treeToValue(root.get("firestations"), Firestation[].class)));
-            medicalRecords = new ArrayList<>(Arrays.asList(mapper.treeToValue(root.get("medicalrecords"), MedicalRecord[].class)));
-            System.out.println("✅ Data loaded successfully!");
-        } catch (Exception e) {
-            e.printStackTrace();
+    private boolean restoreSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            DataSnapshot restored = BinarySnapshotReader.read(snapshotPath, LocalDate.now());
+            dataStore.replace(restored);
+            logger.info("Data restored from snapshot {} in {} ms: {} persons, {} firestations, {} medical records, {} geocodes",
+                    snapshotPath, (System.nanoTime() - start) / 1_000_000, restored.getPersons().size(),
+                    restored.getFirestations().size(), restored.getMedicalRecords().size(), restored.getGeocodes().size());
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to read snapshot {}", snapshotPath, e);
+            throw new IllegalStateException("Cannot read snapshot " + snapshotPath + ": " + e.getMessage()
+                    + "; repair it, or move it aside to start from " + dataLocation, e);
         }
     }
 
     /**
-     * Returns the list of persons loaded from JSON.
-     * @return mutable list of Person objects
+     * Returns the persons held by the data store.
+     * @return read-only list of Person objects
      */
-    public List<Person> getPersons() { return persons; }
+    public List<Person> getPersons() { return dataStore.getPersons(); }
 
     /**
-     * Returns the list of firestations loaded from JSON.
-     * @return mutable list of Firestation objects
+     * Returns the firestations held by the data store.
+     * @return read-only list of Firestation objects
      */
-    public List<Firestation> getFirestations() { return firestations; }
+    public List<Firestation> getFirestations() { return dataStore.getFirestations(); }
 
     /**
-     * Returns the list of medical records loaded from JSON.
-     * @return mutable list of MedicalRecord objects
+     * Returns the medical records held by the data store.
+     * @return read-only list of MedicalRecord objects
      */
-    public List<MedicalRecord> getMedicalRecords() { return medicalRecords; }
+    public List<MedicalRecord> getMedicalRecords() { return dataStore.getMedicalRecords(); }
 }
@@ -0,0 +1,269 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Streaming reader for SafetyNet JSON documents.
+ * A scanner thread tokenizes the document once with a Jackson {@link JsonParser}, skipping every value
+ * without binding it, to find where each section (persons, firestations, medicalrecords and the optional
+ * geocodes) starts. As soon as a section is found, a parser thread of its own reopens the resource at that
+ * byte offset and binds the section's records one at a time, so the sections are bound in parallel while
+ * the scan goes on; unknown sections are only skipped. Parsed records are handed over in small chunks
+ * through a bounded queue to the calling thread, which adds them to a snapshot builder (or collects them)
+ * as they arrive, so indexes are built while the file is still being read.
+ * <p>
+ * Persons are added after the medical records: a person added before its record would be linked
+ * again when the record arrives, which rescans the person's address, city and name buckets and makes
+ * loading quadratic in the size of the largest bucket. Person chunks arriving before the medical records
+ * section is complete are held back until it is, so memory beyond the loaded data stays bounded by the queue.
+ */
+@Component
+public class JsonDataReader {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final Chunk END_OF_SCAN = new Chunk(Object.class, List.of(), false);
+    private static final Map<String, Class<?>> SECTIONS = Map.of(
+            "persons", Person.class,
+            "firestations", Firestation.class,
+            "medicalrecords", MedicalRecord.class,
+            "geocodes", Geocode.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ThreadFactory threadFactory;
+
+    public JsonDataReader() {
+        this(false);
+    }
+
+    /**
+     * @param virtualThreads whether the scanner and parsers run on virtual threads ({@code spring.threads.virtual.enabled})
+     */
+    @Autowired
+    public JsonDataReader(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("json-parser-", 0).factory()
+                : Thread.ofPlatform().name("json-parser-", 0).daemon().factory();
+    }
+
+    /**
+     * Number of records read from each section.
+     * @param persons persons read
+     * @param firestations firestation mappings read
+     * @param medicalRecords medical records read
+     * @param geocodes geocodes read
+     */
+    public record Counts(int persons, int firestations, int medicalRecords, int geocodes) { }
+
+    /**
+     * Records of a SafetyNet document, each section in document order.
+     * @param persons persons read
+     * @param firestations firestation mappings read
+     * @param medicalRecords medical records read
+     * @param geocodes geocodes read, empty if the document has none
+     */
+    public record Dataset(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords,
+                          List<Geocode> geocodes) { }
+
+    /** Records of one section handed over to the calling thread; the last chunk of a section may be empty. */
+    private record Chunk(Class<?> type, List<Object> records, boolean last) { }
+
+    /**
+     * Reads a SafetyNet JSON document into a snapshot builder.
+     * @param resource resource holding the document; it is opened once to scan it, then once per section
+     * @param builder builder receiving the records
+     * @return number of records read per section
+     * @throws IOException if the resource cannot be read or is not a SafetyNet document
+     * @throws InterruptedException if the calling thread is interrupted while loading
+     */
+    public Counts read(Resource resource, DataSnapshot.Builder builder) throws IOException, InterruptedException {
+        return read(resource, builder::addPerson, builder::addFirestation, builder::addMedicalRecord, builder::addGeocode);
+    }
+
+    /**
+     * Reads a SafetyNet JSON document into lists, without indexing it.
+     * @param resource resource holding the document; it is opened once to scan it, then once per section
+     * @return the records read
+     * @throws IOException if the resource cannot be read or is not a SafetyNet document
+     * @throws InterruptedException if the calling thread is interrupted while loading
+     */
+    public Dataset readAll(Resource resource) throws IOException, InterruptedException {
+        Dataset dataset = new Dataset(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        read(resource, dataset.persons()::add, dataset.firestations()::add, dataset.medicalRecords()::add,
+                dataset.geocodes()::add);
+        return dataset;
+    }
+
+    private Counts read(Resource resource, Consumer<Person> persons, Consumer<Firestation> firestations,
+                        Consumer<MedicalRecord> medicalRecords, Consumer<Geocode> geocodes)
+            throws IOException, InterruptedException {
+        Sink sink = new Sink(persons, firestations, medicalRecords, geocodes);
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(threadFactory);
+        try {
+            Map<Class<?>, Future<?>> parsers = new ConcurrentHashMap<>();
+            Future<?> scanner = executor.submit(() -> {
+                try {
+                    scan(resource, (type, offset) -> parsers.put(type, executor.submit(() -> {
+                        try {
+                            parseSection(resource, type, offset, queue);
+                        } finally {
+                            queue.put(new Chunk(type, List.of(), true));
+                        }
+                        return null;
+                    })));
+                } finally {
+                    queue.put(END_OF_SCAN);
+                }
+                return null;
+            });
+
+            boolean scanned = false;
+            int completed = 0;
+            List<List<Object>> heldPersons = new ArrayList<>();
+            boolean holdPersons = true;
+            while (!scanned || completed < parsers.size()) {
+                Chunk chunk = queue.take();
+                if (chunk == END_OF_SCAN) {
+                    // Every section found was submitted before the end of the scan
+                    scanned = true;
+                } else if (chunk.type() == Person.class && holdPersons) {
+                    heldPersons.add(chunk.records());
+                } else {
+                    sink.accept(chunk.records());
+                }
+                if (chunk.last()) {
+                    completed++;
+                }
+                boolean medicalRecordsRead = chunk.last() && chunk.type() == MedicalRecord.class
+                        || scanned && !parsers.containsKey(MedicalRecord.class);
+                if (holdPersons && medicalRecordsRead) {
+                    holdPersons = false;
+                    heldPersons.forEach(sink::accept);
+                    heldPersons.clear();
+                }
+            }
+            scanner.get();
+            for (Future<?> parser : parsers.values()) {
+                parser.get();
+            }
+            return sink.counts();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to read " + resource.getDescription(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the known sections of the document, each at its first occurrence.
+     * @param found told the type of each section and the byte offset of its array, as soon as it is found
+     */
+    private void scan(Resource resource, ObjLongConsumer<Class<?>> found) throws IOException {
+        try (InputStream in = resource.getInputStream(); JsonParser parser = mapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object at the root of " + resource.getDescription());
+            }
+            Set<String> read = new HashSet<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                JsonToken value = parser.nextToken();
+                Class<?> type = SECTIONS.get(section);
+                if (type != null && read.add(section)) {
+                    long offset = parser.currentTokenLocation().getByteOffset();
+                    if (value != JsonToken.START_ARRAY || offset < 0) {
+                        throw new JsonParseException(parser, "Expected an array for section " + section);
+                    }
+                    found.accept(type, offset);
+                }
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void parseSection(Resource resource, Class<?> type, long offset, BlockingQueue<Chunk> queue)
+            throws IOException, InterruptedException {
+        try (InputStream in = resource.getInputStream()) {
+            in.skipNBytes(offset);
+            try (JsonParser parser = mapper.createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new JsonParseException(parser, "Expected an array at offset " + offset + " of "
+                            + resource.getDescription());
+                }
+                List<Object> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    chunk.add(mapper.readValue(parser, type));
+                    if (chunk.size() == CHUNK_SIZE) {
+                        queue.put(new Chunk(type, chunk, false));
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    queue.put(new Chunk(type, chunk, false));
+                }
+            }
+        }
+    }
+
+    /** Hands records to the consumers of their type and counts them, on the calling thread. */
+    private static final class Sink {
+        private final Consumer<Person> persons;
+        private final Consumer<Firestation> firestations;
+        private final Consumer<MedicalRecord> medicalRecords;
+        private final Consumer<Geocode> geocodes;
+        private int personCount;
+        private int firestationCount;
+        private int medicalRecordCount;
+        private int geocodeCount;
+
+        Sink(Consumer<Person> persons, Consumer<Firestation> firestations, Consumer<MedicalRecord> medicalRecords,
+             Consumer<Geocode> geocodes) {
+            this.persons = persons;
+            this.firestations = firestations;
+            this.medicalRecords = medicalRecords;
+            this.geocodes = geocodes;
+        }
+
+        void accept(List<Object> records) {
+            for (Object item : records) {
+                switch (item) {
+                    case Person person -> { persons.accept(person); personCount++; }
+                    case Firestation firestation -> { firestations.accept(firestation); firestationCount++; }
+                    case MedicalRecord record -> { medicalRecords.accept(record); medicalRecordCount++; }
+                    case Geocode geocode -> { geocodes.accept(geocode); geocodeCount++; }
+                    default -> throw new IllegalStateException("Unexpected record " + item);
+                }
+            }
+        }
+
+        Counts counts() {
+            return new Counts(personCount, firestationCount, medicalRecordCount, geocodeCount);
+        }
+    }
+}
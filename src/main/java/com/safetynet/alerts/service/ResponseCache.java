@@ -0,0 +1,234 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.DataChange;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.DataVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of read endpoint responses, keyed by endpoint and tags.
+ * <p>
+ * A tag names a piece of data a response was computed from: an address, a station, a city or a last
+ * name (see {@link DataVersions}), normalised the way the data store indexes them, so the tags of a request are also its
+ * normalised parameters. When the data store publishes a version, only the entries tagged with what
+ * that version changed are evicted (see {@link DataChange}); replacing the whole content clears the
+ * cache. Past the maximum number of entries, the least recently used one is evicted.
+ * <p>
+ * Hits take no lock: entries are looked up in a concurrent map, and each hit is recorded in a small
+ * lossy buffer of recent reads instead of reordering the recency list. Whoever holds the lock next,
+ * to store or invalidate entries, or a hit that finds it free now and then, replays the buffer into the
+ * recency list. Reads that overwrite each other in the buffer are lost, so the eviction order is only
+ * approximately least recently used.
+ * <p>
+ * Entries are only served once the cache has processed the invalidations of the version readers see,
+ * and a response is only stored if no invalidation after the version it was computed from has been
+ * processed, so a stale response is never stored or served.
+ */
+@Service
+public class ResponseCache implements DataStore.ChangeListener {
+
+    private final DataStore dataStore;
+    private final int maxEntries;
+    /** Slots of the buffer of recent reads, a power of two. */
+    private static final int READ_BUFFER_SIZE = 1024;
+    /** One hit in this many, plus one, tries to replay the buffer of recent reads. */
+    private static final int DRAIN_MASK = 63;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Object> entries = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Key> recentReads = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    // Guarded by lock: the keys of entries, least recently used first, and the keys by tag
+    private final LinkedHashMap<Key, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByTag = new HashMap<>();
+    private volatile long appliedVersion;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Key(String endpoint, List<String> tags) { }
+
+    /**
+     * @param dataStore store the responses are computed from
+     * @param maxEntries maximum number of cached responses, 0 to disable caching
+     */
+    @Autowired
+    public ResponseCache(DataStore dataStore, @Value("${safetynet.cache.max-entries:10000}") int maxEntries) {
+        this.dataStore = dataStore;
+        this.maxEntries = maxEntries;
+        if (maxEntries > 0) {
+            appliedVersion = dataStore.addChangeListener(this);
+        }
+    }
+
+    /**
+     * Returns the cached response for an endpoint and tags, computing it from the current snapshot on a miss.
+     * The response is shared between requests and must not be modified.
+     * @param endpoint endpoint name
+     * @param tags tags of the data the response is computed from, as made by {@link DataVersions}
+     * @param compute computes the response from a snapshot
+     * @param <T> response type
+     * @return the response
+     */
+    public <T> T get(String endpoint, List<String> tags, Function<DataSnapshot, T> compute) {
+        return get(endpoint, data -> tags, compute);
+    }
+
+    /**
+     * Returns the cached response for an endpoint and tags chosen from the data, for responses whose
+     * dependencies vary with it: the tags are chosen from the same snapshot the response is computed from.
+     * @param endpoint endpoint name
+     * @param tags chooses the tags of the data the response is computed from, as made by {@link DataVersions}
+     * @param compute computes the response from a snapshot
+     * @param <T> response type
+     * @return the response
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Function<DataSnapshot, List<String>> tags, Function<DataSnapshot, T> compute) {
+        DataSnapshot data = dataStore.snapshot();
+        if (maxEntries <= 0) {
+            return compute.apply(data);
+        }
+        Key key = new Key(endpoint, tags.apply(data));
+        long version = data.getVersion();
+        Object cached = appliedVersion >= version ? entries.get(key) : null;
+        if (cached != null) {
+            hits.increment();
+            recordRead(key);
+            return (T) cached;
+        }
+        misses.increment();
+        T response = compute.apply(data);
+        lock.lock();
+        try {
+            if (version >= appliedVersion) {
+                put(key, response);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return response;
+    }
+
+    /** Records a hit in a random slot of the buffer of recent reads, and now and then replays the buffer. */
+    private void recordRead(Key key) {
+        int random = ThreadLocalRandom.current().nextInt();
+        recentReads.lazySet(random & (READ_BUFFER_SIZE - 1), key);
+        if ((random >>> 16 & DRAIN_MASK) == 0 && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Moves the recently read keys to the most recently used end; called with the lock held. */
+    private void drainReads() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Key read = recentReads.getAndSet(i, null);
+            if (read != null) {
+                recency.get(read); // reorders the key if it is still cached
+            }
+        }
+    }
+
+    private void put(Key key, Object response) {
+        if (entries.put(key, response) == null) {
+            recency.put(key, Boolean.TRUE);
+            for (String tag : key.tags()) {
+                keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+            }
+        }
+        if (entries.size() > maxEntries) {
+            drainReads();
+            while (entries.size() > maxEntries) {
+                remove(recency.keySet().iterator().next());
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        entries.remove(key);
+        recency.remove(key);
+        for (String tag : key.tags()) {
+            Set<Key> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dataChanged(DataChange change) {
+        lock.lock();
+        try {
+            if (change.everything()) {
+                invalidations.add(entries.size());
+                entries.clear();
+                recency.clear();
+                keysByTag.clear();
+            } else {
+                invalidate(change.addresses(), DataVersions::address);
+                invalidate(change.stations(), DataVersions::station);
+                invalidate(change.cities(), DataVersions::city);
+                invalidate(change.lastNames(), DataVersions::lastName);
+                if (!change.lastNames().isEmpty()) {
+                    invalidate(Set.of(DataVersions.lastNames()), Function.identity());
+                }
+                if (change.locations()) {
+                    invalidate(Set.of(DataVersions.locations()), Function.identity());
+                }
+            }
+            appliedVersion = change.version();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate(Set<String> keys, Function<String, String> tag) {
+        for (String key : keys) {
+            Set<Key> tagged = keysByTag.get(tag.apply(key));
+            if (tagged != null) {
+                for (Key entry : List.copyOf(tagged)) {
+                    remove(entry);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    // ----------------- Statistics -----------------
+
+    /** @return number of requests answered from the cache */
+    public long getHits() { return hits.sum(); }
+
+    /** @return number of requests computed, because not cached or not yet invalidated */
+    public long getMisses() { return misses.sum(); }
+
+    /** @return number of entries evicted to stay within the maximum size */
+    public long getEvictions() { return evictions.sum(); }
+
+    /** @return number of entries evicted because the data they were computed from changed */
+    public long getInvalidations() { return invalidations.sum(); }
+
+    /** @return number of cached responses */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Age helpers: parsing a birthdate when a record is set, the daily rollover that refreshes the
+ * cached ages of the residents whose birthday it is, and classifying a household into children
+ * and adults from the cached ages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AgeBenchmark {
+
+    @Param({"50", "1000", "100000", "1000000"})
+    public int persons;
+
+    private BenchmarkData data;
+    private DataStore dataStore;
+    private LocalDate day;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        dataStore = data.load();
+        day = dataStore.getAgeReferenceDay();
+    }
+
+    @Benchmark
+    public long parseBirthdate() {
+        MedicalRecord record = new MedicalRecord();
+        record.setBirthdate(data.medicalRecords.get(Math.floorMod(next++, data.medicalRecords.size())).getBirthdate());
+        return record.getBirthEpochDay();
+    }
+
+    @Benchmark
+    public int rollAgesOneDay() {
+        day = day.plusDays(1);
+        return dataStore.rollAgesTo(day);
+    }
+
+    @Benchmark
+    public int countChildrenAtAddress() {
+        int children = 0;
+        for (Resident resident : dataStore.getResidentsAtAddress(data.addresses[Math.floorMod(next++, data.addresses.length)])) {
+            if (resident.isChild()) {
+                children++;
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,87 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.controller.AlertController;
+import com.safetynet.alerts.model.response.*;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.ResponseCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read endpoints of {@link AlertController}, called directly on the controller (no HTTP) for
+ * datasets of 50 to 1,000,000 persons. Each invocation queries the next key of the dataset,
+ * so results average over small and large households, stations and cities.
+ * No request is passed, so no ETag is computed. The response cache is off by default; compare with {@code -p cacheEntries=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AlertControllerBenchmark {
+
+    @Param({"50", "1000", "100000", "1000000"})
+    public int persons;
+
+    @Param({"0"})
+    public int cacheEntries;
+
+    private BenchmarkData data;
+    private AlertController controller;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String next(String[] keys) {
+            return keys[Math.floorMod(next++, keys.length)];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        DataStore dataStore = data.load();
+        controller = new AlertController(dataStore, new ResponseCache(dataStore, cacheEntries));
+    }
+
+    @Benchmark
+    public List<String> getEmails(Cursor cursor) {
+        return controller.getEmails(cursor.next(data.cities), null);
+    }
+
+    @Benchmark
+    public List<String> getPhones(Cursor cursor) {
+        return controller.getPhones(cursor.next(data.stations), null);
+    }
+
+    @Benchmark
+    public ChildAlertResponse getChildren(Cursor cursor) {
+        return controller.getChildren(cursor.next(data.addresses), null);
+    }
+
+    @Benchmark
+    public StationCoverage getPeopleByStation(Cursor cursor) {
+        return controller.getPeopleByStation(cursor.next(data.stations), null);
+    }
+
+    @Benchmark
+    public FireResponse getFireInfo(Cursor cursor) {
+        return controller.getFireInfo(cursor.next(data.addresses), null);
+    }
+
+    @Benchmark
+    public Map<String, FloodHousehold> getFloodInfo(Cursor cursor) {
+        return controller.getFloodInfo(List.of(cursor.next(data.stations), cursor.next(data.stations)), null);
+    }
+
+    @Benchmark
+    public List<PersonInfo> getPersonInfo(Cursor cursor) {
+        return controller.getPersonInfo(cursor.next(data.lastNames), null);
+    }
+}
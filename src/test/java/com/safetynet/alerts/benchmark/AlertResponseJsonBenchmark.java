@@ -0,0 +1,73 @@
+package com.safetynet.alerts.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.controller.AlertController;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident-level AlertController responses built and serialised to JSON bytes, as a request pays
+ * for them without the response cache. Complements {@link AlertControllerBenchmark}, which stops
+ * at the response objects; compare allocation with the GC profiler's {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AlertResponseJsonBenchmark {
+
+    @Param({"1000", "100000"})
+    public int persons;
+
+    private BenchmarkData data;
+    private AlertController controller;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        controller = new AlertController(data.load());
+    }
+
+    private String next(String[] keys) {
+        return keys[Math.floorMod(next++, keys.length)];
+    }
+
+    @Benchmark
+    public byte[] childAlert() throws Exception {
+        return mapper.writeValueAsBytes(controller.getChildren(next(data.addresses), null));
+    }
+
+    @Benchmark
+    public byte[] firestation() throws Exception {
+        return mapper.writeValueAsBytes(controller.getPeopleByStation(next(data.stations), null));
+    }
+
+    @Benchmark
+    public byte[] fire() throws Exception {
+        return mapper.writeValueAsBytes(controller.getFireInfo(next(data.addresses), null));
+    }
+
+    @Benchmark
+    public byte[] flood() throws Exception {
+        return mapper.writeValueAsBytes(controller.getFloodInfo(List.of(next(data.stations)), null));
+    }
+
+    /** The same households streamed as NDJSON; the bytes are discarded as a socket would take them. */
+    @Benchmark
+    public void floodNdjson() throws Exception {
+        controller.streamFloodInfo(List.of(next(data.stations)), null).getBody().writeTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] personInfo() throws Exception {
+        return mapper.writeValueAsBytes(controller.getPersonInfo(next(data.lastNames), null));
+    }
+}
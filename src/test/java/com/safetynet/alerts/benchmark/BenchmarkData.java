@@ -0,0 +1,80 @@
+package com.safetynet.alerts.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic datasets for the benchmarks, held in memory.
+ * They are produced by {@link DatasetGenerator} with its default settings, so a given size always gives
+ * the same data. The key arrays hold values to query with, cycled through by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    public final List<Person> persons;
+    public final List<Firestation> firestations;
+    public final List<MedicalRecord> medicalRecords;
+    public final String[] addresses;
+    public final String[] cities;
+    public final String[] stations;
+    public final String[] lastNames;
+
+    private BenchmarkData(DatasetGenerator generator) {
+        persons = new ArrayList<>();
+        firestations = new ArrayList<>();
+        medicalRecords = new ArrayList<>();
+        generator.generate(persons::add, firestations::add, medicalRecords::add);
+        addresses = firestations.stream().map(Firestation::getAddress).toArray(String[]::new);
+        lastNames = new String[addresses.length];
+        for (int household = 0; household < lastNames.length; household++) {
+            lastNames[household] = generator.lastName(household);
+        }
+        cities = new String[generator.cities()];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = generator.city(i);
+        }
+        stations = new String[generator.stations()];
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = String.valueOf(i + 1);
+        }
+    }
+
+    /**
+     * Generates a dataset.
+     * @param personCount number of persons
+     * @return the dataset, the same for the same size
+     */
+    public static BenchmarkData generate(int personCount) {
+        return new BenchmarkData(DatasetGenerator.builder().persons(personCount).build());
+    }
+
+    /**
+     * Generates a dataset with custom settings.
+     * @param generator generator to take the dataset from
+     * @return the dataset
+     */
+    public static BenchmarkData generate(DatasetGenerator generator) {
+        return new BenchmarkData(generator);
+    }
+
+    /** @return a new data store holding this dataset */
+    public DataStore load() {
+        DataStore dataStore = new DataStore();
+        dataStore.load(persons, firestations, medicalRecords);
+        return dataStore;
+    }
+
+    /**
+     * Raises the log level to WARN, so that benchmarks measure the code rather than console output
+     * (outside Spring, logback would log every request at DEBUG).
+     */
+    public static void quietLogging() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
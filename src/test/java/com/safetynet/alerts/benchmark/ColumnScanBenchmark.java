@@ -0,0 +1,126 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.benchmark.ResidentColumns.AgeBracket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans of the residents of a snapshot, walking its lists of objects ({@code objects*}) or its
+ * integer-coded columns ({@code columns*}): the e-mail addresses of a city, the residents of each age
+ * bracket covered by a station, and the children of a city covered by a station, which no single
+ * index answers. {@code cityIndex} answers the first query from the city index, for reference.
+ * Both walk the residents in the order of the snapshot's persons; the object scans look stations up in a
+ * map by address, as a scan without the columns would. Columns are built in the setup, once per snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ColumnScanBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int persons;
+
+    private BenchmarkData data;
+    private DataSnapshot snapshot;
+    private List<Resident> residents;
+    private Map<String, String> stationByAddress;
+    private ResidentColumns columns;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        snapshot = data.load().snapshot();
+        columns = new ResidentColumns(snapshot);
+        residents = columns.select(null, null, null);
+        stationByAddress = new HashMap<>();
+        for (String address : data.addresses) {
+            stationByAddress.put(address, snapshot.getStationForAddress(address).orElse(null));
+        }
+    }
+
+    private String city() {
+        return data.cities[Math.floorMod(next, data.cities.length)];
+    }
+
+    private String station() {
+        return data.stations[Math.floorMod(next++, data.stations.length)];
+    }
+
+    @Benchmark
+    public List<String> objectsEmailsInCity() {
+        String city = city();
+        next++;
+        Set<String> emails = new LinkedHashSet<>();
+        for (Resident resident : residents) {
+            if (city.equalsIgnoreCase(resident.person().getCity())) {
+                emails.add(resident.person().getEmail());
+            }
+        }
+        return new ArrayList<>(emails);
+    }
+
+    @Benchmark
+    public List<String> columnsEmailsInCity() {
+        String city = city();
+        next++;
+        return columns.emailsInCity(city);
+    }
+
+    @Benchmark
+    public List<String> cityIndexEmailsInCity() {
+        String city = city();
+        next++;
+        Set<String> emails = new LinkedHashSet<>();
+        for (Resident resident : snapshot.getResidentsByCity(city)) {
+            emails.add(resident.person().getEmail());
+        }
+        return new ArrayList<>(emails);
+    }
+
+    @Benchmark
+    public int[] objectsCountByAgeBracket() {
+        String station = station();
+        int[] counts = new int[AgeBracket.values().length];
+        for (Resident resident : residents) {
+            if (station.equals(stationByAddress.get(resident.person().getAddress()))) {
+                counts[AgeBracket.of(resident.age()).ordinal()]++;
+            }
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public int[] columnsCountByAgeBracket() {
+        return columns.countByAgeBracket(station());
+    }
+
+    @Benchmark
+    public int objectsCountChildrenInCityAndStation() {
+        String city = city();
+        String station = station();
+        int count = 0;
+        for (Resident resident : residents) {
+            if (resident.age() >= 0 && resident.isChild()
+                    && city.equalsIgnoreCase(resident.person().getCity())
+                    && station.equals(stationByAddress.get(resident.person().getAddress()))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int columnsCountChildrenInCityAndStation() {
+        String city = city();
+        return columns.count(city, station(), AgeBracket.CHILD);
+    }
+}
@@ -0,0 +1,155 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.controller.FirestationController;
+import com.safetynet.alerts.controller.MedicalRecordController;
+import com.safetynet.alerts.controller.PersonController;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.request.BatchOperation;
+import com.safetynet.alerts.model.response.BatchResult;
+import com.safetynet.alerts.repository.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write paths of the Person, Firestation and MedicalRecord controllers, called directly.
+ * Adds are paired with the matching delete so the dataset keeps its size across iterations;
+ * updates rewrite an existing record with alternating values. The batch variants send {@value #BATCH}
+ * of the same updates to the batch endpoints and score per record, to compare with single-item calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CrudControllerBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"50", "1000", "100000", "1000000"})
+    public int persons;
+
+    private BenchmarkData data;
+    private PersonController personController;
+    private FirestationController firestationController;
+    private MedicalRecordController medicalRecordController;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        DataStore dataStore = data.load();
+        personController = new PersonController(dataStore);
+        firestationController = new FirestationController(dataStore);
+        medicalRecordController = new MedicalRecordController(dataStore);
+    }
+
+    @Benchmark
+    public String addAndDeletePerson() {
+        Person template = data.persons.get(Math.floorMod(next++, data.persons.size()));
+        Person person = copy(template, "Visitor");
+        personController.addPerson(person);
+        return personController.deletePerson(person.getFirstName(), person.getLastName());
+    }
+
+    @Benchmark
+    public String updatePerson() {
+        int i = next++;
+        Person person = copy(data.persons.get(Math.floorMod(i, data.persons.size())), null);
+        person.setPhone(i % 2 == 0 ? "841-874-0000" : "841-874-9999");
+        return personController.updatePerson(person);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BatchResult> updatePersonsInBatch() {
+        List<BatchOperation<Person>> operations = new ArrayList<>(BATCH);
+        for (int n = 0; n < BATCH; n++) {
+            int i = next++;
+            Person person = copy(data.persons.get(Math.floorMod(i, data.persons.size())), null);
+            person.setPhone(i % 2 == 0 ? "841-874-0000" : "841-874-9999");
+            operations.add(new BatchOperation<>(BatchOperation.Action.UPDATE, person));
+        }
+        return personController.applyBatch(operations);
+    }
+
+    @Benchmark
+    public String addAndDeleteFirestation() {
+        Firestation firestation = new Firestation();
+        firestation.setAddress("Temporary " + next++);
+        firestation.setStation(data.stations[Math.floorMod(next, data.stations.length)]);
+        firestationController.addFirestation(firestation);
+        return firestationController.deleteFirestation(firestation.getAddress());
+    }
+
+    @Benchmark
+    public String updateFirestation() {
+        int i = next++;
+        Firestation firestation = new Firestation();
+        firestation.setAddress(data.addresses[Math.floorMod(i, data.addresses.length)]);
+        firestation.setStation(data.stations[Math.floorMod(i, data.stations.length)]);
+        return firestationController.updateFirestation(firestation);
+    }
+
+    @Benchmark
+    public String addAndDeleteMedicalRecord() {
+        MedicalRecord template = data.medicalRecords.get(Math.floorMod(next++, data.medicalRecords.size()));
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName("Visitor");
+        record.setLastName(template.getLastName());
+        record.setBirthdate(template.getBirthdate());
+        record.setMedications(template.getMedications());
+        record.setAllergies(template.getAllergies());
+        medicalRecordController.addMedicalRecord(record);
+        return medicalRecordController.deleteMedicalRecord(record.getFirstName(), record.getLastName());
+    }
+
+    @Benchmark
+    public String updateMedicalRecord() {
+        int i = next++;
+        MedicalRecord template = data.medicalRecords.get(Math.floorMod(i, data.medicalRecords.size()));
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(template.getFirstName());
+        record.setLastName(template.getLastName());
+        record.setBirthdate(template.getBirthdate());
+        record.setMedications(i % 2 == 0 ? List.of() : List.of("aznol:350mg"));
+        record.setAllergies(template.getAllergies());
+        return medicalRecordController.updateMedicalRecord(record);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BatchResult> updateMedicalRecordsInBatch() {
+        List<BatchOperation<MedicalRecord>> operations = new ArrayList<>(BATCH);
+        for (int n = 0; n < BATCH; n++) {
+            int i = next++;
+            MedicalRecord template = data.medicalRecords.get(Math.floorMod(i, data.medicalRecords.size()));
+            MedicalRecord record = new MedicalRecord();
+            record.setFirstName(template.getFirstName());
+            record.setLastName(template.getLastName());
+            record.setBirthdate(template.getBirthdate());
+            record.setMedications(i % 2 == 0 ? List.of() : List.of("aznol:350mg"));
+            record.setAllergies(template.getAllergies());
+            operations.add(new BatchOperation<>(BatchOperation.Action.UPDATE, record));
+        }
+        return medicalRecordController.applyBatch(operations);
+    }
+
+    private static Person copy(Person template, String firstName) {
+        Person person = new Person();
+        person.setFirstName(firstName != null ? firstName : template.getFirstName());
+        person.setLastName(template.getLastName());
+        person.setAddress(template.getAddress());
+        person.setCity(template.getCity());
+        person.setZip(template.getZip());
+        person.setPhone(template.getPhone());
+        person.setEmail(template.getEmail());
+        return person;
+    }
+}
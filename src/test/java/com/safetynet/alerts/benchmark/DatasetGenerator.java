@@ -0,0 +1,493 @@
+package com.safetynet.alerts.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Deterministic generator of synthetic SafetyNet datasets in the schema of {@code safetynet.json},
+ * for benchmarks and load tests at sizes the bundled file cannot reach (10k to 10M persons).
+ * <p>
+ * The dataset is a sequence of households. Each household lives at its own address, mapped to one
+ * station and one city, and shares a last name; its members, ages, medications and allergies are
+ * drawn from a random generator seeded by the household number alone. Any section can therefore
+ * be produced on its own, household by household, with the same content: {@link #generate} and
+ * {@link #writeJson} stream the persons, then the firestations, then the medical records without
+ * ever holding more than one household in memory. The same settings always produce the same data.
+ * <p>
+ * Run from the command line with {@code key=value} arguments, for example
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.safetynet.alerts.benchmark.DatasetGenerator
+ * -Dbenchmark.args="persons=1000000 out=target/data/safetynet-1m.json"}; see {@link Builder} for the settings.
+ */
+public final class DatasetGenerator {
+
+    private static final DateTimeFormatter BIRTHDATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final String[] FIRST_NAMES = {"John", "Jacob", "Tenley", "Roger", "Felicia", "Jonanathan",
+            "Tessa", "Peter", "Foster", "Tony", "Lily", "Sophia", "Warren", "Zach", "Reginold", "Jamie", "Ron",
+            "Allison", "Brian", "Shawna", "Kendrik", "Clive", "Eric", "Emma", "Liam", "Olivia", "Noah", "Ava",
+            "Elijah", "Mia", "Lucas", "Amelia", "Mason", "Harper", "Ethan", "Evelyn", "Logan", "Abigail", "James",
+            "Ella", "Aiden", "Scarlett", "Henry", "Grace", "Owen", "Chloe", "Caleb", "Nora", "Isaac", "Hazel"};
+    private static final String[] LAST_NAMES = {"Boyd", "Marrack", "Carman", "Duncan", "Peters", "Walker",
+            "Shepard", "Cooper", "Zemicks", "Ferguson", "Stelzer", "Cadigan", "Smith", "Johnson", "Brown", "Garcia",
+            "Miller", "Davis", "Lopez", "Wilson", "Moore", "Taylor", "Thomas", "Martin", "Lee", "Harris", "Clark",
+            "Lewis", "Young", "King", "Wright", "Hill", "Green", "Adams", "Baker", "Nelson", "Carter", "Mitchell",
+            "Roberts", "Turner", "Phillips", "Parker", "Evans", "Edwards", "Collins", "Stewart", "Morris", "Reed"};
+    private static final String[] STREETS = {"Culver St", "15th St", "Binoc Ave", "Gershwin Cir", "Bryant St",
+            "Ch Lane", "Elm St", "Oak Ave", "Maple Dr", "Pine Rd", "Cedar Ln", "Birch Way", "Lakeview Blvd",
+            "Hillcrest Rd", "Park Pl", "River Rd", "Sunset Ave", "Highland Dr", "Meadow Ln", "Forest Ct"};
+    private static final String[] SYLLABLES = {"az", "hy", "no", "pha", "te", "do", "xi", "ra", "ce", "lo",
+            "mi", "zol", "ta", "pe", "ni", "ma", "ri", "ve", "co", "du"};
+    private static final String[] DRUG_SUFFIXES = {"nol", "zol", "cin", "pam", "xin", "dine", "mab", "stat"};
+    private static final String[] DOSES = {"5mg", "10mg", "30mg", "100mg", "250mg", "350mg", "500mg", "650mg"};
+
+    private final int persons;
+    private final long seed;
+    private final double[] householdSizeCumulative;
+    private final int stations;
+    private final int cities;
+    private final double childShare;
+    private final double seniorShare;
+    private final double memberChildShare;
+    private final int medicationNames;
+    private final int maxMedications;
+    private final int allergyNames;
+    private final int maxAllergies;
+    private final LocalDate referenceDay;
+
+    private DatasetGenerator(Builder builder) {
+        if (builder.persons < 0) {
+            throw new IllegalArgumentException("persons must not be negative");
+        }
+        if (builder.householdSizes.length == 0 || builder.householdSizes.length > FIRST_NAMES.length) {
+            throw new IllegalArgumentException("household sizes must range from 1 to at most " + FIRST_NAMES.length);
+        }
+        if (builder.stations < 1 || builder.cities < 1 || builder.medicationNames < 1 || builder.allergyNames < 1) {
+            throw new IllegalArgumentException("stations, cities and vocabularies must not be empty");
+        }
+        if (builder.childShare < 0 || builder.seniorShare < 0 || builder.childShare + builder.seniorShare > 1) {
+            throw new IllegalArgumentException("child and senior shares must add up to at most 1");
+        }
+        this.persons = builder.persons;
+        this.seed = builder.seed;
+        this.stations = builder.stations;
+        this.cities = builder.cities;
+        this.childShare = builder.childShare;
+        this.seniorShare = builder.seniorShare;
+        this.medicationNames = builder.medicationNames;
+        this.maxMedications = builder.maxMedications;
+        this.allergyNames = builder.allergyNames;
+        this.maxAllergies = builder.maxAllergies;
+        this.referenceDay = builder.referenceDay;
+
+        double total = Arrays.stream(builder.householdSizes).sum();
+        householdSizeCumulative = new double[builder.householdSizes.length];
+        double cumulative = 0;
+        double expectedSize = 0;
+        for (int i = 0; i < builder.householdSizes.length; i++) {
+            cumulative += builder.householdSizes[i] / total;
+            expectedSize += (i + 1) * builder.householdSizes[i] / total;
+            householdSizeCumulative[i] = cumulative;
+        }
+        // The first member of a household is never a child; the others make up for it.
+        memberChildShare = expectedSize <= 1 ? 0 : Math.min(1, childShare * expectedSize / (expectedSize - 1));
+    }
+
+    /** @return a builder with the default settings */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Settings of the generator. The defaults give 10,000 persons in households of 1 to 6
+     * (28%, 35%, 15%, 13%, 6%, 3%), one station per 5,000 persons (at least 3), one city per
+     * 20,000 persons, 22% children and 17% seniors, up to 4 medications out of 200 and up to
+     * 3 allergies out of 50 per record.
+     */
+    public static final class Builder {
+        private int persons = 10_000;
+        private long seed = 42;
+        private double[] householdSizes = {28, 35, 15, 13, 6, 3};
+        private Integer stations;
+        private Integer cities;
+        private double childShare = 0.22;
+        private double seniorShare = 0.17;
+        private int medicationNames = 200;
+        private int maxMedications = 4;
+        private int allergyNames = 50;
+        private int maxAllergies = 3;
+        private LocalDate referenceDay = LocalDate.of(2025, 1, 1);
+
+        private Builder() {
+        }
+
+        /** @param persons number of persons to generate */
+        public Builder persons(int persons) { this.persons = persons; return this; }
+
+        /** @param seed random seed; the same seed gives the same dataset */
+        public Builder seed(long seed) { this.seed = seed; return this; }
+
+        /** @param weights relative frequency of households of 1, 2, 3... persons */
+        public Builder householdSizes(double... weights) { this.householdSizes = weights.clone(); return this; }
+
+        /** @param stations number of fire stations, numbered from 1 */
+        public Builder stations(int stations) { this.stations = stations; return this; }
+
+        /** @param cities number of cities */
+        public Builder cities(int cities) { this.cities = cities; return this; }
+
+        /** @param childShare share of persons aged 18 or less */
+        public Builder childShare(double childShare) { this.childShare = childShare; return this; }
+
+        /** @param seniorShare share of persons aged 65 or more */
+        public Builder seniorShare(double seniorShare) { this.seniorShare = seniorShare; return this; }
+
+        /**
+         * @param names number of distinct medication names
+         * @param maxPerRecord maximum number of medications of a record
+         */
+        public Builder medications(int names, int maxPerRecord) {
+            this.medicationNames = names;
+            this.maxMedications = maxPerRecord;
+            return this;
+        }
+
+        /**
+         * @param names number of distinct allergies
+         * @param maxPerRecord maximum number of allergies of a record
+         */
+        public Builder allergies(int names, int maxPerRecord) {
+            this.allergyNames = names;
+            this.maxAllergies = maxPerRecord;
+            return this;
+        }
+
+        /** @param referenceDay day the age mix is computed for */
+        public Builder referenceDay(LocalDate referenceDay) { this.referenceDay = referenceDay; return this; }
+
+        public DatasetGenerator build() {
+            if (stations == null) {
+                stations = Math.max(3, persons / 5000);
+            }
+            if (cities == null) {
+                cities = Math.max(1, persons / 20_000);
+            }
+            return new DatasetGenerator(this);
+        }
+    }
+
+    // ----------------- Households -----------------
+
+    private record Member(String firstName, LocalDate birthdate, List<String> medications, List<String> allergies) { }
+
+    private record Household(int number, String lastName, String address, int city, String station, List<Member> members) { }
+
+    /** @return number of households the persons are spread over */
+    public int households() {
+        int households = 0;
+        for (int generated = 0; generated < persons; households++) {
+            generated += householdSize(random(households));
+        }
+        return households;
+    }
+
+    /** @return last name shared by the members of a household */
+    public String lastName(int household) {
+        String name = LAST_NAMES[household % LAST_NAMES.length];
+        int round = household / LAST_NAMES.length;
+        return round == 0 ? name : name + "-" + Integer.toString(round, 36).toUpperCase();
+    }
+
+    /** @return address of a household, unique to it */
+    public String address(int household) {
+        return (household / STREETS.length + 1) + " " + STREETS[household % STREETS.length];
+    }
+
+    /** @return station number a household's address is mapped to */
+    public String station(int household) {
+        return String.valueOf(household % stations + 1);
+    }
+
+    /** @return name of a city, by index from 0 */
+    public String city(int index) {
+        return index == 0 ? "Culver" : "Culver" + (index + 1);
+    }
+
+    /** @return number of stations */
+    public int stations() {
+        return stations;
+    }
+
+    /** @return number of cities */
+    public int cities() {
+        return cities;
+    }
+
+    private SplittableRandom random(int household) {
+        return new SplittableRandom(seed ^ (household + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    private int householdSize(SplittableRandom random) {
+        double draw = random.nextDouble();
+        for (int i = 0; i < householdSizeCumulative.length - 1; i++) {
+            if (draw < householdSizeCumulative[i]) {
+                return i + 1;
+            }
+        }
+        return householdSizeCumulative.length;
+    }
+
+    private Household household(int number, int remaining) {
+        SplittableRandom random = random(number);
+        int size = Math.min(householdSize(random), remaining);
+        int firstName = random.nextInt(FIRST_NAMES.length);
+        List<Member> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int age = age(random, i == 0);
+            LocalDate birthdate = referenceDay.minusYears(age).minusDays(1 + random.nextInt(364));
+            members.add(new Member(FIRST_NAMES[(firstName + i) % FIRST_NAMES.length], birthdate,
+                    pick(random, maxMedications, medicationNames, this::medication),
+                    pick(random, maxAllergies, allergyNames, this::allergy)));
+        }
+        return new Household(number, lastName(number), address(number), number % cities, station(number), members);
+    }
+
+    private int age(SplittableRandom random, boolean headOfHousehold) {
+        double draw = random.nextDouble();
+        if (headOfHousehold) {
+            return draw < seniorShare / (1 - childShare) ? 65 + random.nextInt(30) : 19 + random.nextInt(46);
+        }
+        if (draw < memberChildShare) {
+            return random.nextInt(19);
+        }
+        return random.nextDouble() < seniorShare / (1 - childShare) ? 65 + random.nextInt(30) : 19 + random.nextInt(46);
+    }
+
+    private interface Vocabulary {
+        String word(int index);
+    }
+
+    private static List<String> pick(SplittableRandom random, int max, int names, Vocabulary vocabulary) {
+        int count = random.nextInt(max + 1);
+        List<String> picked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            picked.add(vocabulary.word(random.nextInt(names)));
+        }
+        return picked;
+    }
+
+    private String medication(int index) {
+        return word(index) + DRUG_SUFFIXES[index % DRUG_SUFFIXES.length] + ":" + DOSES[index / 7 % DOSES.length];
+    }
+
+    private String allergy(int index) {
+        return word(index) + "llin";
+    }
+
+    /** Pronounceable, unique word for an index: its base-20 digits mapped to syllables. */
+    private static String word(int index) {
+        StringBuilder word = new StringBuilder();
+        int rest = index;
+        do {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0);
+        return word.toString();
+    }
+
+    private interface HouseholdVisitor {
+        void visit(Household household) throws IOException;
+    }
+
+    private void forEachHousehold(HouseholdVisitor visitor) throws IOException {
+        int generated = 0;
+        for (int number = 0; generated < persons; number++) {
+            Household household = household(number, persons - generated);
+            generated += household.members().size();
+            visitor.visit(household);
+        }
+    }
+
+    // ----------------- Output -----------------
+
+    /**
+     * Streams the dataset: every person, then every firestation mapping, then every medical record.
+     * @param persons receives the persons
+     * @param firestations receives the firestation mappings, one per household address
+     * @param medicalRecords receives the medical records, one per person
+     */
+    public void generate(Consumer<Person> persons, Consumer<Firestation> firestations,
+                         Consumer<MedicalRecord> medicalRecords) {
+        try {
+            forEachHousehold(household -> household.members().forEach(member -> persons.accept(person(household, member))));
+            forEachHousehold(household -> firestations.accept(firestation(household)));
+            forEachHousehold(household -> household.members()
+                    .forEach(member -> medicalRecords.accept(medicalRecord(household, member))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the dataset as JSON in the schema of {@code safetynet.json}.
+     * @param out stream to write to, left open
+     * @throws IOException if the stream fails
+     */
+    public void writeJson(OutputStream out) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeArrayFieldStart("persons");
+            forEachHousehold(household -> {
+                for (Member member : household.members()) {
+                    Person person = person(household, member);
+                    json.writeStartObject();
+                    json.writeStringField("firstName", person.getFirstName());
+                    json.writeStringField("lastName", person.getLastName());
+                    json.writeStringField("address", person.getAddress());
+                    json.writeStringField("city", person.getCity());
+                    json.writeStringField("zip", person.getZip());
+                    json.writeStringField("phone", person.getPhone());
+                    json.writeStringField("email", person.getEmail());
+                    json.writeEndObject();
+                }
+            });
+            json.writeEndArray();
+            json.writeArrayFieldStart("firestations");
+            forEachHousehold(household -> {
+                json.writeStartObject();
+                json.writeStringField("address", household.address());
+                json.writeStringField("station", household.station());
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+            json.writeArrayFieldStart("medicalrecords");
+            forEachHousehold(household -> {
+                for (Member member : household.members()) {
+                    json.writeStartObject();
+                    json.writeStringField("firstName", member.firstName());
+                    json.writeStringField("lastName", household.lastName());
+                    json.writeStringField("birthdate", member.birthdate().format(BIRTHDATE_FORMAT));
+                    writeStrings(json, "medications", member.medications());
+                    writeStrings(json, "allergies", member.allergies());
+                    json.writeEndObject();
+                }
+            });
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the dataset as a JSON file, creating its directory if needed.
+     * @param file file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(absolute), 1 << 16)) {
+            writeJson(out);
+        }
+    }
+
+    private static void writeStrings(JsonGenerator json, String field, List<String> values) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (String value : values) {
+            json.writeString(value);
+        }
+        json.writeEndArray();
+    }
+
+    private Person person(Household household, Member member) {
+        Person person = new Person();
+        person.setFirstName(member.firstName());
+        person.setLastName(household.lastName());
+        person.setAddress(household.address());
+        person.setCity(city(household.city()));
+        person.setZip(String.valueOf(97451 + household.city()));
+        person.setPhone(String.format("841-%03d-%04d", 874 + household.number() / 10_000 % 100, household.number() % 10_000));
+        person.setEmail((member.firstName() + "." + household.lastName()).toLowerCase() + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(Household household) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(household.address());
+        firestation.setStation(household.station());
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(Household household, Member member) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(member.firstName());
+        record.setLastName(household.lastName());
+        record.setBirthdate(member.birthdate().format(BIRTHDATE_FORMAT));
+        record.setMedications(member.medications());
+        record.setAllergies(member.allergies());
+        return record;
+    }
+
+    /**
+     * Writes a dataset file. Arguments are {@code key=value} pairs: {@code out} (required), {@code persons},
+     * {@code seed}, {@code stations}, {@code cities}, {@code households} (comma-separated weights),
+     * {@code children}, {@code seniors}, {@code medications} and {@code allergies} (as {@code names:max}).
+     */
+    public static void main(String[] args) throws IOException {
+        Builder builder = builder();
+        Path out = null;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(0, separator)) {
+                case "out" -> out = Path.of(value);
+                case "persons" -> builder.persons(Integer.parseInt(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                case "stations" -> builder.stations(Integer.parseInt(value));
+                case "cities" -> builder.cities(Integer.parseInt(value));
+                case "households" -> builder.householdSizes(
+                        Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray());
+                case "children" -> builder.childShare(Double.parseDouble(value));
+                case "seniors" -> builder.seniorShare(Double.parseDouble(value));
+                case "medications", "allergies" -> {
+                    String[] parts = value.split(":");
+                    int names = Integer.parseInt(parts[0]);
+                    int max = parts.length > 1 ? Integer.parseInt(parts[1]) : 3;
+                    if (arg.startsWith("medications")) {
+                        builder.medications(names, max);
+                    } else {
+                        builder.allergies(names, max);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown setting: " + arg);
+            }
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("Missing out=<file>");
+        }
+        long start = System.nanoTime();
+        DatasetGenerator generator = builder.build();
+        generator.writeJson(out);
+        System.out.printf("Wrote %d persons in %d households to %s (%d MB) in %d ms%n", generator.persons,
+                generator.households(), out, Files.size(out) >> 20, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,91 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.JsonDataReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetGeneratorTest {
+
+    @Test
+    void testSameSettingsGiveSameJson() throws Exception {
+        assertArrayEquals(json(DatasetGenerator.builder().persons(500).build()),
+                json(DatasetGenerator.builder().persons(500).build()));
+        assertFalse(Arrays.equals(json(DatasetGenerator.builder().persons(500).build()),
+                json(DatasetGenerator.builder().persons(500).seed(7).build())));
+    }
+
+    @Test
+    void testJsonMatchesStreamedDataset() throws Exception {
+        DatasetGenerator generator = DatasetGenerator.builder().persons(2000).build();
+        List<Person> persons = new ArrayList<>();
+        List<Firestation> firestations = new ArrayList<>();
+        List<MedicalRecord> records = new ArrayList<>();
+        generator.generate(persons::add, firestations::add, records::add);
+
+        JsonDataReader.Dataset read = new JsonDataReader().readAll(new ByteArrayResource(json(generator)));
+
+        assertEquals(2000, read.persons().size());
+        assertEquals(2000, read.medicalRecords().size());
+        assertEquals(generator.households(), read.firestations().size());
+        assertEquals(firestations.size(), read.firestations().size());
+        for (int i = 0; i < persons.size(); i++) {
+            assertEquals(persons.get(i).getEmail(), read.persons().get(i).getEmail());
+            assertEquals(persons.get(i).getPhone(), read.persons().get(i).getPhone());
+            assertEquals(records.get(i).getBirthdate(), read.medicalRecords().get(i).getBirthdate());
+            assertEquals(records.get(i).getMedications(), read.medicalRecords().get(i).getMedications());
+        }
+    }
+
+    @Test
+    void testEveryPersonHasAStationAndARecord() {
+        BenchmarkData data = BenchmarkData.generate(DatasetGenerator.builder().persons(3000).stations(4).cities(2).build());
+        DataStore dataStore = data.load();
+
+        Set<String> names = new HashSet<>();
+        for (Person person : data.persons) {
+            assertTrue(names.add(person.getFirstName() + " " + person.getLastName()), "unique names");
+            assertTrue(dataStore.getStationForAddress(person.getAddress()).isPresent());
+            assertNotNull(dataStore.getResidentsByName(person.getFirstName(), person.getLastName()).get(0).medicalRecord());
+        }
+        assertEquals(4, data.stations.length);
+        assertEquals(2, data.cities.length);
+        assertFalse(dataStore.getResidentsByCity(data.cities[1]).isEmpty());
+    }
+
+    @Test
+    void testSettingsShapeTheDataset() {
+        DatasetGenerator generator = DatasetGenerator.builder().persons(20_000)
+                .householdSizes(0, 0, 1).childShare(0.5).seniorShare(0)
+                .medications(3, 2).allergies(1, 1)
+                .referenceDay(LocalDate.of(2025, 1, 1)).build();
+        List<MedicalRecord> records = new ArrayList<>();
+        generator.generate(person -> { }, firestation -> { }, records::add);
+
+        assertEquals((20_000 + 2) / 3, generator.households());
+        long children = records.stream().filter(r -> r.getBirthEpochDay() > LocalDate.of(2006, 1, 1).toEpochDay()).count();
+        assertEquals(0.5, children / 20_000.0, 0.02);
+        assertTrue(records.stream().allMatch(r -> r.getMedications().size() <= 2 && r.getAllergies().size() <= 1));
+        assertEquals(3, records.stream().flatMap(r -> r.getMedications().stream()).distinct().count());
+        assertEquals(1, records.stream().flatMap(r -> r.getAllergies().stream()).distinct().count());
+    }
+
+    private static byte[] json(DatasetGenerator generator) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.writeJson(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,164 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.SafetyNetAlertsApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test of the AlertController endpoints, comparing Tomcat's platform thread pool
+ * with virtual threads ({@code spring.threads.virtual.enabled}). For each mode the application is
+ * started on a random port and a fixed number of clients send requests back to back, cycling
+ * through the endpoints; throughput and latency percentiles are printed per mode.
+ * <p>
+ * Arguments: {@code [clients=1000] [seconds=20] [warmupSeconds=5] [persons=0]}. With a number of persons,
+ * the application serves a {@link DatasetGenerator} dataset of that size, written once to
+ * {@code target/data/}, instead of the bundled data. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.safetynet.alerts.benchmark.EndpointLoadBenchmark
+ * -Dbenchmark.args="1000 20 5 100000"}.
+ */
+public final class EndpointLoadBenchmark {
+
+    private static final List<String> BUNDLED_DATA_ENDPOINTS = List.of(
+            "/firestation?stationNumber=3",
+            "/childAlert?address=1509%20Culver%20St",
+            "/phoneAlert?firestation=1",
+            "/fire?address=1509%20Culver%20St",
+            "/flood/stations?stations=1,2",
+            "/personInfo?lastName=Boyd",
+            "/communityEmail?city=Culver");
+
+    private record Result(String mode, long requests, long errors, double seconds, long[] latenciesNanos) { }
+
+    private EndpointLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Devtools would restart this main method in a new class loader, without its arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int warmupSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int persons = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        List<String> endpoints = BUNDLED_DATA_ENDPOINTS;
+        List<String> properties = new ArrayList<>(List.of("server.port=0",
+                "logging.level.com.safetynet.alerts=WARN",
+                "spring.main.banner-mode=off"));
+        if (persons > 0) {
+            DatasetGenerator generator = DatasetGenerator.builder().persons(persons).build();
+            Path file = Path.of("target", "data", "safetynet-" + persons + ".json");
+            if (!Files.exists(file)) {
+                generator.writeJson(file);
+            }
+            properties.add("safetynet.data.location=" + file.toAbsolutePath().toUri());
+            endpoints = generatedDataEndpoints(generator);
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (boolean virtualThreads : new boolean[] {false, true}) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SafetyNetAlertsApplication.class)
+                    .properties(properties.toArray(String[]::new))
+                    .properties("spring.threads.virtual.enabled=" + virtualThreads)
+                    .run()) {
+                String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                String mode = virtualThreads ? "virtual" : "platform";
+                run(mode, base, endpoints, clients, warmupSeconds);
+                results.add(run(mode, base, endpoints, clients, seconds));
+            }
+        }
+
+        System.out.printf("%n%d clients, %d s per mode, %s, endpoints: %s%n", clients, seconds,
+                persons > 0 ? persons + " generated persons" : "bundled data", endpoints);
+        System.out.printf("%-9s %12s %8s %10s %10s %10s %10s%n", "mode", "requests/s", "errors", "p50 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        for (Result result : results) {
+            long[] latencies = result.latenciesNanos();
+            System.out.printf("%-9s %12.0f %8d %10.2f %10.2f %10.2f %10.2f%n", result.mode(),
+                    result.requests() / result.seconds(), result.errors(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    percentile(latencies, 1.0));
+        }
+    }
+
+    /** The bundled endpoints, queried for keys of the first households of a generated dataset. */
+    private static List<String> generatedDataEndpoints(DatasetGenerator generator) {
+        String address = URLEncoder.encode(generator.address(0), StandardCharsets.UTF_8);
+        String lastName = URLEncoder.encode(generator.lastName(1), StandardCharsets.UTF_8);
+        return List.of(
+                "/firestation?stationNumber=" + generator.station(2),
+                "/childAlert?address=" + address,
+                "/phoneAlert?firestation=" + generator.station(0),
+                "/fire?address=" + address,
+                "/flood/stations?stations=" + generator.station(0) + "," + generator.station(1),
+                "/personInfo?lastName=" + lastName,
+                "/communityEmail?city=" + URLEncoder.encode(generator.city(0), StandardCharsets.UTF_8));
+    }
+
+    private static Result run(String mode, String base, List<String> endpoints, int clients, int seconds)
+            throws Exception {
+        List<URI> uris = endpoints.stream().map(path -> URI.create(base + path)).toList();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        long start = System.nanoTime();
+        List<long[]> perClient = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1).build()) {
+            List<Future<long[]>> workers = new ArrayList<>(clients);
+            for (int c = 0; c < clients; c++) {
+                int offset = c;
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(uris.get(i % uris.size())).GET().build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            for (Future<long[]> worker : workers) {
+                perClient.add(worker.get());
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(mode, all.length, errors.get(), elapsed, all);
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,133 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.NearbyStation;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spatial lookups as {@code /nearby} makes them, each generated address placed at random in a square
+ * of {@code spreadKm} kilometres: the closest stations and the residents within {@value #RADIUS} m of a
+ * random position, through the grid index of the snapshot ({@code nearestStations}, {@code residentsWithin})
+ * or by measuring the distance to every geocoded address ({@code nearestStationsScan},
+ * {@code residentsWithinScan}), with the same projection as the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeoBenchmark {
+
+    private static final double LATITUDE = 33.9;
+    private static final double LONGITUDE = -118.4;
+    private static final double RADIUS = 500;
+    private static final int STATIONS = 3;
+    private static final double METERS_PER_DEGREE = 6_371_008.8 * Math.PI / 180;
+
+    @Param({"100000", "1000000"})
+    public int persons;
+
+    @Param({"10", "50"})
+    public int spreadKm;
+
+    private DataSnapshot snapshot;
+    private List<Geocode> geocodes;
+    private double spreadDegrees;
+    private final Random random = new Random(5);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        BenchmarkData data = BenchmarkData.generate(persons);
+        spreadDegrees = spreadKm * 1000 / METERS_PER_DEGREE;
+        Random placement = new Random(1);
+        geocodes = new ArrayList<>();
+        for (String address : data.addresses) {
+            Geocode geocode = new Geocode();
+            geocode.setAddress(address);
+            geocode.setLatitude(LATITUDE + placement.nextDouble() * spreadDegrees);
+            geocode.setLongitude(LONGITUDE + placement.nextDouble() * spreadDegrees);
+            geocodes.add(geocode);
+        }
+        DataStore dataStore = new DataStore();
+        dataStore.load(data.persons, data.firestations, data.medicalRecords, geocodes);
+        snapshot = dataStore.snapshot();
+    }
+
+    private double latitude() {
+        return LATITUDE + random.nextDouble() * spreadDegrees;
+    }
+
+    private double longitude() {
+        return LONGITUDE + random.nextDouble() * spreadDegrees;
+    }
+
+    @Benchmark
+    public List<NearbyStation> nearestStations() {
+        return snapshot.getNearestStations(latitude(), longitude(), STATIONS, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public List<NearbyStation> nearestStationsScan() {
+        double latitude = latitude();
+        double longitude = longitude();
+        double metersPerLongitudeDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        double[] distances = new double[geocodes.size()];
+        Integer[] order = new Integer[geocodes.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = distance(geocodes.get(i), latitude, longitude, metersPerLongitudeDegree);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+        List<NearbyStation> stations = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < order.length && stations.size() < STATIONS; i++) {
+            String address = geocodes.get(order[i]).getAddress();
+            Optional<String> station = snapshot.getStationForAddress(address);
+            if (station.isPresent() && seen.add(station.get())) {
+                stations.add(new NearbyStation(station.get(), address, distances[order[i]]));
+            }
+        }
+        return stations;
+    }
+
+    @Benchmark
+    public Map<String, List<Resident>> residentsWithin() {
+        return snapshot.getResidentsWithin(latitude(), longitude(), RADIUS);
+    }
+
+    @Benchmark
+    public Map<String, List<Resident>> residentsWithinScan() {
+        double latitude = latitude();
+        double longitude = longitude();
+        double metersPerLongitudeDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        List<Geocode> found = new ArrayList<>();
+        for (Geocode geocode : geocodes) {
+            if (distance(geocode, latitude, longitude, metersPerLongitudeDegree) <= RADIUS) {
+                found.add(geocode);
+            }
+        }
+        found.sort(Comparator.comparingDouble(geocode -> distance(geocode, latitude, longitude, metersPerLongitudeDegree)));
+        Map<String, List<Resident>> households = new LinkedHashMap<>();
+        for (Geocode geocode : found) {
+            List<Resident> residents = snapshot.getResidentsAtAddress(geocode.getAddress());
+            if (!residents.isEmpty()) {
+                households.put(geocode.getAddress(), residents);
+            }
+        }
+        return households;
+    }
+
+    private static double distance(Geocode geocode, double latitude, double longitude, double metersPerLongitudeDegree) {
+        double north = (geocode.getLatitude() - latitude) * METERS_PER_DEGREE;
+        double east = (geocode.getLongitude() - longitude) * metersPerLongitudeDegree;
+        return Math.sqrt(north * north + east * east);
+    }
+}
@@ -0,0 +1,97 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.CanonicalKeys;
+import com.safetynet.alerts.repository.DataSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Residents covered by stations who take a medication or have an allergy, as {@code /hazmat} finds them:
+ * through the inverted indexes of medical terms intersected with station coverage ({@code index}), or by
+ * collecting every covered resident as {@code /flood/stations} does and filtering their medical records
+ * ({@code floodThenFilter}), as clients did before. Each query asks for one medication and one allergy
+ * among those of the dataset, and {@code stationsPerQuery} consecutive stations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HazmatBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int persons;
+
+    @Param({"1", "10"})
+    public int stationsPerQuery;
+
+    private BenchmarkData data;
+    private DataSnapshot snapshot;
+    private String[] medications;
+    private String[] allergies;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        snapshot = data.load().snapshot();
+        Set<String> medicationNames = new TreeSet<>();
+        Set<String> allergyNames = new TreeSet<>();
+        for (MedicalRecord record : data.medicalRecords) {
+            record.getMedications().forEach(medication -> medicationNames.add(CanonicalKeys.medication(medication)));
+            allergyNames.addAll(record.getAllergies());
+        }
+        medications = medicationNames.toArray(String[]::new);
+        allergies = allergyNames.toArray(String[]::new);
+    }
+
+    private List<String> stations() {
+        List<String> stations = new ArrayList<>(stationsPerQuery);
+        for (int i = 0; i < stationsPerQuery; i++) {
+            stations.add(data.stations[Math.floorMod(next + i, data.stations.length)]);
+        }
+        return stations;
+    }
+
+    private String medication() {
+        return medications[Math.floorMod(next * 31, medications.length)];
+    }
+
+    private String allergy() {
+        return allergies[Math.floorMod(next++ * 17, allergies.length)];
+    }
+
+    @Benchmark
+    public Map<String, List<Resident>> index() {
+        List<String> stations = stations();
+        return snapshot.getCoveredResidentsWithMedicalTerms(stations, List.of(medication()), List.of(allergy()));
+    }
+
+    @Benchmark
+    public Map<String, List<Resident>> floodThenFilter() {
+        List<String> stations = stations();
+        String medication = medication();
+        String allergy = allergy();
+        Set<String> addresses = new LinkedHashSet<>();
+        for (String station : stations) {
+            addresses.addAll(snapshot.getAddressesForStation(station));
+        }
+        Map<String, List<Resident>> households = new LinkedHashMap<>();
+        for (String address : addresses) {
+            for (Resident resident : snapshot.getResidentsAtAddress(address)) {
+                MedicalRecord record = resident.medicalRecord();
+                if (record != null && (record.getMedications().stream().anyMatch(m -> medication.equals(CanonicalKeys.medication(m)))
+                        || record.getAllergies().stream().anyMatch(allergy::equalsIgnoreCase))) {
+                    households.computeIfAbsent(address, a -> new ArrayList<>()).add(resident);
+                }
+            }
+        }
+        return households;
+    }
+}
@@ -0,0 +1,65 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.JsonDataReader;
+import org.springframework.core.io.FileSystemResource;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Reports the heap retained by a loaded data store. A {@link DatasetGenerator} dataset is written once
+ * to {@code target/data/} and loaded the way the application loads its data file, so every value is a
+ * String created by Jackson; the live heap is then measured after a full GC, before and after the load,
+ * and the largest classes of the live-object histogram are printed.
+ * <p>
+ * Arguments: {@code [persons=1000000] [histogramLines=15]}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.safetynet.alerts.benchmark.HeapFootprintReport
+ * -Dbenchmark.jvmArgs=-Xmx3g -Dbenchmark.args=1000000}.
+ */
+public final class HeapFootprintReport {
+
+    private HeapFootprintReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int persons = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int histogramLines = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        BenchmarkData.quietLogging();
+        Path file = Path.of("target", "data", "safetynet-" + persons + ".json");
+        if (!Files.exists(file)) {
+            DatasetGenerator.builder().persons(persons).build().writeJson(file);
+        }
+
+        long before = liveHeap();
+        DataStore dataStore = new DataStore();
+        DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+        JsonDataReader.Counts counts = new JsonDataReader().read(new FileSystemResource(file), builder);
+        dataStore.replace(builder);
+        builder = null;
+        long after = liveHeap();
+
+        long retained = after - before;
+        System.out.printf("%n%s: %d persons, %d firestations, %d medical records%n", file,
+                counts.persons(), counts.firestations(), counts.medicalRecords());
+        System.out.printf("Retained heap: %.1f MB, %d bytes per person%n%n", retained / 1e6, retained / counts.persons());
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[] {null}, new String[] {String[].class.getName()});
+        histogram.lines().limit(histogramLines + 2L).forEach(System.out::println);
+        // Keeps the store reachable until the histogram is taken
+        System.out.println(dataStore.getVersion() > 0 ? "" : "empty store");
+    }
+
+    private static long liveHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,136 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.NameSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last names searched by prefix and approximately, as {@code /personInfo?match=prefix|fuzzy} finds them:
+ * through the name search index of a snapshot ({@code index*}), or by scanning every distinct last name
+ * ({@code scan*}), the best a search without the index could do. Prefixes are the first four letters of
+ * a household's name; approximate queries are a household's name with two letters swapped.
+ * {@code addPersonWith*} compare a write adding a new last name, which updates the index, with one
+ * adding a known last name, which leaves it as it is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NameSearchBenchmark {
+
+    private static final int LIMIT = 20;
+
+    @Param({"100000", "1000000"})
+    public int persons;
+
+    private BenchmarkData data;
+    private DataSnapshot snapshot;
+    private String[] distinctNames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(persons);
+        snapshot = data.load().snapshot();
+        distinctNames = Arrays.stream(data.lastNames).map(DataSnapshot::key).distinct().sorted().toArray(String[]::new);
+    }
+
+    private String name() {
+        return data.lastNames[Math.floorMod(next++ * 7919, data.lastNames.length)];
+    }
+
+    private String prefix() {
+        String name = name();
+        return name.substring(0, Math.min(4, name.length()));
+    }
+
+    private String misspelt() {
+        char[] letters = DataSnapshot.key(name()).toCharArray();
+        int at = letters.length / 2;
+        char swapped = letters[at];
+        letters[at] = letters[at - 1];
+        letters[at - 1] = swapped;
+        return new String(letters);
+    }
+
+    @Benchmark
+    public List<String> indexPrefix() {
+        return snapshot.searchLastNames(prefix(), NameSearchIndex.Match.PREFIX, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> scanPrefix() {
+        String prefix = DataSnapshot.key(prefix());
+        List<String> found = new ArrayList<>();
+        for (String name : distinctNames) {
+            if (name.startsWith(prefix) && found.size() < LIMIT) {
+                found.add(name);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<String> indexFuzzy() {
+        return snapshot.searchLastNames(misspelt(), NameSearchIndex.Match.FUZZY, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> scanFuzzy() {
+        String query = misspelt();
+        List<String> found = new ArrayList<>();
+        for (String name : distinctNames) {
+            if (Math.abs(name.length() - query.length()) <= NameSearchIndex.MAX_DISTANCE
+                    && found.size() < LIMIT && editDistance(query, name) <= NameSearchIndex.MAX_DISTANCE) {
+                found.add(name);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public DataSnapshot addPersonWithNewName() {
+        return addPerson("Newcomer-" + next++);
+    }
+
+    @Benchmark
+    public DataSnapshot addPersonWithKnownName() {
+        return addPerson(name());
+    }
+
+    private DataSnapshot addPerson(String lastName) {
+        DataSnapshot.Builder builder = snapshot.toBuilder();
+        Person newcomer = new Person();
+        newcomer.setFirstName("Ann");
+        newcomer.setLastName(lastName);
+        newcomer.setAddress(data.addresses[0]);
+        builder.addPerson(newcomer);
+        return builder.build(snapshot.getVersion() + 1);
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,90 @@
+package com.safetynet.alerts.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.safetynet.alerts.controller.AlertController;
+import com.safetynet.alerts.model.response.FireResponse;
+import com.safetynet.alerts.model.response.StationCoverage;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlertController requests with the application's logging: off, or at INFO or DEBUG through a file
+ * appender called on the request thread ({@code sync}) or behind the non-blocking ring buffer of
+ * logback-spring.xml ({@code async}). Responses are not cached, so every call logs. The log is written
+ * to target/benchmark-logs/requests.log with the file pattern of application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RequestLoggingBenchmark {
+
+    @Param({"OFF", "INFO", "DEBUG"})
+    public String level;
+
+    @Param({"sync", "async"})
+    public String appender;
+
+    private BenchmarkData data;
+    private AlertController controller;
+    private Appender<ILoggingEvent> output;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        data = BenchmarkData.generate(1000);
+        controller = new AlertController(data.load());
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile("target/benchmark-logs/requests.log");
+        file.setAppend(false);
+        file.setEncoder(encoder);
+        file.start();
+        output = file;
+        if (appender.equals("async")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            output = async;
+        }
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.addAppender(output);
+        context.getLogger("com.safetynet.alerts").setLevel(ch.qos.logback.classic.Level.toLevel(level));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        output.stop();
+    }
+
+    @Benchmark
+    public FireResponse fire() {
+        return controller.getFireInfo(data.addresses[Math.floorMod(next++, data.addresses.length)], null);
+    }
+
+    @Benchmark
+    public StationCoverage firestation() {
+        return controller.getPeopleByStation(data.stations[Math.floorMod(next++, data.stations.length)], null);
+    }
+}
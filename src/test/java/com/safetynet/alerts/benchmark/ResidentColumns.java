@@ -0,0 +1,183 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.DataSnapshot;
+
+import java.util.*;
+
+/**
+ * Column-oriented copy of the residents of a snapshot, for queries that filter every resident on a
+ * field or two rather than look up one key. Row {@code i} is the i-th person of the snapshot; its city,
+ * station and age bracket are held as small integer codes in parallel arrays, so a scan reads a few
+ * contiguous arrays instead of following a Resident, a Person and a String per row, and its inner loop
+ * compares ints that the JIT can unroll. Columns are built from one snapshot and do not follow later
+ * writes, so they only serve {@link ColumnScanBenchmark}; the application answers from the snapshot's
+ * indexes, which stay faster for a single key.
+ * <p>
+ * Cities are coded by their case-insensitive key, stations by their exact number. A resident's station
+ * is the one of the first mapping of its address, and {@link #NONE} when the address is not mapped.
+ */
+public final class ResidentColumns {
+
+    /** Code of a missing city or station. */
+    public static final int NONE = -1;
+
+    /** Age group of a resident, from its medical record. */
+    public enum AgeBracket {
+        /** Up to {@link Resident#CHILD_MAX_AGE} inclusive. */
+        CHILD,
+        /** Older than {@link Resident#CHILD_MAX_AGE}. */
+        ADULT,
+        /** No medical record or no valid birthdate. */
+        UNKNOWN;
+
+        private static final AgeBracket[] VALUES = values();
+
+        /**
+         * @param age age in years, or -1 when unknown
+         * @return the bracket of the age
+         */
+        public static AgeBracket of(int age) {
+            return age < 0 ? UNKNOWN : age <= Resident.CHILD_MAX_AGE ? CHILD : ADULT;
+        }
+    }
+
+    private final Resident[] residents;
+    private final int[] cities;
+    private final int[] stations;
+    private final byte[] ageBrackets;
+    private final String[] emails;
+    private final Map<String, Integer> cityCodes = new HashMap<>();
+    private final Map<String, Integer> stationCodes = new HashMap<>();
+
+    ResidentColumns(DataSnapshot snapshot) {
+        List<Person> persons = snapshot.getPersons();
+        int size = persons.size();
+        residents = new Resident[size];
+        cities = new int[size];
+        stations = new int[size];
+        ageBrackets = new byte[size];
+        emails = new String[size];
+        for (int row = 0; row < size; row++) {
+            Person person = persons.get(row);
+            Resident resident = residentOf(snapshot, person);
+            residents[row] = resident;
+            cities[row] = code(cityCodes, DataSnapshot.key(person.getCity()));
+            stations[row] = code(stationCodes, snapshot.getStationForAddress(person.getAddress()).orElse(null));
+            ageBrackets[row] = (byte) AgeBracket.of(resident.age()).ordinal();
+            emails[row] = person.getEmail();
+        }
+    }
+
+    private static Resident residentOf(DataSnapshot snapshot, Person person) {
+        for (Resident resident : snapshot.getResidentsByName(person.getFirstName(), person.getLastName())) {
+            if (resident.person() == person) {
+                return resident;
+            }
+        }
+        // Persons without a full name are not indexed
+        return new Resident(person, null, -1);
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        return value == null ? NONE : codes.computeIfAbsent(value, v -> codes.size());
+    }
+
+    /** @return number of rows, the number of persons of the snapshot */
+    public int size() { return residents.length; }
+
+    /**
+     * Counts the residents matching every given criterion.
+     * @param city city to match, or null for any city
+     * @param station station to match, or null for any station
+     * @param bracket age bracket to match, or null for any age
+     * @return number of matching residents
+     */
+    public int count(String city, String station, AgeBracket bracket) {
+        int cityCode = city == null ? NONE : codeOf(cityCodes, DataSnapshot.key(city));
+        int stationCode = station == null ? NONE : codeOf(stationCodes, station);
+        if (cityCode == Integer.MIN_VALUE || stationCode == Integer.MIN_VALUE) {
+            return 0;
+        }
+        int bracketCode = bracket == null ? NONE : bracket.ordinal();
+        int count = 0;
+        for (int row = 0; row < residents.length; row++) {
+            if ((cityCode == NONE || cities[row] == cityCode)
+                    && (stationCode == NONE || stations[row] == stationCode)
+                    && (bracketCode == NONE || ageBrackets[row] == bracketCode)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the residents covered by a station in each age bracket.
+     * @param station station number
+     * @return counts indexed by {@link AgeBracket#ordinal()}
+     */
+    public int[] countByAgeBracket(String station) {
+        int[] counts = new int[AgeBracket.VALUES.length];
+        int stationCode = station == null ? Integer.MIN_VALUE : codeOf(stationCodes, station);
+        if (stationCode == Integer.MIN_VALUE) {
+            return counts;
+        }
+        for (int row = 0; row < stations.length; row++) {
+            if (stations[row] == stationCode) {
+                counts[ageBrackets[row]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the e-mail addresses of the residents of a city.
+     * @param city city to look up
+     * @return distinct addresses, in row order
+     */
+    public List<String> emailsInCity(String city) {
+        int cityCode = city == null ? Integer.MIN_VALUE : codeOf(cityCodes, DataSnapshot.key(city));
+        if (cityCode == Integer.MIN_VALUE) {
+            return List.of();
+        }
+        Set<String> found = new LinkedHashSet<>();
+        for (int row = 0; row < cities.length; row++) {
+            if (cities[row] == cityCode) {
+                found.add(emails[row]);
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Returns the residents matching every given criterion.
+     * @param city city to match, or null for any city
+     * @param station station to match, or null for any station
+     * @param bracket age bracket to match, or null for any age
+     * @return matching residents, in row order
+     */
+    public List<Resident> select(String city, String station, AgeBracket bracket) {
+        int cityCode = city == null ? NONE : codeOf(cityCodes, DataSnapshot.key(city));
+        int stationCode = station == null ? NONE : codeOf(stationCodes, station);
+        if (cityCode == Integer.MIN_VALUE || stationCode == Integer.MIN_VALUE) {
+            return List.of();
+        }
+        int bracketCode = bracket == null ? NONE : bracket.ordinal();
+        List<Resident> selected = new ArrayList<>();
+        for (int row = 0; row < residents.length; row++) {
+            if ((cityCode == NONE || cities[row] == cityCode)
+                    && (stationCode == NONE || stations[row] == stationCode)
+                    && (bracketCode == NONE || ageBrackets[row] == bracketCode)) {
+                selected.add(residents[row]);
+            }
+        }
+        return selected;
+    }
+
+    /** @return the code of a value, or {@link Integer#MIN_VALUE} when no row holds it */
+    private static int codeOf(Map<String, Integer> codes, String value) {
+        Integer code = codes.get(value);
+        return code == null ? Integer.MIN_VALUE : code;
+    }
+}
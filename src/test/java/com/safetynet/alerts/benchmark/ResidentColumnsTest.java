@@ -0,0 +1,75 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.benchmark.ResidentColumns.AgeBracket;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResidentColumnsTest {
+
+    @Test
+    void testColumnScansMatchTheIndexes() {
+        DataStore dataStore = new DataStore();
+        dataStore.load(
+                List.of(person("John", "Doe", "123 Main St", "Springfield"),
+                        person("Jane", "Doe", "123 Main St", "Springfield"),
+                        person("Bob", "Smith", "456 Oak St", "Shelbyville")),
+                List.of(firestation("123 Main St", "1"),
+                        firestation("456 Oak St", "2"),
+                        firestation("456 Oak St", "3")),
+                List.of(medicalRecord("John", "Doe", "01/01/1980"),
+                        medicalRecord("Jane", "Doe",
+                                LocalDate.now().minusYears(10).format(DateTimeFormatter.ofPattern("MM/dd/yyyy")))));
+        ResidentColumns columns = new ResidentColumns(dataStore.snapshot());
+
+        assertEquals(3, columns.size());
+        assertEquals(List.of("john@example.com", "jane@example.com"), columns.emailsInCity("SPRINGFIELD"));
+        assertEquals(List.of(), columns.emailsInCity("Capital City"));
+        assertArrayEquals(new int[] {1, 1, 0}, columns.countByAgeBracket("1"));
+        assertArrayEquals(new int[] {0, 0, 1}, columns.countByAgeBracket("2"));
+        assertArrayEquals(new int[] {0, 0, 0}, columns.countByAgeBracket("3"));
+        assertEquals(1, columns.count("springfield", "1", AgeBracket.CHILD));
+        assertEquals(3, columns.count(null, null, null));
+        assertEquals(0, columns.count("Capital City", null, null));
+        assertEquals(List.of("Bob"), columns.select(null, "2", AgeBracket.UNKNOWN).stream()
+                .map(resident -> resident.person().getFirstName()).toList());
+
+        dataStore.updateFirestation(firestation("123 Main St", "3"));
+        assertArrayEquals(new int[] {1, 1, 0}, new ResidentColumns(dataStore.snapshot()).countByAgeBracket("3"));
+    }
+
+    private static Person person(String firstName, String lastName, String address, String city) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress(address);
+        person.setCity(city);
+        person.setEmail(firstName.toLowerCase() + "@example.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, String station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(String firstName, String lastName, String birthdate) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(firstName);
+        record.setLastName(lastName);
+        record.setBirthdate(birthdate);
+        record.setMedications(List.of());
+        record.setAllergies(List.of());
+        return record;
+    }
+}
@@ -0,0 +1,94 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sustained durable updates per second with the write-ahead log at different group commit
+ * batch windows, against the same updates without a log ({@code off}).
+ * Each operation is a person update that returns only once it is fsynced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(16)
+public class WriteAheadLogBenchmark {
+
+    private static final int PERSONS = 1_000;
+
+    @Param({"off", "0", "1", "5"})
+    public String batchWindowMillis;
+
+    private DataStore dataStore;
+    private WriteAheadLog log;
+    private Path directory;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Person> persons = new ArrayList<>(PERSONS);
+        for (int i = 0; i < PERSONS; i++) {
+            persons.add(person(i, "555-0000"));
+        }
+        dataStore = new DataStore();
+        dataStore.load(persons, List.of(), List.of());
+        if (!"off".equals(batchWindowMillis)) {
+            directory = Files.createTempDirectory("wal-benchmark");
+            log = WriteAheadLog.open(directory, dataStore.getVersion(),
+                    Duration.ofMillis(Long.parseLong(batchWindowMillis)));
+            dataStore.attachLog(log);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (log == null) {
+            return;
+        }
+        log.close();
+        System.out.printf("%nbatch window %s ms: %d updates in %d fsyncs (%.1f per fsync)%n", batchWindowMillis,
+                log.getFrameCount(), log.getSyncCount(), (double) log.getFrameCount() / log.getSyncCount());
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean updatePerson(Writer writer) {
+        int i = Math.floorMod(writer.next++ * 31 + Thread.currentThread().hashCode(), PERSONS);
+        return dataStore.updatePerson(person(i, "555-" + writer.next));
+    }
+
+    private static Person person(int i, String phone) {
+        Person person = new Person();
+        person.setFirstName("First" + i);
+        person.setLastName("Last" + i);
+        person.setAddress(i + " Main St");
+        person.setCity("Culver");
+        person.setZip("97451");
+        person.setPhone(phone);
+        person.setEmail("person" + i + "@email.com");
+        return person;
+    }
+}
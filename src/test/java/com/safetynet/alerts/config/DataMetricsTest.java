@@ -0,0 +1,69 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataMetricsTest {
+
+    private DataStore dataStore;
+    private ResponseCache cache;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new DataStore();
+        cache = new ResponseCache(dataStore, 10);
+        registry = new SimpleMeterRegistry();
+        new DataMetrics(dataStore, cache).bindTo(registry);
+    }
+
+    @Test
+    void testGaugesFollowThePublishedData() {
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.setAddress("123 Main St");
+        person.setCity("Springfield");
+        Firestation firestation = new Firestation();
+        firestation.setAddress("123 Main St");
+        firestation.setStation("1");
+
+        dataStore.load(List.of(person), List.of(firestation), List.of());
+
+        assertEquals(1, registry.get("safetynet.data.records").tag("type", "persons").gauge().value());
+        assertEquals(1, registry.get("safetynet.data.records").tag("type", "firestations").gauge().value());
+        assertEquals(0, registry.get("safetynet.data.records").tag("type", "medicalRecords").gauge().value());
+        assertEquals(1, registry.get("safetynet.data.index.keys").tag("index", "addresses").gauge().value());
+        assertEquals(1, registry.get("safetynet.data.index.keys").tag("index", "stations").gauge().value());
+        assertEquals(dataStore.getVersion(), registry.get("safetynet.data.version").gauge().value());
+
+        dataStore.deletePerson("John", "Doe");
+
+        assertEquals(0, registry.get("safetynet.data.records").tag("type", "persons").gauge().value());
+        assertEquals(0, registry.get("safetynet.data.index.keys").tag("index", "addresses").gauge().value());
+    }
+
+    @Test
+    void testCacheCountersFollowTheCache() {
+        cache.get("phoneAlert", List.of("station:1"), data -> List.of());
+        cache.get("phoneAlert", List.of("station:1"), data -> List.of());
+
+        assertEquals(1, registry.get("safetynet.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("safetynet.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("safetynet.cache.entries").gauge().value());
+
+        dataStore.load(List.of(), List.of(), List.of());
+
+        assertEquals(1, registry.get("safetynet.cache.invalidations").functionCounter().count());
+        assertEquals(0, registry.get("safetynet.cache.entries").gauge().value());
+    }
+}
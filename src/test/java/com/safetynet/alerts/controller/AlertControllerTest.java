@@ -1,33 +1,44 @@
 package com.safetynet.alerts.controller;
 
 import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
 import com.safetynet.alerts.model.MedicalRecord;
 import com.safetynet.alerts.model.Person;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.service.ResponseCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WebMvcTest(AlertController.class)
+@Import({DataStore.class, ResponseCache.class})
 public class AlertControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
-    @MockBean
-    private DataLoaderService dataLoaderService;
+    @Autowired
+    private DataStore dataStore;
+
+    @Autowired
+    private ResponseCache responseCache;
 
     private List<Person> mockPersons;
     private List<Firestation> mockFirestations;
@@ -81,41 +92,30 @@ public class AlertControllerTest {
         record2.setMedications(Arrays.asList());
         record2.setAllergies(Arrays.asList());
         mockMedicalRecords.add(record2);
+
+        dataStore.load(mockPersons, mockFirestations, mockMedicalRecords);
     }
 
     @Test
     void testGetCommunityEmail() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         mockMvc.perform(get("/communityEmail")
                         .param("city", "Springfield"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0]").value("john@example.com"));
-
-        verify(dataLoaderService, times(1)).getPersons();
     }
 
     @Test
     void testGetPhoneAlert() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         mockMvc.perform(get("/phoneAlert")
                         .param("firestation", "1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0]").value("555-1234"));
-
-        verify(dataLoaderService, times(1)).getFirestations();
-        verify(dataLoaderService, times(1)).getPersons();
     }
 
     @Test
     void testGetChildAlert() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(get("/childAlert")
                         .param("address", "123 Main St"))
                 .andExpect(status().isOk())
@@ -123,72 +123,393 @@ public class AlertControllerTest {
                 .andExpect(jsonPath("$.children[0].firstName").value("Jane"))
                 .andExpect(jsonPath("$.householdMembers", hasSize(1)))
                 .andExpect(jsonPath("$.householdMembers[0].firstName").value("John"));
-
-        verify(dataLoaderService, times(1)).getPersons();
-        verify(dataLoaderService, atLeastOnce()).getMedicalRecords();
     }
 
     @Test
     void testGetPeopleByStation() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(get("/firestation")
                         .param("stationNumber", "1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.persons", hasSize(2)))
                 .andExpect(jsonPath("$.adultCount").value(1))
                 .andExpect(jsonPath("$.childCount").value(1));
-
-        verify(dataLoaderService, times(1)).getFirestations();
-        verify(dataLoaderService, times(1)).getPersons();
     }
 
     @Test
     void testGetFireInfo() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(get("/fire")
                         .param("address", "123 Main St"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.station").value("1"))
                 .andExpect(jsonPath("$.residents", hasSize(2)))
                 .andExpect(jsonPath("$.residents[0].name").value("John Doe"));
-
-        verify(dataLoaderService, times(1)).getFirestations();
-        verify(dataLoaderService, times(1)).getPersons();
     }
 
     @Test
     void testGetFloodInfo() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(get("/flood/stations")
                         .param("stations", "1,2"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.['123 Main St']", hasSize(2)));
+    }
 
-        verify(dataLoaderService, times(1)).getFirestations();
-        verify(dataLoaderService, atLeastOnce()).getPersons();
+    @Test
+    void testAddressesMatchWhateverTheirSpelling() throws Exception {
+        Firestation elm = new Firestation();
+        elm.setAddress("9 Elm  Street");
+        elm.setStation("2");
+        dataStore.addFirestation(elm);
+        Person lodger = new Person();
+        lodger.setFirstName("Tim");
+        lodger.setLastName("Doe");
+        lodger.setAddress(" 9 elm st.");
+        lodger.setCity("springfield ");
+        lodger.setPhone("555-9999");
+        lodger.setEmail("tim@example.com");
+        dataStore.addPerson(lodger);
+
+        mockMvc.perform(get("/fire").param("address", "9 ELM STREET"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.station").value("2"))
+                .andExpect(jsonPath("$.residents", hasSize(1)));
+        mockMvc.perform(get("/phoneAlert").param("firestation", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", contains("555-9999")));
+        mockMvc.perform(get("/childAlert").param("address", "123 main street"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.children", hasSize(1)));
+        mockMvc.perform(get("/communityEmail").param("city", "Springfield"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
     }
 
     @Test
     void testGetPersonInfo() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(get("/personInfo")
                         .param("lastName", "Doe"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].firstName").value("John"))
                 .andExpect(jsonPath("$[0].lastName").value("Doe"));
+    }
+
+    @Test
+    void testSearchesPersonInfoByPrefixOrApproximateName() throws Exception {
+        mockMvc.perform(get("/personInfo").param("lastName", "do").param("match", "prefix"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/personInfo").param("lastName", "Dou").param("match", "FUZZY").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lastName").value("Doe"));
+        mockMvc.perform(get("/personInfo").param("lastName", "Doe").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        Person cousin = new Person();
+        cousin.setFirstName("Ted");
+        cousin.setLastName("Dodd");
+        cousin.setAddress("123 Main St");
+        cousin.setCity("Springfield");
+        dataStore.addPerson(cousin);
+        mockMvc.perform(get("/personInfo").param("lastName", "do").param("match", "prefix"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].lastName").value("Dodd"));
+
+        mockMvc.perform(get("/personInfo").param("lastName", "Doe").param("match", "soundex"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/personInfo").param("lastName", "Doe").param("match", "prefix").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetHazmatInfo() throws Exception {
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "MED1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['123 Main St']", hasSize(1)))
+                .andExpect(jsonPath("$['123 Main St'][0].name").value("John Doe"))
+                .andExpect(jsonPath("$['123 Main St'][0].allergies", contains("peanuts")));
+        mockMvc.perform(get("/hazmat").param("stations", "2").param("allergies", "peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", anEmptyMap()));
+        mockMvc.perform(get("/hazmat").param("stations", "1"))
+                .andExpect(status().isBadRequest());
+
+        MedicalRecord jane = new MedicalRecord();
+        jane.setFirstName("Jane");
+        jane.setLastName("Doe");
+        jane.setBirthdate("01/01/2010");
+        jane.setMedications(List.of("med1:50mg"));
+        jane.setAllergies(List.of());
+        dataStore.updateMedicalRecord(jane);
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "med1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['123 Main St']", hasSize(2)));
+    }
+
+    @Test
+    void testHazmatTermsWithSeparatorsGetTheirOwnResponse() throws Exception {
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "a").param("allergies", "b/peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", anEmptyMap()));
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "a/b").param("allergies", "peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['123 Main St'][0].name").value("John Doe"));
+    }
+
+    @Test
+    void testHazmatTermsEndingOrStartingWithTheSeparatorGetTheirOwnResponse() throws Exception {
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "a").param("allergies", "/peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", anEmptyMap()));
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "a/").param("allergies", "peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['123 Main St'][0].name").value("John Doe"));
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "1:a").param("allergies", "1:b"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", anEmptyMap()));
+        mockMvc.perform(get("/hazmat").param("stations", "1").param("medications", "1:a1:b").param("allergies", "peanuts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['123 Main St'][0].name").value("John Doe"));
+    }
+
+    @Test
+    void testNearbyAndFireFallbackUseGeocodes() throws Exception {
+        Firestation oak = new Firestation();
+        oak.setAddress("9 Oak St");
+        oak.setStation("2");
+        dataStore.addFirestation(oak);
+        dataStore.update(b -> {
+            b.addGeocode(geocode("123 Main St", 33.9, -118.4));
+            b.addGeocode(geocode("9 Oak St", 33.91, -118.4));
+            b.addGeocode(geocode("5 Pine St", 33.902, -118.4));
+            return null;
+        });
+
+        mockMvc.perform(get("/fire").param("address", "5 Pine St"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.station").value("1"))
+                .andExpect(jsonPath("$.residents", hasSize(0)));
+        mockMvc.perform(get("/nearby").param("latitude", "33.903").param("longitude", "-118.4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stations[*].station", contains("1", "2")))
+                .andExpect(jsonPath("$.stations[0].address").value("123 Main St"))
+                .andExpect(jsonPath("$.households.['123 Main St']", hasSize(2)));
+        mockMvc.perform(get("/nearby").param("address", "9 oak street").param("stations", "1").param("radius", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stations[*].station", contains("2")))
+                .andExpect(jsonPath("$.stations[0].distance").value(0.0))
+                .andExpect(jsonPath("$.households", anEmptyMap()));
+        mockMvc.perform(get("/nearby").param("address", "1 Unknown Rd"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stations", hasSize(0)));
+
+        mockMvc.perform(get("/nearby"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("address", "9 Oak St").param("latitude", "33.9").param("longitude", "-118.4"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("address", "9 Oak St").param("latitude", "33.9"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("longitude", "-118.4"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("latitude", "91").param("longitude", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("address", "9 Oak St").param("radius", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/nearby").param("address", "9 Oak St").param("stations", "21"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testMappingChangesOnlyEvictFireFallbacks() throws Exception {
+        dataStore.update(b -> {
+            b.addGeocode(geocode("123 Main St", 33.9, -118.4));
+            b.addGeocode(geocode("5 Pine St", 33.902, -118.4));
+            b.addGeocode(geocode("7 Birch St", 33.9021, -118.4));
+            return null;
+        });
+        mockMvc.perform(get("/fire").param("address", "123 Main St")).andExpect(jsonPath("$.station").value("1"));
+        mockMvc.perform(get("/fire").param("address", "5 Pine St")).andExpect(jsonPath("$.station").value("1"));
+        long misses = responseCache.getMisses();
+
+        Firestation birch = new Firestation();
+        birch.setAddress("7 Birch St");
+        birch.setStation("4");
+        dataStore.addFirestation(birch);
+
+        mockMvc.perform(get("/fire").param("address", "123 Main St")).andExpect(jsonPath("$.station").value("1"));
+        assertEquals(misses, responseCache.getMisses());
+        mockMvc.perform(get("/fire").param("address", "5 Pine St")).andExpect(jsonPath("$.station").value("4"));
+        assertEquals(misses + 1, responseCache.getMisses());
+    }
+
+    @Test
+    void testStreamsNdjsonWhenAsked() throws Exception {
+        Firestation second = new Firestation();
+        second.setAddress("9 Elm St");
+        second.setStation("2");
+        dataStore.addFirestation(second);
+
+        MvcResult emails = mockMvc.perform(get("/communityEmail").param("city", "Springfield")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(emails))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("\"john@example.com\"\n\"jane@example.com\"\n"));
+
+        MvcResult flood = mockMvc.perform(get("/flood/stations").param("stations", "2,1,2")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String lines = mockMvc.perform(asyncDispatch(flood))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] households = lines.split("\n");
+        assertEquals(2, households.length);
+        assertEquals("{\"9 Elm St\":[]}", households[0]);
+        assertTrue(households[1].startsWith("{\"123 Main St\":[{\"allergies\":[\"peanuts\"],\"phone\":\"555-1234\""));
+
+        mockMvc.perform(get("/communityEmail").param("city", "Springfield"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("[\"john@example.com\",\"jane@example.com\"]"));
+    }
+
+    @Test
+    void testStreamedResponsesAnswerConditionalRequests() throws Exception {
+        String eTag = mockMvc.perform(get("/communityEmail").param("city", "Springfield")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/communityEmail").param("city", "Springfield")
+                        .accept(MediaType.APPLICATION_NDJSON).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testETagOfOneRepresentationDoesNotRevalidateTheOther() throws Exception {
+        for (String url : List.of("/communityEmail?city=Springfield", "/flood/stations?stations=1")) {
+            String json = mockMvc.perform(get(url))
+                    .andExpect(header().string("Vary", containsString("Accept")))
+                    .andReturn().getResponse().getHeader("ETag");
+            String ndjson = mockMvc.perform(get(url).accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(header().string("Vary", containsString("Accept")))
+                    .andReturn().getResponse().getHeader("ETag");
+            assertNotEquals(json, ndjson);
+
+            mockMvc.perform(get(url).accept(MediaType.APPLICATION_NDJSON).header("If-None-Match", json))
+                    .andExpect(request().asyncStarted());
+            mockMvc.perform(get(url).header("If-None-Match", ndjson))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+            mockMvc.perform(get(url).header("If-None-Match", json))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Test
+    void testMatchingETagAnswersNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/phoneAlert").param("firestation", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/phoneAlert").param("firestation", "1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testETagChangesOnlyWithTheDataBehindTheResponse() throws Exception {
+        String emails = mockMvc.perform(get("/communityEmail").param("city", "Springfield"))
+                .andReturn().getResponse().getHeader("ETag");
+        String phones = mockMvc.perform(get("/phoneAlert").param("firestation", "1"))
+                .andReturn().getResponse().getHeader("ETag");
+        Firestation other = new Firestation();
+        other.setAddress("9 Elm St");
+        other.setStation("2");
+
+        dataStore.addFirestation(other);
+
+        mockMvc.perform(get("/communityEmail").param("city", "Springfield").header("If-None-Match", emails))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/phoneAlert").param("firestation", "1").header("If-None-Match", phones))
+                .andExpect(status().isNotModified());
+
+        Person updated = mockPersons.get(0);
+        updated.setPhone("555-0000");
+        dataStore.updatePerson(updated);
+
+        mockMvc.perform(get("/phoneAlert").param("firestation", "1").header("If-None-Match", phones))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(phones)))
+                .andExpect(jsonPath("$", hasItem("555-0000")));
+        mockMvc.perform(get("/communityEmail").param("city", "Springfield").header("If-None-Match", emails))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testResponsesKeepTheirJsonLayout() throws Exception {
+        Person visitor = new Person();
+        visitor.setFirstName("Tim");
+        visitor.setLastName("Doe");
+        visitor.setAddress("123 Main St");
+        visitor.setCity("Springfield");
+        visitor.setPhone("555-9999");
+        dataStore.addPerson(visitor);
+        Person lodger = new Person();
+        lodger.setFirstName("Kim");
+        lodger.setLastName("Doe");
+        lodger.setAddress("123 Main St");
+        lodger.setCity("Springfield");
+        dataStore.addPerson(lodger);
+        MedicalRecord partial = new MedicalRecord();
+        partial.setFirstName("Kim");
+        partial.setLastName("Doe");
+        partial.setBirthdate("01/01/1990");
+        dataStore.addMedicalRecord(partial);
+
+        dataStore.rollAgesTo(LocalDate.of(2026, 6, 1));
+
+        String john = "\"allergies\":[\"peanuts\"],\"phone\":\"555-1234\",\"medications\":[\"med1:100mg\"],\"name\":\"John Doe\",\"age\":46";
+        String jane = "\"allergies\":[],\"phone\":\"555-5678\",\"medications\":[],\"name\":\"Jane Doe\",\"age\":16";
+        String tim = "\"phone\":\"555-9999\",\"name\":\"Tim Doe\",\"age\":-1";
+        String kim = "\"allergies\":null,\"phone\":null,\"medications\":null,\"name\":\"Kim Doe\",\"age\":36";
+        String residents = "[{" + john + "},{" + jane + "},{" + tim + "},{" + kim + "}]";
+        mockMvc.perform(get("/childAlert").param("address", "123 Main St"))
+                .andExpect(content().string("{\"children\":[{\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"age\":16}],"
+                        + "\"householdMembers\":[{\"firstName\":\"John\",\"lastName\":\"Doe\",\"age\":46},"
+                        + "{\"firstName\":\"Kim\",\"lastName\":\"Doe\",\"age\":36}]}"));
+        mockMvc.perform(get("/firestation").param("stationNumber", "1"))
+                .andExpect(content().string("{\"persons\":["
+                        + "{\"firstName\":\"John\",\"lastName\":\"Doe\",\"address\":\"123 Main St\",\"phone\":\"555-1234\"},"
+                        + "{\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"address\":\"123 Main St\",\"phone\":\"555-5678\"},"
+                        + "{\"firstName\":\"Tim\",\"lastName\":\"Doe\",\"address\":\"123 Main St\",\"phone\":\"555-9999\"},"
+                        + "{\"firstName\":\"Kim\",\"lastName\":\"Doe\",\"address\":\"123 Main St\",\"phone\":null}],"
+                        + "\"adultCount\":2,\"childCount\":2}"));
+        mockMvc.perform(get("/fire").param("address", "123 Main St"))
+                .andExpect(content().string("{\"station\":\"1\",\"residents\":" + residents + "}"));
+        mockMvc.perform(get("/flood/stations").param("stations", "1"))
+                .andExpect(content().string("{\"123 Main St\":" + residents + "}"));
+        mockMvc.perform(get("/personInfo").param("lastName", "Doe"))
+                .andExpect(content().string("[{\"allergies\":[\"peanuts\"],\"firstName\":\"John\",\"lastName\":\"Doe\","
+                        + "\"address\":\"123 Main St\",\"medications\":[\"med1:100mg\"],\"email\":\"john@example.com\",\"age\":46},"
+                        + "{\"allergies\":[],\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"address\":\"123 Main St\","
+                        + "\"medications\":[],\"email\":\"jane@example.com\",\"age\":16},"
+                        + "{\"firstName\":\"Tim\",\"lastName\":\"Doe\",\"address\":\"123 Main St\",\"email\":null,\"age\":-1},"
+                        + "{\"allergies\":null,\"firstName\":\"Kim\",\"lastName\":\"Doe\",\"address\":\"123 Main St\","
+                        + "\"medications\":null,\"email\":null,\"age\":36}]"));
+    }
 
-        verify(dataLoaderService, times(1)).getPersons();
+    private static Geocode geocode(String address, double latitude, double longitude) {
+        Geocode geocode = new Geocode();
+        geocode.setAddress(address);
+        geocode.setLatitude(latitude);
+        geocode.setLongitude(longitude);
+        return geocode;
     }
 }
@@ -2,23 +2,24 @@ package com.safetynet.alerts.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.Firestation;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.repository.DataStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(FirestationController.class)
+@Import(DataStore.class)
 public class FirestationControllerTest {
 
     @Autowired
@@ -27,8 +28,8 @@ public class FirestationControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @MockBean
-    private DataLoaderService dataLoaderService;
+    @Autowired
+    private DataStore dataStore;
 
     private List<Firestation> mockFirestations;
 
@@ -39,12 +40,12 @@ public class FirestationControllerTest {
         firestation.setAddress("123 Main St");
         firestation.setStation("1");
         mockFirestations.add(firestation);
+
+        dataStore.load(List.of(), mockFirestations, List.of());
     }
 
     @Test
     void testAddFirestation() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-
         Firestation newFirestation = new Firestation();
         newFirestation.setAddress("456 Oak St");
         newFirestation.setStation("2");
@@ -55,13 +56,11 @@ public class FirestationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Firestation mapping added."));
 
-        verify(dataLoaderService, times(1)).getFirestations();
+        assertEquals("2", dataStore.getStationForAddress("456 Oak St").orElseThrow());
     }
 
     @Test
     void testUpdateFirestation_Success() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-
         Firestation updatedFirestation = new Firestation();
         updatedFirestation.setAddress("123 Main St");
         updatedFirestation.setStation("5");
@@ -72,13 +71,12 @@ public class FirestationControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Firestation mapping updated."));
 
-        verify(dataLoaderService, times(1)).getFirestations();
+        assertEquals("5", dataStore.getStationForAddress("123 Main St").orElseThrow());
+        assertTrue(dataStore.getAddressesForStation("1").isEmpty());
     }
 
     @Test
     void testUpdateFirestation_NotFound() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-
         Firestation updatedFirestation = new Firestation();
         updatedFirestation.setAddress("NonExistent St");
         updatedFirestation.setStation("5");
@@ -92,23 +90,39 @@ public class FirestationControllerTest {
 
     @Test
     void testDeleteFirestation_Success() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-
         mockMvc.perform(delete("/firestation")
                         .param("address", "123 Main St"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Firestation mapping deleted."));
 
-        verify(dataLoaderService, times(1)).getFirestations();
+        assertTrue(dataStore.getStationForAddress("123 Main St").isEmpty());
     }
 
     @Test
     void testDeleteFirestation_NotFound() throws Exception {
-        when(dataLoaderService.getFirestations()).thenReturn(mockFirestations);
-
         mockMvc.perform(delete("/firestation")
                         .param("address", "NonExistent St"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Firestation mapping not found."));
     }
+
+    @Test
+    void testApplyBatch() throws Exception {
+        String batch = """
+                [{"action": "add", "item": {"address": "456 Oak St", "station": "2"}},
+                 {"action": "update", "item": {"address": "123 Main St", "station": "3"}},
+                 {"action": "delete", "item": {"address": "9 Nowhere Rd"}}]
+                """;
+
+        mockMvc.perform(post("/firestation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].message").value("Firestation mapping added."))
+                .andExpect(jsonPath("$[1].message").value("Firestation mapping updated."))
+                .andExpect(jsonPath("$[2].message").value("Firestation mapping not found."));
+
+        assertEquals("2", dataStore.getStationForAddress("456 Oak St").orElseThrow());
+        assertEquals("3", dataStore.getStationForAddress("123 Main St").orElseThrow());
+    }
 }
@@ -2,12 +2,12 @@ package com.safetynet.alerts.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.MedicalRecord;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.repository.DataStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -15,11 +15,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(MedicalRecordController.class)
+@Import(DataStore.class)
 public class MedicalRecordControllerTest {
 
     @Autowired
@@ -28,8 +29,8 @@ public class MedicalRecordControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @MockBean
-    private DataLoaderService dataLoaderService;
+    @Autowired
+    private DataStore dataStore;
 
     private List<MedicalRecord> mockMedicalRecords;
 
@@ -43,12 +44,12 @@ public class MedicalRecordControllerTest {
         record.setMedications(Arrays.asList("med1:100mg"));
         record.setAllergies(Arrays.asList("peanuts"));
         mockMedicalRecords.add(record);
+
+        dataStore.load(List.of(), List.of(), mockMedicalRecords);
     }
 
     @Test
     void testAddMedicalRecord() throws Exception {
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         MedicalRecord newRecord = new MedicalRecord();
         newRecord.setFirstName("Jane");
         newRecord.setLastName("Smith");
@@ -62,13 +63,11 @@ public class MedicalRecordControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Medical record added."));
 
-        verify(dataLoaderService, times(1)).getMedicalRecords();
+        assertTrue(dataStore.getMedicalRecord("Jane", "Smith").isPresent());
     }
 
     @Test
     void testUpdateMedicalRecord_Success() throws Exception {
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         MedicalRecord updatedRecord = new MedicalRecord();
         updatedRecord.setFirstName("John");
         updatedRecord.setLastName("Doe");
@@ -82,13 +81,11 @@ public class MedicalRecordControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Medical record updated."));
 
-        verify(dataLoaderService, times(1)).getMedicalRecords();
+        assertEquals(List.of("dairy"), dataStore.getMedicalRecord("John", "Doe").orElseThrow().getAllergies());
     }
 
     @Test
     void testUpdateMedicalRecord_NotFound() throws Exception {
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         MedicalRecord updatedRecord = new MedicalRecord();
         updatedRecord.setFirstName("NonExistent");
         updatedRecord.setLastName("Person");
@@ -105,25 +102,41 @@ public class MedicalRecordControllerTest {
 
     @Test
     void testDeleteMedicalRecord_Success() throws Exception {
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(delete("/medicalRecord")
                         .param("firstName", "John")
                         .param("lastName", "Doe"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Medical record deleted."));
 
-        verify(dataLoaderService, times(1)).getMedicalRecords();
+        assertTrue(dataStore.getMedicalRecord("John", "Doe").isEmpty());
     }
 
     @Test
     void testDeleteMedicalRecord_NotFound() throws Exception {
-        when(dataLoaderService.getMedicalRecords()).thenReturn(mockMedicalRecords);
-
         mockMvc.perform(delete("/medicalRecord")
                         .param("firstName", "NonExistent")
                         .param("lastName", "Person"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Medical record not found."));
     }
+
+    @Test
+    void testApplyBatch() throws Exception {
+        String batch = """
+                [{"action": "update", "item": {"firstName": "John", "lastName": "Doe", "birthdate": "01/01/1980", "medications": [], "allergies": []}},
+                 {"action": "add", "item": {"firstName": "Jane", "lastName": "Doe", "birthdate": "02/02/2010"}},
+                 {"action": "delete", "item": {"firstName": "Jane", "lastName": "Doe"}}]
+                """;
+
+        mockMvc.perform(post("/medicalRecord/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].message").value("Medical record updated."))
+                .andExpect(jsonPath("$[1].message").value("Medical record added."))
+                .andExpect(jsonPath("$[2].message").value("Medical record deleted."));
+
+        assertTrue(dataStore.getMedicalRecord("John", "Doe").orElseThrow().getMedications().isEmpty());
+        assertTrue(dataStore.getMedicalRecord("Jane", "Doe").isEmpty());
+    }
 }
@@ -2,12 +2,12 @@ package com.safetynet.alerts.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alerts.model.Person;
-import com.safetynet.alerts.service.DataLoaderService;
+import com.safetynet.alerts.repository.DataStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -15,12 +15,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PersonController.class)
+@Import(DataStore.class)
 public class PersonControllerTest {
 
     @Autowired
@@ -29,8 +29,8 @@ public class PersonControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
-    @MockBean
-    private DataLoaderService dataLoaderService;
+    @Autowired
+    private DataStore dataStore;
 
     private List<Person> mockPersons;
 
@@ -46,12 +46,12 @@ public class PersonControllerTest {
         person1.setPhone("555-1234");
         person1.setEmail("john@example.com");
         mockPersons.add(person1);
+
+        dataStore.load(mockPersons, List.of(), List.of());
     }
 
     @Test
     void testAddPerson() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         Person newPerson = new Person();
         newPerson.setFirstName("Jane");
         newPerson.setLastName("Smith");
@@ -67,13 +67,11 @@ public class PersonControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Person added successfully."));
 
-        verify(dataLoaderService, times(1)).getPersons();
+        assertEquals(1, dataStore.getResidentsAtAddress("456 Oak St").size());
     }
 
     @Test
     void testUpdatePerson_Success() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         Person updatedPerson = new Person();
         updatedPerson.setFirstName("John");
         updatedPerson.setLastName("Doe");
@@ -89,13 +87,12 @@ public class PersonControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Person updated successfully."));
 
-        verify(dataLoaderService, times(1)).getPersons();
+        assertTrue(dataStore.getResidentsAtAddress("123 Main St").isEmpty());
+        assertEquals("555-9999", dataStore.getResidentsAtAddress("789 New St").get(0).person().getPhone());
     }
 
     @Test
     void testUpdatePerson_NotFound() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         Person updatedPerson = new Person();
         updatedPerson.setFirstName("NonExistent");
         updatedPerson.setLastName("Person");
@@ -114,25 +111,65 @@ public class PersonControllerTest {
 
     @Test
     void testDeletePerson_Success() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         mockMvc.perform(delete("/person")
                         .param("firstName", "John")
                         .param("lastName", "Doe"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Person deleted successfully."));
 
-        verify(dataLoaderService, times(1)).getPersons();
+        assertTrue(dataStore.getResidentsByLastName("Doe").isEmpty());
     }
 
     @Test
     void testDeletePerson_NotFound() throws Exception {
-        when(dataLoaderService.getPersons()).thenReturn(mockPersons);
-
         mockMvc.perform(delete("/person")
                         .param("firstName", "NonExistent")
                         .param("lastName", "Person"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Person not found."));
     }
+
+    @Test
+    void testApplyBatch() throws Exception {
+        long version = dataStore.getVersion();
+        String batch = """
+                [{"action": "add", "item": {"firstName": "Jane", "lastName": "Smith", "address": "456 Oak St", "city": "Springfield"}},
+                 {"action": "update", "item": {"firstName": "Jane", "lastName": "Smith", "address": "789 New St", "city": "Springfield"}},
+                 {"action": "delete", "item": {"firstName": "John", "lastName": "Doe"}},
+                 {"action": "delete", "item": {"firstName": "NonExistent", "lastName": "Person"}}]
+                """;
+
+        mockMvc.perform(post("/person/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].action").value("add"))
+                .andExpect(jsonPath("$[0].message").value("Person added successfully."))
+                .andExpect(jsonPath("$[1].message").value("Person updated successfully."))
+                .andExpect(jsonPath("$[2].applied").value(true))
+                .andExpect(jsonPath("$[3].applied").value(false))
+                .andExpect(jsonPath("$[3].message").value("Person not found."));
+
+        assertEquals(version + 1, dataStore.getVersion());
+        assertTrue(dataStore.getResidentsAtAddress("456 Oak St").isEmpty());
+        assertEquals(1, dataStore.getResidentsAtAddress("789 New St").size());
+        assertTrue(dataStore.getResidentsByLastName("Doe").isEmpty());
+    }
+
+    @Test
+    void testApplyBatch_RejectsIncompleteOperation() throws Exception {
+        long version = dataStore.getVersion();
+        String batch = """
+                [{"action": "delete", "item": {"firstName": "John", "lastName": "Doe"}},
+                 {"action": "add"}]
+                """;
+
+        mockMvc.perform(post("/person/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(version, dataStore.getVersion());
+        assertEquals(1, dataStore.getResidentsByLastName("Doe").size());
+    }
 }
@@ -0,0 +1,202 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.service.JsonDataReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @TempDir
+    Path tempDir;
+
+    private DataSnapshot original;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSnapshot.Builder builder = DataSnapshot.empty(TODAY).toBuilder();
+        new JsonDataReader().read(new ClassPathResource("data/safetynet.json"), builder);
+        Person homeless = new Person();
+        homeless.setFirstName("No");
+        homeless.setLastName("Address");
+        builder.addPerson(homeless);
+        builder.addGeocode(geocode("1509 Culver St", 33.97, -118.39));
+        builder.addGeocode(geocode("29 15th St", 33.975, -118.39));
+        builder.addGeocode(geocode("1 Unknown Rd", 33.98, null));
+        original = builder.build(42);
+        file = tempDir.resolve("data.snapshot");
+        BinarySnapshotWriter.write(original, file);
+    }
+
+    @Test
+    void testRoundTripPreservesDataAndIndexes() throws IOException {
+        DataSnapshot restored = BinarySnapshotReader.read(file, TODAY);
+
+        assertEquals(42, restored.getVersion());
+        assertEquals(original.getPersons().size(), restored.getPersons().size());
+        assertEquals(original.getFirestations().size(), restored.getFirestations().size());
+        assertEquals(original.getMedicalRecords().size(), restored.getMedicalRecords().size());
+        assertEquals(original.getPersons().get(0).getEmail(), restored.getPersons().get(0).getEmail());
+
+        for (Person person : original.getPersons()) {
+            List<Resident> expected = original.getResidentsByName(person.getFirstName(), person.getLastName());
+            List<Resident> actual = restored.getResidentsByName(person.getFirstName(), person.getLastName());
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.get(0).age(), actual.get(0).age());
+            assertEquals(expected.get(0).hasMedicalRecord(), actual.get(0).hasMedicalRecord());
+            if (person.getAddress() != null) {
+                assertEquals(original.getResidentsAtAddress(person.getAddress()).size(),
+                        restored.getResidentsAtAddress(person.getAddress()).size());
+                assertEquals(original.getStationForAddress(person.getAddress()),
+                        restored.getStationForAddress(person.getAddress()));
+            }
+        }
+        assertEquals(List.copyOf(original.getAddressesForStation("3")), List.copyOf(restored.getAddressesForStation("3")));
+        assertEquals(original.getResidentsByCity("Culver").size(), restored.getResidentsByCity("Culver").size());
+        MedicalRecord record = restored.getMedicalRecord("John", "Boyd").orElseThrow();
+        assertEquals(original.getMedicalRecord("John", "Boyd").orElseThrow().getMedications(), record.getMedications());
+        assertTrue(restored.getResidentsByName("No", "Address").get(0).isChild());
+        assertEquals(original.searchLastNames("bo", NameSearchIndex.Match.PREFIX, 10),
+                restored.searchLastNames("bo", NameSearchIndex.Match.PREFIX, 10));
+        assertEquals(List.of("boyd"), restored.searchLastNames("Boid", NameSearchIndex.Match.FUZZY, 10));
+        assertEquals(original.getIndexSize(DataSnapshot.Index.ALLERGIES), restored.getIndexSize(DataSnapshot.Index.ALLERGIES));
+        Map<String, List<Resident>> expected = original.getCoveredResidentsWithMedicalTerms(
+                List.of("1", "3"), List.of("aznol"), List.of("nillacilan"));
+        Map<String, List<Resident>> actual = restored.getCoveredResidentsWithMedicalTerms(
+                List.of("1", "3"), List.of("aznol"), List.of("nillacilan"));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((address, residents) -> assertEquals(residents.size(), actual.get(address).size()));
+        assertEquals(3, restored.getGeocodes().size());
+        assertEquals(-118.39, restored.getGeocode("1509 culver street").orElseThrow().getLongitude());
+        assertNull(restored.getGeocode("1 Unknown Rd").orElseThrow().getLongitude());
+        assertEquals(original.getNearestStations(33.974, -118.39, 2, 1000), restored.getNearestStations(33.974, -118.39, 2, 1000));
+        assertEquals(original.getResidentsWithin(33.97, -118.39, 1000).keySet(), restored.getResidentsWithin(33.97, -118.39, 1000).keySet());
+    }
+
+    @Test
+    void testRestoredSnapshotAcceptsChangesAndAgeRollover() throws IOException {
+        DataSnapshot restored = BinarySnapshotReader.read(file, TODAY);
+        DataSnapshot.Builder builder = restored.toBuilder();
+
+        assertTrue(builder.deletePerson("John", "Boyd"));
+        builder.rollAgesTo(TODAY.plusYears(1));
+        DataSnapshot changed = builder.build(43);
+
+        assertTrue(changed.getResidentsByName("John", "Boyd").isEmpty());
+        int age = restored.getResidentsByName("Jacob", "Boyd").get(0).age();
+        assertEquals(age + 1, changed.getResidentsByName("Jacob", "Boyd").get(0).age());
+        assertEquals(1, restored.getResidentsByName("John", "Boyd").size());
+    }
+
+    @Test
+    void testAgesComputedForRestoreDay() throws IOException {
+        int age = original.getResidentsByName("John", "Boyd").get(0).age();
+
+        DataSnapshot restored = BinarySnapshotReader.read(file, TODAY.plusYears(2));
+
+        assertEquals(age + 2, restored.getResidentsByName("John", "Boyd").get(0).age());
+    }
+
+    @Test
+    void testCorruptSectionIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> BinarySnapshotReader.read(file, TODAY));
+        assertTrue(e.getMessage().contains("Checksum"));
+    }
+
+    @Test
+    void testVersion1FilesAreIndexedAgain() throws IOException {
+        downgrade(1);
+
+        DataSnapshot restored = BinarySnapshotReader.read(file, TODAY);
+
+        assertEquals(42, restored.getVersion());
+        assertEquals(original.getPersons().size(), restored.getPersons().size());
+        assertEquals(original.getMedicalRecords().size(), restored.getMedicalRecords().size());
+        assertEquals(original.getResidentsAtAddress("1509 Culver St").size(),
+                restored.getResidentsAtAddress("1509 CULVER STREET").size());
+        assertEquals("3", restored.getStationForAddress("1509 culver st.").orElseThrow());
+        assertTrue(restored.getResidentsByName("John", "Boyd").get(0).hasMedicalRecord());
+        assertEquals(List.of("boyd"), restored.searchLastNames("Boid", NameSearchIndex.Match.FUZZY, 10));
+    }
+
+    @Test
+    void testVersion2FilesRestoreWithoutGeocodes() throws IOException {
+        downgrade(2);
+
+        DataSnapshot restored = BinarySnapshotReader.read(file, TODAY);
+
+        assertEquals(42, restored.getVersion());
+        assertEquals(List.of(), restored.getGeocodes());
+        assertTrue(restored.getNearestStations(33.97, -118.39, 1, Double.POSITIVE_INFINITY).isEmpty());
+        assertEquals(original.getResidentsAtAddress("1509 Culver St").size(),
+                restored.getResidentsAtAddress("1509 Culver St").size());
+        assertEquals("3", restored.getStationForAddress("1509 Culver St").orElseThrow());
+
+        DataSnapshot.Builder builder = restored.toBuilder();
+        builder.addGeocode(geocode("1509 Culver St", 33.97, -118.39));
+        assertEquals("3", builder.build(43).getNearestStation("1509 Culver St", 100).orElseThrow().station());
+    }
+
+    @Test
+    void testUnknownFormatVersionIsRejected() throws IOException {
+        downgrade(0);
+
+        IOException e = assertThrows(IOException.class, () -> BinarySnapshotReader.read(file, TODAY));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    void testOtherFilesAreRejected() throws IOException {
+        Files.writeString(file, "{\"persons\": [], \"firestations\": [], \"medicalrecords\": []}");
+
+        assertThrows(IOException.class, () -> BinarySnapshotReader.read(file, TODAY));
+    }
+
+    private static Geocode geocode(String address, Double latitude, Double longitude) {
+        Geocode geocode = new Geocode();
+        geocode.setAddress(address);
+        geocode.setLatitude(latitude);
+        geocode.setLongitude(longitude);
+        return geocode;
+    }
+
+    /** Rewrites the file as an older format version would have laid it out, without the later sections. */
+    private void downgrade(int formatVersion) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int sections = bytes.getInt(24);
+        int kept = 0;
+        for (int i = 0; i < sections; i++) {
+            int entry = BinarySnapshotFormat.HEADER_FIXED_SIZE + i * BinarySnapshotFormat.SECTION_ENTRY_SIZE;
+            if (bytes.getInt(entry) <= BinarySnapshotFormat.LEGACY_SECTION_COUNT) {
+                int target = BinarySnapshotFormat.HEADER_FIXED_SIZE + kept++ * BinarySnapshotFormat.SECTION_ENTRY_SIZE;
+                bytes.put(target, bytes.array(), entry, BinarySnapshotFormat.SECTION_ENTRY_SIZE);
+            }
+        }
+        bytes.putInt(4, formatVersion);
+        bytes.putInt(24, kept);
+        Files.write(file, bytes.array());
+    }
+}
@@ -0,0 +1,40 @@
+package com.safetynet.alerts.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanonicalKeysTest {
+
+    @Test
+    void testKeysFoldCaseAndCollapseWhitespace() {
+        assertEquals("culver city", CanonicalKeys.of("  Culver \t CITY "));
+        assertEquals("boyd", CanonicalKeys.of("Boyd"));
+        assertEquals("", CanonicalKeys.of("   "));
+        assertEquals("a b c", CanonicalKeys.of("A\nb  C\t"));
+        assertEquals("élodie", CanonicalKeys.of(" Élodie"));
+        String canonical = "1509 culver st";
+        assertSame(canonical, CanonicalKeys.address(canonical));
+        assertNull(CanonicalKeys.of(null));
+    }
+
+    @Test
+    void testMedicationKeysLeaveOutTheDose() {
+        assertEquals("aznol", CanonicalKeys.medication("Aznol:350mg"));
+        assertEquals("aznol", CanonicalKeys.medication(" aznol "));
+        assertEquals("", CanonicalKeys.medication(":100mg"));
+        assertNull(CanonicalKeys.medication(null));
+    }
+
+    @Test
+    void testAddressKeysUnifyStreetSuffixes() {
+        assertEquals("1509 culver st", CanonicalKeys.address("1509 Culver Street"));
+        assertEquals("1509 culver st", CanonicalKeys.address("1509  culver St."));
+        assertEquals("29 15th ave", CanonicalKeys.address("29 15th Avenue"));
+        assertEquals("834 binoc ave", CanonicalKeys.address("834 Binoc Ave"));
+        assertEquals("112 steppes pl", CanonicalKeys.address("112 Steppes Place"));
+        assertEquals("st james ct", CanonicalKeys.address("St James Court"));
+        assertEquals("", CanonicalKeys.address(" "));
+        assertNull(CanonicalKeys.address(null));
+    }
+}
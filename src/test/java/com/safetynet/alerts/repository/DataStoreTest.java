@@ -0,0 +1,474 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.NearbyStation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.model.Resident;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataStoreTest {
+
+    private static final DateTimeFormatter BIRTHDATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private DataStore dataStore;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new DataStore();
+        dataStore.load(
+                List.of(person("John", "Doe", "123 Main St", "Springfield"),
+                        person("Jane", "Doe", "123 Main St", "Springfield"),
+                        person("Bob", "Smith", "456 Oak St", "Shelbyville")),
+                List.of(firestation("123 Main St", "1"),
+                        firestation("456 Oak St", "2"),
+                        firestation("456 Oak St", "3")),
+                List.of(medicalRecord("John", "Doe", "01/01/1980")));
+    }
+
+    @Test
+    void testLookupsIgnoreCase() {
+        assertEquals(2, dataStore.getResidentsAtAddress("123 MAIN ST").size());
+        assertEquals(2, dataStore.getResidentsByLastName("doe").size());
+        assertEquals(1, dataStore.getResidentsByCity("shelbyville").size());
+        assertTrue(dataStore.getMedicalRecord("JOHN", "doe").isPresent());
+    }
+
+    @Test
+    void testFirstMappingWinsForAddress() {
+        assertEquals("2", dataStore.getStationForAddress("456 Oak St").orElseThrow());
+        assertEquals(List.of("456 Oak St"), List.copyOf(dataStore.getAddressesForStation("3")));
+    }
+
+    @Test
+    void testUpdatePersonMovesIndexEntries() {
+        Person moved = person("Jane", "Doe", "456 Oak St", "Shelbyville");
+
+        assertTrue(dataStore.updatePerson(moved));
+
+        assertEquals(1, dataStore.getResidentsAtAddress("123 Main St").size());
+        assertEquals(2, dataStore.getResidentsAtAddress("456 Oak St").size());
+        assertEquals(2, dataStore.getResidentsByCity("Shelbyville").size());
+    }
+
+    @Test
+    void testDeletePersonRemovesIndexEntries() {
+        assertTrue(dataStore.deletePerson("Bob", "Smith"));
+
+        assertTrue(dataStore.getResidentsAtAddress("456 Oak St").isEmpty());
+        assertTrue(dataStore.getResidentsByLastName("Smith").isEmpty());
+        assertEquals(2, dataStore.getPersons().size());
+        assertFalse(dataStore.deletePerson("Bob", "Smith"));
+    }
+
+    @Test
+    void testUpdateFirestationKeepsStationsConsistent() {
+        assertTrue(dataStore.updateFirestation(firestation("456 Oak St", "3")));
+
+        assertTrue(dataStore.getAddressesForStation("2").isEmpty());
+        assertEquals(List.of("456 Oak St"), List.copyOf(dataStore.getAddressesForStation("3")));
+    }
+
+    @Test
+    void testDeleteFirestationRemovesEveryMapping() {
+        assertTrue(dataStore.deleteFirestation("456 oak st"));
+
+        assertTrue(dataStore.getStationForAddress("456 Oak St").isEmpty());
+        assertTrue(dataStore.getAddressesForStation("2").isEmpty());
+        assertTrue(dataStore.getAddressesForStation("3").isEmpty());
+        assertEquals(1, dataStore.getFirestations().size());
+    }
+
+    @Test
+    void testMedicalRecordLifecycle() {
+        dataStore.addMedicalRecord(medicalRecord("Jane", "Doe", "01/01/2010"));
+        assertEquals("01/01/2010", dataStore.getMedicalRecord("Jane", "Doe").orElseThrow().getBirthdate());
+
+        assertTrue(dataStore.updateMedicalRecord(medicalRecord("Jane", "Doe", "02/02/2012")));
+        assertEquals("02/02/2012", dataStore.getMedicalRecord("Jane", "Doe").orElseThrow().getBirthdate());
+
+        assertTrue(dataStore.deleteMedicalRecord("Jane", "Doe"));
+        assertTrue(dataStore.getMedicalRecord("Jane", "Doe").isEmpty());
+        assertEquals(1, dataStore.getMedicalRecords().size());
+    }
+
+    @Test
+    void testResidentsLinkedToMedicalRecords() {
+        assertTrue(dataStore.getResidentsByName("John", "Doe").get(0).hasMedicalRecord());
+        assertFalse(dataStore.getResidentsByName("Jane", "Doe").get(0).hasMedicalRecord());
+
+        MedicalRecord record = medicalRecord("Jane", "Doe", "01/01/2010");
+        dataStore.addMedicalRecord(record);
+        assertSame(record, dataStore.getResidentsAtAddress("123 Main St").get(1).medicalRecord());
+        assertSame(record, dataStore.getResidentsByCity("Springfield").get(1).medicalRecord());
+
+        dataStore.deleteMedicalRecord("Jane", "Doe");
+        assertFalse(dataStore.getResidentsByLastName("Doe").get(1).hasMedicalRecord());
+    }
+
+    @Test
+    void testAddedPersonLinkedToExistingMedicalRecord() {
+        dataStore.deletePerson("John", "Doe");
+        dataStore.addPerson(person("John", "Doe", "789 Pine St", "Springfield"));
+
+        assertTrue(dataStore.getResidentsAtAddress("789 Pine St").get(0).hasMedicalRecord());
+    }
+
+    @Test
+    void testAgesComputedFromBirthdate() {
+        LocalDate today = dataStore.getAgeReferenceDay();
+        dataStore.addMedicalRecord(medicalRecord("Jane", "Doe", today.minusYears(10).format(BIRTHDATE)));
+
+        Resident jane = dataStore.getResidentsByName("Jane", "Doe").get(0);
+        assertEquals(10, jane.age());
+        assertTrue(jane.isChild());
+        assertEquals(-1, dataStore.getResidentsByName("Bob", "Smith").get(0).age());
+    }
+
+    @Test
+    void testRolloverRecomputesOnlyBirthdays() {
+        LocalDate today = dataStore.getAgeReferenceDay();
+        dataStore.addMedicalRecord(medicalRecord("Jane", "Doe", today.plusDays(1).minusYears(18).format(BIRTHDATE)));
+        assertEquals(17, dataStore.getResidentsByName("Jane", "Doe").get(0).age());
+
+        assertEquals(1, dataStore.rollAgesTo(today.plusDays(1)));
+
+        Resident jane = dataStore.getResidentsAtAddress("123 Main St").get(1);
+        assertEquals(18, jane.age());
+        assertTrue(jane.isChild());
+        assertEquals(0, dataStore.rollAgesTo(today.plusDays(1)));
+    }
+
+    @Test
+    void testLeapDayBirthdayRollsOverOnFirstOfMarch() {
+        dataStore.addMedicalRecord(medicalRecord("Jane", "Doe", "02/29/2000"));
+        dataStore.rollAgesTo(LocalDate.of(2025, 2, 28));
+        assertEquals(24, dataStore.getResidentsByName("Jane", "Doe").get(0).age());
+
+        assertEquals(1, dataStore.rollAgesTo(LocalDate.of(2025, 3, 1)));
+        assertEquals(25, dataStore.getResidentsByName("Jane", "Doe").get(0).age());
+    }
+
+    @Test
+    void testUpdatedBirthdateRecomputesAge() {
+        dataStore.updateMedicalRecord(medicalRecord("John", "Doe",
+                dataStore.getAgeReferenceDay().minusYears(5).format(BIRTHDATE)));
+
+        assertEquals(5, dataStore.getResidentsByCity("Springfield").get(0).age());
+    }
+
+    @Test
+    void testWritesPublishNewSnapshotAndKeepOldOneIntact() {
+        DataSnapshot before = dataStore.snapshot();
+
+        dataStore.updatePerson(person("Jane", "Doe", "456 Oak St", "Shelbyville"));
+
+        DataSnapshot after = dataStore.snapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(2, before.getResidentsAtAddress("123 Main St").size());
+        assertEquals("123 Main St", before.getResidentsByName("Jane", "Doe").get(0).person().getAddress());
+        assertEquals(1, after.getResidentsAtAddress("123 Main St").size());
+    }
+
+    @Test
+    void testBatchIsPublishedOnceAndFailedBatchNotAtAll() {
+        long version = dataStore.getVersion();
+
+        dataStore.update(b -> {
+            b.addPerson(person("Ann", "Lee", "789 Pine St", "Springfield"));
+            b.addFirestation(firestation("789 Pine St", "4"));
+            return null;
+        });
+        assertEquals(version + 1, dataStore.getVersion());
+
+        assertThrows(IllegalStateException.class, () -> dataStore.update(b -> {
+            b.deletePerson("Ann", "Lee");
+            throw new IllegalStateException("rejected");
+        }));
+        assertEquals(version + 1, dataStore.getVersion());
+        assertEquals(1, dataStore.getResidentsAtAddress("789 Pine St").size());
+    }
+
+    @Test
+    void testNoOpWriteKeepsVersion() {
+        long version = dataStore.getVersion();
+
+        assertFalse(dataStore.deletePerson("Nobody", "Here"));
+
+        assertEquals(version, dataStore.getVersion());
+    }
+
+    @Test
+    void testConcurrentReadsDuringWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        DataSnapshot snapshot = dataStore.snapshot();
+                        int residents = 0;
+                        for (Resident resident : snapshot.getResidentsByCity("Springfield")) {
+                            residents += resident.person().getCity() == null ? 0 : 1;
+                        }
+                        assertEquals(snapshot.getResidentsByCity("Springfield").size(), residents);
+                    }
+                }));
+            }
+            for (int i = 0; i < 2000; i++) {
+                dataStore.addPerson(person("Temp" + i, "Doe", "123 Main St", "Springfield"));
+                if (i % 2 == 0) {
+                    dataStore.deletePerson("Temp" + i, "Doe");
+                }
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals(1002, dataStore.getResidentsAtAddress("123 Main St").size());
+    }
+
+    @Test
+    void testVersionsFollowTheChangedKeys() {
+        DataVersions versions = dataStore.versions();
+        long loaded = dataStore.getVersion();
+        List<String> main = List.of(DataVersions.address("123 MAIN ST"));
+        List<String> oak = List.of(DataVersions.address("456 Oak St"), DataVersions.city("Shelbyville"));
+        assertEquals(loaded, versions.versionOf(main));
+
+        dataStore.updatePerson(person("Bob", "Smith", "456 Oak St", "Shelbyville"));
+
+        assertEquals(loaded, versions.versionOf(main));
+        assertEquals(loaded + 1, versions.versionOf(oak));
+        assertEquals(loaded + 1, versions.versionOf(List.of(DataVersions.station("3"))));
+        assertEquals(loaded, versions.versionOf(List.of(DataVersions.station("1"), DataVersions.lastName("Doe"))));
+
+        dataStore.updateFirestation(firestation("123 Main St", "4"));
+
+        assertEquals(loaded + 2, versions.versionOf(List.of(DataVersions.station("1"))));
+        assertEquals(loaded + 2, versions.versionOf(List.of(DataVersions.station("4"))));
+        assertEquals(loaded + 1, versions.versionOf(oak));
+
+        dataStore.load(List.of(), List.of(), List.of());
+
+        assertEquals(loaded + 3, versions.versionOf(oak));
+    }
+
+    @Test
+    void testRepeatedValuesShareOneInstance() {
+        Person lodger = person("Tim", new String("Doe"), new String("123 Main St"), new String("Springfield"));
+        MedicalRecord first = medicalRecord("Jane", "Doe", new String("01/01/1980"));
+        first.setMedications(new ArrayList<>(List.of(new String("aznol:350mg"))));
+        MedicalRecord second = medicalRecord("Bob", "Smith", "01/01/1980");
+        second.setMedications(new ArrayList<>(List.of(new String("aznol:350mg"))));
+
+        dataStore.addPerson(lodger);
+        dataStore.addMedicalRecord(first);
+        dataStore.addMedicalRecord(second);
+        dataStore.updatePerson(person("Bob", "Smith", new String("123 Main St"), "Springfield"));
+
+        List<Resident> residents = dataStore.getResidentsAtAddress("123 Main St");
+        assertEquals(4, residents.size());
+        for (Resident resident : residents) {
+            assertSame(residents.get(0).person().getAddress(), resident.person().getAddress());
+            assertSame(residents.get(0).person().getCity(), resident.person().getCity());
+        }
+        assertSame(dataStore.getResidentsByLastName("Doe").get(0).person().getLastName(), lodger.getLastName());
+        MedicalRecord jane = dataStore.getMedicalRecord("Jane", "Doe").orElseThrow();
+        MedicalRecord bob = dataStore.getMedicalRecord("Bob", "Smith").orElseThrow();
+        assertSame(jane.getBirthdate(), bob.getBirthdate());
+        assertSame(jane.getMedications(), bob.getMedications());
+        assertEquals(List.of("aznol:350mg"), bob.getMedications());
+        assertThrows(UnsupportedOperationException.class, () -> bob.getMedications().add("other"));
+        assertEquals(LocalDate.of(1980, 1, 1).toEpochDay(), bob.getBirthEpochDay());
+    }
+
+    @Test
+    void testReloadDropsDictionaryValuesNoRecordHolds() {
+        dataStore.reconcile(
+                List.of(person("John", "Doe", "123 Main St", "Springfield"),
+                        person("Jane", "Doe", "123 Main St", "Springfield")),
+                List.of(firestation("123 Main St", "1")),
+                List.of(medicalRecord("John", "Doe", "01/01/1980")), List.of());
+
+        FieldDictionaries dictionaries = dataStore.snapshot().dictionaries();
+        assertEquals(1, dictionaries.size(FieldDictionaries.Field.CITY));
+        assertEquals(1, dictionaries.size(FieldDictionaries.Field.STATION));
+        Person lodger = person("Tim", "Doe", new String("123 Main St"), new String("Springfield"));
+        dataStore.addPerson(lodger);
+        assertSame(dataStore.getResidentsByName("John", "Doe").get(0).person().getCity(), lodger.getCity());
+    }
+
+    @Test
+    void testDictionariesAreRebuiltOnceOutgrown() {
+        for (int i = 0; i < 5000; i++) {
+            Person bob = person("Bob", "Smith", "456 Oak St", "Shelbyville");
+            bob.setPhone("555-" + i);
+            dataStore.updatePerson(bob);
+        }
+
+        int phones = dataStore.snapshot().dictionaries().size(FieldDictionaries.Field.PHONE);
+        assertTrue(phones < 2000, phones + " phones");
+        assertEquals("555-4999", dataStore.getResidentsByName("Bob", "Smith").get(0).person().getPhone());
+    }
+
+    @Test
+    void testKeysIgnoreCaseSpacingAndStreetSuffix() {
+        dataStore.addPerson(person("Tim", " doe", "123  MAIN street", "Springfield  "));
+
+        assertEquals(3, dataStore.getResidentsAtAddress("123 Main St.").size());
+        assertEquals(3, dataStore.getResidentsByCity("springfield").size());
+        assertEquals(3, dataStore.getResidentsByLastName("DOE ").size());
+        assertEquals("1", dataStore.getStationForAddress("123 main street").orElseThrow());
+        assertTrue(dataStore.deleteFirestation("456 Oak Street"));
+        assertTrue(dataStore.getAddressesForStation("2").isEmpty());
+        assertEquals(DataVersions.address("123 Main St"), DataVersions.address(" 123 main  STREET"));
+    }
+
+    @Test
+    void testLastNameSearchFollowsChanges() {
+        dataStore.addPerson(person("Ann", "Smyth", "789 Elm St", "Springfield"));
+        dataStore.addPerson(person("Tom", "Doerr", "789 Elm St", "Springfield"));
+
+        assertEquals(List.of("doe", "doerr"), dataStore.snapshot().searchLastNames("DO", NameSearchIndex.Match.PREFIX, 10));
+        assertEquals(List.of("doe"), dataStore.snapshot().searchLastNames("do", NameSearchIndex.Match.PREFIX, 1));
+        assertEquals(List.of("smith", "smyth"), dataStore.snapshot().searchLastNames("Smith", NameSearchIndex.Match.FUZZY, 10));
+        assertEquals(List.of("smyth"), dataStore.snapshot().searchLastNames("smyth", NameSearchIndex.Match.EXACT, 10));
+        assertEquals(List.of(), dataStore.snapshot().searchLastNames("smi", NameSearchIndex.Match.EXACT, 10));
+
+        assertTrue(dataStore.deletePerson("Bob", "Smith"));
+        assertEquals(List.of("smyth"), dataStore.snapshot().searchLastNames("Smith", NameSearchIndex.Match.FUZZY, 10));
+        assertTrue(dataStore.deletePerson("John", "Doe"));
+        assertEquals(List.of("doe", "doerr"), dataStore.snapshot().searchLastNames("d", NameSearchIndex.Match.PREFIX, 10));
+        assertTrue(dataStore.deletePerson("Jane", "Doe"));
+        assertEquals(List.of("doerr"), dataStore.snapshot().searchLastNames("d", NameSearchIndex.Match.PREFIX, 10));
+    }
+
+    @Test
+    void testMedicalTermIndexesFollowRecordChanges() {
+        MedicalRecord jane = medicalRecord("Jane", "Doe", "01/01/1985");
+        jane.setMedications(List.of("aznol:350mg", "hydrapermazol:100mg"));
+        jane.setAllergies(List.of("Peanut"));
+        dataStore.addMedicalRecord(jane);
+        MedicalRecord bob = medicalRecord("Bob", "Smith", "01/01/1970");
+        bob.setMedications(List.of("Aznol:200mg"));
+        dataStore.addMedicalRecord(bob);
+
+        assertEquals(Map.of("123 Main St", List.of("Jane")), covered(List.of("1"), List.of("AZNOL"), List.of()));
+        assertEquals(Map.of("123 Main St", List.of("Jane"), "456 Oak St", List.of("Bob")),
+                covered(List.of("1", "2", "3"), List.of("aznol:100mg"), List.of()));
+        assertEquals(Map.of("123 Main St", List.of("Jane")), covered(List.of("1", "2"), List.of(), List.of("peanut")));
+        assertEquals(Map.of(), covered(List.of("2"), List.of("hydrapermazol"), List.of("peanut")));
+        assertEquals(2, dataStore.snapshot().getIndexSize(DataSnapshot.Index.MEDICATIONS));
+
+        MedicalRecord recovered = medicalRecord("Jane", "Doe", "01/01/1985");
+        assertTrue(dataStore.updateMedicalRecord(recovered));
+        assertEquals(Map.of(), covered(List.of("1"), List.of("aznol"), List.of("peanut")));
+        assertTrue(dataStore.deleteMedicalRecord("Bob", "Smith"));
+        assertEquals(Map.of(), covered(List.of("2"), List.of("aznol"), List.of()));
+        assertEquals(0, dataStore.snapshot().getIndexSize(DataSnapshot.Index.MEDICATIONS));
+    }
+
+    private Map<String, List<String>> covered(List<String> stations, List<String> medications, List<String> allergies) {
+        Map<String, List<String>> firstNames = new HashMap<>();
+        dataStore.snapshot().getCoveredResidentsWithMedicalTerms(stations, medications, allergies).forEach(
+                (address, residents) -> firstNames.put(address,
+                        residents.stream().map(resident -> resident.person().getFirstName()).toList()));
+        return firstNames;
+    }
+
+    @Test
+    void testGeocodesResolveNearbyStationsAndResidents() {
+        dataStore.update(builder -> {
+            builder.addGeocode(geocode("123 Main St", 33.9, -118.4));
+            builder.addGeocode(geocode("456 Oak St", 33.91, -118.4));
+            builder.addGeocode(geocode("789 Elm St", 33.908, -118.4));
+            builder.addGeocode(geocode("1 Nowhere Rd", null, -118.4));
+            return null;
+        });
+        DataSnapshot snapshot = dataStore.snapshot();
+
+        List<NearbyStation> stations = snapshot.getNearestStations(33.9, -118.4, 3, Double.POSITIVE_INFINITY);
+        assertEquals(List.of("1", "2"), stations.stream().map(NearbyStation::station).toList());
+        assertEquals("456 Oak St", stations.get(1).address());
+        assertEquals(1112, stations.get(1).distance(), 1);
+        assertEquals("2", snapshot.getNearestStation("789 ELM STREET", 10_000).orElseThrow().station());
+        assertTrue(snapshot.getNearestStation("789 Elm St", 100).isEmpty());
+        assertTrue(snapshot.getNearestStation("1 Nowhere Rd", 10_000).isEmpty());
+        assertEquals(List.of("123 Main St"), List.copyOf(snapshot.getResidentsWithin(33.9, -118.4, 500).keySet()));
+        assertEquals(List.of("456 Oak St", "123 Main St"), List.copyOf(snapshot.getResidentsWithin(33.909, -118.4, 2000).keySet()));
+        assertEquals(4, snapshot.getIndexSize(DataSnapshot.Index.GEOCODED_ADDRESSES));
+
+        long located = dataStore.versions().versionOf(List.of(DataVersions.locations()));
+        Geocode moved = geocode("789 elm st", 33.901, -118.4);
+        boolean updated = dataStore.update(builder -> builder.updateGeocode(moved));
+        assertTrue(updated);
+        assertEquals("1", dataStore.snapshot().getNearestStation("789 Elm St", 10_000).orElseThrow().station());
+        assertTrue(dataStore.versions().versionOf(List.of(DataVersions.locations())) > located);
+        assertTrue(dataStore.versions().versionOf(List.of(DataVersions.address("789 Elm St"))) > located);
+
+        boolean deleted = dataStore.update(builder -> builder.deleteGeocode("789 Elm St"));
+        assertTrue(deleted);
+        assertTrue(dataStore.snapshot().getGeocode("789 Elm St").isEmpty());
+        assertTrue(dataStore.snapshot().getNearestStation("789 Elm St", 10_000).isEmpty());
+        assertEquals(3, dataStore.snapshot().getGeocodes().size());
+        assertEquals("2", snapshot.getNearestStation("789 Elm St", 10_000).orElseThrow().station());
+    }
+
+    private static Geocode geocode(String address, Double latitude, Double longitude) {
+        Geocode geocode = new Geocode();
+        geocode.setAddress(address);
+        geocode.setLatitude(latitude);
+        geocode.setLongitude(longitude);
+        return geocode;
+    }
+
+    private static Person person(String firstName, String lastName, String address, String city) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress(address);
+        person.setCity(city);
+        person.setEmail(firstName.toLowerCase() + "@example.com");
+        person.setPhone("555-0000");
+        return person;
+    }
+
+    private static Firestation firestation(String address, String station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(String firstName, String lastName, String birthdate) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(firstName);
+        record.setLastName(lastName);
+        record.setBirthdate(birthdate);
+        record.setMedications(List.of());
+        record.setAllergies(List.of());
+        return record;
+    }
+}
@@ -0,0 +1,167 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Geocode;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetDiffTest {
+
+    private DataStore dataStore;
+    private List<Person> persons;
+    private List<Firestation> firestations;
+    private List<MedicalRecord> medicalRecords;
+
+    @BeforeEach
+    void setUp() {
+        persons = new ArrayList<>(List.of(
+                person("John", "Boyd", "1509 Culver St", "841-874-6512"),
+                person("Jacob", "Boyd", "1509 Culver St", "841-874-6513"),
+                person("Peter", "Duncan", "644 Gershwin Cir", "841-874-6512")));
+        firestations = new ArrayList<>(List.of(
+                firestation("1509 Culver St", "3"),
+                firestation("644 Gershwin Cir", "1")));
+        medicalRecords = new ArrayList<>(List.of(
+                medicalRecord("John", "Boyd", "03/06/1984", "aznol:350mg"),
+                medicalRecord("Peter", "Duncan", "09/06/2000")));
+        dataStore = new DataStore();
+        dataStore.load(copy(persons), firestations, medicalRecords);
+    }
+
+    @Test
+    void testSameDatasetChangesNothing() {
+        long version = dataStore.getVersion();
+
+        DatasetDiff diff = dataStore.reconcile(copy(persons), firestations, medicalRecords, List.of());
+
+        assertTrue(diff.isEmpty());
+        assertEquals(version, dataStore.getVersion());
+    }
+
+    @Test
+    void testChangesAreAppliedInOneVersion() {
+        long version = dataStore.getVersion();
+        List<Person> next = copy(persons);
+        next.get(1).setPhone("000-000-0000");                 // update
+        next.remove(2);                                        // remove Peter Duncan
+        next.add(person("Tenley", "Boyd", "1509 Culver St", "841-874-6512")); // add
+        List<Firestation> nextStations = List.of(firestation("1509 Culver St", "4"), firestation("29 15th St", "2"));
+        List<MedicalRecord> nextRecords = List.of(medicalRecord("John", "Boyd", "03/06/1984", "noxidian:100mg"),
+                medicalRecord("Tenley", "Boyd", "02/18/2012"));
+
+        DatasetDiff diff = dataStore.reconcile(next, nextStations, nextRecords, List.of());
+
+        assertEquals(version + 1, dataStore.getVersion());
+        assertEquals(3, diff.getAdded());
+        assertEquals(3, diff.getUpdated());
+        assertEquals(3, diff.getRemoved());
+        assertEquals("000-000-0000", dataStore.getResidentsByName("Jacob", "Boyd").get(0).person().getPhone());
+        assertTrue(dataStore.getResidentsByName("Peter", "Duncan").isEmpty());
+        assertTrue(dataStore.getResidentsAtAddress("644 Gershwin Cir").isEmpty());
+        assertTrue(dataStore.getResidentsByName("Tenley", "Boyd").get(0).isChild());
+        assertEquals("4", dataStore.getStationForAddress("1509 Culver St").orElseThrow());
+        assertTrue(dataStore.getStationForAddress("644 Gershwin Cir").isEmpty());
+        assertEquals(List.of("noxidian:100mg"),
+                dataStore.getResidentsByName("John", "Boyd").get(0).medicalRecord().getMedications());
+        assertEquals(3, dataStore.getPersons().size());
+    }
+
+    @Test
+    void testUnchangedIndexEntriesAreShared() {
+        DataSnapshot before = dataStore.snapshot();
+        List<Person> next = copy(persons);
+        next.get(2).setEmail("peter@example.com");
+
+        dataStore.reconcile(next, firestations, medicalRecords, List.of());
+
+        DataSnapshot after = dataStore.snapshot();
+        assertSame(before.residentsByAddress().get("1509 culver st"), after.residentsByAddress().get("1509 culver st"));
+        assertSame(before.firestationsByAddress(), after.firestationsByAddress());
+        assertNotSame(before.residentsByAddress().get("644 gershwin cir"),
+                after.residentsByAddress().get("644 gershwin cir"));
+        assertEquals("peter@example.com", dataStore.getResidentsByName("Peter", "Duncan").get(0).person().getEmail());
+    }
+
+    @Test
+    void testRenamedCaseAndDuplicatesAreReplaced() {
+        List<Person> next = copy(persons);
+        next.get(0).setFirstName("JOHN");
+        next.add(person("Jacob", "Boyd", "29 15th St", "841-874-0000"));
+
+        DatasetDiff diff = dataStore.reconcile(next, firestations, medicalRecords, List.of());
+
+        assertEquals(0, diff.getUpdated());
+        assertEquals("JOHN", dataStore.getResidentsByName("John", "Boyd").get(0).person().getFirstName());
+        assertEquals(2, dataStore.getResidentsByName("Jacob", "Boyd").size());
+        assertEquals(4, dataStore.getPersons().size());
+    }
+
+    @Test
+    void testGeocodesAreReconciledAndMoveTheirAddresses() {
+        dataStore.reconcile(copy(persons), firestations, medicalRecords,
+                List.of(geocode("1509 Culver St", 33.97, -118.39), geocode("644 Gershwin Cir", 33.98, -118.39)));
+        assertEquals("3", dataStore.snapshot().getNearestStations(33.971, -118.39, 1, 500).get(0).station());
+
+        DatasetDiff diff = dataStore.reconcile(copy(persons), firestations, medicalRecords,
+                List.of(geocode("1509 Culver St", 34.5, -117.5)));
+
+        assertEquals(1, diff.getUpdated());
+        assertEquals(1, diff.getRemoved());
+        DataSnapshot snapshot = dataStore.snapshot();
+        assertTrue(snapshot.getGeocode("644 Gershwin Cir").isEmpty());
+        assertTrue(snapshot.getNearestStations(33.971, -118.39, 1, 5000).isEmpty());
+        assertEquals(List.of("1509 Culver St"), List.copyOf(snapshot.getResidentsWithin(34.5, -117.5, 10).keySet()));
+    }
+
+    private static List<Person> copy(List<Person> persons) {
+        List<Person> copies = new ArrayList<>();
+        for (Person p : persons) {
+            copies.add(person(p.getFirstName(), p.getLastName(), p.getAddress(), p.getPhone()));
+        }
+        return copies;
+    }
+
+    private static Person person(String firstName, String lastName, String address, String phone) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress(address);
+        person.setCity("Culver");
+        person.setZip("97451");
+        person.setPhone(phone);
+        person.setEmail(firstName.toLowerCase() + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, String station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(String firstName, String lastName, String birthdate, String... medications) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(firstName);
+        record.setLastName(lastName);
+        record.setBirthdate(birthdate);
+        record.setMedications(List.of(medications));
+        record.setAllergies(List.of());
+        return record;
+    }
+
+    private static Geocode geocode(String address, double latitude, double longitude) {
+        Geocode geocode = new Geocode();
+        geocode.setAddress(address);
+        geocode.setLatitude(latitude);
+        geocode.setLongitude(longitude);
+        return geocode;
+    }
+}
@@ -0,0 +1,104 @@
+package com.safetynet.alerts.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoIndexTest {
+
+    private static final double CULVER_LATITUDE = 33.9;
+    private static final double CULVER_LONGITUDE = -118.4;
+
+    private final List<GeoIndex.Point> points = randomPoints(2000, 0.1);
+    private final GeoIndex index = GeoIndex.of(points);
+
+    @Test
+    void testAddressesWithinRadiusMatchAScan() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            double latitude = CULVER_LATITUDE + random.nextDouble() * 0.1;
+            double longitude = CULVER_LONGITUDE + random.nextDouble() * 0.1;
+            double radius = random.nextDouble() * 2000;
+
+            List<GeoIndex.Neighbour> expected = scan(latitude, longitude).stream()
+                    .filter(neighbour -> neighbour.distance() <= radius).toList();
+
+            assertEquals(expected, index.within(latitude, longitude, radius));
+        }
+        assertEquals(points.size(), index.within(CULVER_LATITUDE, CULVER_LONGITUDE, 1_000_000).size());
+        assertEquals(List.of(), index.within(CULVER_LATITUDE, CULVER_LONGITUDE, -1));
+    }
+
+    @Test
+    void testNearestAddressesComeInOrderOfDistance() {
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            double latitude = CULVER_LATITUDE + random.nextDouble() * 0.1;
+            double longitude = CULVER_LONGITUDE + random.nextDouble() * 0.1;
+
+            List<GeoIndex.Neighbour> found = new ArrayList<>();
+            index.nearest(latitude, longitude, Double.POSITIVE_INFINITY, neighbour -> found.add(neighbour) && found.size() < 25);
+
+            assertEquals(scan(latitude, longitude).subList(0, 25), found);
+        }
+    }
+
+    @Test
+    void testNearestStopsAtTheDistanceLimitAndReachesFarAddresses() {
+        List<GeoIndex.Neighbour> found = new ArrayList<>();
+        index.nearest(CULVER_LATITUDE + 0.05, CULVER_LONGITUDE + 0.05, 300, found::add);
+        assertEquals(scan(CULVER_LATITUDE + 0.05, CULVER_LONGITUDE + 0.05).stream()
+                .filter(neighbour -> neighbour.distance() <= 300).toList(), found);
+
+        // Far from every address: the occupied cells are read rather than thousands of empty rings
+        List<GeoIndex.Neighbour> far = new ArrayList<>();
+        index.nearest(40.7, -74.0, Double.POSITIVE_INFINITY, neighbour -> far.add(neighbour) && far.size() < 3);
+        assertEquals(scan(40.7, -74.0).subList(0, 3), far);
+        assertTrue(far.get(0).distance() > 3_000_000);
+    }
+
+    @Test
+    void testEditsLeaveThePublishedIndexUnchanged() {
+        GeoIndex.Point first = points.get(0);
+        GeoIndex.Editor editor = index.edit();
+        editor.remove(first.addressKey(), first.latitude(), first.longitude());
+        editor.add(first.addressKey(), 34.5, -117.5);
+        editor.remove("unknown", 34.5, -117.5);
+        GeoIndex edited = editor.build();
+
+        assertEquals(points.size(), edited.size());
+        assertEquals(first.addressKey(), edited.within(34.5, -117.5, 10).get(0).addressKey());
+        assertTrue(edited.within(first.latitude(), first.longitude(), 0).stream()
+                .noneMatch(neighbour -> neighbour.addressKey().equals(first.addressKey())));
+        assertEquals(first.addressKey(), index.within(first.latitude(), first.longitude(), 0).get(0).addressKey());
+        assertEquals(List.of(), index.within(34.5, -117.5, 10));
+    }
+
+    private List<GeoIndex.Neighbour> scan(double latitude, double longitude) {
+        double metersPerDegree = GeoIndex.EARTH_RADIUS * Math.PI / 180;
+        double metersPerLongitudeDegree = metersPerDegree * Math.cos(Math.toRadians(latitude));
+        List<GeoIndex.Neighbour> neighbours = new ArrayList<>();
+        for (GeoIndex.Point point : points) {
+            double north = (point.latitude() - latitude) * metersPerDegree;
+            double east = (point.longitude() - longitude) * metersPerLongitudeDegree;
+            neighbours.add(new GeoIndex.Neighbour(point.addressKey(), Math.sqrt(north * north + east * east)));
+        }
+        neighbours.sort(Comparator.comparingDouble(GeoIndex.Neighbour::distance));
+        return neighbours;
+    }
+
+    private static List<GeoIndex.Point> randomPoints(int count, double spread) {
+        Random random = new Random(3);
+        List<GeoIndex.Point> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new GeoIndex.Point(i + " culver st", CULVER_LATITUDE + random.nextDouble() * spread,
+                    CULVER_LONGITUDE + random.nextDouble() * spread));
+        }
+        return points;
+    }
+}
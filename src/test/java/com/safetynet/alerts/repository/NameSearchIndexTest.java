@@ -0,0 +1,60 @@
+package com.safetynet.alerts.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameSearchIndexTest {
+
+    private final NameSearchIndex index = NameSearchIndex.of(
+            List.of("boyd", "boyle", "byrd", "bo", "marrack", "zemicks", "cadigan", "duncan"));
+
+    @Test
+    void testPrefixesMatchAlphabetically() {
+        assertEquals(List.of("bo", "boyd", "boyle"), index.startingWith("Bo", 10));
+        assertEquals(List.of("boyd", "boyle"), index.startingWith("boy", 10));
+        assertEquals(List.of("bo", "boyd", "boyle", "byrd"), index.startingWith("b", 10));
+        assertEquals(List.of("bo", "boyd"), index.startingWith("b", 2));
+        assertEquals(List.of(), index.startingWith("x", 10));
+        assertEquals(List.of(), index.startingWith(" ", 10));
+        assertEquals(8, index.size());
+    }
+
+    @Test
+    void testCloseNamesRankByDistance() {
+        assertEquals(List.of("byrd", "boyd"), index.closeTo("Byod", 10));
+        assertEquals(List.of("boyd", "boyle"), index.closeTo("boyde", 10));
+        assertEquals(List.of("boyd"), index.closeTo("Boid", 10));
+        assertEquals(List.of("marrack"), index.closeTo("Marack", 10));
+        assertEquals(List.of("zemicks"), index.closeTo("zemikcs", 10));
+        assertEquals(List.of("cadigan"), index.closeTo("kadigen", 10));
+        assertEquals(List.of("bo"), index.closeTo("bo", 10));
+        assertEquals(List.of(), index.closeTo("by", 10));
+        assertEquals(List.of("boyd"), index.closeTo("boyd", 1));
+    }
+
+    @Test
+    void testDistanceCountsSwapsAndStopsAtTheBound() {
+        assertEquals(0, NameSearchIndex.distance("boyd", "boyd", 2));
+        assertEquals(1, NameSearchIndex.distance("boyd", "byod", 2));
+        assertEquals(1, NameSearchIndex.distance("boyd", "boy", 2));
+        assertEquals(2, NameSearchIndex.distance("kadigen", "cadigan", 2));
+        assertEquals(3, NameSearchIndex.distance("boyd", "marrack", 2));
+    }
+
+    @Test
+    void testEditsLeaveThePublishedIndexUnchanged() {
+        NameSearchIndex.Editor editor = index.edit();
+        editor.add("boyden");
+        editor.remove("boyd");
+        editor.remove("unknown");
+        NameSearchIndex edited = editor.build();
+
+        assertEquals(List.of("boyden", "boyle"), edited.startingWith("boy", 10));
+        assertEquals(List.of("boyden", "boyle"), edited.closeTo("boyde", 10));
+        assertEquals(List.of("boyd", "boyle"), index.startingWith("boy", 10));
+        assertEquals(List.of("boyd", "boyle"), index.closeTo("boyde", 10));
+    }
+}
@@ -0,0 +1,73 @@
+package com.safetynet.alerts.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordListTest {
+
+    private static List<String> records(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new String("record" + i)).toList();
+    }
+
+    @Test
+    void testListKeepsInsertionOrderAcrossChunks() {
+        List<String> records = records(0, 3 * RecordList.CHUNK_SIZE + 7);
+        RecordList<String> list = RecordList.of(records);
+
+        assertEquals(records, list);
+        assertEquals(records, new ArrayList<>(list));
+        assertEquals(records.get(RecordList.CHUNK_SIZE), list.get(RecordList.CHUNK_SIZE));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(records.size()));
+        assertSame(list, RecordList.of(list));
+        assertTrue(RecordList.empty().isEmpty());
+    }
+
+    @Test
+    void testEditsLeaveThePublishedListUnchanged() {
+        List<String> records = records(0, 2 * RecordList.CHUNK_SIZE);
+        RecordList<String> list = RecordList.of(records);
+        RecordList.Editor<String> editor = list.edit();
+        String added = new String("added");
+        String replacement = new String("replacement");
+        editor.add(added);
+        assertTrue(editor.replace(records.get(3), replacement));
+        assertTrue(editor.remove(records.get(RecordList.CHUNK_SIZE)));
+        // Found by identity, not by equality
+        assertFalse(editor.remove(new String("record5")));
+        RecordList<String> edited = editor.build();
+
+        List<String> expected = new ArrayList<>(records);
+        expected.add(added);
+        expected.set(3, replacement);
+        expected.remove(RecordList.CHUNK_SIZE);
+        assertEquals(expected, edited);
+        assertEquals(records, list);
+        assertSame(list, list.edit().build());
+    }
+
+    @Test
+    void testRemovalsMergeSmallChunks() {
+        List<String> records = records(0, 3 * RecordList.CHUNK_SIZE);
+        RecordList.Editor<String> editor = RecordList.of(records).edit();
+        List<String> expected = new ArrayList<>(records);
+        for (String record : records.subList(0, 2 * RecordList.CHUNK_SIZE - 10)) {
+            assertTrue(editor.remove(record));
+            expected.remove(0);
+        }
+        for (String record : records(0, RecordList.CHUNK_SIZE + 1)) {
+            editor.add(record);
+            expected.add(record);
+        }
+        RecordList<String> edited = editor.build();
+
+        assertEquals(expected, edited);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), edited.get(i));
+        }
+    }
+}
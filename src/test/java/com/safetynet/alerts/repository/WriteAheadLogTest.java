@@ -0,0 +1,273 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path walDirectory;
+    private DataStore dataStore;
+    private WriteAheadLog log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        walDirectory = tempDir.resolve("wal");
+        dataStore = new DataStore();
+        dataStore.load(List.of(person("John", "Boyd", "1509 Culver St")),
+                List.of(firestation("1509 Culver St", "3")),
+                List.of(medicalRecord("John", "Boyd", "03/06/1984", "aznol:350mg")));
+        log = WriteAheadLog.open(walDirectory, dataStore.getVersion(), Duration.ofMillis(1));
+        dataStore.attachLog(log);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        log.close();
+    }
+
+    @Test
+    void testChangesAreReplayedOnTopOfTheBaseData() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        dataStore.updateFirestation(firestation("1509 Culver St", "4"));
+        dataStore.updateMedicalRecord(medicalRecord("John", "Boyd", "03/06/1984", "hydrapermazol:100mg"));
+        dataStore.deletePerson("John", "Boyd");
+        dataStore.update(b -> {
+            b.addFirestation(firestation("29 15th St", "2"));
+            b.addMedicalRecord(medicalRecord("Jacob", "Boyd", "03/06/1989"));
+            return null;
+        });
+        log.close();
+
+        DataStore restarted = restartFromBaseData();
+        int replayed = WriteAheadLog.replay(walDirectory, restarted);
+
+        assertEquals(5, replayed);
+        assertEquals(dataStore.getVersion(), restarted.getVersion());
+        assertTrue(restarted.getResidentsByName("John", "Boyd").isEmpty());
+        assertEquals(1, restarted.getResidentsByName("Jacob", "Boyd").size());
+        assertTrue(restarted.getResidentsByName("Jacob", "Boyd").get(0).hasMedicalRecord());
+        assertEquals("4", restarted.getStationForAddress("1509 Culver St").orElseThrow());
+        assertEquals("2", restarted.getStationForAddress("29 15th St").orElseThrow());
+        assertEquals(List.of("hydrapermazol:100mg"),
+                restarted.getMedicalRecord("John", "Boyd").orElseThrow().getMedications());
+    }
+
+    @Test
+    void testUnchangedWritesAreNotLogged() throws IOException {
+        assertFalse(dataStore.deletePerson("Nobody", "Here"));
+        log.close();
+
+        assertEquals(0, log.getFrameCount());
+        assertEquals(0, WriteAheadLog.replay(walDirectory, restartFromBaseData()));
+    }
+
+    @Test
+    void testAgeRolloversKeepLoggedVersionsConsecutive() throws IOException {
+        dataStore.rollAgesTo(dataStore.getAgeReferenceDay().plusYears(1));
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        log.close();
+
+        assertEquals(2, log.getFrameCount());
+        DataStore restarted = restartFromBaseData();
+        assertEquals(2, WriteAheadLog.replay(walDirectory, restarted));
+        assertEquals(dataStore.getVersion(), restarted.getVersion());
+        assertEquals(1, restarted.getResidentsByName("Jacob", "Boyd").size());
+    }
+
+    @Test
+    void testConcurrentWritersShareSyncs() throws Exception {
+        log.close();
+        log = WriteAheadLog.open(walDirectory, dataStore.getVersion(), Duration.ofMillis(5));
+        dataStore.attachLog(log);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String firstName = "Person" + i;
+                writes.add(executor.submit(() -> dataStore.addPerson(person(firstName, "Test", "1 Main St"))));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, log.getFrameCount());
+        assertTrue(log.getSyncCount() < 200, "expected grouped syncs but got " + log.getSyncCount());
+        log.close();
+        DataStore restarted = restartFromBaseData();
+        WriteAheadLog.replay(walDirectory, restarted);
+        assertEquals(200, restarted.getResidentsAtAddress("1 Main St").size());
+    }
+
+    @Test
+    void testTornWriteAtTheEndIsTruncated() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        dataStore.addPerson(person("Tenley", "Boyd", "1509 Culver St"));
+        log.close();
+        Path segment = lastSegment();
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        DataStore restarted = restartFromBaseData();
+        assertEquals(1, WriteAheadLog.replay(walDirectory, restarted));
+
+        assertEquals(1, restarted.getResidentsByName("Jacob", "Boyd").size());
+        assertTrue(restarted.getResidentsByName("Tenley", "Boyd").isEmpty());
+        assertTrue(Files.size(segment) < size - 3);
+    }
+
+    @Test
+    void testCorruptionBeforeTheLastSegmentIsRejected() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        log.close();
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(segment, bytes);
+        log = WriteAheadLog.open(walDirectory, dataStore.getVersion(), Duration.ZERO);
+        dataStore.attachLog(log);
+        dataStore.addPerson(person("Tenley", "Boyd", "1509 Culver St"));
+
+        assertThrows(IOException.class, () -> WriteAheadLog.replay(walDirectory, restartFromBaseData()));
+    }
+
+    @Test
+    void testCompactionDeletesCoveredSegments() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        assertTrue(log.hasChangesSinceCheckpoint());
+
+        WriteAheadLog.Checkpoint checkpoint = dataStore.checkpoint();
+        Path snapshotFile = tempDir.resolve("data.snapshot");
+        BinarySnapshotWriter.write(checkpoint.snapshot(), snapshotFile);
+        assertEquals(1, log.deleteSegmentsBefore(checkpoint));
+        assertFalse(log.hasChangesSinceCheckpoint());
+        dataStore.addPerson(person("Tenley", "Boyd", "1509 Culver St"));
+        log.close();
+
+        DataStore restarted = new DataStore();
+        restarted.replace(BinarySnapshotReader.read(snapshotFile, LocalDate.now()));
+        assertEquals(1, WriteAheadLog.replay(walDirectory, restarted));
+        assertEquals(3, restarted.getResidentsAtAddress("1509 Culver St").size());
+        assertEquals(dataStore.getVersion(), restarted.getVersion());
+    }
+
+    @Test
+    void testCompactionWaitsForTheWriterToSwitchSegments() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+
+        WriteAheadLog.Checkpoint checkpoint = dataStore.checkpoint();
+
+        assertEquals(1, log.deleteSegmentsBefore(checkpoint));
+        try (Stream<Path> segments = Files.list(walDirectory)) {
+            assertEquals(List.of(checkpoint.segment()), segments
+                    .map(segment -> Long.parseLong(segment.getFileName().toString().replaceAll("\\D", ""))).toList());
+        }
+    }
+
+    @Test
+    void testMissingMiddleSegmentIsRejected() throws IOException {
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        dataStore.checkpoint();
+        dataStore.addPerson(person("Tenley", "Boyd", "1509 Culver St"));
+        dataStore.checkpoint();
+        dataStore.addPerson(person("Roger", "Boyd", "1509 Culver St"));
+        log.close();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            segments = files.sorted().toList();
+        }
+        assertEquals(3, segments.size());
+        Files.delete(segments.get(1));
+
+        IOException e = assertThrows(IOException.class,
+                () -> WriteAheadLog.replay(walDirectory, restartFromBaseData()));
+        assertTrue(e.getMessage().contains("changes are missing"));
+    }
+
+    @Test
+    void testLogNotMatchingTheStoreIsRejected() throws IOException {
+        WriteAheadLog.Checkpoint checkpoint = dataStore.checkpoint();
+        dataStore.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        log.deleteSegmentsBefore(checkpoint);
+        log.close();
+
+        IOException e = assertThrows(IOException.class,
+                () -> WriteAheadLog.replay(walDirectory, new DataStore()));
+        assertTrue(e.getMessage().contains("changes are missing"));
+    }
+
+    @Test
+    void testAppendAfterCloseFails() throws IOException {
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> dataStore.addPerson(person("Jacob", "Boyd", "x")));
+    }
+
+    private DataStore restartFromBaseData() {
+        DataStore restarted = new DataStore();
+        restarted.load(List.of(person("John", "Boyd", "1509 Culver St")),
+                List.of(firestation("1509 Culver St", "3")),
+                List.of(medicalRecord("John", "Boyd", "03/06/1984", "aznol:350mg")));
+        return restarted;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            return files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+    }
+
+    private static Person person(String firstName, String lastName, String address) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress(address);
+        person.setCity("Culver");
+        return person;
+    }
+
+    private static Firestation firestation(String address, String station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(String firstName, String lastName, String birthdate, String... medications) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(firstName);
+        record.setLastName(lastName);
+        record.setBirthdate(birthdate);
+        record.setMedications(List.of(medications));
+        record.setAllergies(List.of());
+        return record;
+    }
+}
@@ -0,0 +1,21 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.DataStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.mockito.Mockito.*;
+
+public class AgeRolloverServiceTest {
+
+    @Test
+    void testRollOverAdvancesStoreToToday() {
+        DataStore dataStore = mock(DataStore.class);
+        AgeRolloverService service = new AgeRolloverService(dataStore);
+
+        service.rollOver();
+
+        verify(dataStore, times(1)).rollAgesTo(LocalDate.now());
+    }
+}
@@ -0,0 +1,129 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.DataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFileWatcherTest {
+
+    private static final String DATA = """
+            {
+              "persons": [{"firstName": "Ann", "lastName": "Lee", "address": "1 Elm St", "city": "Culver",
+                           "zip": "97451", "phone": "%s", "email": "ann@example.com"}],
+              "firestations": [{"address": "1 Elm St", "station": "7"}],
+              "medicalrecords": [{"firstName": "Ann", "lastName": "Lee", "birthdate": "01/01/2000",
+                                  "medications": [], "allergies": []}]
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private DataStore dataStore;
+    private JsonDataReader reader;
+    private DataFileWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = tempDir.resolve("safetynet.json");
+        Files.writeString(file, DATA.formatted("555-0001"));
+        dataStore = new DataStore();
+        reader = new JsonDataReader();
+        JsonDataReader.Dataset dataset = reader.readAll(new FileSystemResource(file));
+        dataStore.load(dataset.persons(), dataset.firestations(), dataset.medicalRecords());
+        watcher = new DataFileWatcher(dataStore, reader, new DefaultResourceLoader(),
+                "file:" + file, true, Duration.ofMillis(100), true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    void testReloadAppliesOnlyChanges() throws Exception {
+        Files.writeString(file, DATA.formatted("555-0002"));
+        long version = dataStore.getVersion();
+
+        assertEquals(1, watcher.reload(file).getUpdated());
+        assertTrue(watcher.reload(file).isEmpty());
+
+        assertEquals(version + 1, dataStore.getVersion());
+        assertEquals("555-0002", dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone());
+    }
+
+    @Test
+    void testReplacedFileIsPickedUp() throws Exception {
+        watcher.start();
+        Path next = tempDir.resolve("next.json");
+        Files.writeString(next, DATA.formatted("555-0003"));
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!"555-0003".equals(dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("555-0003", dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone());
+    }
+
+    @Test
+    void testWatchingGoesOnAfterAFailedReload() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        JsonDataReader failingOnce = new JsonDataReader() {
+            @Override
+            public Dataset readAll(Resource resource) throws IOException, InterruptedException {
+                if (fail.getAndSet(false)) {
+                    throw new IllegalStateException("cannot apply");
+                }
+                return super.readAll(resource);
+            }
+        };
+        watcher.stop();
+        watcher = new DataFileWatcher(dataStore, failingOnce, new DefaultResourceLoader(),
+                "file:" + file, true, Duration.ofMillis(100), false);
+        watcher.start();
+
+        Files.writeString(file, DATA.formatted("555-0004"));
+        awaitPhone("555-0004", () -> !fail.get());
+        assertEquals("555-0001", dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone());
+        Files.writeString(file, DATA.formatted("555-0005"));
+
+        awaitPhone("555-0005", () -> false);
+        assertEquals("555-0005", dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone());
+    }
+
+    @Test
+    void testInvalidFileKeepsCurrentData() throws Exception {
+        Files.writeString(file, "{\"persons\": [");
+
+        assertThrows(Exception.class, () -> watcher.reload(file));
+
+        assertEquals("555-0001", dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone());
+    }
+
+    /** Waits until the resident has the phone, or the condition holds, for at most 10 seconds. */
+    private void awaitPhone(String phone, BooleanSupplier done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!phone.equals(dataStore.getResidentsByName("Ann", "Lee").get(0).person().getPhone())
+                && !done.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}
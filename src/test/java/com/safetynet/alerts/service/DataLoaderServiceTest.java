@@ -3,10 +3,18 @@ package com.safetynet.alerts.service;
 import com.safetynet.alerts.model.Firestation;
 import com.safetynet.alerts.model.MedicalRecord;
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,9 +22,28 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 public class DataLoaderServiceTest {
 
+    private static final String DATA = """
+            {
+              "persons": [{"firstName": "Ann", "lastName": "Lee", "address": "1 Elm St", "city": "Culver",
+                           "zip": "97451", "phone": "555-0001", "email": "ann@example.com"}],
+              "firestations": [{"address": "1 Elm St", "station": "7"}],
+              "medicalrecords": [{"firstName": "Ann", "lastName": "Lee", "birthdate": "01/01/2000",
+                                  "medications": [], "allergies": []}]
+            }
+            """;
+
     @Autowired
     private DataLoaderService dataLoaderService;
 
+    @Autowired
+    private DataStore dataStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TempDir
+    Path tempDir;
+
     @Test
     void testDataLoadedSuccessfully() {
         assertNotNull(dataLoaderService.getPersons(), "Persons list should not be null");
@@ -81,18 +108,114 @@ public class DataLoaderServiceTest {
     }
 
     @Test
-    void testListsAreMutable() {
+    void testListsAreReadOnly() {
         List<Person> persons = dataLoaderService.getPersons();
-        int originalSize = persons.size();
+
+        assertThrows(UnsupportedOperationException.class, () -> persons.add(new Person()),
+                "Persons must be changed through the data store");
+    }
+
+    @Test
+    void testMutationsGoThroughDataStore() {
+        int originalSize = dataLoaderService.getPersons().size();
 
         Person testPerson = new Person();
         testPerson.setFirstName("Test");
         testPerson.setLastName("User");
 
-        persons.add(testPerson);
-        assertEquals(originalSize + 1, persons.size(), "Persons list should be mutable");
+        dataStore.addPerson(testPerson);
+        assertEquals(originalSize + 1, dataLoaderService.getPersons().size(), "Added person should be visible");
+
+        dataStore.deletePerson("Test", "User");
+        assertEquals(originalSize, dataLoaderService.getPersons().size(), "Deleted person should be gone");
+    }
+
+    @Test
+    void testIndexesBuiltOnLoad() {
+        assertFalse(dataStore.getResidentsAtAddress("1509 Culver St").isEmpty(), "Address index should be populated");
+        assertEquals("3", dataStore.getStationForAddress("1509 Culver St").orElseThrow());
+        assertTrue(dataStore.getMedicalRecord("John", "Boyd").isPresent(), "Medical record index should be populated");
+    }
+
+    @Test
+    void testLoadIsTimed() {
+        assertEquals(1, meterRegistry.get("safetynet.data.load").tag("source", "json").timer().count());
+    }
+
+    @Test
+    void testJsonLoadWritesTheSnapshotRestoredOnTheNextStart() throws Exception {
+        Path snapshot = tempDir.resolve("safetynet.snap");
+        DataStore first = new DataStore();
+        service(first, snapshot, null, new SimpleMeterRegistry()).loadData();
+        assertTrue(Files.exists(snapshot));
+
+        DataStore restarted = new DataStore();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service(restarted, snapshot, null, registry).loadData();
+
+        assertEquals(1, registry.get("safetynet.data.load").tag("source", "snapshot").timer().count());
+        assertEquals(first.getVersion(), restarted.getVersion());
+        assertEquals("7", restarted.getStationForAddress("1 Elm St").orElseThrow());
+    }
+
+    @Test
+    void testUnreadableSnapshotStopsStartupAndIsKept() throws Exception {
+        Path snapshot = tempDir.resolve("safetynet.snap");
+        byte[] damaged = "not a snapshot".getBytes();
+        Files.write(snapshot, damaged);
+        DataStore store = new DataStore();
+        DataLoaderService service = service(store, snapshot, tempDir.resolve("wal"), new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, service::loadData);
+        service.shutdown();
+
+        assertEquals(0, store.getVersion());
+        assertArrayEquals(damaged, Files.readAllBytes(snapshot));
+    }
+
+    @Test
+    void testLogAheadOfTheDataStopsStartupWithoutWritingASnapshot() throws Exception {
+        Path snapshot = tempDir.resolve("safetynet.snap");
+        Path wal = tempDir.resolve("wal");
+        DataStore first = new DataStore();
+        DataLoaderService running = service(first, snapshot, wal, new SimpleMeterRegistry());
+        running.loadData();
+        first.deleteFirestation("1 Elm St");
+        running.shutdown();
+        Files.delete(snapshot);
+
+        DataStore restarted = new DataStore();
+        DataLoaderService service = service(restarted, snapshot, wal, new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, service::loadData);
+        service.shutdown();
+
+        assertFalse(Files.exists(snapshot));
+        try (var segments = Files.list(wal)) {
+            assertTrue(segments.findAny().isPresent(), "the log is left for inspection");
+        }
+    }
+
+    @Test
+    void testUnreadableDataFileStartsEmptyWithoutSnapshot() throws Exception {
+        Path snapshot = tempDir.resolve("safetynet.snap");
+        DataStore store = new DataStore();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DataLoaderService service = new DataLoaderService(store, new JsonDataReader(), new DefaultResourceLoader(),
+                "file:" + tempDir.resolve("missing.json"), snapshot.toString(), "", Duration.ZERO, registry);
+
+        service.loadData();
+        service.shutdown();
+
+        assertEquals(1, registry.get("safetynet.data.load").tag("source", "none").timer().count());
+        assertEquals(0, store.getVersion());
+        assertFalse(Files.exists(snapshot));
+    }
 
-        persons.remove(testPerson);
-        assertEquals(originalSize, persons.size(), "Should be able to remove from persons list");
+    private DataLoaderService service(DataStore store, Path snapshot, Path wal, MeterRegistry registry) throws Exception {
+        Path json = tempDir.resolve("safetynet.json");
+        Files.writeString(json, DATA);
+        return new DataLoaderService(store, new JsonDataReader(), new DefaultResourceLoader(), "file:" + json,
+                snapshot.toString(), wal == null ? "" : wal.toString(), Duration.ZERO, registry);
     }
 }
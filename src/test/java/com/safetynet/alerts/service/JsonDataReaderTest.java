@@ -0,0 +1,100 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.model.Resident;
+import com.safetynet.alerts.repository.DataSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonDataReaderTest {
+
+    private final JsonDataReader reader = new JsonDataReader();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadsBundledDataset() throws Exception {
+        DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+
+        JsonDataReader.Counts counts = reader.read(new ClassPathResource("data/safetynet.json"), builder);
+
+        DataSnapshot snapshot = builder.build(1);
+        assertEquals(snapshot.getPersons().size(), counts.persons());
+        assertEquals(snapshot.getFirestations().size(), counts.firestations());
+        assertEquals(snapshot.getMedicalRecords().size(), counts.medicalRecords());
+        assertTrue(counts.persons() > 0);
+        assertTrue(snapshot.getResidentsByName("John", "Boyd").get(0).hasMedicalRecord());
+    }
+
+    @Test
+    void testReadsFileWithAnySectionOrderAndUnknownSections() throws Exception {
+        Path file = tempDir.resolve("safetynet.json");
+        Files.writeString(file, """
+                {
+                  "medicalrecords": [{"firstName": "Ann", "lastName": "Lee", "birthdate": "01/01/2000",
+                                      "medications": [], "allergies": ["pollen"]}],
+                  "extra": {"nested": [1, 2, {"persons": []}]},
+                  "firestations": [{"address": "1 Elm St", "station": "7"}],
+                  "persons": [{"firstName": "Ann", "lastName": "Lee", "address": "1 Elm St", "city": "Culver",
+                               "zip": "97451", "phone": "555-0001", "email": "ann@example.com"}],
+                  "geocodes": [{"address": "1 Elm St", "latitude": 33.9, "longitude": -118.4},
+                               {"address": "2 Elm St", "latitude": null, "longitude": -118.4}]
+                }
+                """);
+        DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+
+        JsonDataReader.Counts counts = reader.read(new FileSystemResource(file), builder);
+
+        DataSnapshot snapshot = builder.build(1);
+        assertEquals(new JsonDataReader.Counts(1, 1, 1, 2), counts);
+        assertEquals("7", snapshot.getStationForAddress("1 Elm St").orElseThrow());
+        assertEquals("pollen", snapshot.getResidentsAtAddress("1 Elm St").get(0).medicalRecord().getAllergies().get(0));
+        assertEquals(-118.4, snapshot.getGeocode("1 elm street").orElseThrow().getLongitude());
+        assertFalse(snapshot.getGeocode("2 Elm St").orElseThrow().hasPosition());
+    }
+
+    @Test
+    void testLinksPersonsReadBeforeTheirMedicalRecords() throws Exception {
+        int count = 3000;
+        StringBuilder json = new StringBuilder("{\"persons\": [");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"firstName\": \"P").append(i)
+                    .append("\", \"lastName\": \"Lee\", \"address\": \"1 Elm St\", \"city\": \"Culver\"}");
+        }
+        json.append("], \"persons\": [], \"medicalrecords\": [");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"firstName\": \"P").append(i)
+                    .append("\", \"lastName\": \"Lee\", \"birthdate\": \"01/01/2000\"}");
+        }
+        json.append("]}");
+        Path file = tempDir.resolve("persons-first.json");
+        Files.writeString(file, json);
+
+        JsonDataReader.Dataset dataset = reader.readAll(new FileSystemResource(file));
+        assertEquals(count, dataset.persons().size());
+        assertEquals("P0", dataset.persons().get(0).getFirstName());
+        assertEquals("P" + (count - 1), dataset.persons().get(count - 1).getFirstName());
+
+        DataSnapshot.Builder builder = DataSnapshot.empty(LocalDate.now()).toBuilder();
+        assertEquals(new JsonDataReader.Counts(count, 0, count, 0), reader.read(new FileSystemResource(file), builder));
+        assertTrue(builder.build(1).getResidentsAtAddress("1 Elm St").stream().allMatch(Resident::hasMedicalRecord));
+    }
+
+    @Test
+    void testRejectsMalformedDocument() throws Exception {
+        Path file = tempDir.resolve("broken.json");
+        Files.writeString(file, "{\"persons\": {\"firstName\": \"Ann\"}}");
+
+        assertThrows(IOException.class,
+                () -> reader.read(new FileSystemResource(file), DataSnapshot.empty(LocalDate.now()).toBuilder()));
+    }
+}
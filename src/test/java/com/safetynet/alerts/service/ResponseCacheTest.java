@@ -0,0 +1,203 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.MedicalRecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.DataVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private DataStore dataStore;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new DataStore();
+        dataStore.load(
+                List.of(person("John", "Boyd", "1509 Culver St", "Culver"),
+                        person("Peter", "Duncan", "644 Gershwin Cir", "Ashland")),
+                List.of(firestation("1509 Culver St", "3"), firestation("644 Gershwin Cir", "1")),
+                List.of(medicalRecord("John", "Boyd", "03/06/1984"), medicalRecord("Peter", "Duncan", "09/06/2000")));
+        cache = new ResponseCache(dataStore, 100);
+    }
+
+    @Test
+    void testRepeatedRequestIsAHit() {
+        Object first = phones("3");
+        Object second = cache.get("phoneAlert", List.of(DataVersions.station("3")), data -> fail("not cached"));
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testParametersAreNormalised() {
+        cache.get("fire", List.of(DataVersions.address("1509 Culver St")), data -> "fire");
+
+        assertEquals("fire", cache.get("fire", List.of(DataVersions.address("1509 CULVER ST")), data -> "other"));
+    }
+
+    @Test
+    void testPersonChangeEvictsOnlyItsAddressStationCityAndName() {
+        warm();
+        Person moved = person("John", "Boyd", "1509 Culver St", "Culver");
+        moved.setPhone("000-000-0000");
+
+        dataStore.updatePerson(moved);
+
+        assertEquals(4, cache.getInvalidations());
+        assertEquals(4, cache.size());
+        for (String tag : List.of(DataVersions.address("644 Gershwin Cir"), DataVersions.station("1"),
+                DataVersions.city("Ashland"), DataVersions.lastName("Duncan"))) {
+            assertEquals("cached", cache.get("endpoint", List.of(tag), data -> "recomputed"));
+        }
+        assertEquals(List.of("000-000-0000"), phones("3"));
+    }
+
+    @Test
+    void testFirestationChangeEvictsAddressAndBothStations() {
+        warm();
+
+        dataStore.updateFirestation(firestation("1509 Culver St", "1"));
+
+        assertEquals(3, cache.getInvalidations());
+        assertEquals("cached", cache.get("endpoint", List.of(DataVersions.city("Culver")), data -> "recomputed"));
+        assertEquals(List.of("841-874-6512", "841-874-6512"), phones("1"));
+    }
+
+    @Test
+    void testBirthdayEvictsTheResidentsEntries() {
+        dataStore.rollAgesTo(LocalDate.of(2030, 3, 1));
+        warm();
+
+        dataStore.rollAgesTo(LocalDate.of(2030, 3, 6));
+
+        assertEquals("cached", cache.get("endpoint", List.of(DataVersions.address("644 Gershwin Cir")),
+                data -> "recomputed"));
+        assertEquals("recomputed", cache.get("endpoint", List.of(DataVersions.address("1509 Culver St")),
+                data -> "recomputed"));
+    }
+
+    @Test
+    void testReloadClearsEverything() {
+        warm();
+
+        dataStore.load(List.of(), List.of(), List.of());
+
+        assertEquals(0, cache.size());
+        assertEquals(8, cache.getInvalidations());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvictedPastMaximum() {
+        cache = new ResponseCache(dataStore, 2);
+        cache.get("a", List.of(), data -> "a");
+        cache.get("b", List.of(), data -> "b");
+        cache.get("a", List.of(), data -> "a");
+
+        cache.get("c", List.of(), data -> "c");
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals("a", cache.get("a", List.of(), data -> "recomputed"));
+        assertEquals("recomputed", cache.get("b", List.of(), data -> "recomputed"));
+    }
+
+    @Test
+    void testConcurrentHitsAreServedAndStillCountTowardsRecency() throws Exception {
+        cache = new ResponseCache(dataStore, 2);
+        cache.get("a", List.of(), data -> "a");
+        cache.get("b", List.of(), data -> "b");
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(Thread.startVirtualThread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    cache.get("a", List.of(), data -> "recomputed");
+                }
+            }));
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        cache.get("c", List.of(), data -> "c");
+
+        assertEquals(40_000, cache.getHits());
+        assertEquals("a", cache.get("a", List.of(), data -> "recomputed"));
+        assertEquals("recomputed", cache.get("b", List.of(), data -> "recomputed"));
+    }
+
+    @Test
+    void testResponseComputedBeforeAChangeIsNotStored() {
+        Object stale = cache.get("phoneAlert", List.of(DataVersions.station("3")), data -> {
+            Person person = person("John", "Boyd", "1509 Culver St", "Culver");
+            person.setPhone("000-000-0000");
+            dataStore.updatePerson(person);
+            return "stale";
+        });
+
+        assertEquals("stale", stale);
+        assertEquals(0, cache.size());
+        assertEquals(List.of("000-000-0000"), phones("3"));
+    }
+
+    @Test
+    void testDisabledCacheAlwaysComputes() {
+        cache = new ResponseCache(dataStore, 0);
+        cache.get("a", List.of(), data -> "a");
+
+        assertEquals("b", cache.get("a", List.of(), data -> "b"));
+        assertEquals(0, cache.size());
+    }
+
+    /** Caches one entry per tag of the dataset. */
+    private void warm() {
+        for (String tag : List.of(DataVersions.address("1509 Culver St"), DataVersions.address("644 Gershwin Cir"),
+                DataVersions.station("3"), DataVersions.station("1"), DataVersions.city("Culver"),
+                DataVersions.city("Ashland"), DataVersions.lastName("Boyd"), DataVersions.lastName("Duncan"))) {
+            cache.get("endpoint", List.of(tag), data -> "cached");
+        }
+    }
+
+    private List<String> phones(String station) {
+        return cache.get("phoneAlert", List.of(DataVersions.station(station)), data ->
+                data.getAddressesForStation(station).stream()
+                        .flatMap(address -> data.getResidentsAtAddress(address).stream())
+                        .map(resident -> resident.person().getPhone())
+                        .toList());
+    }
+
+    private static Person person(String firstName, String lastName, String address, String city) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress(address);
+        person.setCity(city);
+        person.setPhone("841-874-6512");
+        return person;
+    }
+
+    private static Firestation firestation(String address, String station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static MedicalRecord medicalRecord(String firstName, String lastName, String birthdate) {
+        MedicalRecord record = new MedicalRecord();
+        record.setFirstName(firstName);
+        record.setLastName(lastName);
+        record.setBirthdate(birthdate);
+        return record;
+    }
+}